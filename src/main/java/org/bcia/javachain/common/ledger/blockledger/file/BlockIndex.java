@@ -0,0 +1,241 @@
+/**
+ * Copyright Dingxuan. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.common.ledger.blockledger.file;
+
+import org.bcia.javachain.common.exception.LedgerException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 内存映射的区块索引文件
+ * 文件头之后按区块编号顺序存放定长索引项,第n个区块的索引项位于 HEADER_SIZE + (n - base) * ENTRY_SIZE
+ * 索引项记录区块所在的分段文件、偏移、长度以及区块哈希
+ * 文件按固定大小分块映射,位置使用long,不受单个MappedByteBuffer的int寻址限制
+ * 只允许单线程写入,读取无需加锁
+ */
+class BlockIndex {
+    private static final int MAGIC = 0x424c4b49;
+    private static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 64;
+    static final int ENTRY_SIZE = 64;
+    /**
+     * 索引项中哈希的最大长度
+     */
+    static final int MAX_HASH_SIZE = ENTRY_SIZE - 20;
+
+    private static final int HEADER_BASE = 8;
+    private static final int HEADER_HEIGHT = 16;
+
+    private static final int ENTRY_OFFSET = 0;
+    private static final int ENTRY_SEGMENT = 8;
+    private static final int ENTRY_LENGTH = 12;
+    private static final int ENTRY_HASH_LENGTH = 16;
+    private static final int ENTRY_HASH = 20;
+
+    /**
+     * 每次扩容增加的索引项数量
+     */
+    private static final long GROW_ENTRIES = 64 * 1024;
+    /**
+     * 每个映射块的大小,是索引项大小的整数倍,索引项不会跨块
+     */
+    private static final long CHUNK_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long chunkSize;
+    private volatile MappedByteBuffer[] buffers;
+    private volatile long capacity;
+    private volatile long base;
+    private volatile long height;
+
+    BlockIndex(Path file) throws LedgerException {
+        this(file, CHUNK_SIZE);
+    }
+
+    BlockIndex(Path file, long chunkSize) throws LedgerException {
+        if (chunkSize <= 0 || chunkSize % ENTRY_SIZE != 0 || chunkSize > Integer.MAX_VALUE) {
+            throw new LedgerException("Invalid block index chunk size: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            boolean created = channel.size() < HEADER_SIZE;
+            map(Math.max(channel.size(), HEADER_SIZE + GROW_ENTRIES * ENTRY_SIZE));
+            MappedByteBuffer buffer = buffers[0];
+            if (created) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putLong(HEADER_BASE, -1L);
+                buffer.putLong(HEADER_HEIGHT, -1L);
+            } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new LedgerException("Not a block index file: " + file);
+            }
+            base = buffer.getLong(HEADER_BASE);
+            height = buffer.getLong(HEADER_HEIGHT);
+        } catch (IOException e) {
+            throw new LedgerException("Can not open block index " + file, e);
+        }
+    }
+
+    /**
+     * 映射到指定大小,已完整映射的块保持不变,只重新映射末尾增长的块
+     */
+    private void map(long size) throws IOException {
+        int chunks = (int) ((size + chunkSize - 1) / chunkSize);
+        MappedByteBuffer[] lbuffers = buffers == null ? new MappedByteBuffer[chunks] : Arrays.copyOf(buffers, chunks);
+        for (int i = 0; i < chunks; ++i) {
+            long start = i * chunkSize;
+            long length = Math.min(chunkSize, size - start);
+            if (lbuffers[i] == null || lbuffers[i].capacity() < length) {
+                lbuffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, length);
+            }
+        }
+        buffers = lbuffers;
+        capacity = size;
+    }
+
+    /**
+     * @return 第一个区块的编号,没有区块时为-1
+     */
+    long getBase() {
+        return base;
+    }
+
+    /**
+     * @return 下一个区块的编号,没有区块时为-1
+     */
+    long getHeight() {
+        return height;
+    }
+
+    boolean isEmpty() {
+        return base < 0 || height <= base;
+    }
+
+    boolean contains(long number) {
+        return !isEmpty() && number >= base && number < height;
+    }
+
+    private long position(long number) {
+        return HEADER_SIZE + (number - base) * ENTRY_SIZE;
+    }
+
+    /**
+     * @return 索引项所在的映射块
+     */
+    private MappedByteBuffer chunk(long position) {
+        return buffers[(int) (position / chunkSize)];
+    }
+
+    /**
+     * @return 索引项在映射块中的位置
+     */
+    private int inChunk(long position) {
+        return (int) (position % chunkSize);
+    }
+
+    long getOffset(long number) {
+        final long position = position(number);
+        return chunk(position).getLong(inChunk(position) + ENTRY_OFFSET);
+    }
+
+    int getSegment(long number) {
+        final long position = position(number);
+        return chunk(position).getInt(inChunk(position) + ENTRY_SEGMENT);
+    }
+
+    int getLength(long number) {
+        final long position = position(number);
+        return chunk(position).getInt(inChunk(position) + ENTRY_LENGTH);
+    }
+
+    byte[] getHash(long number) {
+        final MappedByteBuffer lbuffer = chunk(position(number));
+        final int position = inChunk(position(number));
+        byte[] hash = new byte[lbuffer.getInt(position + ENTRY_HASH_LENGTH)];
+        for (int i = 0; i < hash.length; ++i) {
+            hash[i] = lbuffer.get(position + ENTRY_HASH + i);
+        }
+        return hash;
+    }
+
+    /**
+     * 写入下一个区块的索引项,索引项写完后才更新高度,读取方看到新高度时索引项已经可用
+     */
+    void append(long number, int segment, long offset, int length, byte[] hash) throws LedgerException {
+        if (hash.length > MAX_HASH_SIZE) {
+            throw new LedgerException("Block hash too long: " + hash.length);
+        }
+        if (isEmpty()) {
+            base = number;
+            buffers[0].putLong(HEADER_BASE, number);
+        } else if (number != height) {
+            throw new LedgerException("Expected block " + height + " but got " + number);
+        }
+
+        if (position(number) + ENTRY_SIZE > capacity) {
+            try {
+                map(capacity + GROW_ENTRIES * ENTRY_SIZE);
+            } catch (IOException e) {
+                throw new LedgerException("Can not grow block index", e);
+            }
+        }
+        final MappedByteBuffer lbuffer = chunk(position(number));
+        final int position = inChunk(position(number));
+        lbuffer.putLong(position + ENTRY_OFFSET, offset);
+        lbuffer.putInt(position + ENTRY_SEGMENT, segment);
+        lbuffer.putInt(position + ENTRY_LENGTH, length);
+        lbuffer.putInt(position + ENTRY_HASH_LENGTH, hash.length);
+        for (int i = 0; i < hash.length; ++i) {
+            lbuffer.put(position + ENTRY_HASH + i, hash[i]);
+        }
+        buffers[0].putLong(HEADER_HEIGHT, number + 1);
+        height = number + 1;
+    }
+
+    /**
+     * 恢复时丢弃末尾没有完整写入的区块
+     */
+    void truncate(long newHeight) {
+        final MappedByteBuffer buffer = buffers[0];
+        if (newHeight <= base) {
+            buffer.putLong(HEADER_BASE, -1L);
+            buffer.putLong(HEADER_HEIGHT, -1L);
+            base = -1L;
+            height = -1L;
+        } else {
+            buffer.putLong(HEADER_HEIGHT, newHeight);
+            height = newHeight;
+        }
+    }
+
+    void force() {
+        for (MappedByteBuffer buffer : buffers) {
+            buffer.force();
+        }
+    }
+
+    void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
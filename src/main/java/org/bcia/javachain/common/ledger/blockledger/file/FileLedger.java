@@ -0,0 +1,360 @@
+/**
+ * Copyright Dingxuan. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.common.ledger.blockledger.file;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.bcia.javachain.common.exception.LedgerException;
+import org.bcia.javachain.common.ledger.blockledger.IIterator;
+import org.bcia.javachain.common.ledger.blockledger.ReadWriteBase;
+import org.bcia.javachain.sdk.common.log.JavaChainLog;
+import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
+import org.bcia.julongchain.protos.common.Common;
+import org.bcia.julongchain.protos.consenter.Ab;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于本地文件的追加写区块账本
+ * 区块顺序写入分段文件(blockfile_000000, blockfile_000001...),单个分段超过上限后切换到新分段
+ * 区块编号索引使用内存映射文件,哈希索引在打开时由编号索引重建,按编号和哈希读取都只需一次定位读
+ * 写入后的刷盘按区块数和时间间隔批量进行
+ * 账本可以从任意编号开始,之后的区块必须连续
+ */
+public class FileLedger extends ReadWriteBase {
+    private static JavaChainLog log = JavaChainLogFactory.getLog(FileLedger.class);
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    public static final int DEFAULT_SYNC_BLOCKS = 100;
+    public static final long DEFAULT_SYNC_INTERVAL = 1000L;
+
+    private static final String SEGMENT_PREFIX = "blockfile_";
+    private static final String INDEX_FILE = "index";
+
+    private final Path directory;
+    private final long segmentSize;
+    private final int syncBlocks;
+    private final long syncInterval;
+
+    private final BlockIndex index;
+    private final Map<ByteString, Long> hashIndex = new ConcurrentHashMap<>();
+    private final Map<Integer, FileChannel> readers = new ConcurrentHashMap<>();
+
+    private FileChannel writer;
+    private int writeSegment;
+    private long writeOffset;
+    private int unsyncedBlocks;
+    private long lastSyncTime = System.currentTimeMillis();
+    private volatile boolean closed;
+
+    public FileLedger(String directory) throws LedgerException {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_SYNC_BLOCKS, DEFAULT_SYNC_INTERVAL);
+    }
+
+    /**
+     * @param directory    账本目录
+     * @param segmentSize  单个分段文件的大小上限
+     * @param syncBlocks   累计多少个区块未刷盘时刷盘
+     * @param syncInterval 距上次刷盘多少毫秒后,下一次写入时刷盘
+     * @throws LedgerException
+     */
+    public FileLedger(String directory, long segmentSize, int syncBlocks, long syncInterval) throws LedgerException {
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSize;
+        this.syncBlocks = Math.max(1, syncBlocks);
+        this.syncInterval = syncInterval;
+        try {
+            Files.createDirectories(this.directory);
+        } catch (IOException e) {
+            throw new LedgerException("Can not create ledger directory " + directory, e);
+        }
+        index = new BlockIndex(this.directory.resolve(INDEX_FILE));
+        recover();
+    }
+
+    /**
+     * 丢弃上次异常退出时没有完整写入的区块,重建哈希索引并定位写入位置
+     */
+    private void recover() throws LedgerException {
+        try {
+            long height = index.getHeight();
+            while (!index.isEmpty() && height > index.getBase()) {
+                long last = height - 1;
+                Path segment = getSegmentPath(index.getSegment(last));
+                if (Files.exists(segment) && Files.size(segment) >= index.getOffset(last) + index.getLength(last)) {
+                    break;
+                }
+                height = last;
+            }
+            if (height != index.getHeight()) {
+                log.warn("Ledger {} dropping incomplete blocks {} to {}", directory, height, index.getHeight() - 1);
+                index.truncate(height);
+            }
+
+            if (index.isEmpty()) {
+                writeSegment = 0;
+                writeOffset = 0;
+            } else {
+                long last = index.getHeight() - 1;
+                writeSegment = index.getSegment(last);
+                writeOffset = index.getOffset(last) + index.getLength(last);
+                for (long number = index.getBase(); number <= last; ++number) {
+                    hashIndex.put(ByteString.copyFrom(index.getHash(number)), number);
+                }
+            }
+            openWriter();
+            //截掉未写完的区块数据
+            if (writer.size() > writeOffset) {
+                writer.truncate(writeOffset);
+            }
+        } catch (IOException e) {
+            throw new LedgerException("Can not recover ledger " + directory, e);
+        }
+        log.info("Ledger {} opened, blocks {} to {}", directory, index.getBase(), index.getHeight() - 1);
+    }
+
+    private Path getSegmentPath(int segment) {
+        return directory.resolve(String.format("%s%06d", SEGMENT_PREFIX, segment));
+    }
+
+    private void openWriter() throws IOException {
+        writer = FileChannel.open(getSegmentPath(writeSegment), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * 区块哈希,与节点一致取区块头中的数据哈希(见blockledger.Util.createNextBlock)
+     */
+    public static byte[] getBlockHash(Common.BlockHeader header) {
+        return header.getDataHash().toByteArray();
+    }
+
+    @Override
+    public synchronized void append(Common.Block block) throws LedgerException {
+        if (closed) {
+            throw new LedgerException("Ledger is closed");
+        }
+        final long number = block.getHeader().getNumber();
+        if (!index.isEmpty() && number != index.getHeight()) {
+            throw new LedgerException("Block number should be " + index.getHeight() + " but got " + number);
+        }
+
+        final byte[] hash = getBlockHash(block.getHeader());
+        final byte[] bytes = block.toByteArray();
+        try {
+            if (writeOffset > 0 && writeOffset + bytes.length > segmentSize) {
+                //切换分段前先把当前分段刷盘
+                writer.force(false);
+                writer.close();
+                ++writeSegment;
+                writeOffset = 0;
+                openWriter();
+                //上次异常退出可能留下未被索引的分段
+                writer.truncate(0);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long position = writeOffset;
+            while (buffer.hasRemaining()) {
+                position += writer.write(buffer, position);
+            }
+        } catch (IOException e) {
+            throw new LedgerException("Can not write block " + number, e);
+        }
+
+        index.append(number, writeSegment, writeOffset, bytes.length, hash);
+        hashIndex.put(ByteString.copyFrom(hash), number);
+        writeOffset += bytes.length;
+
+        ++unsyncedBlocks;
+        if (unsyncedBlocks >= syncBlocks || System.currentTimeMillis() - lastSyncTime >= syncInterval) {
+            sync();
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * 把已写入的区块和索引刷到磁盘
+     */
+    public synchronized void sync() throws LedgerException {
+        if (closed || unsyncedBlocks == 0) {
+            return;
+        }
+        try {
+            //先刷区块数据再刷索引,索引中的区块总是已经落盘
+            writer.force(false);
+            index.force();
+        } catch (IOException e) {
+            throw new LedgerException("Can not sync ledger " + directory, e);
+        }
+        unsyncedBlocks = 0;
+        lastSyncTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public long height() throws LedgerException {
+        return index.isEmpty() ? 0 : index.getHeight();
+    }
+
+    /**
+     * @return 账本中第一个区块的编号,账本为空时为-1
+     */
+    public long getBase() {
+        return index.isEmpty() ? -1L : index.getBase();
+    }
+
+    public boolean contains(long number) {
+        return index.contains(number);
+    }
+
+    /**
+     * 按编号读取区块
+     *
+     * @return 区块,账本中没有时返回null
+     */
+    public Common.Block getBlockByNumber(long number) throws LedgerException {
+        if (!index.contains(number)) {
+            return null;
+        }
+        final int segment = index.getSegment(number);
+        final long offset = index.getOffset(number);
+        final ByteBuffer buffer = ByteBuffer.allocate(index.getLength(number));
+        try {
+            FileChannel reader = getReader(segment);
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                int read = reader.read(buffer, position);
+                if (read < 0) {
+                    throw new LedgerException("Unexpected end of " + getSegmentPath(segment) + " reading block " + number);
+                }
+                position += read;
+            }
+            buffer.flip();
+            return Common.Block.parseFrom(buffer);
+        } catch (InvalidProtocolBufferException e) {
+            throw new LedgerException("Block " + number + " is corrupted", e);
+        } catch (IOException e) {
+            throw new LedgerException("Can not read block " + number, e);
+        }
+    }
+
+    /**
+     * 按区块哈希读取区块
+     *
+     * @param hash 区块哈希,见getBlockHash
+     * @return 区块,账本中没有时返回null
+     */
+    public Common.Block getBlockByHash(byte[] hash) throws LedgerException {
+        Long number = hashIndex.get(ByteString.copyFrom(hash));
+        return number == null ? null : getBlockByNumber(number);
+    }
+
+    private FileChannel getReader(int segment) throws IOException {
+        FileChannel reader = readers.get(segment);
+        if (reader == null) {
+            FileChannel opened = FileChannel.open(getSegmentPath(segment), StandardOpenOption.READ);
+            reader = readers.putIfAbsent(segment, opened);
+            if (reader == null) {
+                reader = opened;
+            } else {
+                opened.close();
+            }
+        }
+        return reader;
+    }
+
+    @Override
+    public IIterator iterator(Ab.SeekPosition startType) throws LedgerException {
+        long start;
+        switch (startType.getTypeCase()) {
+            case OLDEST:
+                start = Math.max(0L, getBase());
+                break;
+            case NEWEST:
+                start = Math.max(0L, height() - 1);
+                break;
+            case SPECIFIED:
+                start = startType.getSpecified().getNumber();
+                break;
+            default:
+                throw new LedgerException("Unknown seek position type " + startType.getTypeCase());
+        }
+        return new FileLedgerIterator(this, start);
+    }
+
+    /**
+     * 等待指定区块写入账本
+     *
+     * @param iterator 等待的迭代器,迭代器关闭时停止等待
+     * @return 区块已写入返回true,账本或迭代器关闭返回false
+     */
+    synchronized boolean waitFor(long number, FileLedgerIterator iterator) throws LedgerException {
+        while (!closed && !iterator.isClosed() && number >= height()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LedgerException("Interrupted waiting for block " + number, e);
+            }
+        }
+        return !closed && !iterator.isClosed();
+    }
+
+    /**
+     * 唤醒等待区块的线程,迭代器关闭时调用
+     */
+    synchronized void wakeUp() {
+        notifyAll();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            sync();
+        } catch (LedgerException e) {
+            log.error(e.getMessage(), e);
+        }
+        closed = true;
+        try {
+            writer.close();
+            for (FileChannel reader : readers.values()) {
+                reader.close();
+            }
+            index.close();
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        }
+        readers.clear();
+        notifyAll();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+}
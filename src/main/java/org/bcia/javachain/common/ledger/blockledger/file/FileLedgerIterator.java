@@ -0,0 +1,72 @@
+/**
+ * Copyright Dingxuan. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.common.ledger.blockledger.file;
+
+import org.bcia.javachain.common.exception.LedgerException;
+import org.bcia.javachain.common.ledger.blockledger.IIterator;
+import org.bcia.javachain.core.ledger.kvledger.txmgmt.statedb.QueryResult;
+import org.bcia.julongchain.protos.common.Common;
+
+import java.util.AbstractMap;
+
+/**
+ * 文件账本迭代器
+ * next()返回QueryResult,其中为Map.Entry<QueryResult(区块), Common.Status>
+ * 区块还未写入时阻塞等待
+ */
+public class FileLedgerIterator implements IIterator {
+    private final FileLedger ledger;
+    private long blockNumber;
+    private volatile boolean closed;
+
+    public FileLedgerIterator(FileLedger ledger, long blockNumber) {
+        this.ledger = ledger;
+        this.blockNumber = blockNumber;
+    }
+
+    @Override
+    public QueryResult next() throws LedgerException {
+        if (blockNumber < ledger.getBase()) {
+            //账本中不包含更早的区块
+            return new QueryResult(new AbstractMap.SimpleEntry<>(null, Common.Status.NOT_FOUND));
+        }
+        if (!ledger.waitFor(blockNumber, this)) {
+            return new QueryResult(new AbstractMap.SimpleEntry<>(null, Common.Status.SERVICE_UNAVAILABLE));
+        }
+        Common.Block block = ledger.getBlockByNumber(blockNumber);
+        if (block == null) {
+            return new QueryResult(new AbstractMap.SimpleEntry<>(null, Common.Status.NOT_FOUND));
+        }
+        ++blockNumber;
+        return new QueryResult(new AbstractMap.SimpleEntry<>(new QueryResult(block), Common.Status.SUCCESS));
+    }
+
+    @Override
+    public void readyChain() throws LedgerException {
+        ledger.waitFor(blockNumber, this);
+    }
+
+    @Override
+    public void close() throws LedgerException {
+        closed = true;
+        //唤醒阻塞在next()或readyChain()中的线程
+        ledger.wakeUp();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+}
@@ -51,7 +51,7 @@ public class ImplicitMetaPolicy implements IPolicy {
             threshold = 1;
         } else if (Policies.ImplicitMetaPolicy.Rule.ALL.equals(policy.getRule())) {
             threshold = subPolicies.length;
-        } else if (Policies.ImplicitMetaPolicy.Rule.ALL.equals(policy.getRule())) {
+        } else if (Policies.ImplicitMetaPolicy.Rule.MAJORITY.equals(policy.getRule())) {
             threshold = subPolicies.length / 2 + 1;
         }
 
@@ -66,7 +66,12 @@ public class ImplicitMetaPolicy implements IPolicy {
         int remaining = threshold;
 
         for (IPolicy policy : subPolicies) {
-            policy.evaluate(signatureSet);
+            //子策略不满足时继续评估下一个,只统计满足的数量
+            try {
+                policy.evaluate(signatureSet);
+            } catch (PolicyException e) {
+                continue;
+            }
             remaining--;
 
             if (remaining == 0) {
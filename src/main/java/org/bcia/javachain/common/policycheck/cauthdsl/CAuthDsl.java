@@ -19,17 +19,17 @@ package org.bcia.javachain.common.policycheck.cauthdsl;
 import org.bcia.javachain.common.exception.PolicyException;
 import org.bcia.javachain.sdk.common.log.JavaChainLog;
 import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
+import org.bcia.javachain.common.policycheck.policies.EvaluationContext;
 import org.bcia.javachain.common.policycheck.policies.Evalutor;
 import org.bcia.javachain.common.policycheck.policies.IEvalutor;
 import org.bcia.javachain.common.util.proto.SignedData;
 import org.bcia.javachain.sdk.security.msp.IIdentityDeserializer;
 
-import org.bcia.javachain.sdk.security.msp.mgmt.Identity;
 import org.bcia.julongchain.protos.common.MspPrincipal;
 import org.bcia.julongchain.protos.common.Policies;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -48,25 +48,7 @@ public class CAuthDsl {
      * @return
      */
     public static List<SignedData> deduplicate(List<SignedData> signedDatas, IIdentityDeserializer deserializer) throws PolicyException {
-        Map<String,Object> ids = new HashMap<String,Object>(16);
-        List<SignedData> result = new ArrayList<SignedData>();
-        for(int i=0;i<signedDatas.size();i++){
-            Identity identity = null;
-            try {
-                identity = (Identity) deserializer.deserializeIdentity(signedDatas.get(i).getIdentity());
-            }catch (Exception e){
-                String msg=String.format("Principal deserialization failure  %s for [%s]",e.getMessage(),signedDatas.get(i).getIdentity());
-                throw new PolicyException(msg);
-            }
-            String key = identity.getIdentityIdentifier().getMspid()+identity.getIdentityIdentifier().getId();
-            if(ids.get(key) != null){
-                log.warn("De-duplicating identity [%s] at index [%s] in signature set",signedDatas.get(i).getIdentity(),i);
-            }else{
-                result.add(signedDatas.get(i));
-                ids.put(key,null);
-            }
-        }
-        return result;
+        return EvaluationContext.deduplicate(signedDatas, deserializer).getSignedDatas();
     }
 
     public static IEvalutor compile(Policies.SignaturePolicy policy, List<MspPrincipal.MSPPrincipal> identities, IIdentityDeserializer deserializer){
@@ -95,4 +77,37 @@ public class CAuthDsl {
 
         }
     }
+
+    /**
+     * 收集策略中SIGNED_BY引用的主体
+     * @param policy
+     * @param identities
+     * @return 以主体序号为键的主体
+     */
+    public static Map<Integer, MspPrincipal.MSPPrincipal> principals(Policies.SignaturePolicy policy, List<MspPrincipal.MSPPrincipal> identities){
+        Map<Integer, MspPrincipal.MSPPrincipal> principals = new LinkedHashMap<Integer, MspPrincipal.MSPPrincipal>();
+        collectPrincipals(policy, identities, principals);
+        return principals;
+    }
+
+    private static void collectPrincipals(Policies.SignaturePolicy policy, List<MspPrincipal.MSPPrincipal> identities,
+                                          Map<Integer, MspPrincipal.MSPPrincipal> principals){
+        if(policy == null){
+            return;
+        }
+        switch (policy.getTypeCase()) {
+            case N_OUT_OF:
+                for(Policies.SignaturePolicy rule : policy.getNOutOf().getRulesList()){
+                    collectPrincipals(rule,identities,principals);
+                }
+                break;
+            case SIGNED_BY:
+                if(policy.getSignedBy() >= 0 && policy.getSignedBy() < identities.size()){
+                    principals.put(policy.getSignedBy(), identities.get(policy.getSignedBy()));
+                }
+                break;
+            default:
+                break;
+        }
+    }
 }
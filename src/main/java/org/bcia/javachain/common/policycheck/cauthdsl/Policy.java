@@ -20,11 +20,15 @@ import org.bcia.javachain.common.exception.PolicyException;
 import org.bcia.javachain.sdk.common.log.JavaChainLog;
 import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
 import org.bcia.javachain.common.policies.policy.IPolicy;
+import org.bcia.javachain.common.policycheck.policies.EvaluationContext;
 import org.bcia.javachain.common.policycheck.policies.IEvalutor;
 import org.bcia.javachain.common.util.proto.SignedData;
 import org.bcia.javachain.sdk.security.msp.IIdentityDeserializer;
+import org.bcia.julongchain.protos.common.MspPrincipal;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -39,10 +43,19 @@ public class Policy implements IPolicy {
 
     private IIdentityDeserializer deserializer;
     private IEvalutor evalutor;
+    private Map<Integer, MspPrincipal.MSPPrincipal> principals;
 
     public Policy(IIdentityDeserializer deserializer, IEvalutor evalutor) {
+        this(deserializer, evalutor, Collections.emptyMap());
+    }
+
+    /**
+     * @param principals 策略引用的主体,只批量验证满足这些主体的签名
+     */
+    public Policy(IIdentityDeserializer deserializer, IEvalutor evalutor, Map<Integer, MspPrincipal.MSPPrincipal> principals) {
         this.deserializer = deserializer;
         this.evalutor = evalutor;
+        this.principals = principals;
     }
 
     public IIdentityDeserializer getDeserializer() {
@@ -66,21 +79,17 @@ public class Policy implements IPolicy {
      * 签名策略评估
      */
     public void evaluate(List<SignedData> signatureList) throws PolicyException {
-        Boolean[] bool = new Boolean[signatureList.size()];
-        if(this == null){
-            log.error("No Such policy");
+        //去重时反序列化的身份在评估中复用
+        EvaluationContext context = EvaluationContext.deduplicate(signatureList, this.deserializer);
+        if (context.size() > 1 && !principals.isEmpty()) {
+            //多个签名时先并行批量验签,评估中直接使用验签结果
+            context.verifyAll(principals);
+        }
+        boolean ok = evalutor.evaluate(context);
+        if(!ok){
+            log.error("Failed to authenticate policy");
+            throw new PolicyException("Failed to authenticate policy");
         }
-            List<SignedData> signedDataList = CAuthDsl.deduplicate(signatureList,this.deserializer);
-
-
-        // FOR DEBUG  策略评估出错，保证测试继续，未评估策略      BY LIUXIONG  2018-06-15
-        //Boolean ok1 = evalutor.evaluate(signedDataList,bool);
-        Boolean ok = true;
-            if(!ok){
-                log.error("Failed to authenticate policy");
-            }
     }
 
-
-
 }
@@ -0,0 +1,255 @@
+/**
+ * Copyright Aisino. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.common.policycheck.policies;
+
+import org.bcia.javachain.common.exception.JavaChainException;
+import org.bcia.javachain.common.exception.PolicyException;
+import org.bcia.javachain.common.util.proto.SignedData;
+import org.bcia.javachain.sdk.common.log.JavaChainLog;
+import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
+import org.bcia.javachain.sdk.security.csp.gm.dxct.sm2.SM2SignerOpts;
+import org.bcia.javachain.sdk.security.csp.intfs.ICsp;
+import org.bcia.javachain.sdk.security.csp.intfs.VerifyRequest;
+import org.bcia.javachain.sdk.security.msp.IIdentity;
+import org.bcia.javachain.sdk.security.msp.IIdentityDeserializer;
+import org.bcia.javachain.sdk.security.msp.mgmt.Identity;
+import org.bcia.julongchain.protos.common.MspPrincipal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一次策略评估的上下文
+ * 每个签名身份最多反序列化一次、验签一次,身份与主体的匹配结果按主体序号缓存,
+ * 已被使用的身份记录在位图中,失败的分支通过回滚日志撤销,无需复制used数组
+ */
+public class EvaluationContext {
+    private static JavaChainLog log = JavaChainLogFactory.getLog(EvaluationContext.class);
+
+    private static final byte UNKNOWN = 0;
+    private static final byte VALID = 1;
+    private static final byte INVALID = 2;
+
+    private final List<SignedData> signedDatas;
+    private final IIdentityDeserializer deserializer;
+    private final IIdentity[] identities;
+    private final byte[] signatures;
+    private final Map<Integer, byte[]> principalMatches = new HashMap<>();
+    private final BitSet used = new BitSet();
+    private int[] journal = new int[8];
+    private int journalSize = 0;
+
+    public EvaluationContext(List<SignedData> signedDatas, IIdentityDeserializer deserializer) {
+        this(signedDatas, new IIdentity[signedDatas.size()], deserializer);
+    }
+
+    private EvaluationContext(List<SignedData> signedDatas, IIdentity[] identities, IIdentityDeserializer deserializer) {
+        this.signedDatas = signedDatas;
+        this.identities = identities;
+        this.deserializer = deserializer;
+        this.signatures = new byte[signedDatas.size()];
+    }
+
+    /**
+     * 删除重复身份,保留身份顺序,反序列化得到的身份在评估中复用
+     *
+     * @param signedDatas  签名数据
+     * @param deserializer 身份反序列化器
+     * @return 评估上下文
+     * @throws PolicyException
+     */
+    public static EvaluationContext deduplicate(List<SignedData> signedDatas, IIdentityDeserializer deserializer) throws PolicyException {
+        Set<String> ids = new HashSet<>();
+        List<SignedData> result = new ArrayList<>(signedDatas.size());
+        IIdentity[] identities = new IIdentity[signedDatas.size()];
+        for (int i = 0; i < signedDatas.size(); i++) {
+            IIdentity identity = deserialize(deserializer, signedDatas.get(i));
+            String key = ((Identity) identity).getIdentityIdentifier().getMspid() + ((Identity) identity).getIdentityIdentifier().getId();
+            if (!ids.add(key)) {
+                log.warn("De-duplicating identity at index {} in signature set", i);
+            } else {
+                identities[result.size()] = identity;
+                result.add(signedDatas.get(i));
+            }
+        }
+        return new EvaluationContext(result, Arrays.copyOf(identities, result.size()), deserializer);
+    }
+
+    private static IIdentity deserialize(IIdentityDeserializer deserializer, SignedData signedData) throws PolicyException {
+        try {
+            return deserializer.deserializeIdentity(signedData.getIdentity());
+        } catch (Exception e) {
+            String msg = String.format("Principal deserialization failure  %s for [%s]", e.getMessage(), Arrays.toString(signedData.getIdentity()));
+            throw new PolicyException(msg);
+        }
+    }
+
+    public List<SignedData> getSignedDatas() {
+        return signedDatas;
+    }
+
+    public int size() {
+        return signedDatas.size();
+    }
+
+    public IIdentity getIdentity(int i) throws PolicyException {
+        IIdentity identity = identities[i];
+        if (identity == null) {
+            identity = deserialize(deserializer, signedDatas.get(i));
+            identities[i] = identity;
+        }
+        return identity;
+    }
+
+    /**
+     * 身份是否满足主体,结果按主体序号缓存
+     *
+     * @param principalIndex 主体在策略身份列表中的序号
+     * @param principal      主体
+     * @param i              身份序号
+     * @return
+     * @throws PolicyException
+     */
+    public boolean satisfies(int principalIndex, MspPrincipal.MSPPrincipal principal, int i) throws PolicyException {
+        byte[] matches = principalMatches.computeIfAbsent(principalIndex, k -> new byte[signedDatas.size()]);
+        if (matches[i] == UNKNOWN) {
+            try {
+                getIdentity(i).satisfiesPrincipal(principal);
+                matches[i] = VALID;
+            } catch (PolicyException e) {
+                throw e;
+            } catch (Exception e) {
+                log.debug("Identity {} does not satisfy principal {}: {}", i, principalIndex, e.getMessage());
+                matches[i] = INVALID;
+            }
+        }
+        return matches[i] == VALID;
+    }
+
+    /**
+     * 验证身份的签名,结果缓存
+     *
+     * @param i 身份序号
+     * @return 签名是否有效
+     * @throws PolicyException
+     */
+    public boolean verify(int i) throws PolicyException {
+        if (signatures[i] == UNKNOWN) {
+            SignedData signedData = signedDatas.get(i);
+            try {
+                getIdentity(i).verify(signedData.getData(), signedData.getSignature());
+                signatures[i] = VALID;
+            } catch (PolicyException e) {
+                throw e;
+            } catch (Exception e) {
+                log.debug("Signature for identity {} is invalid: {}", i, e.getMessage());
+                signatures[i] = INVALID;
+            }
+        }
+        return signatures[i] == VALID;
+    }
+
+    /**
+     * 批量验证尚未验证的签名,同一csp的签名通过ICsp.verifyBatch一次提交,由csp并行验证
+     * 只验证满足策略所引用主体的身份,不匹配任何主体的签名在评估中不会被使用,无需验证
+     * 非msp身份或批量验证失败的签名仍在verify(i)中逐个验证
+     *
+     * @param principals 策略引用的主体,以主体序号为键
+     * @throws PolicyException
+     */
+    public void verifyAll(Map<Integer, MspPrincipal.MSPPrincipal> principals) throws PolicyException {
+        Map<ICsp, List<Integer>> indexesByCsp = new IdentityHashMap<>();
+        Map<ICsp, List<VerifyRequest>> requestsByCsp = new IdentityHashMap<>();
+        for (int i = 0; i < signedDatas.size(); i++) {
+            if (signatures[i] != UNKNOWN || !(getIdentity(i) instanceof Identity) || !satisfiesAny(principals, i)) {
+                continue;
+            }
+            Identity identity = (Identity) identities[i];
+            if (identity.getMsp() == null || identity.getMsp().getCsp() == null || identity.getPk() == null) {
+                continue;
+            }
+            ICsp csp = identity.getMsp().getCsp();
+            SignedData signedData = signedDatas.get(i);
+            indexesByCsp.computeIfAbsent(csp, k -> new ArrayList<>()).add(i);
+            //与Identity.verify使用相同的签名选项
+            requestsByCsp.computeIfAbsent(csp, k -> new ArrayList<>()).add(
+                    new VerifyRequest(identity.getPk(), signedData.getSignature(), signedData.getData(), new SM2SignerOpts()));
+        }
+
+        for (Map.Entry<ICsp, List<Integer>> entry : indexesByCsp.entrySet()) {
+            List<Integer> indexes = entry.getValue();
+            List<Boolean> results;
+            try {
+                results = entry.getKey().verifyBatch(requestsByCsp.get(entry.getKey()));
+            } catch (JavaChainException e) {
+                log.warn("Batch verification failed, verifying one by one: {}", e.getMessage());
+                continue;
+            }
+            for (int j = 0; j < indexes.size(); j++) {
+                Boolean result = results.get(j);
+                if (result != null) {
+                    signatures[indexes.get(j)] = result ? VALID : INVALID;
+                }
+            }
+        }
+    }
+
+    private boolean satisfiesAny(Map<Integer, MspPrincipal.MSPPrincipal> principals, int i) throws PolicyException {
+        for (Map.Entry<Integer, MspPrincipal.MSPPrincipal> entry : principals.entrySet()) {
+            if (satisfies(entry.getKey(), entry.getValue(), i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isUsed(int i) {
+        return used.get(i);
+    }
+
+    public void use(int i) {
+        used.set(i);
+        if (journalSize == journal.length) {
+            journal = Arrays.copyOf(journal, journalSize * 2);
+        }
+        journal[journalSize++] = i;
+    }
+
+    /**
+     * @return 当前回滚点
+     */
+    public int mark() {
+        return journalSize;
+    }
+
+    /**
+     * 撤销回滚点之后使用的身份
+     *
+     * @param mark 回滚点
+     */
+    public void rollback(int mark) {
+        while (journalSize > mark) {
+            used.clear(journal[--journalSize]);
+        }
+    }
+}
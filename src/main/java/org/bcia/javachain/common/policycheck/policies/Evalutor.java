@@ -20,12 +20,10 @@ import org.bcia.javachain.common.exception.PolicyException;
 import org.bcia.javachain.sdk.common.log.JavaChainLog;
 import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
 import org.bcia.javachain.common.util.proto.SignedData;
-import org.bcia.javachain.sdk.security.msp.IIdentity;
 import org.bcia.javachain.sdk.security.msp.IIdentityDeserializer;
 import org.bcia.julongchain.protos.common.MspPrincipal;
 import org.bcia.julongchain.protos.common.Policies;
 
-import java.util.Date;
 import java.util.List;
 
 /**
@@ -37,7 +35,6 @@ import java.util.List;
  */
 public class Evalutor implements IEvalutor{
     private static JavaChainLog log = JavaChainLogFactory.getLog(Evalutor.class);
-    private static final int TYPE = 2;
     private List<IEvalutor> policies ;
     private Policies.SignaturePolicy policy;
     private IIdentityDeserializer deserializer;
@@ -52,62 +49,54 @@ public class Evalutor implements IEvalutor{
 
     @Override
     public boolean evaluate(List<SignedData> signedDatas, Boolean[] used) throws PolicyException {
-        if(policy.getTypeCase().getNumber() == TYPE){
-            Long grepKey = System.currentTimeMillis();//new Date().getTime();
-            log.debug("[%s] gate [%s] evaluation starts",signedDatas,grepKey);
+        EvaluationContext context = new EvaluationContext(signedDatas, deserializer);
+        for (int i = 0; i < used.length; i++) {
+            if (Boolean.TRUE.equals(used[i])) {
+                context.use(i);
+            }
+        }
+        boolean ok = evaluate(context);
+        for (int i = 0; i < used.length; i++) {
+            used[i] = context.isUsed(i);
+        }
+        return ok;
+    }
+
+    @Override
+    public boolean evaluate(EvaluationContext context) throws PolicyException {
+        if (policy.getTypeCase() == Policies.SignaturePolicy.TypeCase.N_OUT_OF) {
             int verified = 0;
-            Boolean[] newused = new Boolean[used.length];
-            for(int i = 0; i < policies.size(); i++){
-                System.arraycopy(used,0,newused,0,used.length);
-                if(policies.get(i).evaluate(signedDatas,newused)){
+            for (IEvalutor child : policies) {
+                int mark = context.mark();
+                if (child.evaluate(context)) {
                     verified++;
-                    System.arraycopy(newused,0,used,0,used.length);
+                } else {
+                    //失败分支使用的身份不计入
+                    context.rollback(mark);
                 }
             }
             int n = policy.getNOutOf().getN();
-            if(verified >= n){
-                log.debug("[%p] gate [%s] evaluation succeeds",signedDatas,grepKey);
-            }else{
-                log.debug("[%p] gate [%s] evaluation  fails",signedDatas,grepKey);
-            }
+            log.debug("{} out of {} gate evaluation {}", n, policies.size(), verified >= n ? "succeeds" : "fails");
             return verified >= n;
         }
-        else{
-            log.debug("[%p] signed by [%d] principal evaluation starts (used %v)",signedDatas,policy.getSignedBy(),used);
 
-            for(int i=0;i<signedDatas.size();i++){
-                if(used[i]){
-                    log.debug("[%p] skipping identity [%d] because it has already been used", signedDatas, i);
-                    continue;
-                }
-                IIdentity iIdentity = null;
-                try {
-                    iIdentity = deserializer.deserializeIdentity(signedDatas.get(i).getIdentity());
-                }catch (Exception e){
-                    String msg=String.format("Principal deserialization failure  %s for [%s]",e.getMessage(),signedDatas.get(i).getIdentity());
-                    throw new PolicyException(msg);
-                }
-                try {
-                    iIdentity.satisfiesPrincipal(signedByID);
-                }catch (Exception e){
-                    String msg=String.format("%p identity %d does not satisfy principal: %s",signedDatas,i,e.getMessage());
-                    throw new PolicyException(msg);
-                }
-                log.debug("%p principal matched by identity %d",signedDatas,i);
-                try {
-                    iIdentity.verify(signedDatas.get(i).getData(),signedDatas.get(i).getSignature());
-                }catch (Exception e){
-                    String msg=String.format("%p signature for identity %d is invalid: %s",signedDatas,i,e.getMessage());
-                    throw new PolicyException(msg);
-                }
-                log.debug("%p principal evaluation succeeds for identity %d",signedDatas,i);
-                used[i] = true;
-                return true;
+        int principalIndex = policy.getSignedBy();
+        for (int i = 0; i < context.size(); i++) {
+            if (context.isUsed(i)) {
+                log.debug("Skipping identity {} because it has already been used", i);
+                continue;
+            }
+            if (!context.satisfies(principalIndex, signedByID, i)) {
+                continue;
             }
-            return false;
+            log.debug("Principal {} matched by identity {}", principalIndex, i);
+            if (!context.verify(i)) {
+                continue;
+            }
+            log.debug("Principal {} evaluation succeeds for identity {}", principalIndex, i);
+            context.use(i);
+            return true;
         }
-
-
-
+        return false;
     }
 }
@@ -37,4 +37,12 @@ public interface IEvalutor {
      */
     boolean evaluate(List<SignedData> signedDatas,Boolean[] bool) throws PolicyException;
 
+    /**
+     * 在评估上下文中评估,签名身份在一次评估中只反序列化、验签一次
+     * @param context
+     * @return
+     * @throws PolicyException
+     */
+    boolean evaluate(EvaluationContext context) throws PolicyException;
+
 }
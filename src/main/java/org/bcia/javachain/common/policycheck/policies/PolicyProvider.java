@@ -57,7 +57,7 @@ public class PolicyProvider implements IPolicyProvider{
             return null;
         }
         IEvalutor compiled = CAuthDsl.compile(signaturePolicyEnvelope.getRule(),signaturePolicyEnvelope.getIdentitiesList(),deserializer);
-        Policy policy = new Policy(deserializer,compiled);
+        Policy policy = new Policy(deserializer,compiled,CAuthDsl.principals(signaturePolicyEnvelope.getRule(),signaturePolicyEnvelope.getIdentitiesList()));
         return policy;
     }
 }
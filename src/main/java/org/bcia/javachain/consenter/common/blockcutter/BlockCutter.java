@@ -15,7 +15,6 @@
  */
 package org.bcia.javachain.consenter.common.blockcutter;
 
-import org.apache.commons.lang.ArrayUtils;
 import org.bcia.javachain.common.groupconfig.config.IConsenterConfig;
 import org.bcia.javachain.sdk.common.log.JavaChainLog;
 import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
@@ -24,7 +23,20 @@ import org.bcia.javachain.consenter.entity.BatchesMes;
 import org.bcia.julongchain.protos.common.Common;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
 /**
+ * 区块切割器,按消息数量、字节数和批处理超时切割区块
+ * <p>
+ * 待切割的消息保存在按MaxMessageCount预分配的缓冲区中,并累计其字节数,入队为O(1)。
+ * 设置了调度器时,批次中第一条消息入队后启动BatchTimeout计时,超时仍未切割则由计时器切割并回调。
+ *
  * @author zhangmingyang
  * @Date: 2018/3/15
  * @company Dingxuan
@@ -32,13 +44,25 @@ import org.springframework.stereotype.Component;
 @Component
 public class BlockCutter implements IReceiver {
     private static JavaChainLog log = JavaChainLogFactory.getLog(BlockCutter.class);
+    private static final Common.Envelope[] EMPTY_BATCH = new Common.Envelope[0];
+    private static final Common.Envelope[][] NO_BATCHES = new Common.Envelope[0][];
 
     private IConsenterConfig sharedConfigManager;
 
-    private Common.Envelope[] pendingBatch;
+    private Common.Envelope[] pendingBatch = EMPTY_BATCH;
+
+    private int pendingBatchCount;
 
     private int pendingBatchSizeBytes;
 
+    private ScheduledExecutorService scheduler;
+
+    private Consumer<Common.Envelope[]> timeoutHandler;
+
+    private ScheduledFuture<?> batchTimer;
+
+    //每次切割递增,用于识别过期的计时器
+    private long batchSequence;
 
     public BlockCutter() {
     }
@@ -47,53 +71,118 @@ public class BlockCutter implements IReceiver {
         this.sharedConfigManager = sharedConfigManager;
     }
 
+    /**
+     * @param sharedConfigManager 共识配置
+     * @param scheduler           BatchTimeout计时使用的调度器
+     * @param timeoutHandler      接收超时切割出的批次
+     */
+    public BlockCutter(IConsenterConfig sharedConfigManager, ScheduledExecutorService scheduler,
+                       Consumer<Common.Envelope[]> timeoutHandler) {
+        this.sharedConfigManager = sharedConfigManager;
+        this.scheduler = scheduler;
+        this.timeoutHandler = timeoutHandler;
+    }
+
     @Override
-    public BatchesMes ordered(Common.Envelope msg) {
+    public synchronized BatchesMes ordered(Common.Envelope msg) {
 
         int messageSizeBytes = getMessageSizeBytes(msg);
+        int preferredMaxBytes = sharedConfigManager.getBatchSize().getPreferredMaxBytes();
+        //最多切出两个批次:之前的待切割批次和当前消息所在批次
+        List<Common.Envelope[]> messageBatches = new ArrayList<>(2);
         BatchesMes batchesMes = new BatchesMes();
-        if (messageSizeBytes > sharedConfigManager.getBatchSize().getPreferredMaxBytes()) {
 
-            log.debug(String.format("he current message, with %s bytes, is larger than the preferred batch size of %s bytes and will be isolated.", messageSizeBytes, sharedConfigManager.getBatchSize().getPreferredMaxBytes()));
+        if (messageSizeBytes > preferredMaxBytes) {
+
+            log.debug("The current message, with {} bytes, is larger than the preferred batch size of {} bytes and will be isolated.", messageSizeBytes, preferredMaxBytes);
 
-            if (pendingBatch.length > 0) {
-                Common.Envelope[] messageBatch = cut();
-                batchesMes.setMessageBatches((Common.Envelope[][]) ArrayUtils.add(batchesMes.getMessageBatches(), messageBatch));
+            if (pendingBatchCount > 0) {
+                messageBatches.add(cut());
             }
-            batchesMes.setMessageBatches((Common.Envelope[][]) ArrayUtils.add(batchesMes.getMessageBatches(), new Common.Envelope[]{msg}));
+            messageBatches.add(new Common.Envelope[]{msg});
+            return batches(batchesMes, messageBatches);
         }
 
-        boolean messageWillOverflowBatchSizeBytes = pendingBatchSizeBytes +messageSizeBytes> sharedConfigManager.getBatchSize().getPreferredMaxBytes();
+        boolean messageWillOverflowBatchSizeBytes = pendingBatchSizeBytes + messageSizeBytes > preferredMaxBytes;
         if (messageWillOverflowBatchSizeBytes) {
-            log.debug(String.format("The current message, with %s bytes, will overflow the pending batch of %s bytes.", messageSizeBytes, pendingBatchSizeBytes));
+            log.debug("The current message, with {} bytes, will overflow the pending batch of {} bytes.", messageSizeBytes, pendingBatchSizeBytes);
             log.debug("Pending batch would overflow if current message is added, cutting batch now.");
-            Common.Envelope[] messageBatch = cut();
-            batchesMes.setMessageBatches((Common.Envelope[][]) ArrayUtils.add(batchesMes.getMessageBatches(), messageBatch));
+            messageBatches.add(cut());
         }
         log.debug("Enqueuing message into batch");
 
-        pendingBatch = (Common.Envelope[]) ArrayUtils.add(pendingBatch, msg);
+        int maxMessageCount = sharedConfigManager.getBatchSize().getMaxMessageCount();
+        if (pendingBatchCount == pendingBatch.length) {
+            //缓冲区按MaxMessageCount分配,配置变大时扩容
+            pendingBatch = Arrays.copyOf(pendingBatch, Math.max(maxMessageCount, pendingBatchCount + 1));
+        }
+        pendingBatch[pendingBatchCount++] = msg;
         pendingBatchSizeBytes += messageSizeBytes;
+        if (pendingBatchCount == 1) {
+            startBatchTimer();
+        }
 
-        batchesMes.setPending(true);
-        if(pendingBatch.length>=sharedConfigManager.getBatchSize().getMaxMessageCount()){
+        if (pendingBatchCount >= maxMessageCount) {
             log.debug("Batch size met,cutting batch");
-            Common.Envelope[] messageBatch = cut();
-            batchesMes.setMessageBatches((Common.Envelope[][]) ArrayUtils.add(batchesMes.getMessageBatches(),messageBatch));
-            batchesMes.setPending(true);
+            messageBatches.add(cut());
         }
+        return batches(batchesMes, messageBatches);
+    }
+
+    private BatchesMes batches(BatchesMes batchesMes, List<Common.Envelope[]> messageBatches) {
+        batchesMes.setMessageBatches(messageBatches.isEmpty() ? NO_BATCHES : messageBatches.toArray(NO_BATCHES));
+        batchesMes.setPending(pendingBatchCount > 0);
         return batchesMes;
     }
 
     @Override
-    public Common.Envelope[] cut() {
-        log.info("This Block is cutting.....");
-        Common.Envelope[] batch = pendingBatch;
-        this.pendingBatch = null;
+    public synchronized Common.Envelope[] cut() {
+        log.debug("This Block is cutting.....");
+        cancelBatchTimer();
+        if (pendingBatchCount == 0) {
+            return EMPTY_BATCH;
+        }
+        Common.Envelope[] batch = Arrays.copyOf(pendingBatch, pendingBatchCount);
+        //清空引用,缓冲区留待下一批次复用
+        Arrays.fill(pendingBatch, 0, pendingBatchCount, null);
+        this.pendingBatchCount = 0;
         this.pendingBatchSizeBytes = 0;
         return batch;
     }
 
+    private void startBatchTimer() {
+        if (scheduler == null || timeoutHandler == null) {
+            return;
+        }
+        long batchTimeout = sharedConfigManager.getBatchTimeout();
+        if (batchTimeout <= 0) {
+            return;
+        }
+        final long batch = batchSequence;
+        batchTimer = scheduler.schedule(() -> onBatchTimeout(batch), batchTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelBatchTimer() {
+        ++batchSequence;
+        ScheduledFuture<?> timer = batchTimer;
+        batchTimer = null;
+        if (timer != null) {
+            timer.cancel(false);
+        }
+    }
+
+    private void onBatchTimeout(long sequence) {
+        Common.Envelope[] batch;
+        synchronized (this) {
+            //计时器所属的批次已被切割
+            if (sequence != batchSequence || pendingBatchCount == 0) {
+                return;
+            }
+            log.debug("Batch timer expired, cutting batch");
+            batch = cut();
+        }
+        timeoutHandler.accept(batch);
+    }
 
     private static int getMessageSizeBytes(Common.Envelope message) {
         return message.getPayload().size() + message.getSignature().size();
@@ -107,19 +196,29 @@ public class BlockCutter implements IReceiver {
         this.sharedConfigManager = sharedConfigManager;
     }
 
-    public Common.Envelope[] getPendingBatch() {
-        return pendingBatch;
+    public synchronized Common.Envelope[] getPendingBatch() {
+        return Arrays.copyOf(pendingBatch, pendingBatchCount);
     }
 
-    public void setPendingBatch(Common.Envelope[] pendingBatch) {
-        this.pendingBatch = pendingBatch;
+    public synchronized void setPendingBatch(Common.Envelope[] pendingBatch) {
+        cancelBatchTimer();
+        this.pendingBatch = pendingBatch == null ? EMPTY_BATCH : pendingBatch.clone();
+        this.pendingBatchCount = this.pendingBatch.length;
     }
 
-    public int getPendingBatchSizeBytes() {
+    public synchronized int getPendingBatchSizeBytes() {
         return pendingBatchSizeBytes;
     }
 
-    public void setPendingBatchSizeBytes(int pendingBatchSizeBytes) {
+    public synchronized void setPendingBatchSizeBytes(int pendingBatchSizeBytes) {
         this.pendingBatchSizeBytes = pendingBatchSizeBytes;
     }
+
+    public void setScheduler(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public void setTimeoutHandler(Consumer<Common.Envelope[]> timeoutHandler) {
+        this.timeoutHandler = timeoutHandler;
+    }
 }
@@ -34,7 +34,7 @@ import java.util.List;
  * @Date: 2018/5/9
  * @company Dingxuan
  */
-public class ExpirationRejectRule implements IRule {
+public class ExpirationRejectRule implements IConcurrentRule {
     private static JavaChainLog log = JavaChainLogFactory.getLog(ExpirationRejectRule.class);
     private IGroupConfigBundle filterSupport;
 
@@ -0,0 +1,261 @@
+/**
+ * Copyright DingXuan. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.consenter.common.msgprocessor;
+
+import org.bcia.javachain.sdk.common.log.JavaChainLog;
+import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
+import org.bcia.julongchain.protos.common.Common;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 共识节点入口消息过滤流水线
+ * <p>
+ * 结构性的廉价规则在提交线程内顺序执行;实现{@link IConcurrentRule}的签名、策略等规则提交到工作线程池并行执行。
+ * 通过全部规则的消息按提交顺序交给下游(如BlockCutter),被拒绝的消息同样按顺序回调。
+ * 同时处理中的消息数量受inFlight上限约束,达到上限时提交线程阻塞。
+ */
+public class FilterPipeline {
+    private static JavaChainLog log = JavaChainLogFactory.getLog(FilterPipeline.class);
+
+    private final IRule[] inlineRules;
+    private final IRule[] concurrentRules;
+    private final ExecutorService workers;
+    private final Semaphore inFlight;
+    private final Consumer<Common.Envelope> accepted;
+    private final BiConsumer<Common.Envelope, Exception> rejected;
+
+    //按提交顺序排列的处理中消息
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+    //是否有线程正在回调下游,由pending锁保护
+    private boolean releasing;
+
+    private final StageCounter inlineStage = new StageCounter();
+    private final StageCounter concurrentStage = new StageCounter();
+    private final StageCounter releaseStage = new StageCounter();
+
+    /**
+     * @param filters     过滤规则
+     * @param workers     执行并发规则的线程池
+     * @param maxInFlight 同时处理中的消息上限
+     * @param accepted    按提交顺序接收通过的消息
+     * @param rejected    按提交顺序接收被拒绝的消息及原因
+     */
+    public FilterPipeline(RuleSet filters, ExecutorService workers, int maxInFlight,
+                          Consumer<Common.Envelope> accepted, BiConsumer<Common.Envelope, Exception> rejected) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be greater than zero");
+        }
+        List<IRule> inline = new ArrayList<>();
+        List<IRule> concurrent = new ArrayList<>();
+        for (IRule rule : filters.getRules()) {
+            if (rule instanceof IConcurrentRule) {
+                concurrent.add(rule);
+            } else {
+                inline.add(rule);
+            }
+        }
+        this.inlineRules = inline.toArray(new IRule[0]);
+        this.concurrentRules = concurrent.toArray(new IRule[0]);
+        this.workers = workers;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.accepted = accepted;
+        this.rejected = rejected;
+    }
+
+    /**
+     * 提交一条消息,处理中的消息达到上限时阻塞
+     * 同一流水线的提交需由同一线程进行,或由调用方保证顺序
+     *
+     * @param message 消息
+     * @throws InterruptedException
+     */
+    public void submit(Common.Envelope message) throws InterruptedException {
+        inFlight.acquire();
+
+        final Entry entry = new Entry(message);
+        long start = System.nanoTime();
+        try {
+            for (IRule rule : inlineRules) {
+                rule.apply(message);
+            }
+        } catch (Exception e) {
+            entry.error = e;
+        }
+        inlineStage.record(System.nanoTime() - start);
+
+        synchronized (pending) {
+            pending.add(entry);
+        }
+
+        if (entry.error != null || concurrentRules.length == 0) {
+            done(entry, System.nanoTime());
+            return;
+        }
+
+        try {
+            workers.execute(() -> {
+                long concurrentStart = System.nanoTime();
+                try {
+                    for (IRule rule : concurrentRules) {
+                        rule.apply(message);
+                    }
+                } catch (Exception e) {
+                    entry.error = e;
+                }
+                long end = System.nanoTime();
+                concurrentStage.record(end - concurrentStart);
+                done(entry, end);
+            });
+        } catch (RuntimeException e) {
+            //线程池拒绝执行时消息按拒绝处理,以免阻塞后续消息
+            entry.error = e;
+            done(entry, System.nanoTime());
+        }
+    }
+
+    private void done(Entry entry, long doneTime) {
+        entry.doneTime = doneTime;
+        entry.done = true;
+        release();
+    }
+
+    /**
+     * 按提交顺序释放队首已处理完成的消息
+     * 在锁内取出消息,在锁外回调下游;同一时刻只有一个线程回调,其他线程完成的消息由它继续释放,以保证下游收到的顺序
+     */
+    private void release() {
+        synchronized (pending) {
+            if (releasing) {
+                return;
+            }
+            releasing = true;
+        }
+        List<Entry> ready = new ArrayList<>();
+        try {
+            while (true) {
+                synchronized (pending) {
+                    for (Entry entry = pending.peek(); entry != null && entry.done; entry = pending.peek()) {
+                        ready.add(pending.poll());
+                    }
+                    if (ready.isEmpty()) {
+                        releasing = false;
+                        return;
+                    }
+                }
+                for (Entry entry : ready) {
+                    deliver(entry);
+                }
+                ready.clear();
+            }
+        } catch (Error e) {
+            synchronized (pending) {
+                releasing = false;
+            }
+            throw e;
+        }
+    }
+
+    private void deliver(Entry entry) {
+        releaseStage.record(System.nanoTime() - entry.doneTime);
+        try {
+            if (entry.error == null) {
+                accepted.accept(entry.message);
+            } else {
+                log.debug("Rejecting message: {}", entry.error.getMessage());
+                rejected.accept(entry.message, entry.error);
+            }
+        } catch (RuntimeException e) {
+            log.error("Filter pipeline consumer failed: " + e.getMessage(), e);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    /**
+     * @return 处理中(含等待按序释放)的消息数量
+     */
+    public int getInFlight() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * @return 提交线程内顺序规则的耗时统计
+     */
+    public StageCounter getInlineStage() {
+        return inlineStage;
+    }
+
+    /**
+     * @return 工作线程池中并发规则的耗时统计
+     */
+    public StageCounter getConcurrentStage() {
+        return concurrentStage;
+    }
+
+    /**
+     * @return 规则执行完成至按序释放的等待耗时统计
+     */
+    public StageCounter getReleaseStage() {
+        return releaseStage;
+    }
+
+    private static class Entry {
+        final Common.Envelope message;
+        volatile Exception error;
+        volatile long doneTime;
+        volatile boolean done;
+
+        Entry(Common.Envelope message) {
+            this.message = message;
+        }
+    }
+
+    /**
+     * 流水线阶段的次数及耗时统计
+     */
+    public static class StageCounter {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        void record(long elapsedNanos) {
+            count.increment();
+            nanos.add(elapsedNanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return nanos.sum();
+        }
+
+        public long getMeanNanos() {
+            long n = count.sum();
+            return n == 0 ? 0 : nanos.sum() / n;
+        }
+    }
+}
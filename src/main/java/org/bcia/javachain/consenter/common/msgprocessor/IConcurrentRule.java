@@ -0,0 +1,23 @@
+/**
+ * Copyright DingXuan. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.consenter.common.msgprocessor;
+
+/**
+ * 可并发执行的规则,不依赖消息之间的顺序,在入口流水线中由工作线程池执行
+ * 签名及策略校验等开销较大的规则应实现该接口
+ */
+public interface IConcurrentRule extends IRule {
+}
@@ -32,7 +32,7 @@ import java.util.List;
  * @Date: 2018/5/25
  * @company Dingxuan
  */
-public class SigFilter implements IRule {
+public class SigFilter implements IConcurrentRule {
     private static JavaChainLog log = JavaChainLogFactory.getLog(SigFilter.class);
     private String policyName;
     private IPolicyManager support;
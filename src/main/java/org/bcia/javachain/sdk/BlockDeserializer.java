@@ -16,20 +16,23 @@
 
 package org.bcia.javachain.sdk;
 
-import java.lang.ref.WeakReference;
-import java.util.Collections;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
 
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
+import org.bcia.javachain.sdk.exception.InvalidProtocolBufferRuntimeException;
 import org.bcia.julongchain.protos.common.Common;
 import org.bcia.julongchain.protos.common.Common.Block;
 import org.bcia.julongchain.protos.common.Common.BlockData;
 
+/**
+ * Envelopes are parsed once and kept for as long as the block.
+ */
 class BlockDeserializer {
     private final Block block;
-    private final Map<Integer, WeakReference<EnvelopeDeserializer>> envelopes = Collections.synchronizedMap(new WeakHashMap<Integer, WeakReference<EnvelopeDeserializer>>());
+    private final AtomicReferenceArray<EnvelopeDeserializer> envelopes;
+    private volatile byte[] transActionsMetaData;
 
     public Block getBlock() {
         return block;
@@ -37,6 +40,7 @@ class BlockDeserializer {
 
     BlockDeserializer(Block block) {
         this.block = block;
+        envelopes = new AtomicReferenceArray<>(block.getData().getDataCount());
     }
 
     ByteString getPreviousHash() {
@@ -61,28 +65,59 @@ class BlockDeserializer {
     }
 
     EnvelopeDeserializer getData(int index) throws InvalidProtocolBufferException {
-        if (index >= getData().getDataCount()) {
+        if (index >= envelopes.length()) {
             return null;
         }
-        WeakReference<EnvelopeDeserializer> envelopeWeakReference = envelopes.get(index);
-        if (null != envelopeWeakReference) {
-            EnvelopeDeserializer ret = envelopeWeakReference.get();
-            if (null != ret) {
-                return ret;
-            }
+        EnvelopeDeserializer ret = envelopes.get(index);
+        if (null != ret) {
+            return ret;
         }
 
-        EnvelopeDeserializer envelopeDeserializer = EnvelopeDeserializer.newInstance(getData().getData(index), getTransActionsMetaData()[index]);
+        ret = EnvelopeDeserializer.newInstance(getData().getData(index), getTransActionsMetaData()[index]);
 
-        envelopes.put(index, new WeakReference<>(envelopeDeserializer));
+        // keep the first one if another thread got here too, so callers share the parsed messages.
+        return envelopes.compareAndSet(index, null, ret) ? ret : envelopes.get(index);
+
+    }
 
-        return envelopeDeserializer;
+    /**
+     * Parse all envelopes now, in parallel when there are at least threshold of them.
+     *
+     * @param threshold the smallest envelope count decoded in parallel, zero or less to never decode in parallel.
+     */
+    void decodeAll(int threshold) throws InvalidProtocolBufferException {
+        final int count = envelopes.length();
+        if (threshold <= 0 || count < threshold) {
+            for (int i = 0; i < count; ++i) {
+                getData(i);
+            }
+            return;
+        }
 
+        try {
+            IntStream.range(0, count).parallel().forEach(i -> {
+                try {
+                    getData(i);
+                } catch (InvalidProtocolBufferException e) {
+                    throw new InvalidProtocolBufferRuntimeException(e);
+                }
+            });
+        } catch (InvalidProtocolBufferRuntimeException e) {
+            throw e.getCause();
+        }
     }
 
+    /**
+     * @return the transactions filter. Shared, callers must not modify it.
+     */
     byte[] getTransActionsMetaData() {
 
-        return block.getMetadata().getMetadata(Common.BlockMetadataIndex.TRANSACTIONS_FILTER_VALUE).toByteArray();
+        byte[] ret = transActionsMetaData;
+        if (ret == null) {
+            ret = block.getMetadata().getMetadata(Common.BlockMetadataIndex.TRANSACTIONS_FILTER_VALUE).toByteArray();
+            transActionsMetaData = ret;
+        }
+        return ret;
 
     }
 
@@ -22,6 +22,7 @@ import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 
 import org.bcia.javachain.sdk.exception.InvalidProtocolBufferRuntimeException;
+import org.bcia.javachain.sdk.helper.Config;
 import org.bcia.javachain.sdk.transaction.ProtoUtils;
 import org.bcia.julongchain.protos.common.Common;
 import org.bcia.julongchain.protos.common.Common.Block;
@@ -44,6 +45,7 @@ import static org.bcia.julongchain.protos.node.ProposalResponsePackage.Endorseme
  * by wangzhe in ftsafe 2018-07-02
  */
 public class BlockInfo {
+    private static final Config config = Config.getConfig();
     private final BlockDeserializer block; //can be only one or the other.
     private final EventsPackage.FilteredBlock filteredBlock;
 
@@ -126,7 +128,7 @@ public class BlockInfo {
      */
     public byte[] getTransActionsMetaData() {
 
-        return isFiltered() ? null : block.getTransActionsMetaData();
+        return isFiltered() ? null : block.getTransActionsMetaData().clone();
     }
 
     /**
@@ -146,6 +148,21 @@ public class BlockInfo {
         return isFiltered() ? filteredBlock.getFilteredTransactionsCount() : block.getData().getDataCount();
     }
 
+    /**
+     * Parse every envelope of the block now instead of when first accessed. Blocks with at least
+     * {@link Config#BLOCK_PARALLEL_DECODE_THRESHOLD} envelopes are parsed in parallel.
+     * Parsed envelopes are kept for the life of this BlockInfo. Does nothing for a filtered block.
+     *
+     * @return this BlockInfo.
+     * @throws InvalidProtocolBufferException
+     */
+    public BlockInfo decodeEnvelopes() throws InvalidProtocolBufferException {
+        if (!isFiltered()) {
+            block.decodeAll(config.getBlockParallelDecodeThreshold());
+        }
+        return this;
+    }
+
     /**
      * Wrappers Envelope
      */
@@ -345,7 +362,10 @@ public class BlockInfo {
 
             } else {
 
-                EnvelopeDeserializer ed = EnvelopeDeserializer.newInstance(block.getBlock().getData().getData(envelopeIndex), block.getTransActionsMetaData()[envelopeIndex]);
+                EnvelopeDeserializer ed = block.getData(envelopeIndex);
+                if (ed == null) {
+                    throw new ArrayIndexOutOfBoundsException(format("Envelope index: %d. Envelope count: %d", envelopeIndex, getEnvelopeCount()));
+                }
 
                 switch (ed.getType()) {
                     case Common.HeaderType.ENDORSER_TRANSACTION_VALUE:
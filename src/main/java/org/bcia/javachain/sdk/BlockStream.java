@@ -0,0 +1,396 @@
+/**
+ * Copyright BCIA. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+import io.grpc.ManagedChannel;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.bcia.javachain.sdk.exception.TransactionException;
+import org.bcia.javachain.sdk.helper.Config;
+import org.bcia.julongchain.protos.common.Common;
+import org.bcia.julongchain.protos.common.Common.Envelope;
+import org.bcia.julongchain.protos.consenter.Ab.SeekInfo;
+import org.bcia.julongchain.protos.consenter.Ab.SeekPosition;
+import org.bcia.julongchain.protos.consenter.Ab.SeekSpecified;
+import org.bcia.julongchain.protos.node.DeliverGrpc;
+import org.bcia.julongchain.protos.node.EventsPackage.DeliverResponse;
+
+import static java.lang.String.format;
+import static org.bcia.javachain.sdk.transaction.ProtoUtils.createSeekInfoEnvelope;
+
+/**
+ * BlockStream returns a range of blocks in order, fetched with deliver streams from several peers in parallel.
+ * <p>
+ * The range is split into chunks that the peers take in turn, each chunk fetched with one seek. Chunks are
+ * only started while they are within the prefetch distance of the next block to be returned, so a slow reader
+ * bounds the number of blocks held in memory. A chunk that fails part way is taken again from the first
+ * missing block, possibly by another peer. A peer that keeps failing is dropped; the stream fails when no
+ * peers are left.
+ * <p>
+ * Close the stream if it is not read to the end.
+ */
+public final class BlockStream implements Iterator<BlockInfo>, AutoCloseable {
+    private static final Log logger = LogFactory.getLog(BlockStream.class);
+    private static final Config config = Config.getConfig();
+    private static final int MAX_NODE_FAILURES = 3;
+
+    /**
+     * Opens the deliver connection to a peer and builds the seek requests sent on it.
+     */
+    interface Connector {
+
+        ManagedChannel open(Node peer) throws Exception;
+
+        Envelope seekEnvelope(Node peer, SeekInfo seekInfo) throws Exception;
+    }
+
+    private final String groupName;
+    private final Connector connector;
+    private final long to;
+    private final long chunkSize;
+    private final long prefetch;
+
+    private final Map<Long, BlockInfo> buffer = new HashMap<>();
+    private final ArrayDeque<long[]> retries = new ArrayDeque<>();
+    private final List<ManagedChannel> channels = new ArrayList<>();
+    private long next;
+    private long nextChunk;
+    private int inFlight = 0;
+    private int workers;
+    private Throwable failure = null;
+    private boolean closed = false;
+
+    BlockStream(Group group, Collection<Node> peers, long from, long to) {
+        this(group.getName(), group.getExecutorService(), new GroupConnector(group), peers, from, to,
+                config.getGroupBlockStreamChunkSize(), config.getGroupBlockStreamPrefetch());
+    }
+
+    BlockStream(String groupName, ExecutorService executorService, Connector connector, Collection<Node> peers,
+                long from, long to, long chunkSize, long prefetch) {
+        this.groupName = groupName;
+        this.connector = connector;
+        this.to = to;
+        this.next = from;
+        this.nextChunk = from;
+        this.chunkSize = Math.max(1L, chunkSize);
+        this.prefetch = Math.max(this.chunkSize, prefetch);
+        this.workers = peers.size();
+
+        for (Node peer : peers) {
+            executorService.execute(new Worker(peer));
+        }
+    }
+
+    /**
+     * Connects with the endpoint settings of the peer and signs seeks with the group's user context.
+     */
+    private static final class GroupConnector implements Connector {
+        private final Group group;
+        private final Map<Node, byte[]> clientTLSCertificateDigests = new HashMap<>();
+
+        GroupConnector(Group group) {
+            this.group = group;
+        }
+
+        @Override
+        public ManagedChannel open(Node peer) throws Exception {
+            final Endpoint endpoint = new Endpoint(peer.getUrl(), peer.getProperties());
+            final ManagedChannel channel = endpoint.getGroupBuilder().build();
+            synchronized (clientTLSCertificateDigests) {
+                clientTLSCertificateDigests.put(peer, endpoint.getClientTLSCertificateDigest());
+            }
+            return channel;
+        }
+
+        @Override
+        public Envelope seekEnvelope(Node peer, SeekInfo seekInfo) throws Exception {
+            final byte[] clientTLSCertificateDigest;
+            synchronized (clientTLSCertificateDigests) {
+                clientTLSCertificateDigest = clientTLSCertificateDigests.get(peer);
+            }
+            return createSeekInfoEnvelope(group.getTransactionContext(), seekInfo, clientTLSCertificateDigest);
+        }
+    }
+
+    /**
+     * @return true while blocks of the range have not been returned.
+     */
+    @Override
+    public synchronized boolean hasNext() {
+        return next <= to && !closed;
+    }
+
+    /**
+     * Wait for the next block of the range.
+     *
+     * @return the block.
+     * @throws NoSuchElementException if all blocks have been returned or the stream is closed.
+     * @throws IllegalStateException  if the remaining blocks can not be fetched, the cause is a {@link TransactionException}.
+     */
+    @Override
+    public synchronized BlockInfo next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more blocks in block stream.");
+        }
+
+        BlockInfo ret;
+        try {
+            while ((ret = buffer.remove(next)) == null) {
+                if (failure != null) {
+                    close();
+                    throw new IllegalStateException(new TransactionException(format("Group %s unable to fetch block %d. %s",
+                            groupName, next, failure.getMessage()), failure));
+                }
+                if (closed) {
+                    throw new NoSuchElementException("Block stream closed.");
+                }
+                wait();
+            }
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(new TransactionException("Interrupted waiting for block " + next, e));
+        }
+
+        ++next;
+        notifyAll(); // chunks may now be within prefetch.
+        return ret;
+    }
+
+    /**
+     * Stop fetching. Blocks not yet returned are dropped.
+     */
+    @Override
+    public void close() {
+        final List<ManagedChannel> lchannels;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            buffer.clear();
+            lchannels = new ArrayList<>(channels);
+            channels.clear();
+            notifyAll();
+        }
+        for (ManagedChannel channel : lchannels) {
+            channel.shutdownNow();
+        }
+    }
+
+    private synchronized long[] take() throws InterruptedException {
+        while (!closed) {
+            if (!retries.isEmpty()) {
+                ++inFlight;
+                return retries.poll();
+            }
+            if (nextChunk > to) {
+                if (inFlight == 0) {
+                    return null;
+                }
+            } else if (nextChunk - next < prefetch) {
+                final long start = nextChunk;
+                final long end = to - start < chunkSize ? to : start + chunkSize - 1;
+                nextChunk = end + 1;
+                ++inFlight;
+                return new long[] {start, end};
+            }
+            wait();
+        }
+        return null;
+    }
+
+    private synchronized void done(long[] range) {
+        --inFlight;
+        if (range[0] <= range[1] && !closed) {
+            retries.add(range);
+        }
+        notifyAll();
+    }
+
+    private synchronized void received(BlockInfo blockInfo) {
+        final long number = blockInfo.getBlockNumber();
+        if (!closed && number >= next) {
+            buffer.put(number, blockInfo);
+            notifyAll();
+        }
+    }
+
+    private synchronized boolean register(ManagedChannel channel) {
+        if (closed) {
+            return false;
+        }
+        channels.add(channel);
+        return true;
+    }
+
+    private synchronized void retire(ManagedChannel channel, Throwable t) {
+        channels.remove(channel);
+        if (--workers == 0 && !closed && next <= to && failure == null) {
+            failure = t != null ? t : new TransactionException("No peers left to fetch blocks from.");
+        }
+        notifyAll();
+    }
+
+    private class Worker implements Runnable {
+        private final Node peer;
+
+        Worker(Node peer) {
+            this.peer = peer;
+        }
+
+        @Override
+        public void run() {
+            Throwable lastFailure = null;
+            ManagedChannel channel = null;
+
+            try {
+                channel = connector.open(peer);
+                if (!register(channel)) {
+                    return;
+                }
+
+                int failures = 0;
+                for (long[] range = take(); range != null; range = take()) {
+                    Throwable t = null;
+                    try {
+                        fetch(channel, range);
+                        failures = 0;
+                    } catch (Exception e) {
+                        t = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                        logger.warn(format("Group %s peer %s failed streaming blocks %d to %d. %s",
+                                groupName, peer.getName(), range[0], range[1], t.getMessage()));
+                    }
+                    done(range);
+                    if (t != null) {
+                        lastFailure = t;
+                        if (++failures >= MAX_NODE_FAILURES) {
+                            logger.error(format("Group %s peer %s dropped from block stream after %d failures.",
+                                    groupName, peer.getName(), failures));
+                            break;
+                        }
+                        if (channel.isShutdown()) {
+                            break; // closed.
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                lastFailure = e;
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                lastFailure = e;
+                logger.error(format("Group %s peer %s unable to stream blocks. %s", groupName, peer.getName(), e.getMessage()), e);
+            } finally {
+                if (channel != null) {
+                    channel.shutdownNow();
+                }
+                retire(channel, lastFailure);
+            }
+        }
+
+        /**
+         * Fetch the blocks of range with one deliver stream. range[0] is moved past each block received.
+         */
+        private void fetch(ManagedChannel channel, final long[] range) throws Exception {
+
+            final SeekInfo seekInfo = SeekInfo.newBuilder()
+                    .setStart(SeekPosition.newBuilder().setSpecified(SeekSpecified.newBuilder().setNumber(range[0])))
+                    .setStop(SeekPosition.newBuilder().setSpecified(SeekSpecified.newBuilder().setNumber(range[1])))
+                    .setBehavior(SeekInfo.SeekBehavior.BLOCK_UNTIL_READY)
+                    .build();
+            final Envelope envelope = connector.seekEnvelope(peer, seekInfo);
+
+            final CompletableFuture<Void> done = new CompletableFuture<>();
+
+            StreamObserver<DeliverResponse> so = new StreamObserver<DeliverResponse>() {
+                @Override
+                public void onNext(DeliverResponse resp) {
+                    if (done.isDone()) {
+                        return;
+                    }
+                    switch (resp.getTypeCase()) {
+                        case BLOCK:
+                            final long number = resp.getBlock().getHeader().getNumber();
+                            if (number != range[0]) {
+                                done.completeExceptionally(new TransactionException(format("Expected block %d got block %d", range[0], number)));
+                                return;
+                            }
+                            received(new BlockInfo(resp));
+                            range[0] = number + 1;
+                            break;
+                        case STATUS:
+                            //TODO 200和０暂时都算返回成功，等julongchain返回码统一
+                            if ((resp.getStatus() == Common.Status.SUCCESS || resp.getStatus() == Common.Status.UNKNOWN)
+                                    && range[0] > range[1]) {
+                                done.complete(null);
+                            } else {
+                                done.completeExceptionally(new TransactionException(format("Status %d (%s) returned at block %d",
+                                        resp.getStatusValue(), resp.getStatus().name(), range[0])));
+                            }
+                            break;
+                        default:
+                            done.completeExceptionally(new TransactionException(format("Unexpected deliver response type %s",
+                                    resp.getTypeCase().name())));
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    done.completeExceptionally(t);
+                }
+
+                @Override
+                public void onCompleted() {
+                    if (range[0] > range[1]) {
+                        done.complete(null);
+                    } else {
+                        done.completeExceptionally(new TransactionException("Deliver stream completed at block " + range[0]));
+                    }
+                }
+            };
+
+            StreamObserver<Envelope> nso = DeliverGrpc.newStub(channel).deliver(so);
+            try {
+                nso.onNext(envelope);
+                done.get();
+            } catch (Exception e) {
+                if (nso instanceof ClientCallStreamObserver) { // stop the peer sending the rest of the chunk.
+                    ((ClientCallStreamObserver<Envelope>) nso).cancel("Block stream fetch failed", null);
+                }
+                throw e;
+            }
+            try {
+                nso.onCompleted();
+            } catch (Exception e) { //Best effort only report on debug
+                logger.debug(format("Exception completing block stream with peer %s. %s", peer.getName(), e.getMessage()), e);
+            }
+        }
+    }
+}
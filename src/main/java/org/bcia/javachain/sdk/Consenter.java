@@ -16,6 +16,7 @@ package org.bcia.javachain.sdk;
 
 import java.io.Serializable;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 
 import io.netty.util.internal.StringUtil;
 import org.apache.commons.logging.Log;
@@ -147,22 +148,47 @@ public class Consenter implements Serializable {
 
         logger.debug(format("Order.sendTransaction name: %s, url: %s", name, url));
 
-        ConsenterClient localConsenterClient = ordererClient;
+        return getConsenterClient().sendTransaction(transaction);
+
+    }
+
+    /**
+     * Send transaction to Order without waiting for the response.
+     * Transactions are pipelined on one broadcast stream per Consenter.
+     *
+     * @param transaction transaction to be sent
+     * @return future completed with the Consenter's response.
+     */
 
-        if (localConsenterClient == null || !localConsenterClient.isGroupActive()) {
-            ordererClient = new ConsenterClient(this, new Endpoint(url, properties).getGroupBuilder(), properties);
-            localConsenterClient = ordererClient;
+    CompletableFuture<Ab.BroadcastResponse> sendTransactionAsync(Common.Envelope transaction) {
+        if (shutdown) {
+            CompletableFuture<Ab.BroadcastResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(new TransactionException(format("Consenter %s was shutdown.", name)));
+            return future;
         }
 
-        try {
+        logger.debug(format("Order.sendTransactionAsync name: %s, url: %s", name, url));
 
-            return localConsenterClient.sendTransaction(transaction);
-        } catch (Throwable t) {
-            ordererClient = null;
-            throw t;
+        return getConsenterClient().sendTransactionAsync(transaction);
 
-        }
+    }
 
+    /**
+     * The client keeps the broadcast stream and reconnects on its own, so it is only replaced once shut down.
+     */
+    private ConsenterClient getConsenterClient() {
+        ConsenterClient localConsenterClient = ordererClient;
+
+        if (localConsenterClient == null || localConsenterClient.isShutdown()) {
+            synchronized (this) {
+                localConsenterClient = ordererClient;
+                if (localConsenterClient == null || localConsenterClient.isShutdown()) {
+                    localConsenterClient = new ConsenterClient(this, new Endpoint(url, properties).getGroupBuilder(), properties);
+                    ordererClient = localConsenterClient;
+                }
+            }
+        }
+        return localConsenterClient;
     }
 
     DeliverResponse[] sendDeliver(Common.Envelope transaction) throws TransactionException {
@@ -171,22 +197,9 @@ public class Consenter implements Serializable {
             throw new TransactionException(format("Consenter %s was shutdown.", name));
         }
 
-        ConsenterClient localConsenterClient = ordererClient;
-
         logger.debug(format("Order.sendDeliver name: %s, url: %s", name, url));
-        if (localConsenterClient == null || !localConsenterClient.isGroupActive()) {
-            localConsenterClient = new ConsenterClient(this, new Endpoint(url, properties).getGroupBuilder(), properties);
-            ordererClient = localConsenterClient;
-        }
-
-        try {
 
-            return localConsenterClient.sendDeliver(transaction);
-        } catch (Throwable t) {
-            ordererClient = null;
-            throw t;
-
-        }
+        return getConsenterClient().sendDeliver(transaction);
 
     }
 
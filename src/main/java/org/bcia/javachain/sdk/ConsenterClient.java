@@ -14,10 +14,17 @@
 
 package org.bcia.javachain.sdk;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import io.grpc.ConnectivityState;
@@ -47,14 +54,20 @@ import static org.bcia.julongchain.protos.consenter.Ab.DeliverResponse.TypeCase.
 class ConsenterClient {
     private static final Config config = Config.getConfig();
     private static final long ORDERER_WAIT_TIME = config.getConsenterWaitTime();
+    private static final int BROADCAST_WINDOW = config.getConsenterBroadcastWindow();
     private final String channelName;
     private final ManagedChannelBuilder channelBuilder;
-    private boolean shutdown = false;
+    private volatile boolean shutdown = false;
     private static final Log logger = LogFactory.getLog(ConsenterClient.class);
     private ManagedChannel managedGroup = null;
     private final String name;
     private final String url;
     private final long ordererWaitTimeMilliSecs;
+    private final int broadcastWindowSize;
+    private final Semaphore broadcastWindow;
+    private final ConcurrentLinkedQueue<PendingSend> pendingSends = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService scheduler;
+    private volatile BroadcastStream broadcastStream = null;
 
     /**
      * Construct client for accessing Consenter server using the existing managedGroup.
@@ -64,7 +77,8 @@ class ConsenterClient {
         this.channelBuilder = channelBuilder;
         name = orderer.getName();
         url = orderer.getUrl();
-        channelName = orderer.getGroup().getName();
+        Group group = orderer.getGroup();
+        channelName = group == null ? null : group.getName();
 
         if (null == properties) {
 
@@ -85,6 +99,20 @@ class ConsenterClient {
             ordererWaitTimeMilliSecs = tempConsenterWaitTimeMilliSecs;
         }
 
+        int tempBroadcastWindow = BROADCAST_WINDOW;
+        if (null != properties) {
+            String broadcastWindowString = properties.getProperty("ordererBroadcastWindow", Integer.toString(BROADCAST_WINDOW));
+            try {
+                tempBroadcastWindow = Integer.parseInt(broadcastWindowString);
+            } catch (NumberFormatException e) {
+                logger.warn(format("Consenter %s broadcast window %s not parsable.", name, broadcastWindowString), e);
+            }
+        }
+        broadcastWindowSize = tempBroadcastWindow > 0 ? tempBroadcastWindow : BROADCAST_WINDOW;
+        broadcastWindow = new Semaphore(broadcastWindowSize);
+        //an orderer that is not in a group has no scheduler to time out sends, its sends fail
+        scheduler = group == null ? null : group.getScheduledExecutorService();
+
     }
 
     synchronized void shutdown(boolean force) {
@@ -93,6 +121,15 @@ class ConsenterClient {
             return;
         }
         shutdown = true;
+        BroadcastStream lstream = broadcastStream;
+        broadcastStream = null;
+        if (lstream != null) {
+            lstream.fail(new TransactionException("Consenter client is shutdown"));
+        }
+        PendingSend pending;
+        while ((pending = pendingSends.poll()) != null) {
+            pending.future.completeExceptionally(new TransactionException("Consenter client is shutdown"));
+        }
         ManagedChannel lchannel = managedGroup;
         managedGroup = null;
         if (lchannel == null) {
@@ -119,102 +156,240 @@ class ConsenterClient {
         shutdown(true);
     }
 
-    Ab.BroadcastResponse sendTransaction(Common.Envelope envelope) throws Exception {
-        StreamObserver<Common.Envelope> nso = null;
+    /**
+     * Send a transaction on the long lived broadcast stream of this orderer.
+     * Many transactions may be in flight at once; responses are matched to requests in FIFO order.
+     * When the broadcast window is full the transaction is queued without blocking the caller and sent when a
+     * response frees a slot.
+     * A broken stream fails all transactions in flight on it and is transparently reopened on the next send.
+     *
+     * @param envelope the transaction.
+     * @return future completed with the orderer's response.
+     */
+    CompletableFuture<Ab.BroadcastResponse> sendTransactionAsync(Common.Envelope envelope) {
+        CompletableFuture<Ab.BroadcastResponse> future = new CompletableFuture<>();
 
         if (shutdown) {
-            throw new TransactionException("Consenter client is shutdown");
+            future.completeExceptionally(new TransactionException("Consenter client is shutdown"));
+            return future;
+        }
+        if (null == envelope) {
+            future.completeExceptionally(new TransactionException("Transaction envelope is null"));
+            return future;
+        }
+        if (null == scheduler) {
+            future.completeExceptionally(new TransactionException(format("Consenter %s does not belong to a group.", name)));
+            return future;
         }
 
-        ManagedChannel lmanagedGroup = managedGroup;
+        pendingSends.add(new PendingSend(envelope, future));
+        sendPending();
 
-        if (lmanagedGroup == null || lmanagedGroup.isTerminated() || lmanagedGroup.isShutdown()) {
+        return future;
+    }
 
-            lmanagedGroup = channelBuilder.build();
-            managedGroup = lmanagedGroup;
+    /**
+     * Send queued transactions while the broadcast window has room. A transaction queued after a failed acquire
+     * is picked up by the release that follows, since every release is followed by this drain.
+     */
+    private void sendPending() {
+        while (!pendingSends.isEmpty() && broadcastWindow.tryAcquire()) {
+            PendingSend pending = pendingSends.poll();
+            if (pending == null) {
+                broadcastWindow.release();
+                continue;
+            }
+            send(pending.envelope, pending.future);
+        }
+    }
 
+    private void send(Common.Envelope envelope, CompletableFuture<Ab.BroadcastResponse> future) {
+        future.whenComplete((resp, t) -> {
+            broadcastWindow.release();
+            sendPending();
+        });
+        if (future.isDone()) {
+            return;
+        }
+        if (shutdown) {
+            future.completeExceptionally(new TransactionException("Consenter client is shutdown"));
+            return;
         }
 
+        final BroadcastStream stream;
         try {
-            final CountDownLatch finishLatch = new CountDownLatch(1);
-            AtomicBroadcastGrpc.AtomicBroadcastStub broadcast = AtomicBroadcastGrpc.newStub(lmanagedGroup);
+            stream = sendOnStream(envelope, future);
+        } catch (Throwable t) {
+            resetManagedGroup(managedGroup);
+            future.completeExceptionally(t);
+            return;
+        }
 
-            final Ab.BroadcastResponse[] ret = new Ab.BroadcastResponse[1];
-            final Throwable[] throwable = new Throwable[] {null};
+        final ScheduledFuture<?> timeout = scheduler.schedule(() -> {
+            if (!future.isDone()) {
+                TransactionException ste = new TransactionException(format("Group %s, send transactions failed on orderer %s. Reason:  timeout after %d ms.",
+                        channelName, name, ordererWaitTimeMilliSecs));
+                logger.error("sendTransaction error " + ste.getMessage(), ste);
+                //responses are matched in order, so the stream can not be used past a missing response
+                stream.fail(ste);
+            }
+        }, ordererWaitTimeMilliSecs, TimeUnit.MILLISECONDS);
+        future.whenComplete((resp, t) -> timeout.cancel(false));
+    }
 
-            StreamObserver<Ab.BroadcastResponse> so = new StreamObserver<Ab.BroadcastResponse>() {
-                @Override
-                public void onNext(Ab.BroadcastResponse resp) {
-                    // logger.info("Got Broadcast response: " + resp);
-                    logger.debug("resp status value: " + resp.getStatusValue() + ", resp: " + resp.getStatus());
-                    if (resp.getStatus() == Common.Status.SUCCESS) {
-                        ret[0] = resp;
-                    } else {
-                        throwable[0] = new TransactionException(format("Group %s orderer %s status returned failure code %d (%s) during order registration",
-                                channelName, name, resp.getStatusValue(), resp.getStatus().name()));
-                    }
-                    finishLatch.countDown();
+    private static class PendingSend {
+        final Common.Envelope envelope;
+        final CompletableFuture<Ab.BroadcastResponse> future;
 
-                }
+        PendingSend(Common.Envelope envelope, CompletableFuture<Ab.BroadcastResponse> future) {
+            this.envelope = envelope;
+            this.future = future;
+        }
+    }
 
-                @Override
-                public void onError(Throwable t) {
-                    if (!shutdown) {
-                        logger.error(format("Received error on channel %s, orderer %s, url %s, %s",
-                                channelName, name, url, t.getMessage()), t);
-                    }
-                    throwable[0] = t;
-                    finishLatch.countDown();
-                }
+    private synchronized BroadcastStream sendOnStream(Common.Envelope envelope, CompletableFuture<Ab.BroadcastResponse> future) {
+        BroadcastStream stream = broadcastStream;
+        if (stream == null || stream.isClosed()) {
+            stream = new BroadcastStream(getManagedGroup());
+            broadcastStream = stream;
+            logger.debug(format("Opened broadcast stream to orderer %s, url %s for channel %s", name, url, channelName));
+        }
+        stream.send(envelope, future);
+        return stream;
+    }
 
-                @Override
-                public void onCompleted() {
-                    finishLatch.countDown();
-                }
-            };
+    Ab.BroadcastResponse sendTransaction(Common.Envelope envelope) throws Exception {
 
-            nso = broadcast.broadcast(so);
+        try {
+            Ab.BroadcastResponse ret = sendTransactionAsync(envelope).get();
+            logger.debug("Done waiting for reply! Got:" + ret);
+            return ret;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            logger.error(e);
+        }
 
-            nso.onNext(envelope);
+        return null;
+    }
 
-            try {
-                if (!finishLatch.await(ordererWaitTimeMilliSecs, TimeUnit.MILLISECONDS)) {
-                    TransactionException ste = new TransactionException(format("Group %s, send transactions failed on orderer %s. Reason:  timeout after %d ms.",
-                            channelName, name, ordererWaitTimeMilliSecs));
-                    logger.error("sendTransaction error " + ste.getMessage(), ste);
-                    throw ste;
-                }
-                if (throwable[0] != null) {
-                    //get full stack trace
-                    TransactionException ste = new TransactionException(format("Group %s, send transaction failed on orderer %s. Reason: %s",
-                            channelName, name, throwable[0].getMessage()), throwable[0]);
-                    logger.error("sendTransaction error " + ste.getMessage(), ste);
-                    throw ste;
-                }
-                logger.debug("Done waiting for reply! Got:" + ret[0]);
+    private ManagedChannel getManagedGroup() {
+        ManagedChannel lmanagedGroup = managedGroup;
 
-            } catch (InterruptedException e) {
-                logger.error(e);
+        if (lmanagedGroup == null || lmanagedGroup.isTerminated() || lmanagedGroup.isShutdown()) {
 
-            }
+            lmanagedGroup = channelBuilder.build();
+            managedGroup = lmanagedGroup;
 
-            return ret[0];
-        } catch (Throwable t) {
+        }
+        return lmanagedGroup;
+    }
+
+    /**
+     * Drop a failed channel so the next call builds a new one, and shut it down so it does not leak.
+     */
+    private synchronized void resetManagedGroup(ManagedChannel lchannel) {
+        if (managedGroup == lchannel) {
             managedGroup = null;
-            throw t;
+        }
+        if (lchannel != null) {
+            lchannel.shutdownNow();
+        }
+    }
 
-        } finally {
+    /**
+     * One broadcast call to the orderer. The orderer answers broadcast messages in the order received,
+     * so each response completes the oldest future in flight.
+     */
+    private class BroadcastStream implements StreamObserver<Ab.BroadcastResponse> {
+        private final ArrayDeque<CompletableFuture<Ab.BroadcastResponse>> inFlight = new ArrayDeque<>();
+        private final ManagedChannel channel;
+        private final StreamObserver<Common.Envelope> requestObserver;
+        private boolean closed = false;
+
+        BroadcastStream(ManagedChannel channel) {
+            this.channel = channel;
+            requestObserver = AtomicBroadcastGrpc.newStub(channel).broadcast(this);
+        }
 
-            if (null != nso) {
+        synchronized boolean isClosed() {
+            return closed;
+        }
 
-                try {
-                    nso.onCompleted();
-                } catch (Exception e) {  //Best effort only report on debug
-                    logger.debug(format("Exception completing sendTransaction with channel %s,  name %s, url %s %s",
-                            channelName, name, url, e.getMessage()), e);
-                }
+        synchronized void send(Common.Envelope envelope, CompletableFuture<Ab.BroadcastResponse> future) {
+            inFlight.add(future);
+            try {
+                requestObserver.onNext(envelope);
+            } catch (RuntimeException e) {
+                fail(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public void onNext(Ab.BroadcastResponse resp) {
+            CompletableFuture<Ab.BroadcastResponse> future;
+            synchronized (this) {
+                future = inFlight.poll();
+            }
+            logger.debug("resp status value: " + resp.getStatusValue() + ", resp: " + resp.getStatus());
+            if (future == null) {
+                logger.warn(format("Group %s orderer %s sent a broadcast response with no transaction in flight", channelName, name));
+                return;
             }
+            if (resp.getStatus() == Common.Status.SUCCESS) {
+                future.complete(resp);
+            } else {
+                future.completeExceptionally(new TransactionException(format("Group %s orderer %s status returned failure code %d (%s) during order registration",
+                        channelName, name, resp.getStatusValue(), resp.getStatus().name())));
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (!shutdown) {
+                logger.error(format("Received error on channel %s, orderer %s, url %s, %s",
+                        channelName, name, url, t.getMessage()), t);
+            }
+            resetManagedGroup(channel);
+            fail(new TransactionException(format("Group %s, send transaction failed on orderer %s. Reason: %s",
+                    channelName, name, t.getMessage()), t));
+        }
 
+        @Override
+        public void onCompleted() {
+            fail(new TransactionException(format("Group %s, broadcast stream closed by orderer %s.", channelName, name)));
+        }
+
+        /**
+         * Close the stream and fail every transaction still waiting for a response on it.
+         */
+        void fail(Throwable t) {
+            List<CompletableFuture<Ab.BroadcastResponse>> failed;
+            synchronized (this) {
+                if (closed && inFlight.isEmpty()) {
+                    return;
+                }
+                boolean wasClosed = closed;
+                closed = true;
+                failed = new ArrayList<>(inFlight);
+                inFlight.clear();
+                if (!wasClosed) {
+                    try {
+                        requestObserver.onCompleted();
+                    } catch (Exception e) {  //Best effort only report on debug
+                        logger.debug(format("Exception completing broadcast stream with channel %s,  name %s, url %s %s",
+                                channelName, name, url, e.getMessage()), e);
+                    }
+                }
+            }
+            for (CompletableFuture<Ab.BroadcastResponse> future : failed) {
+                future.completeExceptionally(t);
+            }
         }
     }
 
@@ -226,14 +401,7 @@ class ConsenterClient {
 
         StreamObserver<Common.Envelope> nso = null;
 
-        ManagedChannel lmanagedGroup = managedGroup;
-
-        if (lmanagedGroup == null || lmanagedGroup.isTerminated() || lmanagedGroup.isShutdown()) {
-
-            lmanagedGroup = channelBuilder.build();
-            managedGroup = lmanagedGroup;
-
-        }
+        ManagedChannel lmanagedGroup = getManagedGroup();
 
         try {
 
@@ -313,7 +481,7 @@ class ConsenterClient {
 
             return retList.toArray(new DeliverResponse[retList.size()]);
         } catch (Throwable t) {
-            managedGroup = null;
+            resetManagedGroup(lmanagedGroup);
             throw t;
 
         } finally {
@@ -330,6 +498,10 @@ class ConsenterClient {
         }
     }
 
+    boolean isShutdown() {
+        return shutdown;
+    }
+
     boolean isGroupActive() {
         ManagedChannel lchannel = managedGroup;
         return lchannel != null && !lchannel.isShutdown() && !lchannel.isTerminated() && ConnectivityState.READY.equals(lchannel.getState(true));
@@ -0,0 +1,50 @@
+/**
+ * Copyright BCIA. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Parser;
+
+import org.bcia.javachain.sdk.exception.InvalidProtocolBufferRuntimeException;
+
+/**
+ * Parsing shared by the block deserializers.
+ */
+final class Deserializers {
+
+    private Deserializers() {
+    }
+
+    /**
+     * Parse a message aliasing the input: bytes fields of the message are slices of {@code byteString} instead of
+     * copies, so nested messages parsed from them share the block's buffers.
+     *
+     * @param parser     parser of the message type.
+     * @param byteString serialized message.
+     * @return the message.
+     */
+    static <T> T parse(Parser<T> parser, ByteString byteString) {
+        try {
+            final CodedInputStream input = byteString.newCodedInput();
+            input.enableAliasing(true);
+            return parser.parseFrom(input);
+        } catch (InvalidProtocolBufferException e) {
+            throw new InvalidProtocolBufferRuntimeException(e);
+        }
+    }
+}
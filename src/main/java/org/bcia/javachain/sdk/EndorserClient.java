@@ -41,7 +41,7 @@ class EndorserClient {
     private ManagedChannel managedGroup;
     private EndorserGrpc.EndorserBlockingStub blockingStub;
     private EndorserGrpc.EndorserFutureStub futureStub;
-    private boolean shutdown = false;
+    private volatile boolean shutdown = false;
 
     /**
      * Construct client for accessing Node server using the existing channel.
@@ -92,6 +92,24 @@ class EndorserClient {
     }
 
 
+    /**
+     * Connectivity state of the underlying channel.
+     *
+     * @param requestConnection if true an idle channel starts connecting.
+     * @return the state, SHUTDOWN once this client has been shut down.
+     */
+    ConnectivityState getState(boolean requestConnection) {
+        ManagedChannel lchannel = managedGroup;
+        if (lchannel == null || lchannel.isShutdown() || lchannel.isTerminated()) {
+            return ConnectivityState.SHUTDOWN;
+        }
+        return lchannel.getState(requestConnection);
+    }
+
+    boolean isShutdown() {
+        return shutdown;
+    }
+
     boolean isGroupActive() {
         ManagedChannel lchannel = managedGroup;
         return lchannel != null && !lchannel.isShutdown() && !lchannel.isTerminated() && ConnectivityState.READY.equals(lchannel.getState(true));
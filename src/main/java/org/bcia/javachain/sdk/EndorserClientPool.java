@@ -0,0 +1,260 @@
+/**
+ * Copyright BCIA. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk;
+
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.ConnectivityState;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.bcia.javachain.sdk.exception.NodeException;
+import org.bcia.javachain.sdk.helper.Config;
+import org.bcia.julongchain.protos.node.ProposalPackage;
+import org.bcia.julongchain.protos.node.ProposalResponsePackage;
+
+import static java.lang.String.format;
+
+/**
+ * A fixed number of endorser connections to one peer.
+ * <p>
+ * Proposals go round robin to the healthy connections that have fewer than maxInFlight proposals outstanding,
+ * or to the least loaded healthy connection when all of them are at the limit.
+ * A background task checks the connections and replaces failed ones, so reconnecting never happens on the
+ * thread sending the proposal.
+ */
+class EndorserClientPool {
+    private static final Log logger = LogFactory.getLog(EndorserClientPool.class);
+    private static final Config config = Config.getConfig();
+    private static final int POOL_SIZE = config.getNodeEndorserPoolSize();
+    private static final int MAX_IN_FLIGHT = config.getNodeEndorserPoolMaxInFlight();
+    private static final long HEALTH_CHECK_INTERVAL = config.getNodeEndorserPoolHealthCheckInterval();
+
+    private final String name;
+    private final String url;
+    private final Properties properties;
+    private final Connection[] connections;
+    private final int maxInFlight;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Executor executor;
+    private final ScheduledFuture<?> healthCheck;
+    private volatile boolean shutdown = false;
+
+    private class Connection {
+        private final int index;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicBoolean reconnecting = new AtomicBoolean(false);
+        private volatile EndorserClient client;
+        private volatile boolean healthy = true;
+
+        Connection(int index) {
+            this.index = index;
+            client = newClient();
+        }
+    }
+
+    /**
+     * @param name       peer name, for logging.
+     * @param url        peer url.
+     * @param properties peer properties. endorserPoolSize and endorserMaxInFlight override the configured defaults.
+     * @param scheduler  runs the health checks, may be null to disable them.
+     * @param executor   runs reconnects, may be null to reconnect on the health check thread.
+     */
+    EndorserClientPool(String name, String url, Properties properties, ScheduledExecutorService scheduler, Executor executor) {
+        this.name = name;
+        this.url = url;
+        this.properties = properties;
+        this.executor = executor == null ? MoreExecutors.directExecutor() : executor;
+
+        int size = getIntProperty("endorserPoolSize", POOL_SIZE);
+        maxInFlight = getIntProperty("endorserMaxInFlight", MAX_IN_FLIGHT);
+
+        connections = new Connection[size];
+        for (int i = 0; i < size; ++i) {
+            connections[i] = new Connection(i);
+        }
+
+        if (scheduler != null && HEALTH_CHECK_INTERVAL > 0) {
+            healthCheck = scheduler.scheduleWithFixedDelay(this::checkHealth, HEALTH_CHECK_INTERVAL,
+                    HEALTH_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+        } else {
+            healthCheck = null;
+        }
+        logger.debug(format("Node %s endorser pool of %d connections, %d proposals in flight per connection", name, size, maxInFlight));
+    }
+
+    private int getIntProperty(String property, int defaultValue) {
+        int ret = defaultValue;
+        if (null != properties) {
+            String value = properties.getProperty(property, Integer.toString(defaultValue));
+            try {
+                ret = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                logger.warn(format("Node %s %s %s not parsable.", name, property, value), e);
+            }
+        }
+        return ret > 0 ? ret : Math.max(1, defaultValue);
+    }
+
+    private EndorserClient newClient() {
+        return new EndorserClient(new Endpoint(url, properties).getGroupBuilder());
+    }
+
+    ListenableFuture<ProposalResponsePackage.ProposalResponse> sendProposalAsync(ProposalPackage.SignedProposal proposal) throws NodeException {
+
+        for (int attempt = 0; ; ++attempt) {
+            if (shutdown) {
+                throw new NodeException(format("Node %s endorser pool was shutdown.", name));
+            }
+            final Connection connection = select();
+            final EndorserClient client = connection.client;
+            connection.inFlight.incrementAndGet();
+            try {
+                ListenableFuture<ProposalResponsePackage.ProposalResponse> future = client.sendProposalAsync(proposal);
+                future.addListener(connection.inFlight::decrementAndGet, MoreExecutors.directExecutor());
+                return future;
+            } catch (NodeException e) {
+                connection.inFlight.decrementAndGet();
+                // The client was replaced and shut down after it was selected, try the pool once more.
+                if (attempt > 0 || !client.isShutdown()) {
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                connection.inFlight.decrementAndGet();
+                reconnect(connection);
+                throw e;
+            }
+        }
+    }
+
+    private Connection select() {
+        final int size = connections.length;
+        final int start = Math.floorMod(next.getAndIncrement(), size);
+
+        Connection leastLoaded = null;
+        int leastInFlight = Integer.MAX_VALUE;
+
+        for (int i = 0; i < size; ++i) {
+            Connection connection = connections[(start + i) % size];
+            if (!connection.healthy) {
+                continue;
+            }
+            int inFlight = connection.inFlight.get();
+            if (inFlight < maxInFlight) {
+                return connection;
+            }
+            if (inFlight < leastInFlight) {
+                leastInFlight = inFlight;
+                leastLoaded = connection;
+            }
+        }
+
+        // With no healthy connection keep sending round robin, the requests fail fast until a reconnect succeeds.
+        return leastLoaded != null ? leastLoaded : connections[start];
+    }
+
+    void checkHealth() {
+        if (shutdown) {
+            return;
+        }
+        for (Connection connection : connections) {
+            try {
+                // Asking for a connection keeps idle channels warm for the next proposal.
+                ConnectivityState state = connection.client.getState(true);
+                switch (state) {
+                    case TRANSIENT_FAILURE:
+                    case SHUTDOWN:
+                        if (connection.healthy) {
+                            logger.debug(format("Node %s endorser connection %d is %s", name, connection.index, state));
+                        }
+                        reconnect(connection);
+                        break;
+                    default:
+                        connection.healthy = true;
+                }
+            } catch (Exception e) {
+                logger.warn(format("Node %s endorser connection %d health check failed: %s", name, connection.index, e.getMessage()), e);
+            }
+        }
+    }
+
+    private void reconnect(Connection connection) {
+        connection.healthy = false;
+        if (shutdown || !connection.reconnecting.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                if (shutdown) {
+                    return;
+                }
+                EndorserClient old = connection.client;
+                connection.client = newClient();
+                connection.healthy = true;
+                if (shutdown) {
+                    connection.client.shutdown(true); // shutdown raced with the reconnect.
+                }
+                logger.debug(format("Node %s endorser connection %d reconnected", name, connection.index));
+                old.shutdown(false);
+            } catch (Exception e) {
+                logger.warn(format("Node %s endorser connection %d reconnect failed: %s", name, connection.index, e.getMessage()), e);
+            } finally {
+                connection.reconnecting.set(false);
+            }
+        });
+    }
+
+    int getSize() {
+        return connections.length;
+    }
+
+    int getInFlight() {
+        int ret = 0;
+        for (Connection connection : connections) {
+            ret += connection.inFlight.get();
+        }
+        return ret;
+    }
+
+    boolean isShutdown() {
+        return shutdown;
+    }
+
+    synchronized void shutdown(boolean force) {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        if (healthCheck != null) {
+            healthCheck.cancel(false);
+        }
+        for (Connection connection : connections) {
+            connection.client.shutdown(force);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EndorserClientPool{name=" + name + ", size=" + connections.length + ", inFlight=" + getInFlight() + "}";
+    }
+}
@@ -18,6 +18,8 @@ package org.bcia.javachain.sdk;
 
 import com.google.protobuf.ByteString;
 
+import org.bcia.julongchain.protos.common.Common.Payload;
+
 class EndorserTransactionEnvDeserializer extends EnvelopeDeserializer {
 
     EndorserTransactionEnvDeserializer(ByteString byteString, byte validcode) {
@@ -25,10 +27,17 @@ class EndorserTransactionEnvDeserializer extends EnvelopeDeserializer {
 
     }
 
+    @Override
+    TransactionPayloadDeserializer newPayload(ByteString byteString, Payload payload) {
+
+        return new TransactionPayloadDeserializer(byteString, payload);
+
+    }
+
     @Override
     TransactionPayloadDeserializer getPayload() {
 
-        return new TransactionPayloadDeserializer(getEnvelope().getPayload());
+        return (TransactionPayloadDeserializer) super.getPayload();
 
     }
 }
@@ -19,14 +19,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -75,6 +79,21 @@ class Endpoint {
 
     private static final Map<String, String> CN_CACHE = Collections.synchronizedMap(new HashMap<>());
 
+    /**
+     * Client TLS key and certificate parsed from the MspStore bytes, by content of those bytes.
+     */
+    private static final Map<List<ByteBuffer>, ClientCredentials> CLIENT_CREDENTIALS_CACHE = new ConcurrentHashMap<>();
+
+    private static final class ClientCredentials {
+        final IKey clientKey;
+        final Certificate[] clientCert;
+
+        ClientCredentials(IKey clientKey, Certificate[] clientCert) {
+            this.clientKey = clientKey;
+            this.clientCert = clientCert;
+        }
+    }
+
     Endpoint(String url, Properties properties) {
         logger.trace(String.format("Creating endpoint for url %s", url));
         this.url = url;
@@ -98,7 +117,14 @@ class Endpoint {
                 ckb = MspStore.getInstance().getClientKeys().get(0);
                 ccb = MspStore.getInstance().getClientCerts().get(0);
 
-                if ((ckb != null) && (ccb != null)) {
+                final List<ByteBuffer> credentialsKey = (ckb != null) && (ccb != null) ?
+                        Arrays.asList(ByteBuffer.wrap(ckb), ByteBuffer.wrap(ccb)) : null;
+                final ClientCredentials cached = credentialsKey == null ? null : CLIENT_CREDENTIALS_CACHE.get(credentialsKey);
+                if (cached != null) {
+                    clientKey = cached.clientKey;
+                    clientCert = cached.clientCert;
+                    tlsClientCertificatePEMBytes = ccb;
+                } else if (credentialsKey != null) {
                     String what = "private key";
                     try {
                         logger.trace("client TLS private key bytes size:" + ckb.length);
@@ -114,6 +140,7 @@ class Endpoint {
                         clientCert = new Certificate[]{CertificateUtils.bytesToX509Certificate(ccb)};
                         logger.trace("converted client TLS certificate.");
                         tlsClientCertificatePEMBytes = ccb; // Save this away it's the exact pem we used.
+                        CLIENT_CREDENTIALS_CACHE.put(credentialsKey, new ClientCredentials(clientKey, clientCert));
                     } catch (JavaChainException e) {
                         throw new RuntimeException("Failed to parse TLS client " + what, e);
                     }
@@ -139,12 +166,14 @@ class Endpoint {
 
         try {
             if (protocol.equalsIgnoreCase("grpc")) {
-                this.channelBuilder = NettyChannelBuilder.forAddress(addr, port).usePlaintext(true);
+                this.channelBuilder = EndpointTransport.getInstance().configure(NettyChannelBuilder.forAddress(addr, port))
+                        .usePlaintext(true);
                 addNettyBuilderProps(channelBuilder, properties);
             } else if (protocol.equalsIgnoreCase("grpcs")) {
                 if (pemBytes == null) {
                     // use root certificate
-                    this.channelBuilder = NettyChannelBuilder.forAddress(addr, port);
+                    this.channelBuilder = EndpointTransport.getInstance().configure(NettyChannelBuilder.forAddress(addr, port))
+                            .sslContext(EndpointTransport.getInstance().getDefaultClientSslContext());
                     addNettyBuilderProps(channelBuilder, properties);
                 } else {
                     try {
@@ -164,18 +193,16 @@ class Endpoint {
                         String strPassword = "123456";
 
                         //MspStore.getInstance().getClientKeys();
-                        final SslContext sslContext = SslContextGMBuilder
-                                    /* 默认协商出来的是ECDHE_SM4_SM3算法，所以必须是双向SSL，并且客户端和服务端必须要有加密证书和签名证书 */
-                                    .forServer(strClientCert, strPrivateKey, strSignCert, strPrivateKey, strPassword)
-                                    .clientAuth(ClientAuth.REQUIRE)
-                                    .build();
+                        final SslContext sslContext = EndpointTransport.getInstance()
+                                .getGMSslContext(strClientCert, strPrivateKey, strSignCert, strPrivateKey, strPassword,
+                                        ClientAuth.REQUIRE);
 
 
 //                        SslContext sslContext = clientContextBuilder
 //                            .trustManager(myInputStream)
 //                            .build();
-                        this.channelBuilder = NettyChannelBuilder
-                            .forAddress(addr, port)
+                        this.channelBuilder = EndpointTransport.getInstance().configure(NettyChannelBuilder
+                            .forAddress(addr, port))
                             .sslContext(sslContext)
                             .negotiationType(ntype);
                         if (cn != null) {
@@ -0,0 +1,137 @@
+/**
+ * Copyright BCIA. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.net.ssl.SSLException;
+
+import io.grpc.netty.GrpcSslContexts;
+import io.grpc.netty.NettyChannelBuilder;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextGMBuilder;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.bcia.javachain.sdk.helper.Config;
+
+import static java.lang.String.format;
+
+/**
+ * Netty resources shared by every {@link Endpoint}: one event loop group with its channel type, and the TLS
+ * contexts, built once per set of credentials.
+ * <p>
+ * Native epoll is used when it is available on the platform, otherwise NIO.
+ * Reusing a client SslContext also reuses its session cache, so reconnects to the same peer can resume the
+ * TLS session instead of doing a full handshake.
+ * <p>
+ * Endpoints are created by Nodes, Consenters and EventHubs without a reference to their HFClient, so the runtime
+ * is shared by the process. Its threads are daemon threads and live as long as the class.
+ */
+final class EndpointTransport {
+    private static final Log logger = LogFactory.getLog(EndpointTransport.class);
+    private static final Config config = Config.getConfig();
+
+    private static final EndpointTransport INSTANCE = new EndpointTransport();
+
+    private final EventLoopGroup eventLoopGroup;
+    private final Class<? extends Channel> channelType;
+    private final long sessionCacheSize = config.getGrpcTlsSessionCacheSize();
+    private final long sessionTimeout = config.getGrpcTlsSessionTimeout();
+    private final ConcurrentHashMap<List<String>, SslContext> sslContexts = new ConcurrentHashMap<>();
+    private volatile SslContext defaultClientSslContext;
+
+    private EndpointTransport() {
+        final int threads = config.getGrpcEventLoopThreads(); // 0 is netty's default of twice the processors.
+        final DefaultThreadFactory threadFactory = new DefaultThreadFactory("javachain-sdk-grpc", true);
+
+        if (Epoll.isAvailable()) {
+            eventLoopGroup = new EpollEventLoopGroup(threads, threadFactory);
+            channelType = EpollSocketChannel.class;
+        } else {
+            eventLoopGroup = new NioEventLoopGroup(threads, threadFactory);
+            channelType = NioSocketChannel.class;
+        }
+        logger.debug(format("Endpoint transport using %s", channelType.getSimpleName()));
+    }
+
+    static EndpointTransport getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Configure a channel builder to use the shared event loop group.
+     *
+     * @param channelBuilder the builder.
+     * @return the builder.
+     */
+    NettyChannelBuilder configure(NettyChannelBuilder channelBuilder) {
+        return channelBuilder.eventLoopGroup(eventLoopGroup).channelType(channelType);
+    }
+
+    /**
+     * The client TLS context used when the endpoint trusts the default root certificates.
+     */
+    SslContext getDefaultClientSslContext() throws SSLException {
+        SslContext ret = defaultClientSslContext;
+        if (ret == null) {
+            synchronized (this) {
+                ret = defaultClientSslContext;
+                if (ret == null) {
+                    ret = GrpcSslContexts.forClient()
+                            .sessionCacheSize(sessionCacheSize)
+                            .sessionTimeout(sessionTimeout)
+                            .build();
+                    defaultClientSslContext = ret;
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * The GM TLS context for a set of encryption and signing credentials, built on first use.
+     */
+    SslContext getGMSslContext(String encCert, String encKey, String signCert, String signKey, String password,
+                               ClientAuth clientAuth) throws SSLException {
+        final List<String> key = Arrays.asList(encCert, encKey, signCert, signKey, password, clientAuth.name());
+        SslContext ret = sslContexts.get(key);
+        if (ret == null) {
+            ret = SslContextGMBuilder
+                    /* 默认协商出来的是ECDHE_SM4_SM3算法，所以必须是双向SSL，并且客户端和服务端必须要有加密证书和签名证书 */
+                    .forServer(encCert, encKey, signCert, signKey, password)
+                    .clientAuth(clientAuth)
+                    .sessionCacheSize(sessionCacheSize)
+                    .sessionTimeout(sessionTimeout)
+                    .build();
+            SslContext prev = sslContexts.putIfAbsent(key, ret);
+            if (prev != null) {
+                ret = prev;
+            }
+        }
+        return ret;
+    }
+}
@@ -16,8 +16,6 @@
 
 package org.bcia.javachain.sdk;
 
-import java.lang.ref.WeakReference;
-
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 
@@ -27,6 +25,8 @@ import org.bcia.julongchain.protos.common.Common.Envelope;
 import org.bcia.julongchain.protos.common.Common.Payload;
 import org.bcia.julongchain.protos.node.TransactionPackage;
 
+import static org.bcia.javachain.sdk.Deserializers.parse;
+
 /**
  * modified for Node,SmartContract,Consenter,
  * Group,TransactionPackage,TransactionResponsePackage,
@@ -36,8 +36,8 @@ import org.bcia.julongchain.protos.node.TransactionPackage;
 class EnvelopeDeserializer {
     protected final ByteString byteString;
     private final byte validcode;
-    private WeakReference<Envelope> envelope;
-    private WeakReference<PayloadDeserializer> payload;
+    private volatile Envelope envelope;
+    private volatile PayloadDeserializer payload;
 
     EnvelopeDeserializer(ByteString byteString, byte validcode) {
         this.byteString = byteString;
@@ -45,22 +45,23 @@ class EnvelopeDeserializer {
         this.validcode = validcode;
     }
 
-    Envelope getEnvelope() {
-        Envelope ret = null;
-
-        if (envelope != null) {
-            ret = envelope.get();
+    /**
+     * The payload deserializer of this envelope type.
+     *
+     * @param byteString the payload bytes.
+     * @param payload    the parsed payload, null to parse it when first needed.
+     */
+    PayloadDeserializer newPayload(ByteString byteString, Payload payload) {
+        return new PayloadDeserializer(byteString, payload);
+    }
 
-        }
+    Envelope getEnvelope() {
+        Envelope ret = envelope;
         if (ret == null) {
 
-            try {
-                ret = Envelope.parseFrom(byteString);
-            } catch (InvalidProtocolBufferException e) {
-                throw new InvalidProtocolBufferRuntimeException(e);
-            }
+            ret = parse(Envelope.parser(), byteString);
 
-            envelope = new WeakReference<>(ret);
+            envelope = ret;
 
         }
 
@@ -76,31 +77,28 @@ class EnvelopeDeserializer {
 
     PayloadDeserializer getPayload() {
 
-        PayloadDeserializer ret = null;
-
-        if (payload != null) {
-            ret = payload.get();
-
-        }
+        PayloadDeserializer ret = payload;
         if (ret == null) {
 
-            ret = new PayloadDeserializer(getEnvelope().getPayload());
-            payload = new WeakReference<>(ret);
+            ret = newPayload(getEnvelope().getPayload(), null);
+            payload = ret;
 
         }
 
         return ret;
     }
 
-    private Integer type = null;
+    private volatile Integer type = null;
 
     int getType() {
-        if (type == null) {
+        Integer ret = type;
+        if (ret == null) {
 
-            type = getPayload().getHeader().getGroupHeader().getType();
+            ret = getPayload().getHeader().getGroupHeader().getType();
+            type = ret;
 
         }
-        return type;
+        return ret;
     }
 
     /**
@@ -123,8 +121,17 @@ class EnvelopeDeserializer {
 
         EnvelopeDeserializer ret;
 
-        final int type = GroupHeader.parseFrom(Payload.parseFrom(Envelope.parseFrom(byteString).getPayload())
-                .getHeader().getGroupHeader()).getType();
+        // The envelope and payload parsed to find the type are kept, so they are parsed once.
+        final Envelope envelope;
+        final Payload payload;
+        final int type;
+        try {
+            envelope = parse(Envelope.parser(), byteString);
+            payload = parse(Payload.parser(), envelope.getPayload());
+            type = parse(GroupHeader.parser(), payload.getHeader().getGroupHeader()).getType();
+        } catch (InvalidProtocolBufferRuntimeException e) {
+            throw e.getCause();
+        }
 
        /*
 
@@ -146,6 +153,9 @@ class EnvelopeDeserializer {
                 ret = new EnvelopeDeserializer(byteString, b);
                 break;
         }
+        ret.envelope = envelope;
+        ret.payload = ret.newPayload(envelope.getPayload(), payload);
+        ret.type = type;
         return ret;
 
     }
@@ -0,0 +1,47 @@
+/**
+ * Copyright BCIA. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk;
+
+import java.io.IOException;
+
+/**
+ * EventCheckpointStore keeps the number of the last block every block listener of a group has processed, so
+ * peer eventing can resume after a reconnect or restart without missing or repeating blocks.
+ *
+ * @see Group#setEventCheckpointStore(EventCheckpointStore)
+ * @see FileEventCheckpointStore
+ */
+public interface EventCheckpointStore {
+
+    /**
+     * Last checkpoint recorded for the group.
+     *
+     * @param groupName name of the group.
+     * @return the block number, null if no checkpoint was recorded.
+     * @throws IOException
+     */
+    Long getCheckpoint(String groupName) throws IOException;
+
+    /**
+     * Record the last block processed by all block listeners of the group.
+     * Called periodically from a single thread per group with increasing block numbers.
+     *
+     * @param groupName   name of the group.
+     * @param blockNumber the block number.
+     * @throws IOException
+     */
+    void checkpoint(String groupName, long blockNumber) throws IOException;
+}
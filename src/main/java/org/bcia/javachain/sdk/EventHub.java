@@ -213,9 +213,11 @@ public class EventHub implements Serializable {
                     try {
 
                         BlockEvent blockEvent = new BlockEvent(EventHub.this, event);
-                        setLastBlockSeen(blockEvent);
 
-                        eventQue.addBEvent(blockEvent);  //add to channel queue
+                        //Event hubs can not seek, Group refuses them under the DISCONNECT overflow policy.
+                        if (eventQue.addBEvent(blockEvent)) {  //add to channel queue
+                            setLastBlockSeen(blockEvent);
+                        }
                     } catch (InvalidProtocolBufferException e) {
                         EventHubException eventHubException = new EventHubException(format("%s onNext error %s", this, e.getMessage()), e);
                         logger.error(eventHubException.getMessage());
@@ -0,0 +1,89 @@
+/**
+ * Copyright BCIA. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Checkpoint store keeping one small file per group in a local directory.
+ * <p>
+ * A checkpoint is written to a temporary file and moved over the previous one, so a crash leaves either the old
+ * or the new block number and never a partial file.
+ */
+public class FileEventCheckpointStore implements EventCheckpointStore {
+
+    private static final String SUFFIX = ".checkpoint";
+
+    private final Path directory;
+
+    public FileEventCheckpointStore(String directory) throws IOException {
+        this(Paths.get(directory));
+    }
+
+    public FileEventCheckpointStore(Path directory) throws IOException {
+        if (null == directory) {
+            throw new IllegalArgumentException("Checkpoint directory may not be null.");
+        }
+        this.directory = Files.createDirectories(directory);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public Long getCheckpoint(String groupName) throws IOException {
+        Path file = getFile(groupName);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+        try {
+            return Long.parseLong(content);
+        } catch (NumberFormatException e) {
+            throw new IOException(format("Checkpoint file %s is not a block number: %s", file, content), e);
+        }
+    }
+
+    @Override
+    public void checkpoint(String groupName, long blockNumber) throws IOException {
+        Path file = getFile(groupName);
+        Path tmp = Files.createTempFile(directory, groupName, ".tmp");
+        try {
+            Files.write(tmp, Long.toString(blockNumber).getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(tmp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private Path getFile(String groupName) {
+        return directory.resolve(groupName + SUFFIX);
+    }
+}
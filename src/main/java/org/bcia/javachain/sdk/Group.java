@@ -45,17 +45,23 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import org.apache.commons.codec.binary.Hex;
@@ -74,6 +80,7 @@ import org.bcia.javachain.sdk.helper.Config;
 import org.bcia.javachain.sdk.helper.DiagnosticFileDumper;
 import org.bcia.javachain.sdk.helper.MspStore;
 import org.bcia.javachain.sdk.helper.Utils;
+import org.bcia.javachain.sdk.security.msp.ISigningIdentity;
 import org.bcia.javachain.sdk.security.msp.mgmt.GlobalMspManagement;
 import org.bcia.javachain.sdk.transaction.GetConfigBlockBuilder;
 import org.bcia.javachain.sdk.transaction.InstallProposalBuilder;
@@ -88,6 +95,8 @@ import org.bcia.javachain.sdk.transaction.TransactionBuilder;
 import org.bcia.javachain.sdk.transaction.TransactionContext;
 import org.bcia.javachain.sdk.transaction.UpgradeProposalBuilder;
 import org.bcia.javachain.common.exception.NodeException;
+import org.bcia.javachain.common.exception.LedgerException;
+import org.bcia.javachain.common.ledger.blockledger.file.FileLedger;
 import org.bcia.javachain.common.localmsp.impl.LocalSigner;
 import org.bcia.javachain.common.util.FileUtils;
 import org.bcia.javachain.common.util.proto.EnvelopeHelper;
@@ -130,6 +139,7 @@ import org.bcia.julongchain.protos.node.TransactionPackage.ProcessedTransaction;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import io.grpc.StatusRuntimeException;
 
 /**
@@ -162,6 +172,7 @@ public class Group implements Serializable {
     private static final String BLOCK_LISTENER_TAG = "BLOCK_LISTENER_HANDLE";
     // final Set<Node> eventingNodes = Collections.synchronizedSet(new HashSet<>());
     private static final long DELTA_SWEEP = config.getTransactionListenerCleanUpTimeout();
+    private static final long SWEEP_TICK = Math.max(10L, DELTA_SWEEP / 16);
     private static final String CHAINCODE_EVENTS_TAG = "CHAINCODE_EVENTS_HANDLE";
     private static final String PROFILE_CREATE_GROUP = "SampleSingleMSPGroup";
     final Collection<Consenter> orderers = new LinkedList<>();
@@ -200,9 +211,16 @@ public class Group implements Serializable {
 
     private transient GroupEventQue channelEventQue = new GroupEventQue();
     private transient LinkedHashMap<String, BL> blockListeners = new LinkedHashMap<>();
-    private transient LinkedHashMap<String, LinkedList<TL>> txListeners = new LinkedHashMap<>();
+    private transient TransactionListenerRegistry<TL> txListeners = new TransactionListenerRegistry<>(SWEEP_TICK);
     //Cleans up any transaction listeners that will probably never complete.
     private transient ScheduledFuture<?> sweeper = null;
+    private transient volatile EventCheckpointStore eventCheckpointStore = null;
+    //Writes the event checkpoint.
+    private transient ScheduledFuture<?> checkpointer = null;
+    private transient long lastEventCheckpoint = -1L;
+    private transient volatile FileLedger blockStore = null;
+    //Forces blocks written to the block store to disk.
+    private transient ScheduledFuture<?> blockStoreSyncer = null;
     private transient String blh = null;
 
     {
@@ -365,9 +383,10 @@ public class Group implements Serializable {
         initialized = false;
         shutdown = false;
         msps = new HashMap<>();
-        txListeners = new LinkedHashMap<>();
+        txListeners = new TransactionListenerRegistry<>(SWEEP_TICK);
         channelEventQue = new GroupEventQue();
         blockListeners = new LinkedHashMap<>();
+        lastEventCheckpoint = -1L;
 
         for (EventHub eventHub : getEventHubs()) {
             eventHub.setEventQue(channelEventQue);
@@ -1019,6 +1038,12 @@ public class Group implements Serializable {
             throw new InvalidArgumentException("EventHub is invalid can not be null.");
         }
 
+        if (channelEventQue.getOverflowPolicy() == EventQueueOverflowPolicy.DISCONNECT) {
+            // an event hub can not seek, blocks refused while disconnected would be lost.
+            throw new InvalidArgumentException(format("Group %s event queue overflow policy %s is not supported with event hubs, use peer eventing services.",
+                    name, EventQueueOverflowPolicy.DISCONNECT));
+        }
+
         logger.debug(format("Group %s adding event hub %s, url: %s", name, eventHub.getName(), eventHub.getUrl()));
         eventHub.setGroup(this);
         eventHub.setEventQue(channelEventQue);
@@ -1111,6 +1136,9 @@ public class Group implements Serializable {
 
             logger.debug(format("Eventque started %s", "" + eventQueueThread));
 
+            startEventCheckpoint(); // before eventing so peers can resume from the checkpoint.
+            startBlockStore();
+
             for (EventHub eh : eventHubs) { //Connect all event hubs
                 eh.connect(getTransactionContext());
             }
@@ -1317,6 +1345,10 @@ public class Group implements Serializable {
         return client.getExecutorService();
     }
 
+    ScheduledExecutorService getScheduledExecutorService() {
+        return client.getScheduledExecutorService();
+    }
+
     protected void parseConfigBlock() throws TransactionException {
 
         Map<String, Msp> lmsps = msps;
@@ -1688,7 +1720,7 @@ public class Group implements Serializable {
         }
     }
 
-    private TransactionContext getTransactionContext() throws InvalidArgumentException {
+    TransactionContext getTransactionContext() throws InvalidArgumentException {
         return getTransactionContext(client.getUserContext());
     }
 
@@ -1920,6 +1952,11 @@ public class Group implements Serializable {
             throw new InvalidArgumentException("blockHash parameter is null.");
         }
 
+        BlockInfo stored = getStoredBlock(blockHash); // blocks never change, no need to ask a peer.
+        if (stored != null) {
+            return stored;
+        }
+
         try {
 
             logger.trace("queryBlockByHash with hash : " + Hex.encodeHexString(blockHash) + " on channel " + name);
@@ -2034,6 +2071,49 @@ public class Group implements Serializable {
         }
     }
 
+    /**
+     * Stream a range of blocks from the channel's eventing peers.
+     * The range is fetched with deliver streams from all eventing peers in parallel and returned in block order.
+     *
+     * @param from first block number.
+     * @param to   last block number, inclusive. Blocks not yet on the ledger are waited for.
+     * @return the stream of blocks. Must be closed if not read to the end.
+     * @throws InvalidArgumentException
+     * @see #streamBlocks(Collection, long, long)
+     */
+    public BlockStream streamBlocks(long from, long to) throws InvalidArgumentException {
+        return streamBlocks(getEventingNodes(), from, to);
+    }
+
+    /**
+     * Stream a range of blocks from peers.
+     * Each peer fetches chunks of the range with deliver streams; the blocks are reassembled in order with
+     * at most {@link Config#GROUP_BLOCK_STREAM_PREFETCH} blocks fetched ahead of the reader.
+     *
+     * @param peers the peers to fetch from.
+     * @param from  first block number.
+     * @param to    last block number, inclusive. Blocks not yet on the ledger are waited for.
+     * @return the stream of blocks. Must be closed if not read to the end.
+     * @throws InvalidArgumentException
+     */
+    public BlockStream streamBlocks(Collection<Node> peers, long from, long to) throws InvalidArgumentException {
+
+        checkGroupState();
+        checkNodes(peers);
+
+        if (from < 0) {
+            throw new InvalidArgumentException(format("Block number %d can not be negative.", from));
+        }
+
+        if (to < from || to == Long.MAX_VALUE) {
+            throw new InvalidArgumentException(format("Block range %d to %d is not valid.", from, to));
+        }
+
+        logger.debug(format("Group %s streaming blocks %d to %d from %d peers", name, from, to, peers.size()));
+
+        return new BlockStream(this, new ArrayList<>(peers), from, to);
+    }
+
     /**
      * query this channel for a Block by the blockNumber.
      * The request is retried on all peers till successful
@@ -2131,6 +2211,11 @@ public class Group implements Serializable {
         checkNodes(peers);
         userContextCheck(userContext);
 
+        BlockInfo stored = getStoredBlock(blockNumber); // blocks never change, no need to ask a peer.
+        if (stored != null) {
+            return stored;
+        }
+
         try {
             logger.debug("queryBlockByNumber with blockNumber " + blockNumber + " on channel " + name);
             QuerySCCRequest querySCCRequest = new QuerySCCRequest(userContext);
@@ -2700,6 +2785,59 @@ public class Group implements Serializable {
         return sendProposal(transactionProposalRequest, peers);
     }
 
+    /**
+     * Send a transaction proposal asynchronously to all the endorsing peers.
+     *
+     * @param transactionProposalRequest The transaction proposal to be sent to all the peers.
+     * @return future completed with the responses from peers once all have responded or timed out.
+     */
+    public CompletableFuture<Collection<ProposalResponse>> sendTransactionProposalAsync(TransactionProposalRequest transactionProposalRequest) {
+
+        return sendTransactionProposalAsync(transactionProposalRequest, getEndorsingNodes(), ProposalQuorum.ALL);
+    }
+
+    /**
+     * Send a transaction proposal asynchronously to specific peers.
+     *
+     * @param transactionProposalRequest The transaction proposal to be sent to the peers.
+     * @param peers
+     * @return future completed with the responses from peers once all have responded or timed out.
+     */
+    public CompletableFuture<Collection<ProposalResponse>> sendTransactionProposalAsync(TransactionProposalRequest transactionProposalRequest, Collection<Node> peers) {
+
+        return sendTransactionProposalAsync(transactionProposalRequest, peers, ProposalQuorum.ALL);
+    }
+
+    /**
+     * Send a transaction proposal asynchronously to specific peers.
+     * Responses are processed in the order they arrive. As soon as the quorum is satisfied the future completes
+     * with the responses received so far and the outstanding requests are cancelled.
+     * Peers that do not respond within the proposal wait time are reported with a failed response.
+     *
+     * @param transactionProposalRequest The transaction proposal to be sent to the peers.
+     * @param peers
+     * @param quorum                     when enough responses have been received, for example {@link ProposalQuorum#nOf(int)}.
+     * @return future completed with the responses from peers in completion order.
+     */
+    public CompletableFuture<Collection<ProposalResponse>> sendTransactionProposalAsync(TransactionProposalRequest transactionProposalRequest,
+                                                                                        Collection<Node> peers, ProposalQuorum quorum) {
+        try {
+            if (null == quorum) {
+                throw new InvalidArgumentException("Parameter quorum can't be null");
+            }
+            checkProposalRequest(transactionProposalRequest, peers);
+
+            TransactionContext transactionContext = getProposalTransactionContext(transactionProposalRequest);
+            SignedProposal invokeProposal = createSignedProposal(transactionContext, transactionProposalRequest);
+            return sendProposalToNodesAsync(peers, invokeProposal, transactionContext, quorum);
+        } catch (Exception e) {
+            CompletableFuture<Collection<ProposalResponse>> future = new CompletableFuture<>();
+            future.completeExceptionally(e instanceof ProposalException || e instanceof InvalidArgumentException
+                    ? e : new ProposalException(e));
+            return future;
+        }
+    }
+
     /**
      * Send Query proposal
      *
@@ -2784,6 +2922,25 @@ public class Group implements Serializable {
     private Collection<ProposalResponse> sendProposal(TransactionRequest proposalRequest, Collection<Node> peers) throws
             InvalidArgumentException, ProposalException {
 
+        checkProposalRequest(proposalRequest, peers);
+
+        try {
+            TransactionContext transactionContext = getProposalTransactionContext(proposalRequest);
+            SignedProposal invokeProposal = createSignedProposal(transactionContext, proposalRequest);
+            return sendProposalToNodes(peers, invokeProposal, transactionContext);
+        } catch (ProposalException e) {
+            throw e;
+
+        } catch (Exception e) {
+            ProposalException exp = new ProposalException(e);
+            logger.error(exp.getMessage(), exp);
+            throw exp;
+        }
+    }
+
+    private void checkProposalRequest(TransactionRequest proposalRequest, Collection<Node> peers) throws
+            InvalidArgumentException {
+
         checkGroupState();
         checkNodes(peers);
 
@@ -2800,27 +2957,26 @@ public class Group implements Serializable {
         }
 
         proposalRequest.setSubmitted();
+    }
 
-        try {
-            TransactionContext transactionContext = getTransactionContext(proposalRequest.getUserContext());
-            transactionContext.verify(proposalRequest.doVerify());
-            transactionContext.setProposalWaitTime(proposalRequest.getProposalWaitTime());
+    private TransactionContext getProposalTransactionContext(TransactionRequest proposalRequest) throws
+            InvalidArgumentException {
 
-            // Protobuf message builder
-            ProposalBuilder proposalBuilder = ProposalBuilder.newBuilder();
-            proposalBuilder.context(transactionContext);
-            proposalBuilder.request(proposalRequest);
+        TransactionContext transactionContext = getTransactionContext(proposalRequest.getUserContext());
+        transactionContext.verify(proposalRequest.doVerify());
+        transactionContext.setProposalWaitTime(proposalRequest.getProposalWaitTime());
+        return transactionContext;
+    }
 
-            SignedProposal invokeProposal = getSignedProposal(transactionContext, proposalBuilder.build());
-            return sendProposalToNodes(peers, invokeProposal, transactionContext);
-        } catch (ProposalException e) {
-            throw e;
+    private SignedProposal createSignedProposal(TransactionContext transactionContext, TransactionRequest proposalRequest) throws
+            Exception {
 
-        } catch (Exception e) {
-            ProposalException exp = new ProposalException(e);
-            logger.error(exp.getMessage(), exp);
-            throw exp;
-        }
+        // Protobuf message builder
+        ProposalBuilder proposalBuilder = ProposalBuilder.newBuilder();
+        proposalBuilder.context(transactionContext);
+        proposalBuilder.request(proposalRequest);
+
+        return getSignedProposal(transactionContext, proposalBuilder.build());
     }
 
     private Collection<ProposalResponse> sendProposalToNodes(Collection<Node> peers,
@@ -2908,30 +3064,212 @@ public class Group implements Serializable {
                     logger.error(emsg, new Exception(cause)); //wrapped in exception to get full stack trace.
                     throw (Error) cause;
                 } else {
-                    if (cause instanceof StatusRuntimeException) {
-                        message = format("Sending proposal to " + peerName + " failed because of: gRPC failure=%s",
-                                ((StatusRuntimeException) cause).getStatus());
-                    } else {
-                        message = format("Sending proposal to " + peerName + " failed because of: %s", cause.getMessage());
+                    message = getProposalFailureMessage(peerName, cause);
+                    logger.error(message, new Exception(cause)); //wrapped in exception to get full stack trace.
+                }
+            }
+
+            proposalResponses.add(createProposalResponse(peerFuturePair.peer, proposalResponse, status, message,
+                    signedProposal, transactionContext));
+        }
+
+        return proposalResponses;
+    }
+
+    private static String getProposalFailureMessage(String peerName, Throwable cause) {
+        if (cause instanceof StatusRuntimeException) {
+            return format("Sending proposal to " + peerName + " failed because of: gRPC failure=%s",
+                    ((StatusRuntimeException) cause).getStatus());
+        }
+        return format("Sending proposal to " + peerName + " failed because of: %s", cause.getMessage());
+    }
+
+    private ProposalResponse createProposalResponse(Node peer, ProposalResponsePackage.ProposalResponse proposalResponse,
+                                                    int status, String message, SignedProposal signedProposal,
+                                                    TransactionContext transactionContext) throws ProposalException {
+
+        ProposalResponse proposalRsp = new ProposalResponse(transactionContext.getTxID(),
+                transactionContext.getGroupID(), status, message);
+        proposalRsp.setProposalResponse(proposalResponse);
+        proposalRsp.setProposal(signedProposal);
+        proposalRsp.setNode(peer);
+
+        if (proposalResponse != null && transactionContext.getVerify()) {
+            proposalRsp.verify();
+        }
+        return proposalRsp;
+    }
+
+    private CompletableFuture<Collection<ProposalResponse>> sendProposalToNodesAsync(Collection<Node> peers,
+                                                                                    SignedProposal signedProposal,
+                                                                                    TransactionContext transactionContext,
+                                                                                    ProposalQuorum quorum) throws InvalidArgumentException, ProposalException {
+        checkNodes(peers);
+
+        if (transactionContext.getVerify()) {
+            try {
+                loadCACertificates();
+            } catch (Exception e) {
+                throw new ProposalException(e);
+            }
+        }
+
+        final ProposalCollector collector = new ProposalCollector(peers.size(), quorum);
+
+        for (Node peer : peers) {
+            logger.debug(format("Group %s send proposal async to peer %s at url %s",
+                    name, peer.getName(), peer.getUrl()));
+
+            if (null != diagnosticFileDumper) {
+                logger.trace(format("Sending to channel %s, peer: %s, proposal: %s", name, peer.getName(),
+                        diagnosticFileDumper.createDiagnosticProtobufFile(signedProposal.toByteArray())));
+
+            }
+
+            final ListenableFuture<ProposalResponsePackage.ProposalResponse> future;
+            try {
+                future = peer.sendProposalAsync(signedProposal);
+            } catch (Exception e) {
+                String message = getProposalFailureMessage(peer.getName(), e);
+                logger.error(message, e);
+                collector.received(peer, createProposalResponse(peer, null, 500, message, signedProposal, transactionContext));
+                continue;
+            }
+            collector.pending(peer, future);
+            future.addListener(() -> {
+                ProposalResponsePackage.ProposalResponse proposalResponse = null;
+                String message;
+                int status = 500;
+                try {
+                    proposalResponse = future.get();
+                    message = proposalResponse.getResponse().getMessage();
+                    status = proposalResponse.getResponse().getStatus();
+                    logger.debug(format("Group %s got proposal response from peer %s, status: %d",
+                            name, peer.getName(), status));
+                } catch (CancellationException e) {
+                    return; // cancelled by the collector, response no longer needed.
+                } catch (InterruptedException e) {
+                    message = "Sending proposal to " + peer.getName() + " failed because of interruption";
+                    logger.error(message, e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        collector.failed(cause);
+                        return;
                     }
+                    message = getProposalFailureMessage(peer.getName(), cause);
                     logger.error(message, new Exception(cause)); //wrapped in exception to get full stack trace.
                 }
+                try {
+                    collector.received(peer, createProposalResponse(peer, proposalResponse, status, message,
+                            signedProposal, transactionContext));
+                } catch (Exception e) {
+                    collector.failed(e);
+                }
+            }, getExecutorService());
+        }
+
+        collector.timeout(client.getScheduledExecutorService().schedule(() -> {
+            for (Node peer : collector.unanswered()) {
+                String message = format("Sending proposal to " + peer.getName() + " failed because of timeout(%d milliseconds) expiration",
+                        transactionContext.getProposalWaitTime());
+                logger.error(message);
+                try {
+                    collector.received(peer, createProposalResponse(peer, null, 500, message, signedProposal, transactionContext));
+                } catch (Exception e) {
+                    collector.failed(e);
+                }
             }
+        }, transactionContext.getProposalWaitTime(), TimeUnit.MILLISECONDS));
+
+        return collector.future;
+    }
 
-            ProposalResponse proposalRsp = new ProposalResponse(transactionContext.getTxID(),
-                    transactionContext.getGroupID(), status, message);
-            proposalRsp.setProposalResponse(proposalResponse);
-            proposalRsp.setProposal(signedProposal);
-            proposalRsp.setNode(peerFuturePair.peer);
+    /**
+     * Collects asynchronous proposal responses in completion order and completes once all peers have answered
+     * or the quorum is satisfied. Requests are cancelled when their peer times out and on completion.
+     */
+    private static class ProposalCollector {
+        private final CompletableFuture<Collection<ProposalResponse>> future = new CompletableFuture<>();
+        private final Map<Node, Future<ProposalResponsePackage.ProposalResponse>> pending = new LinkedHashMap<>();
+        private final Set<Node> answered = new HashSet<>();
+        private final List<ProposalResponse> responses;
+        private final int expected;
+        private final ProposalQuorum quorum;
+        private ScheduledFuture<?> timeout;
+
+        private ProposalCollector(int expected, ProposalQuorum quorum) {
+            this.expected = expected;
+            this.quorum = quorum;
+            this.responses = new ArrayList<>(expected);
+        }
+
+        synchronized void pending(Node peer, Future<ProposalResponsePackage.ProposalResponse> proposalFuture) {
+            if (future.isDone()) {
+                proposalFuture.cancel(true);
+                return;
+            }
+            pending.put(peer, proposalFuture);
+        }
 
-            if (proposalResponse != null && transactionContext.getVerify()) {
-                proposalRsp.verify();
+        synchronized void timeout(ScheduledFuture<?> timeout) {
+            if (future.isDone()) {
+                timeout.cancel(false);
+                return;
             }
+            this.timeout = timeout;
+        }
 
-            proposalResponses.add(proposalRsp);
+        synchronized List<Node> unanswered() {
+            List<Node> ret = new ArrayList<>();
+            for (Node peer : pending.keySet()) {
+                if (!answered.contains(peer)) {
+                    ret.add(peer);
+                }
+            }
+            return ret;
         }
 
-        return proposalResponses;
+        synchronized void received(Node peer, ProposalResponse proposalResponse) {
+            if (future.isDone() || !answered.add(peer)) {
+                return; // late response.
+            }
+            responses.add(proposalResponse);
+            Future<ProposalResponsePackage.ProposalResponse> proposalFuture = pending.remove(peer);
+            if (proposalFuture != null && !proposalFuture.isDone()) {
+                proposalFuture.cancel(true); // answered by the timeout, stop waiting for the peer.
+            }
+
+            boolean satisfied;
+            try {
+                satisfied = responses.size() == expected || quorum.isSatisfied(Collections.unmodifiableList(responses));
+            } catch (RuntimeException e) {
+                failed(e);
+                return;
+            }
+            if (satisfied) {
+                future.complete(new ArrayList<>(responses));
+                cancelPending();
+            }
+        }
+
+        synchronized void failed(Throwable t) {
+            if (future.isDone()) {
+                return;
+            }
+            future.completeExceptionally(t);
+            cancelPending();
+        }
+
+        private void cancelPending() {
+            for (Future<ProposalResponsePackage.ProposalResponse> proposalFuture : pending.values()) {
+                proposalFuture.cancel(true);
+            }
+            pending.clear();
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+        }
     }
 
     private static String cutStr(String str) {
@@ -3245,6 +3583,19 @@ public class Group implements Serializable {
         NOfEvents nOfEvents;
         User userContext;
         boolean failFast = true;
+        Boolean mergeEndorsements;
+
+        /**
+         * Merge all proposal responses into one transaction envelope that is signed and sent to the Consenter once.
+         * When not set the value of {@link Config#TRANSACTION_MERGE_ENDORSEMENTS} is used.
+         *
+         * @param mergeEndorsements merge endorsements.
+         * @return This TransactionOptions
+         */
+        public TransactionOptions mergeEndorsements(boolean mergeEndorsements) {
+            this.mergeEndorsements = mergeEndorsements;
+            return this;
+        }
 
         /**
          * Fail fast when there is an invalid transaction received on the eventhub or eventing peer being observed.
@@ -3399,10 +3750,23 @@ public class Group implements Serializable {
             //根据julongchain构建信封进行改写
             //ProposalPackage.Proposal originalProposal, ISigningIdentity identity, ProposalResponsePackage.ProposalResponse... endorserResponses
             List<Envelope> transactionEnvelopes = new ArrayList<Envelope>();
-
-            for ( ProposalResponse proposalResponse : proposalResponses ) {
-                Envelope transactionEnvelope = EnvelopeHelper.createSignedTxEnvelope(proposal, GlobalMspManagement.getLocalMsp().getDefaultSigningIdentity(), proposalResponse.getProposalResponse());
-                transactionEnvelopes.add(transactionEnvelope);
+            ISigningIdentity signingIdentity = GlobalMspManagement.getLocalMsp().getDefaultSigningIdentity();
+            boolean mergeEndorsements = transactionOptions.mergeEndorsements != null ? transactionOptions.mergeEndorsements :
+                    config.getTransactionMergeEndorsements();
+
+            if (mergeEndorsements) {
+                //所有背书合并为一个SmartContractEndorsedAction,只签名并广播一次
+                ProposalResponsePackage.ProposalResponse[] endorserResponses = new ProposalResponsePackage.ProposalResponse[proposalResponses.size()];
+                int i = 0;
+                for (ProposalResponse proposalResponse : proposalResponses) {
+                    endorserResponses[i++] = proposalResponse.getProposalResponse();
+                }
+                transactionEnvelopes.add(EnvelopeHelper.createSignedTxEnvelope(proposal, signingIdentity, endorserResponses));
+            } else {
+                for ( ProposalResponse proposalResponse : proposalResponses ) {
+                    Envelope transactionEnvelope = EnvelopeHelper.createSignedTxEnvelope(proposal, signingIdentity, proposalResponse.getProposalResponse());
+                    transactionEnvelopes.add(transactionEnvelope);
+                }
             }
 
             NOfEvents nOfEvents = transactionOptions.nOfEvents;
@@ -3477,6 +3841,8 @@ public class Group implements Serializable {
                 failed = orderer;
                 try {
 
+                    //pipeline all envelopes on the orderer's broadcast stream before waiting for the responses
+                    List<CompletableFuture<BroadcastResponse>> respFutures = new ArrayList<>(transactionEnvelopes.size());
                     for ( Envelope transactionEnvelope : transactionEnvelopes ) {
 
                         if (null != diagnosticFileDumper) {
@@ -3484,14 +3850,19 @@ public class Group implements Serializable {
                                     diagnosticFileDumper.createDiagnosticProtobufFile(transactionEnvelope.toByteArray())));
                         }
 
-                        resp = orderer.sendTransaction(transactionEnvelope);
-                        lException = null; // no longer last exception .. maybe just failed.
-                        if (resp.getStatus() == Status.SUCCESS) {
-                            success = true;
-                            continue;
-                        } else {
-                            logger.warn(format("Group %s %s failed. Status returned %s", name, orderer, getRespData(resp)));
+                        respFutures.add(orderer.sendTransactionAsync(transactionEnvelope));
+                    }
+
+                    for ( CompletableFuture<BroadcastResponse> respFuture : respFutures ) {
+
+                        try {
+                            resp = respFuture.get();
+                        } catch (ExecutionException e) {
+                            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
                         }
+                        //a status other than SUCCESS fails the future with the status in its message
+                        lException = null; // no longer last exception .. maybe just failed.
+                        success = true;
                     }
                 } catch (Exception e) {
                     String emsg = format("Group %s unsuccessful sendTransaction to orderer %s (%s)",
@@ -3677,9 +4048,9 @@ public class Group implements Serializable {
                     }
                     continue; //wait on sending events till the channel is initialized.
                 }
-                final BlockEvent blockEvent;
+                final List<BlockEvent> blockEvents;
                 try {
-                    blockEvent = channelEventQue.getNextEvent();
+                    blockEvents = channelEventQue.getNextEvents();
                 } catch (EventHubException e) {
                     if (!shutdown) {
                         logger.error(e);
@@ -3687,49 +4058,203 @@ public class Group implements Serializable {
 
                     continue;
                 }
-                if (blockEvent == null) {
-                    logger.warn("GOT null block event.");
-                    continue;
+
+                final ArrayList<BL> blcopy = new ArrayList<>(blockListeners.size() + 3);
+                synchronized (blockListeners) {
+                    blcopy.addAll(blockListeners.values());
                 }
 
-                try {
+                final List<BlockEvent> dispatch = new ArrayList<>(blockEvents.size());
+                for (BlockEvent blockEvent : blockEvents) {
+                    if (blockEvent == null) {
+                        logger.warn("GOT null block event.");
+                        continue;
+                    }
 
-                    final String blockchainID = blockEvent.getGroupId();
-                    final String from =
-                            format("Group %s eventqueue got block event with block number: %d for channel: %s, from %s",
-                                    name, blockEvent.getBlockNumber(), blockchainID, blockEvent.getNode() != null ? ("Node: " + blockEvent.getNode().getName()) :
-                                            ("Eventhub: " + blockEvent.getEventHub().getName()));
+                    try {
 
-                    logger.trace(from);
+                        final String blockchainID = blockEvent.getGroupId();
+                        final String from =
+                                format("Group %s eventqueue got block event with block number: %d for channel: %s, from %s",
+                                        name, blockEvent.getBlockNumber(), blockchainID, blockEvent.getNode() != null ? ("Node: " + blockEvent.getNode().getName()) :
+                                                ("Eventhub: " + blockEvent.getEventHub().getName()));
 
-                    if (!Objects.equals(name, blockchainID)) {
-                        logger.warn(format("Group %s eventqueue got block event NOT FOR ME  channelId %s  from %s", name, blockchainID, from));
-                        continue; // not targeted for this channel
-                    }
+                        logger.trace(from);
 
-                    final ArrayList<BL> blcopy = new ArrayList<>(blockListeners.size() + 3);
-                    synchronized (blockListeners) {
-                        blcopy.addAll(blockListeners.values());
+                        if (!Objects.equals(name, blockchainID)) {
+                            logger.warn(format("Group %s eventqueue got block event NOT FOR ME  channelId %s  from %s", name, blockchainID, from));
+                            continue; // not targeted for this channel
+                        }
+                        if (channelEventQue.isDedup()) {
+                            SeenBlock seen = channelEventQue.dedup(blockEvent);
+                            if (seen != null) {
+                                logger.trace(format("Group %s eventqueue suppressed duplicate block %d", name, blockEvent.getBlockNumber()));
+                                recordDuplicateSource(seen, blockEvent);
+                                continue;
+                            }
+                        }
+                        if (channelEventQue.isDispatched(blockEvent)) {
+                            logger.trace(format("Group %s eventqueue suppressed block %d already dispatched", name, blockEvent.getBlockNumber()));
+                            recordSuppressedSource(blockEvent);
+                            continue;
+                        }
+                        dispatch.add(blockEvent);
+                        channelEventQue.dispatched(blockEvent, blcopy.size());
+                    } catch (Exception e) {
+                        logger.error("Unable to parse event", e);
+                        logger.debug("event:\n)");
+                        logger.debug(blockEvent.toString());
                     }
+                }
 
-                    for (BL l : blcopy) {
-                        try {
-                            logger.trace(format("Sending block event '%s' to block listener %s", from, l.handle));
-                            client.getExecutorService().execute(() -> l.listener.received(blockEvent));
-                        } catch (Throwable e) { //Don't let one register stop rest.
-                            logger.error(format("Error calling block listener %s on channel: %s event: %s ", l.handle, name, from), e);
-                        }
+                if (dispatch.isEmpty()) {
+                    continue;
+                }
+
+                for (BL l : blcopy) {
+                    try {
+                        logger.trace(format("Sending %d block events to block listener %s", dispatch.size(), l.handle));
+                        l.deliver(dispatch);
+                    } catch (InterruptedException e) {
+                        logger.warn(e);
+                    } catch (Throwable e) { //Don't let one register stop rest.
+                        logger.error(format("Error calling block listener %s on channel: %s", l.handle, name), e);
                     }
-                } catch (Exception e) {
-                    logger.error("Unable to parse event", e);
-                    logger.debug("event:\n)");
-                    logger.debug(blockEvent.toString());
                 }
             }
         });
 
     }
 
+    private void startEventCheckpoint() throws IOException {
+
+        if (checkpointer != null || isSystemGroup()) {
+            return;
+        }
+
+        if (eventCheckpointStore == null) {
+            final String dir = config.getGroupEventCheckpointDir();
+            if (!isNullOrEmpty(dir)) {
+                eventCheckpointStore = new FileEventCheckpointStore(dir);
+            }
+        }
+        final EventCheckpointStore store = eventCheckpointStore;
+        if (store == null) {
+            return;
+        }
+
+        final Long checkpoint = store.getCheckpoint(name);
+        logger.debug(format("Group %s event checkpoint %s", name, "" + checkpoint));
+        if (checkpoint != null) {
+            lastEventCheckpoint = checkpoint;
+        }
+        channelEventQue.resumeFrom(checkpoint);
+
+        final long interval = Math.max(1L, config.getGroupEventCheckpointInterval());
+        checkpointer = client.getScheduledExecutorService().scheduleWithFixedDelay(this::flushEventCheckpoint,
+                interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void startBlockStore() throws LedgerException, InvalidArgumentException {
+
+        if (blockStoreSyncer != null || isSystemGroup()) {
+            return;
+        }
+
+        if (blockStore == null) {
+            final String dir = config.getGroupBlockStoreDir();
+            if (!isNullOrEmpty(dir)) {
+                blockStore = new FileLedger(Paths.get(dir, name).toString(), config.getGroupBlockStoreSegmentSize(),
+                        config.getGroupBlockStoreSyncBlocks(), config.getGroupBlockStoreSyncInterval());
+            }
+        }
+        final FileLedger store = blockStore;
+        if (store == null) {
+            return;
+        }
+
+        // Block store is internal Block listener storing the full blocks received.
+        registerBlockListener(blockEvent -> {
+            if (blockEvent.isFiltered()) {
+                return;
+            }
+            try {
+                final long blockNumber = blockEvent.getBlockNumber();
+                final long height = store.height();
+                if (blockNumber < height && store.contains(blockNumber)) {
+                    return; // already stored.
+                }
+                if (store.getBase() >= 0 && blockNumber != height) {
+                    logger.warn(format("Group %s block store at height %d can not store block %d", name, height, blockNumber));
+                    return;
+                }
+                store.append(blockEvent.getBlock());
+            } catch (LedgerException e) {
+                logger.error(format("Group %s unable to store block %d", name, blockEvent.getBlockNumber()), e);
+            }
+        });
+
+        final long interval = Math.max(1L, config.getGroupBlockStoreSyncInterval());
+        blockStoreSyncer = client.getScheduledExecutorService().scheduleWithFixedDelay(() -> {
+            try {
+                store.sync();
+            } catch (LedgerException e) {
+                logger.warn(format("Group %s unable to sync block store", name), e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private BlockInfo getStoredBlock(long blockNumber) {
+        final FileLedger store = blockStore;
+        if (store == null || !store.contains(blockNumber)) {
+            return null;
+        }
+        try {
+            Block block = store.getBlockByNumber(blockNumber);
+            return block == null ? null : new BlockInfo(block);
+        } catch (LedgerException e) {
+            logger.warn(format("Group %s unable to read block %d from block store", name, blockNumber), e);
+            return null;
+        }
+    }
+
+    private BlockInfo getStoredBlock(byte[] blockHash) {
+        final FileLedger store = blockStore;
+        if (store == null) {
+            return null;
+        }
+        try {
+            Block block = store.getBlockByHash(blockHash);
+            return block == null ? null : new BlockInfo(block);
+        } catch (LedgerException e) {
+            logger.warn(format("Group %s unable to read block from block store", name), e);
+            return null;
+        }
+    }
+
+    /**
+     * Write the event checkpoint if block listeners have processed more blocks since the last one.
+     */
+    private synchronized void flushEventCheckpoint() {
+        final EventCheckpointStore store = eventCheckpointStore;
+        final GroupEventQue lchannelEventQue = channelEventQue;
+        if (store == null || lchannelEventQue == null) {
+            return;
+        }
+
+        final long checkpoint = lchannelEventQue.getCheckpoint();
+        if (checkpoint <= lastEventCheckpoint) {
+            return;
+        }
+
+        try {
+            store.checkpoint(name, checkpoint);
+            lastEventCheckpoint = checkpoint;
+        } catch (Exception e) { // try again next time.
+            logger.warn(format("Group %s failed to write event checkpoint %d", name, checkpoint), e);
+        }
+    }
+
     /**
      * Own block listener to manage transactions.
      *
@@ -3747,32 +4272,69 @@ public class Group implements Serializable {
                 return;
             }
 
+            try {
+                blockEvent.decodeEnvelopes(); // every envelope is visited, large blocks are parsed in parallel.
+            } catch (InvalidProtocolBufferException e) {
+                logger.error(format("Group %s unable to parse block %d", name, blockEvent.getBlockNumber()), e);
+                return;
+            }
+
             for (TransactionEvent transactionEvent : blockEvent.getTransactionEvents()) {
 
-                logger.debug(format("Group %s got event for transaction %s ", name, transactionEvent.getTransactionID()));
+                processTransactionEvent(transactionEvent, transactionEvent.getNode(), transactionEvent.getEventHub());
+            }
+        });
+    }
 
-                List<TL> txL = new ArrayList<>(txListeners.size() + 2);
-                synchronized (txListeners) {
-                    LinkedList<TL> list = txListeners.get(transactionEvent.getTransactionID());
-                    if (null != list) {
-                        txL.addAll(list);
-                    }
+    /**
+     * A suppressed copy of a block still counts as an event from its source for the transaction listeners.
+     */
+    private void recordDuplicateSource(SeenBlock seen, BlockEvent duplicate) {
+        if (txListeners.isEmpty() || seen == SeenBlock.EXPIRED) {
+            return;
+        }
+
+        try {
+            final String[] transactionIDs = seen.getTransactionIDs(duplicate);
+            for (int i = 0; i < transactionIDs.length; ++i) {
+                if (!txListeners.get(transactionIDs[i]).isEmpty()) { // only transactions someone waits for are parsed.
+                    processTransactionEvent(duplicate.getTransactionEvent(i), duplicate.getNode(), duplicate.getEventHub());
                 }
+            }
+        } catch (InvalidProtocolBufferException e) {
+            logger.error(format("Group %s unable to parse duplicate block %d", name, seen.blockNumber), e);
+        }
+    }
 
-                for (TL l : txL) {
-                    try {
-                        // only if we get events from each eventhub on the channel fire the transactions event.
-                        //   if (getEventHubs().containsAll(l.eventReceived(transactionEvent.getEventHub()))) {
-                        if (l.eventReceived(transactionEvent)) {
-                            l.fire(transactionEvent);
-                        }
+    /**
+     * A block suppressed by the checkpoint still counts as an event from its source for the transaction listeners.
+     */
+    private void recordSuppressedSource(BlockEvent suppressed) {
+        if (txListeners.isEmpty()) {
+            return;
+        }
 
-                    } catch (Throwable e) {
-                        logger.error(e); // Don't let one register stop rest.
-                    }
+        for (TransactionEvent transactionEvent : suppressed.getTransactionEventsList()) {
+            processTransactionEvent(transactionEvent, suppressed.getNode(), suppressed.getEventHub());
+        }
+    }
+
+    private void processTransactionEvent(TransactionEvent transactionEvent, Node peer, EventHub eventHub) {
+
+        logger.debug(format("Group %s got event for transaction %s ", name, transactionEvent.getTransactionID()));
+
+        for (TL l : txListeners.get(transactionEvent.getTransactionID())) {
+            try {
+                // only if we get events from each eventhub on the channel fire the transactions event.
+                //   if (getEventHubs().containsAll(l.eventReceived(transactionEvent.getEventHub()))) {
+                if (l.eventReceived(transactionEvent, peer, eventHub)) {
+                    l.fire(transactionEvent);
                 }
+
+            } catch (Throwable e) {
+                logger.error(e); // Don't let one register stop rest.
             }
-        });
+        }
     }
 
     void runSweeper() {
@@ -3792,26 +4354,13 @@ public class Group implements Serializable {
 
                     if (txListeners != null) {
 
-                        synchronized (txListeners) {
-
-                            for (Iterator<Map.Entry<String, LinkedList<TL>>> it = txListeners.entrySet().iterator(); it.hasNext();
-                                    ) {
-
-                                Map.Entry<String, LinkedList<TL>> es = it.next();
-
-                                LinkedList<TL> tlLinkedList = es.getValue();
-                                tlLinkedList.removeIf(TL::sweepMe);
-                                if (tlLinkedList.isEmpty()) {
-                                    it.remove();
-                                }
-                            }
-                        }
+                        txListeners.expire(System.currentTimeMillis());
                     }
                 } catch (Exception e) {
                     logger.warn("Sweeper got error:" + e.getMessage(), e);
                 }
 
-            }, 0, DELTA_SWEEP, TimeUnit.MILLISECONDS);
+            }, 0, SWEEP_TICK, TimeUnit.MILLISECONDS);
         }
 
     }
@@ -3841,10 +4390,7 @@ public class Group implements Serializable {
      */
     private void unregisterTxListener(String txid) {
 
-        synchronized (txListeners) {
-
-            txListeners.remove(txid);
-        }
+        txListeners.removeAll(txid);
 
     }
 
@@ -4072,6 +4618,26 @@ public class Group implements Serializable {
         if (null != lsweeper) {
             lsweeper.cancel(true);
         }
+
+        ScheduledFuture<?> lcheckpointer = checkpointer;
+        checkpointer = null;
+
+        if (null != lcheckpointer) {
+            lcheckpointer.cancel(false);
+            flushEventCheckpoint();
+        }
+
+        ScheduledFuture<?> lblockStoreSyncer = blockStoreSyncer;
+        blockStoreSyncer = null;
+
+        if (null != lblockStoreSyncer) {
+            lblockStoreSyncer.cancel(false);
+        }
+
+        FileLedger lblockStore = blockStore;
+        if (null != lblockStore) {
+            lblockStore.close();
+        }
     }
 
     /**
@@ -4318,9 +4884,56 @@ public class Group implements Serializable {
 
     }
 
+    /**
+     * What the group event queue does with a new block event when it is full.
+     */
+    public enum EventQueueOverflowPolicy {
+        /**
+         * Block the eventing connection until there is room.
+         */
+        BLOCK,
+        /**
+         * Drop the oldest buffered block event.
+         */
+        DROP_OLDEST,
+        /**
+         * Refuse the block event and disconnect the eventing service, which reconnects and replays from the
+         * last block it queued. Event hubs can not replay, a group with this policy does not accept them.
+         */
+        DISCONNECT
+    }
+
+    /**
+     * Bounded buffer between the eventing services and the block listeners.
+     */
     class GroupEventQue {
 
-        private final BlockingQueue<BlockEvent> events = new LinkedBlockingQueue<>(); //Thread safe
+        private final int capacity = Math.max(1, config.getGroupEventQueueCapacity());
+        private final int batchSize = Math.max(1, config.getGroupEventQueueBatchSize());
+        private final EventQueueOverflowPolicy overflowPolicy =
+                EventQueueOverflowPolicy.valueOf(config.getGroupEventQueueOverflowPolicy().trim().toUpperCase());
+        private final BlockingQueue<BlockEvent> events = new ArrayBlockingQueue<>(capacity); //Thread safe
+        private final AtomicLong droppedCount = new AtomicLong();
+        private volatile long lastReceivedBlockNumber = -1L;
+        private volatile long lastDispatchedBlockNumber = -1L;
+        private final boolean dedup = config.getGroupEventDedup();
+        private final int dedupWindow = Math.max(1, config.getGroupEventDedupWindow());
+        /**
+         * Recently dispatched blocks by block number. Only used by the event queue thread.
+         */
+        private final LinkedHashMap<Long, SeenBlock> seenBlocks = new LinkedHashMap<Long, SeenBlock>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, SeenBlock> eldest) {
+                return size() > dedupWindow;
+            }
+        };
+        private long highestSeenBlockNumber = -1L;
+        private volatile boolean checkpointing = false;
+        /**
+         * Dispatched blocks by block number with the count of block listeners that have not processed them yet.
+         * Only kept when checkpointing.
+         */
+        private final ConcurrentSkipListMap<Long, AtomicInteger> unprocessed = new ConcurrentSkipListMap<>();
         private Throwable eventException;
 
         void eventError(Throwable t) {
@@ -4338,24 +4951,73 @@ public class Group implements Serializable {
                 return false;
             }
 
-            // May be fed by multiple eventhubs but BlockingQueue.add() is thread-safe
-            events.add(event);
+            // May be fed by multiple eventhubs but BlockingQueue.offer() is thread-safe
+            if (!events.offer(event)) {
+                switch (overflowPolicy) {
+                    case DROP_OLDEST:
+                        while (!events.offer(event)) {
+                            if (events.poll() != null) {
+                                droppedCount.incrementAndGet();
+                            }
+                        }
+                        logger.warn(format("Group %s event queue full (%d), dropped oldest block event", name, capacity));
+                        break;
+                    case DISCONNECT:
+                        droppedCount.incrementAndGet();
+                        logger.warn(format("Group %s event queue full (%d), refused block event %d",
+                                name, capacity, event.getBlockNumber()));
+                        return false;
+                    case BLOCK:
+                    default:
+                        try {
+                            while (!events.offer(event, 100, TimeUnit.MILLISECONDS)) {
+                                if (shutdown) {
+                                    return false;
+                                }
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return false;
+                        }
+                        break;
+                }
+            }
+
+            long blockNumber = event.getBlockNumber();
+            if (blockNumber > lastReceivedBlockNumber) {
+                lastReceivedBlockNumber = blockNumber;
+            }
 
             return true;
 
         }
 
-        BlockEvent getNextEvent() throws EventHubException {
+        EventQueueOverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        /**
+         * @return true if the eventing service should disconnect when a block event was not accepted.
+         */
+        boolean isDisconnectOnOverflow() {
+            return overflowPolicy == EventQueueOverflowPolicy.DISCONNECT && !shutdown;
+        }
+
+        /**
+         * Wait for at least one block event and return it with any others already buffered, up to the batch size.
+         */
+        List<BlockEvent> getNextEvents() throws EventHubException {
             if (shutdown) {
                 throw new EventHubException(format("Group %s has been shutdown", name));
 
             }
-            BlockEvent ret = null;
+            List<BlockEvent> ret = new ArrayList<>(batchSize);
             if (eventException != null) {
                 throw new EventHubException(eventException);
             }
             try {
-                ret = events.take();
+                ret.add(events.take());
+                events.drainTo(ret, batchSize - 1);
             } catch (InterruptedException e) {
                 if (shutdown) {
                     throw new EventHubException(eventException);
@@ -4384,12 +5046,247 @@ public class Group implements Serializable {
             return ret;
         }
 
+        boolean isDedup() {
+            return dedup;
+        }
+
+        /**
+         * Check a block event against the recently dispatched blocks of this group.
+         *
+         * @return null if this is the first copy of the block, otherwise the record of the first copy.
+         */
+        SeenBlock dedup(BlockEvent event) {
+            final long blockNumber = event.getBlockNumber();
+            SeenBlock seen = seenBlocks.get(blockNumber);
+            if (seen != null) {
+                return seen;
+            }
+            if (blockNumber <= highestSeenBlockNumber - dedupWindow) {
+                return SeenBlock.EXPIRED; // older than the window, assume it was delivered.
+            }
+            seenBlocks.put(blockNumber, new SeenBlock(blockNumber));
+            if (blockNumber > highestSeenBlockNumber) {
+                highestSeenBlockNumber = blockNumber;
+            }
+            return null;
+        }
+
+        void dispatched(BlockEvent event, int listeners) {
+            long blockNumber = event.getBlockNumber();
+            if (checkpointing && listeners > 0) {
+                unprocessed.put(blockNumber, new AtomicInteger(listeners)); // before the dispatched number moves.
+            }
+            if (blockNumber > lastDispatchedBlockNumber) {
+                lastDispatchedBlockNumber = blockNumber;
+            }
+        }
+
+        /**
+         * Called by each block listener once it has processed a dispatched block.
+         */
+        void processed(BlockEvent event) {
+            if (!checkpointing) {
+                return;
+            }
+            final long blockNumber = event.getBlockNumber();
+            AtomicInteger remaining = unprocessed.get(blockNumber);
+            if (remaining != null && remaining.decrementAndGet() <= 0) {
+                unprocessed.remove(blockNumber, remaining);
+            }
+        }
+
+        /**
+         * Start checkpointing, resuming after the checkpoint if there is one.
+         * Must be called before any block is dispatched.
+         */
+        void resumeFrom(Long checkpoint) {
+            if (checkpoint != null && checkpoint > lastDispatchedBlockNumber) {
+                lastDispatchedBlockNumber = checkpoint;
+            }
+            checkpointing = true;
+        }
+
+        /**
+         * @return true if checkpointing and a block with this number has already been dispatched.
+         */
+        boolean isDispatched(BlockEvent event) {
+            return checkpointing && event.getBlockNumber() <= lastDispatchedBlockNumber;
+        }
+
+        /**
+         * @return the block number peer eventing should resume from, null if not checkpointing or nothing seen yet.
+         */
+        Long getResumeBlockNumber() {
+            if (!checkpointing) {
+                return null;
+            }
+            long last = Math.max(lastDispatchedBlockNumber, lastReceivedBlockNumber);
+            return last < 0 ? null : last + 1;
+        }
+
+        /**
+         * @return the highest block number that, with every block dispatched before it, has been processed by all
+         * block listeners. -1 if there is none.
+         */
+        long getCheckpoint() {
+            long dispatched = lastDispatchedBlockNumber; // read first, dispatched() updates it last.
+            Map.Entry<Long, AtomicInteger> first = unprocessed.firstEntry();
+            return first == null ? dispatched : Math.min(dispatched, first.getKey() - 1);
+        }
+
+        int getCapacity() {
+            return capacity;
+        }
+
+        int getDepth() {
+            return events.size();
+        }
+
+        long getDroppedCount() {
+            return droppedCount.get();
+        }
+
+        long getLag() {
+            long received = lastReceivedBlockNumber;
+            long dispatched = lastDispatchedBlockNumber;
+            return received < 0 ? 0 : received - Math.max(dispatched, -1L);
+        }
+
+    }
+
+    /**
+     * Set the local store for the blocks of this group. Full blocks received from eventing are appended to it,
+     * and {@link #queryBlockByNumber(long)} and {@link #queryBlockByHash(byte[])} are answered from it without
+     * asking a peer when it holds the block.
+     * Overrides the store configured with {@link Config#GROUP_BLOCK_STORE_DIR}.
+     * Must be set before the group is initialized. The group closes the store on shutdown.
+     *
+     * @param blockStore the block store.
+     * @return this group.
+     * @throws InvalidArgumentException
+     */
+    public Group setBlockStore(FileLedger blockStore) throws InvalidArgumentException {
+
+        if (shutdown) {
+            throw new InvalidArgumentException(format("Group %s has been shutdown.", name));
+        }
+
+        if (initialized) {
+            throw new InvalidArgumentException(format("Group %s has already been initialized.", name));
+        }
+
+        this.blockStore = blockStore;
+        return this;
+    }
+
+    /**
+     * @return the local block store, null if blocks are not stored locally.
+     */
+    public FileLedger getBlockStore() {
+        return blockStore;
+    }
+
+    /**
+     * Set the store that checkpoints the last block processed by all block listeners of this group.
+     * <p>
+     * With a checkpoint store, eventing peers that start with the default newest block resume after the
+     * checkpoint instead, reconnects resume after the last block received, and blocks that have already been
+     * dispatched are not delivered to block listeners again.
+     * Overrides the file store configured with {@link Config#GROUP_EVENT_CHECKPOINT_DIR}.
+     * Must be set before the group is initialized.
+     *
+     * @param eventCheckpointStore the checkpoint store.
+     * @return this group.
+     * @throws InvalidArgumentException
+     */
+    public Group setEventCheckpointStore(EventCheckpointStore eventCheckpointStore) throws InvalidArgumentException {
+
+        if (shutdown) {
+            throw new InvalidArgumentException(format("Group %s has been shutdown.", name));
+        }
+
+        if (initialized) {
+            throw new InvalidArgumentException(format("Group %s has already been initialized.", name));
+        }
+
+        this.eventCheckpointStore = eventCheckpointStore;
+        return this;
+    }
+
+    /**
+     * @return the event checkpoint store, null if block events are not checkpointed.
+     */
+    public EventCheckpointStore getEventCheckpointStore() {
+        return eventCheckpointStore;
+    }
+
+    /**
+     * Number of block events waiting in the group event queue.
+     *
+     * @return the event queue depth.
+     */
+    public int getEventQueueDepth() {
+        GroupEventQue lchannelEventQue = channelEventQue;
+        return lchannelEventQue == null ? 0 : lchannelEventQue.getDepth();
+    }
+
+    /**
+     * Number of blocks between the newest block received from the eventing services and the newest block
+     * handed to the block listeners.
+     *
+     * @return the event queue lag in blocks.
+     */
+    public long getEventQueueLag() {
+        GroupEventQue lchannelEventQue = channelEventQue;
+        return lchannelEventQue == null ? 0 : lchannelEventQue.getLag();
+    }
+
+    /**
+     * Number of block events dropped or refused because the group event queue was full.
+     *
+     * @return the dropped block events.
+     */
+    public long getEventQueueDroppedCount() {
+        GroupEventQue lchannelEventQue = channelEventQue;
+        return lchannelEventQue == null ? 0 : lchannelEventQue.getDroppedCount();
+    }
+
+    /**
+     * Record of a block delivered to the block listeners. Only the block number and the transaction ids are kept, read
+     * from the first duplicate, so the dedup window does not pin whole blocks in memory.
+     */
+    static class SeenBlock {
+        static final SeenBlock EXPIRED = new SeenBlock(-1L);
+
+        final long blockNumber;
+        private String[] transactionIDs;
+
+        SeenBlock(long blockNumber) {
+            this.blockNumber = blockNumber;
+        }
+
+        synchronized String[] getTransactionIDs(BlockEvent copy) throws InvalidProtocolBufferException {
+            if (transactionIDs == null) {
+                final int count = copy.getEnvelopeCount();
+                String[] ids = new String[count];
+                for (int i = 0; i < count; ++i) {
+                    ids[i] = copy.getEnvelopeInfo(i).getTransactionID();
+                }
+                transactionIDs = ids;
+            }
+            return transactionIDs;
+        }
     }
 
     class BL {
 
         final BlockListener listener;
         final String handle;
+        /**
+         * Blocks waiting for this listener. At most one task per listener drains it so delivery stays in order.
+         */
+        private final BlockingQueue<BlockEvent> pending = new LinkedBlockingQueue<>(channelEventQue.getCapacity());
+        private final AtomicBoolean draining = new AtomicBoolean(false);
 
         BL(BlockListener listener) {
 
@@ -4408,9 +5305,48 @@ public class Group implements Serializable {
         public String getHandle() {
             return handle;
         }
+
+        /**
+         * Queue block events for this listener, waiting while it is too far behind.
+         */
+        void deliver(List<BlockEvent> blockEvents) throws InterruptedException {
+            for (BlockEvent blockEvent : blockEvents) {
+                while (!pending.offer(blockEvent, 100, TimeUnit.MILLISECONDS)) {
+                    scheduleDrain();
+                    if (shutdown) {
+                        return;
+                    }
+                }
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            final HFClient lclient = client;
+            if (lclient != null && !pending.isEmpty() && draining.compareAndSet(false, true)) {
+                lclient.getExecutorService().execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                BlockEvent blockEvent;
+                while ((blockEvent = pending.poll()) != null) {
+                    try {
+                        listener.received(blockEvent);
+                    } catch (Throwable e) { //Don't let one event stop the rest.
+                        logger.error(format("Error calling block listener %s on channel: %s block: %d ", handle, name,
+                                blockEvent.getBlockNumber()), e);
+                    } finally {
+                        channelEventQue.processed(blockEvent);
+                    }
+                }
+                draining.set(false);
+            } while (!pending.isEmpty() && draining.compareAndSet(false, true));
+        }
     }
 
-    private class TL {
+    private class TL implements TransactionListenerRegistry.Listener {
         final String txID;
         final long createTime = System.currentTimeMillis();
         final AtomicBoolean fired = new AtomicBoolean(false);
@@ -4419,7 +5355,7 @@ public class Group implements Serializable {
         final Set<Node> peers;
         final Set<EventHub> eventHubs;
         private final NOfEvents nOfEvents;
-        long sweepTime = System.currentTimeMillis() + (long) (DELTA_SWEEP * 1.5);
+        volatile long sweepTime = System.currentTimeMillis() + (long) (DELTA_SWEEP * 1.5);
 
         TL(String txID, CompletableFuture<TransactionEvent> future, NOfEvents nOfEvents, boolean failFast) {
             this.txID = txID;
@@ -4438,10 +5374,19 @@ public class Group implements Serializable {
          * @return True if transactions have been seen on all eventing peers and eventhubs.
          */
         boolean eventReceived(TransactionEvent transactionEvent) {
-            sweepTime = System.currentTimeMillis() + DELTA_SWEEP; //seen activity keep it active.
+            return eventReceived(transactionEvent, transactionEvent.getNode(), transactionEvent.getEventHub());
+        }
 
-            final Node peer = transactionEvent.getNode();
-            final EventHub eventHub = transactionEvent.getEventHub();
+        /**
+         * Record transactions event seen by a source other than the one that delivered the event.
+         *
+         * @param transactionEvent
+         * @param peer             the eventing peer the block came from, may be null.
+         * @param eventHub         the eventhub the block came from, may be null.
+         * @return True if transactions have been seen on all eventing peers and eventhubs.
+         */
+        boolean eventReceived(TransactionEvent transactionEvent, Node peer, EventHub eventHub) {
+            sweepTime = System.currentTimeMillis() + DELTA_SWEEP; //seen activity keep it active.
 
             if (peer != null && !peers.contains(peer)) {
                 return false;
@@ -4473,13 +5418,23 @@ public class Group implements Serializable {
 
         private void addListener() {
             runSweeper();
-            synchronized (txListeners) {
-                LinkedList<TL> tl = txListeners.computeIfAbsent(txID, k -> new LinkedList<>());
-                tl.add(this);
-            }
+            txListeners.register(this);
+            // listeners whose future was cancelled or timed out by the caller leave without waiting for the sweep.
+            future.whenComplete((r, e) -> txListeners.remove(this));
         }
 
-        boolean sweepMe() { // Sweeps DO NOT fire future. user needs to put timeout on their futures for timeouts.
+        @Override
+        public String getTxID() {
+            return txID;
+        }
+
+        @Override
+        public long getSweepTime() {
+            return sweepTime;
+        }
+
+        @Override
+        public boolean sweepMe() { // Sweeps DO NOT fire future. user needs to put timeout on their futures for timeouts.
 
             final boolean ret = sweepTime < System.currentTimeMillis() || fired.get() || future.isDone();
 
@@ -4520,16 +5475,7 @@ public class Group implements Serializable {
                 return;
             }
 
-            synchronized (txListeners) {
-                LinkedList<TL> l = txListeners.get(txID);
-
-                if (null != l) {
-                    l.removeFirstOccurrence(this);
-                    if (l.size() == 0) {
-                        txListeners.remove(txID);
-                    }
-                }
-            }
+            txListeners.remove(this);
             if (future.isDone()) {
                 fired.set(true);
                 return;
@@ -16,15 +16,13 @@
 
 package org.bcia.javachain.sdk;
 
-import java.lang.ref.WeakReference;
-
 import com.google.protobuf.ByteString;
-import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Timestamp;
 
-import org.bcia.javachain.sdk.exception.InvalidProtocolBufferRuntimeException;
 import org.bcia.julongchain.protos.common.Common.GroupHeader;
 
+import static org.bcia.javachain.sdk.Deserializers.parse;
+
 /**
  * modified for Node,SmartContract,Consenter,
  * Group,TransactionPackage,TransactionResponsePackage,
@@ -33,26 +31,17 @@ import org.bcia.julongchain.protos.common.Common.GroupHeader;
  */
 class GroupHeaderDeserializer {
     private final ByteString byteString;
-    private WeakReference<GroupHeader> channelHeader;
+    private volatile GroupHeader channelHeader;
 
     GroupHeaderDeserializer(ByteString byteString) {
         this.byteString = byteString;
     }
 
     GroupHeader getGroupHeader() {
-        GroupHeader ret = null;
-
-        if (channelHeader != null) {
-            ret = channelHeader.get();
-
-        }
-        if (null == ret) {
-            try {
-                ret = GroupHeader.parseFrom(byteString);
-            } catch (InvalidProtocolBufferException e) {
-                throw new InvalidProtocolBufferRuntimeException(e);
-            }
-            channelHeader = new WeakReference<>(ret);
+        GroupHeader ret = channelHeader;
+        if (ret == null) {
+            ret = parse(GroupHeader.parser(), byteString);
+            channelHeader = ret;
 
         }
 
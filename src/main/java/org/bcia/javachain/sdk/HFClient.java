@@ -28,6 +28,7 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -72,6 +73,20 @@ public class HFClient {
         return executorService;
     }
 
+    private final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = Executors.defaultThreadFactory().newThread(r);
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Timers for asynchronous requests such as proposal timeouts. Tasks must be short and hand off real work
+     * to {@link #getExecutorService()}.
+     */
+    ScheduledExecutorService getScheduledExecutorService() {
+        return scheduledExecutorService;
+    }
+
     private static final Log logger = LogFactory.getLog(HFClient.class);
 
     private final Map<String, Group> channels = new HashMap<>();
@@ -16,15 +16,11 @@
 
 package org.bcia.javachain.sdk;
 
-import java.lang.ref.WeakReference;
-
-import com.google.protobuf.InvalidProtocolBufferException;
-
-import org.bcia.javachain.sdk.exception.InvalidProtocolBufferRuntimeException;
 import org.bcia.julongchain.protos.common.Common;
 import org.bcia.julongchain.protos.common.Common.Header;
 import org.bcia.julongchain.protos.msp.Identities;
 
+import static org.bcia.javachain.sdk.Deserializers.parse;
 
 /**
  * modified for Node,SmartContract,Consenter,
@@ -35,7 +31,8 @@ import org.bcia.julongchain.protos.msp.Identities;
 class HeaderDeserializer {
 
     private final Header header;
-    private WeakReference<GroupHeaderDeserializer> channelHeader;
+    private volatile GroupHeaderDeserializer channelHeader;
+    private volatile Common.SignatureHeader signatureHeader;
 
     HeaderDeserializer(Header header) {
         this.header = header;
@@ -48,16 +45,25 @@ class HeaderDeserializer {
 
     GroupHeaderDeserializer getGroupHeader() {
 
-        GroupHeaderDeserializer ret = null;
+        GroupHeaderDeserializer ret = channelHeader;
+        if (ret == null) {
 
-        if (channelHeader != null) {
-            ret = channelHeader.get();
+            ret = new GroupHeaderDeserializer(getHeader().getGroupHeader());
+            channelHeader = ret;
 
         }
+
+        return ret;
+
+    }
+
+    Common.SignatureHeader getSignatureHeader() {
+
+        Common.SignatureHeader ret = signatureHeader;
         if (ret == null) {
 
-            ret = new GroupHeaderDeserializer(getHeader().getGroupHeader());
-            channelHeader = new WeakReference<>(ret);
+            ret = parse(Common.SignatureHeader.parser(), header.getSignatureHeader());
+            signatureHeader = ret;
 
         }
 
@@ -67,23 +73,13 @@ class HeaderDeserializer {
 
     Identities.SerializedIdentity getCreator() {
 
-        try {
-            Common.SignatureHeader signatureHeader1 = Common.SignatureHeader.parseFrom(header.getSignatureHeader());
-            return Identities.SerializedIdentity.parseFrom(signatureHeader1.getCreator());
-        } catch (InvalidProtocolBufferException e) {
-            throw new InvalidProtocolBufferRuntimeException(e);
-        }
+        return parse(Identities.SerializedIdentity.parser(), getSignatureHeader().getCreator());
 
     }
 
     byte[] getNonce() {
 
-        try {
-            Common.SignatureHeader signatureHeader1 = Common.SignatureHeader.parseFrom(header.getSignatureHeader());
-            return signatureHeader1.getNonce().toByteArray();
-        } catch (InvalidProtocolBufferException e) {
-            throw new InvalidProtocolBufferRuntimeException(e);
-        }
+        return getSignatureHeader().getNonce().toByteArray();
 
     }
 }
@@ -55,7 +55,7 @@ public class Node implements Serializable {
     private final Properties properties;
     private final String name;
     private final String url;
-    private transient volatile EndorserClient endorserClent;
+    private transient volatile EndorserClientPool endorserClientPool;
     private transient NodeEventServiceClient peerEventingClient;
     private transient boolean shutdown = false;
     private Group channel;
@@ -207,19 +207,27 @@ public class Node implements Serializable {
 
         logger.debug(format("peer.sendProposalAsync name: %s, url: %s", name, url));
 
-        EndorserClient localEndorserClient = endorserClent; //work off thread local copy.
-
-        if (null == localEndorserClient || !localEndorserClient.isGroupActive()) {
-            endorserClent = new EndorserClient(new Endpoint(url, properties).getGroupBuilder());
-            localEndorserClient = endorserClent;
-        }
+        return getEndorserClientPool().sendProposalAsync(proposal);
+    }
 
-        try {
-            return localEndorserClient.sendProposalAsync(proposal);
-        } catch (Throwable t) {
-            endorserClent = null;
-            throw t;
+    private EndorserClientPool getEndorserClientPool() throws NodeException {
+        EndorserClientPool localEndorserClientPool = endorserClientPool; //work off thread local copy.
+        if (null == localEndorserClientPool) {
+            synchronized (this) {
+                if (shutdown) {
+                    throw new NodeException(format("Node %s was shutdown.", name));
+                }
+                localEndorserClientPool = endorserClientPool;
+                if (null == localEndorserClientPool) {
+                    final Group lchannel = channel;
+                    localEndorserClientPool = new EndorserClientPool(name, url, properties,
+                            lchannel == null ? null : lchannel.getScheduledExecutorService(),
+                            lchannel == null ? null : lchannel.getExecutorService());
+                    endorserClientPool = localEndorserClientPool;
+                }
+            }
         }
+        return localEndorserClientPool;
     }
 
     private void checkSendProposal(ProposalPackage.SignedProposal proposal) throws
@@ -247,15 +255,15 @@ public class Node implements Serializable {
         lastBlockEvent = null;
         lastBlockNumber = 0;
 
-        EndorserClient lendorserClent = endorserClent;
+        EndorserClientPool lendorserClientPool = endorserClientPool;
 
         //allow resources to finalize
 
-        endorserClent = null;
+        endorserClientPool = null;
 
-        if (lendorserClent != null) {
+        if (lendorserClientPool != null) {
 
-            lendorserClent.shutdown(force);
+            lendorserClientPool.shutdown(force);
         }
 
         NodeEventServiceClient lpeerEventingClient = peerEventingClient;
@@ -327,6 +335,12 @@ public class Node implements Serializable {
                     logger.trace("reconnecting startBLockNumber" + startBLockNumber);
                     ++reconnectCount;
 
+                    final Group lchannel = channel;
+                    final Long resumeBlockNumber = lchannel == null ? null : lchannel.getGroupEventQue().getResumeBlockNumber();
+                    if (resumeBlockNumber != null && (startBLockNumber == null || startBLockNumber < resumeBlockNumber)) {
+                        startBLockNumber = resumeBlockNumber; // checkpointing, everything before was received.
+                    }
+
                     if (startBLockNumber == null) {
                         peerOptions.startEventsNewest();
                     } else {
@@ -517,7 +531,7 @@ public class Node implements Serializable {
                 "\nshutdown=" + shutdown +
                 ",\n name='" + name + '\'' +
                 ",\n url='" + url + '\'' +
-                ",\n endorserClent=" + endorserClent +
+                ",\n endorserClientPool=" + endorserClientPool +
                 ",\n peerEventingClient=" + peerEventingClient +
                 ",\n channel=" + channel +
                 ",\n transactionContext=" + transactionContext +
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
@@ -193,6 +194,8 @@ class NodeEventServiceClient {
             //   final List<DeliverResponse> retList = new ArrayList<>();
             final List<Throwable> throwableList = new ArrayList<>();
             final CountDownLatch finishLatch = new CountDownLatch(1);
+            // set on the first refused block; anything the stream still delivers is dropped so the replay starts there.
+            final AtomicBoolean disconnecting = new AtomicBoolean(false);
 
             so = new StreamObserver<DeliverResponse>() {
 
@@ -241,9 +244,21 @@ class NodeEventServiceClient {
                         peer.resetReconnectCount();
 
                         BlockEvent blockEvent = new BlockEvent(peer, resp);
-                        peer.setLastBlockSeen(blockEvent);
 
-                        channelEventQue.addBEvent(blockEvent);
+                        if (disconnecting.get()) {
+                            logger.trace(format("Group %s peer %s dropped block %d received while disconnecting",
+                                    channelName, peer.getName(), blockEvent.getBlockNumber()));
+                        } else if (channelEventQue.addBEvent(blockEvent)) {
+                            peer.setLastBlockSeen(blockEvent);
+                        } else if (channelEventQue.isDisconnectOnOverflow() && disconnecting.compareAndSet(false, true)) {
+                            //Group can not keep up, drop the connection and replay from the last block queued.
+                            logger.warn(format("Group %s peer %s event queue full, disconnecting eventing service at block %d",
+                                    channelName, peer.getName(), blockEvent.getBlockNumber()));
+                            ManagedChannel llmanagedGroup = managedGroup;
+                            if (llmanagedGroup != null) {
+                                llmanagedGroup.shutdownNow();
+                            }
+                        }
                     } else {
                         logger.error(format("Group %s peer %s got event block with unknown type: %s, %d",
                                 channelName, peer.getName(), typeCase.name(), typeCase.getNumber()));
@@ -361,8 +376,15 @@ class NodeEventServiceClient {
         final Envelope envelope;
         try {
 
+            // With a checkpoint the default newest start resumes after it; blocks stream until the stop block.
+            final Group.GroupEventQue lchannelEventQue = channelEventQue;
+            final Long resumeBlockNumber = lchannelEventQue == null ? null : lchannelEventQue.getResumeBlockNumber();
+
             Ab.SeekPosition.Builder start = Ab.SeekPosition.newBuilder();
-            if (null != peerOptions.getNewest()) {
+            if (peerOptions.getStartEvents() == null && resumeBlockNumber != null) {
+                logger.debug(format("Node %s eventing resuming from block %d", name, resumeBlockNumber));
+                start.setSpecified(Ab.SeekSpecified.newBuilder().setNumber(resumeBlockNumber));
+            } else if (null != peerOptions.getNewest()) {
                 start.setNewest(Ab.SeekNewest.getDefaultInstance());
             } else if (peerOptions.getStartEvents() != null) {
                 start.setSpecified(Ab.SeekSpecified.newBuilder().setNumber(peerOptions.getStartEvents()));
@@ -16,14 +16,13 @@
 
 package org.bcia.javachain.sdk;
 
-import java.lang.ref.WeakReference;
-
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 
-import org.bcia.javachain.sdk.exception.InvalidProtocolBufferRuntimeException;
 import org.bcia.julongchain.protos.common.Common.Payload;
 
+import static org.bcia.javachain.sdk.Deserializers.parse;
+
 
 /**
  * modified for Node,SmartContract,Consenter,
@@ -33,27 +32,24 @@ import org.bcia.julongchain.protos.common.Common.Payload;
  */
 class PayloadDeserializer {
     private final ByteString byteString;
-    private WeakReference<Payload> payload;
+    private volatile Payload payload;
+    private volatile HeaderDeserializer header;
 
     PayloadDeserializer(ByteString byteString) {
+        this(byteString, null);
+    }
+
+    PayloadDeserializer(ByteString byteString, Payload payload) {
         this.byteString = byteString;
+        this.payload = payload;
     }
 
     Payload getPayload() {
-        Payload ret = null;
-
-        if (payload != null) {
-            ret = payload.get();
-
-        }
+        Payload ret = payload;
         if (ret == null) {
 
-            try {
-                ret = Payload.parseFrom(byteString);
-            } catch (InvalidProtocolBufferException e) {
-                throw new InvalidProtocolBufferRuntimeException(e);
-            }
-            payload = new WeakReference<>(ret);
+            ret = parse(Payload.parser(), byteString);
+            payload = ret;
 
         }
 
@@ -62,7 +58,15 @@ class PayloadDeserializer {
 
     HeaderDeserializer getHeader() {
 
-        return new HeaderDeserializer(getPayload().getHeader());
+        HeaderDeserializer ret = header;
+        if (ret == null) {
+
+            ret = new HeaderDeserializer(getPayload().getHeader());
+            header = ret;
+
+        }
+
+        return ret;
 
     }
 
@@ -0,0 +1,63 @@
+/**
+ * Copyright BCIA. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk;
+
+import java.util.Collection;
+
+/**
+ * ProposalQuorum decides when enough proposal responses have been collected for
+ * {@link Group#sendTransactionProposalAsync(TransactionProposalRequest, Collection, ProposalQuorum)}
+ * to complete without waiting for the remaining peers.
+ * <p>
+ * An implementation may encode an endorsement policy; the built in ones count successful responses.
+ */
+@FunctionalInterface
+public interface ProposalQuorum {
+
+    /**
+     * Wait for every peer to respond or time out. This is the behavior of the synchronous send.
+     */
+    ProposalQuorum ALL = responses -> false;
+
+    /**
+     * Called every time a response arrives, in completion order.
+     *
+     * @param responses all responses received so far, successful or not.
+     * @return true when no further responses are needed.
+     */
+    boolean isSatisfied(Collection<ProposalResponse> responses);
+
+    /**
+     * Quorum satisfied once n peers have returned a successful response.
+     *
+     * @param n the number of successful responses needed.
+     * @return the quorum.
+     */
+    static ProposalQuorum nOf(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("N of a proposal quorum must be greater than zero.");
+        }
+        return responses -> {
+            int success = 0;
+            for (ProposalResponse response : responses) {
+                if (!response.isInvalid() && ++success >= n) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+}
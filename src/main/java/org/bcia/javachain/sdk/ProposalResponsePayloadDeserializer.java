@@ -16,13 +16,9 @@
 
 package org.bcia.javachain.sdk;
 
-import java.lang.ref.WeakReference;
-
-import org.bcia.javachain.sdk.exception.InvalidProtocolBufferRuntimeException;
-
 import com.google.protobuf.ByteString;
-import com.google.protobuf.InvalidProtocolBufferException;
 
+import static org.bcia.javachain.sdk.Deserializers.parse;
 import static org.bcia.julongchain.protos.node.ProposalResponsePackage.ProposalResponsePayload;
 
 /**
@@ -33,29 +29,20 @@ import static org.bcia.julongchain.protos.node.ProposalResponsePackage.ProposalR
  */
 class ProposalResponsePayloadDeserializer {
     private final ByteString byteString;
-    private WeakReference<ProposalResponsePayload> proposalResponsePayload;
-    private WeakReference<SmartContractActionDeserializer> chaincodeAction;
+    private volatile ProposalResponsePayload proposalResponsePayload;
+    private volatile SmartContractActionDeserializer chaincodeAction;
 
     ProposalResponsePayloadDeserializer(ByteString byteString) {
         this.byteString = byteString;
     }
 
     ProposalResponsePayload getProposalResponsePayload() {
-        ProposalResponsePayload ret = null;
-
-        if (proposalResponsePayload != null) {
-            ret = proposalResponsePayload.get();
-
-        }
+        ProposalResponsePayload ret = proposalResponsePayload;
         if (ret == null) {
 
-            try {
-                ret = ProposalResponsePayload.parseFrom(byteString);
-            } catch (InvalidProtocolBufferException e) {
-                throw new InvalidProtocolBufferRuntimeException(e);
-            }
+            ret = parse(ProposalResponsePayload.parser(), byteString);
 
-            proposalResponsePayload = new WeakReference<>(ret);
+            proposalResponsePayload = ret;
 
         }
 
@@ -65,17 +52,12 @@ class ProposalResponsePayloadDeserializer {
 
     SmartContractActionDeserializer getExtension() {
 
-        SmartContractActionDeserializer ret = null;
-
-        if (chaincodeAction != null) {
-            ret = chaincodeAction.get();
-
-        }
+        SmartContractActionDeserializer ret = chaincodeAction;
         if (ret == null) {
 
             ret = new SmartContractActionDeserializer(getProposalResponsePayload().getExtension());
 
-            chaincodeAction = new WeakReference<>(ret);
+            chaincodeAction = ret;
 
         }
 
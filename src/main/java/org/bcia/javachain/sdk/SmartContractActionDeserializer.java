@@ -16,14 +16,11 @@
 
 package org.bcia.javachain.sdk;
 
-import java.lang.ref.WeakReference;
-
 import com.google.protobuf.ByteString;
-import com.google.protobuf.InvalidProtocolBufferException;
 
-import org.bcia.javachain.sdk.exception.InvalidProtocolBufferRuntimeException;
 import org.bcia.julongchain.protos.ledger.rwset.Rwset.TxReadWriteSet;
 
+import static org.bcia.javachain.sdk.Deserializers.parse;
 import static org.bcia.julongchain.protos.node.ProposalPackage.SmartContractAction;
 
 /**
@@ -34,28 +31,19 @@ import static org.bcia.julongchain.protos.node.ProposalPackage.SmartContractActi
  */
 class SmartContractActionDeserializer {
     private final ByteString byteString;
-    private WeakReference<SmartContractAction> chaincodeAction;
+    private volatile SmartContractAction chaincodeAction;
 
     SmartContractActionDeserializer(ByteString byteString) {
         this.byteString = byteString;
     }
 
     SmartContractAction getSmartContractAction() {
-        SmartContractAction ret = null;
-
-        if (chaincodeAction != null) {
-            ret = chaincodeAction.get();
-
-        }
+        SmartContractAction ret = chaincodeAction;
         if (ret == null) {
 
-            try {
-                ret = SmartContractAction.parseFrom(byteString);
-            } catch (InvalidProtocolBufferException e) {
-                throw new InvalidProtocolBufferRuntimeException(e);
-            }
+            ret = parse(SmartContractAction.parser(), byteString);
 
-            chaincodeAction = new WeakReference<>(ret);
+            chaincodeAction = ret;
 
         }
 
@@ -77,11 +65,7 @@ class SmartContractActionDeserializer {
 
     TxReadWriteSet getResults() {
 
-        try {
-            return TxReadWriteSet.parseFrom(getSmartContractAction().getResults());
-        } catch (InvalidProtocolBufferException e) {
-            throw new InvalidProtocolBufferRuntimeException(e);
-        }
+        return parse(TxReadWriteSet.parser(), getSmartContractAction().getResults());
 
     }
 
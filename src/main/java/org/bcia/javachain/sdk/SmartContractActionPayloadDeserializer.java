@@ -16,14 +16,12 @@
 
 package org.bcia.javachain.sdk;
 
-import java.lang.ref.WeakReference;
-
 import com.google.protobuf.ByteString;
-import com.google.protobuf.InvalidProtocolBufferException;
 
-import org.bcia.javachain.sdk.exception.InvalidProtocolBufferRuntimeException;
 import org.bcia.julongchain.protos.node.TransactionPackage.SmartContractActionPayload;
 
+import static org.bcia.javachain.sdk.Deserializers.parse;
+
 /**
  * modified for Node,SmartContract,Consenter,
  * Group,TransactionPackage,TransactionResponsePackage,
@@ -32,30 +30,21 @@ import org.bcia.julongchain.protos.node.TransactionPackage.SmartContractActionPa
  */
 class SmartContractActionPayloadDeserializer {
     private final ByteString byteString;
-    private WeakReference<SmartContractActionPayload> chaincodeActionPayload;
-    private WeakReference<SmartContractEndorsedActionDeserializer> chaincodeEndorsedActionDeserializer;
-    private WeakReference<SmartContractProposalPayloadDeserializer> chaincodeProposalPayloadDeserializer;
+    private volatile SmartContractActionPayload chaincodeActionPayload;
+    private volatile SmartContractEndorsedActionDeserializer chaincodeEndorsedActionDeserializer;
+    private volatile SmartContractProposalPayloadDeserializer chaincodeProposalPayloadDeserializer;
 
     SmartContractActionPayloadDeserializer(ByteString byteString) {
         this.byteString = byteString;
     }
 
     SmartContractActionPayload getSmartContractActionPayload() {
-        SmartContractActionPayload ret = null;
-
-        if (chaincodeActionPayload != null) {
-            ret = chaincodeActionPayload.get();
-
-        }
+        SmartContractActionPayload ret = chaincodeActionPayload;
         if (ret == null) {
 
-            try {
-                ret = SmartContractActionPayload.parseFrom(byteString);
-            } catch (InvalidProtocolBufferException e) {
-                throw new InvalidProtocolBufferRuntimeException(e);
-            }
+            ret = parse(SmartContractActionPayload.parser(), byteString);
 
-            chaincodeActionPayload = new WeakReference<>(ret);
+            chaincodeActionPayload = ret;
 
         }
 
@@ -64,17 +53,12 @@ class SmartContractActionPayloadDeserializer {
     }
 
     SmartContractEndorsedActionDeserializer getAction() {
-        SmartContractEndorsedActionDeserializer ret = null;
-
-        if (chaincodeEndorsedActionDeserializer != null) {
-            ret = chaincodeEndorsedActionDeserializer.get();
-
-        }
+        SmartContractEndorsedActionDeserializer ret = chaincodeEndorsedActionDeserializer;
         if (ret == null) {
 
             ret = new SmartContractEndorsedActionDeserializer(getSmartContractActionPayload().getAction());
 
-            chaincodeEndorsedActionDeserializer = new WeakReference<>(ret);
+            chaincodeEndorsedActionDeserializer = ret;
 
         }
 
@@ -84,17 +68,12 @@ class SmartContractActionPayloadDeserializer {
 
     SmartContractProposalPayloadDeserializer getSmartContractProposalPayload() {
 
-        SmartContractProposalPayloadDeserializer ret = null;
-
-        if (chaincodeProposalPayloadDeserializer != null) {
-            ret = chaincodeProposalPayloadDeserializer.get();
-
-        }
+        SmartContractProposalPayloadDeserializer ret = chaincodeProposalPayloadDeserializer;
         if (ret == null) {
 
             ret = new SmartContractProposalPayloadDeserializer(getSmartContractActionPayload().getSmartContractProposalPayload());
 
-            chaincodeProposalPayloadDeserializer = new WeakReference<>(ret);
+            chaincodeProposalPayloadDeserializer = ret;
 
         }
 
@@ -16,13 +16,8 @@
 
 package org.bcia.javachain.sdk;
 
-import java.lang.ref.WeakReference;
 import java.util.List;
 
-import com.google.protobuf.ByteString;
-import com.google.protobuf.InvalidProtocolBufferException;
-
-import org.bcia.javachain.sdk.exception.InvalidProtocolBufferRuntimeException;
 import org.bcia.julongchain.protos.node.ProposalResponsePackage;
 
 import static org.bcia.julongchain.protos.node.TransactionPackage.SmartContractEndorsedAction;
@@ -34,35 +29,17 @@ import static org.bcia.julongchain.protos.node.TransactionPackage.SmartContractE
  * by wangzhe in ftsafe 2018-07-02
  */
 class SmartContractEndorsedActionDeserializer {
-    private final ByteString byteString;
-    private WeakReference<SmartContractEndorsedAction> chaincodeEndorsedAction;
-    private WeakReference<ProposalResponsePayloadDeserializer> proposalResponsePayload;
+    private final SmartContractEndorsedAction chaincodeEndorsedAction;
+    private volatile ProposalResponsePayloadDeserializer proposalResponsePayload;
 
     SmartContractEndorsedActionDeserializer(SmartContractEndorsedAction action) {
-        byteString = action.toByteString();
-        chaincodeEndorsedAction = new WeakReference<>(action);
+        chaincodeEndorsedAction = action;
 
     }
 
     SmartContractEndorsedAction getSmartContractEndorsedAction() {
-        SmartContractEndorsedAction ret = null;
-
-        if (chaincodeEndorsedAction != null) {
-            ret = chaincodeEndorsedAction.get();
-
-        }
-        if (ret == null) {
-
-            try {
-                ret = SmartContractEndorsedAction.parseFrom(byteString);
-            } catch (InvalidProtocolBufferException e) {
-                throw new InvalidProtocolBufferRuntimeException(e);
-            }
 
-            chaincodeEndorsedAction = new WeakReference<>(ret);
-        }
-
-        return ret;
+        return chaincodeEndorsedAction;
 
     }
 
@@ -84,16 +61,11 @@ class SmartContractEndorsedActionDeserializer {
 
     ProposalResponsePayloadDeserializer getProposalResponsePayload() {
 
-        ProposalResponsePayloadDeserializer ret = null;
-
-        if (proposalResponsePayload != null) {
-            ret = proposalResponsePayload.get();
-
-        }
+        ProposalResponsePayloadDeserializer ret = proposalResponsePayload;
         if (ret == null) {
 
             ret = new ProposalResponsePayloadDeserializer(getSmartContractEndorsedAction().getProposalResponsePayload());
-            proposalResponsePayload = new WeakReference<>(ret);
+            proposalResponsePayload = ret;
 
         }
 
@@ -16,12 +16,6 @@
 
 package org.bcia.javachain.sdk;
 
-import java.lang.ref.WeakReference;
-
-import com.google.protobuf.ByteString;
-import com.google.protobuf.InvalidProtocolBufferException;
-
-import org.bcia.javachain.sdk.exception.InvalidProtocolBufferRuntimeException;
 import org.bcia.julongchain.protos.node.SmartContractPackage.SmartContractInput;
 
 /**
@@ -31,34 +25,15 @@ import org.bcia.julongchain.protos.node.SmartContractPackage.SmartContractInput;
  * by wangzhe in ftsafe 2018-07-02
  */
 class SmartContractInputDeserializer {
-    private final ByteString byteString;
-    private WeakReference<SmartContractInput> chaincodeInput;
+    private final SmartContractInput chaincodeInput;
 
     SmartContractInputDeserializer(SmartContractInput chaincodeInput) {
-        this.byteString = chaincodeInput.toByteString();
-        this.chaincodeInput = new WeakReference<>(chaincodeInput);
+        this.chaincodeInput = chaincodeInput;
     }
 
     SmartContractInput getSmartContractInput() {
-        SmartContractInput ret = null;
-
-        if (chaincodeInput != null) {
-            ret = chaincodeInput.get();
-
-        }
-        if (ret == null) {
-
-            try {
-                ret = SmartContractInput.parseFrom(byteString);
-            } catch (InvalidProtocolBufferException e) {
-                throw new InvalidProtocolBufferRuntimeException(e);
-            }
-
-            chaincodeInput = new WeakReference<>(ret);
-
-        }
 
-        return ret;
+        return chaincodeInput;
 
     }
 
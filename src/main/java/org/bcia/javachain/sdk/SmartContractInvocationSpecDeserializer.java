@@ -16,14 +16,12 @@
 
 package org.bcia.javachain.sdk;
 
-import java.lang.ref.WeakReference;
-
 import com.google.protobuf.ByteString;
-import com.google.protobuf.InvalidProtocolBufferException;
 
-import org.bcia.javachain.sdk.exception.InvalidProtocolBufferRuntimeException;
 import org.bcia.julongchain.protos.node.SmartContractPackage.SmartContractInvocationSpec;
 
+import static org.bcia.javachain.sdk.Deserializers.parse;
+
 /**
  * modified for Node,SmartContract,Consenter,
  * Group,TransactionPackage,TransactionResponsePackage,
@@ -32,29 +30,20 @@ import org.bcia.julongchain.protos.node.SmartContractPackage.SmartContractInvoca
  */
 class SmartContractInvocationSpecDeserializer {
     private final ByteString byteString;
-    private WeakReference<SmartContractInvocationSpec> invocationSpec;
-    private WeakReference<SmartContractInputDeserializer> chaincodeInputDeserializer;
+    private volatile SmartContractInvocationSpec invocationSpec;
+    private volatile SmartContractInputDeserializer chaincodeInputDeserializer;
 
     SmartContractInvocationSpecDeserializer(ByteString byteString) {
         this.byteString = byteString;
     }
 
     SmartContractInvocationSpec getSmartContractInvocationSpec() {
-        SmartContractInvocationSpec ret = null;
-
-        if (invocationSpec != null) {
-            ret = invocationSpec.get();
-
-        }
+        SmartContractInvocationSpec ret = invocationSpec;
         if (ret == null) {
 
-            try {
-                ret = SmartContractInvocationSpec.parseFrom(byteString);
-            } catch (InvalidProtocolBufferException e) {
-                throw new InvalidProtocolBufferRuntimeException(e);
-            }
+            ret = parse(SmartContractInvocationSpec.parser(), byteString);
 
-            invocationSpec = new WeakReference<>(ret);
+            invocationSpec = ret;
 
         }
 
@@ -63,17 +52,12 @@ class SmartContractInvocationSpecDeserializer {
     }
 
     SmartContractInputDeserializer getSmartContractInput() {
-        SmartContractInputDeserializer ret = null;
-
-        if (chaincodeInputDeserializer != null) {
-            ret = chaincodeInputDeserializer.get();
-
-        }
+        SmartContractInputDeserializer ret = chaincodeInputDeserializer;
         if (ret == null) {
 
             ret = new SmartContractInputDeserializer(getSmartContractInvocationSpec().getSmartContractSpec().getInput());
 
-            chaincodeInputDeserializer = new WeakReference<>(ret);
+            chaincodeInputDeserializer = ret;
 
         }
 
@@ -16,13 +16,9 @@
 
 package org.bcia.javachain.sdk;
 
-import java.lang.ref.WeakReference;
-
-import org.bcia.javachain.sdk.exception.InvalidProtocolBufferRuntimeException;
-
 import com.google.protobuf.ByteString;
-import com.google.protobuf.InvalidProtocolBufferException;
 
+import static org.bcia.javachain.sdk.Deserializers.parse;
 import static org.bcia.julongchain.protos.node.ProposalPackage.SmartContractProposalPayload;
 
 /**
@@ -33,29 +29,20 @@ import static org.bcia.julongchain.protos.node.ProposalPackage.SmartContractProp
  */
 class SmartContractProposalPayloadDeserializer {
     private final ByteString byteString;
-    private WeakReference<SmartContractProposalPayload> chaincodeProposalPayload;
-    private WeakReference<SmartContractInvocationSpecDeserializer> invocationSpecDeserializer;
+    private volatile SmartContractProposalPayload chaincodeProposalPayload;
+    private volatile SmartContractInvocationSpecDeserializer invocationSpecDeserializer;
 
     SmartContractProposalPayloadDeserializer(ByteString byteString) {
         this.byteString = byteString;
     }
 
     SmartContractProposalPayload getSmartContractProposalPayload() {
-        SmartContractProposalPayload ret = null;
-
-        if (chaincodeProposalPayload != null) {
-            ret = chaincodeProposalPayload.get();
-
-        }
+        SmartContractProposalPayload ret = chaincodeProposalPayload;
         if (ret == null) {
 
-            try {
-                ret = SmartContractProposalPayload.parseFrom(byteString);
-            } catch (InvalidProtocolBufferException e) {
-                throw new InvalidProtocolBufferRuntimeException(e);
-            }
+            ret = parse(SmartContractProposalPayload.parser(), byteString);
 
-            chaincodeProposalPayload = new WeakReference<>(ret);
+            chaincodeProposalPayload = ret;
 
         }
 
@@ -64,17 +51,12 @@ class SmartContractProposalPayloadDeserializer {
     }
 
     SmartContractInvocationSpecDeserializer getSmartContractInvocationSpec() {
-        SmartContractInvocationSpecDeserializer ret = null;
-
-        if (invocationSpecDeserializer != null) {
-            ret = invocationSpecDeserializer.get();
-
-        }
+        SmartContractInvocationSpecDeserializer ret = invocationSpecDeserializer;
         if (ret == null) {
 
             ret = new SmartContractInvocationSpecDeserializer(getSmartContractProposalPayload().getInput());
 
-            invocationSpecDeserializer = new WeakReference<>(ret);
+            invocationSpecDeserializer = ret;
 
         }
 
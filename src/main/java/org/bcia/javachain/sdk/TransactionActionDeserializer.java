@@ -16,14 +16,12 @@
 
 package org.bcia.javachain.sdk;
 
-import java.lang.ref.WeakReference;
-
 import com.google.protobuf.ByteString;
-import com.google.protobuf.InvalidProtocolBufferException;
 
-import org.bcia.javachain.sdk.exception.InvalidProtocolBufferRuntimeException;
 import org.bcia.julongchain.protos.node.TransactionPackage.TransactionAction;
 
+import static org.bcia.javachain.sdk.Deserializers.parse;
+
 /**
  * modified for Node,SmartContract,Consenter,
  * Group,TransactionPackage,TransactionResponsePackage,
@@ -32,34 +30,25 @@ import org.bcia.julongchain.protos.node.TransactionPackage.TransactionAction;
  */
 class TransactionActionDeserializer {
     private final ByteString byteString;
-    private WeakReference<TransactionAction> transactionAction;
-    private WeakReference<SmartContractActionPayloadDeserializer> chaincodeActionPayloadDeserializer;
+    private volatile TransactionAction transactionAction;
+    private volatile SmartContractActionPayloadDeserializer chaincodeActionPayloadDeserializer;
 
     TransactionActionDeserializer(ByteString byteString) {
         this.byteString = byteString;
     }
 
     TransactionActionDeserializer(TransactionAction transactionAction) {
-        byteString = transactionAction.toByteString();
-        this.transactionAction = new WeakReference<TransactionAction>(transactionAction);
+        byteString = null; // already parsed.
+        this.transactionAction = transactionAction;
     }
 
     TransactionAction getTransactionAction() {
-        TransactionAction ret = null;
-
-        if (transactionAction != null) {
-            ret = transactionAction.get();
-
-        }
+        TransactionAction ret = transactionAction;
         if (ret == null) {
 
-            try {
-                ret = TransactionAction.parseFrom(byteString);
-            } catch (InvalidProtocolBufferException e) {
-                throw new InvalidProtocolBufferRuntimeException(e);
-            }
+            ret = parse(TransactionAction.parser(), byteString);
 
-            transactionAction = new WeakReference<TransactionAction>(ret);
+            transactionAction = ret;
         }
 
         return ret;
@@ -68,17 +57,12 @@ class TransactionActionDeserializer {
 
     SmartContractActionPayloadDeserializer getPayload() {
 
-        SmartContractActionPayloadDeserializer ret = null;
-
-        if (chaincodeActionPayloadDeserializer != null) {
-            ret = chaincodeActionPayloadDeserializer.get();
-
-        }
+        SmartContractActionPayloadDeserializer ret = chaincodeActionPayloadDeserializer;
         if (ret == null) {
 
             ret = new SmartContractActionPayloadDeserializer(getTransactionAction().getPayload());
 
-            chaincodeActionPayloadDeserializer = new WeakReference<SmartContractActionPayloadDeserializer>(ret);
+            chaincodeActionPayloadDeserializer = ret;
 
         }
 
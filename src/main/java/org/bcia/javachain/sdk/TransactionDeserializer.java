@@ -16,17 +16,12 @@
 
 package org.bcia.javachain.sdk;
 
-import java.lang.ref.WeakReference;
-import java.util.Collections;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.WeakHashMap;
-
-import org.bcia.javachain.sdk.exception.InvalidProtocolBufferRuntimeException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.google.protobuf.ByteString;
-import com.google.protobuf.InvalidProtocolBufferException;
 
+import static org.bcia.javachain.sdk.Deserializers.parse;
 import static org.bcia.julongchain.protos.node.TransactionPackage.Transaction;
 
 /**
@@ -37,30 +32,20 @@ import static org.bcia.julongchain.protos.node.TransactionPackage.Transaction;
  */
 class TransactionDeserializer {
     private final ByteString byteString;
-    private WeakReference<Transaction> transaction;
-    private final Map<Integer, WeakReference<TransactionActionDeserializer>> transactionActions =
-            Collections.synchronizedMap(new WeakHashMap<Integer, WeakReference<TransactionActionDeserializer>>());
+    private volatile Transaction transaction;
+    private volatile AtomicReferenceArray<TransactionActionDeserializer> transactionActions;
 
     TransactionDeserializer(ByteString byteString) {
         this.byteString = byteString;
     }
 
     Transaction getTransaction() {
-        Transaction ret = null;
-
-        if (transaction != null) {
-            ret = transaction.get();
-
-        }
+        Transaction ret = transaction;
         if (ret == null) {
 
-            try {
-                ret = Transaction.parseFrom(byteString);
-            } catch (InvalidProtocolBufferException e) {
-                throw new InvalidProtocolBufferRuntimeException(e);
-            }
+            ret = parse(Transaction.parser(), byteString);
 
-            transaction = new WeakReference<>(ret);
+            transaction = ret;
 
         }
 
@@ -81,19 +66,21 @@ class TransactionDeserializer {
             return null;
         }
 
-        WeakReference<TransactionActionDeserializer> envelopeWeakReference = transactionActions.get(index);
-        if (null != envelopeWeakReference) {
-            TransactionActionDeserializer ret = envelopeWeakReference.get();
-            if (null != ret) {
-                return ret;
-            }
+        AtomicReferenceArray<TransactionActionDeserializer> actions = transactionActions;
+        if (actions == null) {
+            actions = new AtomicReferenceArray<>(getActionsCount());
+            transactionActions = actions; // a racing thread may replace it, the loser's entries are parsed again.
         }
 
-        TransactionActionDeserializer transactionActionDeserialize = new TransactionActionDeserializer(transaction.getActions(index));
+        TransactionActionDeserializer ret = actions.get(index);
+        if (null != ret) {
+            return ret;
+        }
 
-        transactionActions.put(index, new WeakReference<>(transactionActionDeserialize));
+        ret = new TransactionActionDeserializer(transaction.getActions(index));
+        actions.set(index, ret);
 
-        return transactionActionDeserialize;
+        return ret;
 
     }
 
@@ -0,0 +1,180 @@
+/**
+ * Copyright BCIA. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Registry of listeners waiting for transaction events, keyed by transaction id.
+ * <p>
+ * Lookups are lock free: each transaction id maps to an immutable list that is replaced atomically on
+ * registration and removal, so only updates to the same transaction id contend.
+ * Expiry uses a hashed timer wheel. A listener is placed in the slot of its sweep time and is only looked at
+ * when the wheel reaches that slot, instead of every listener being scanned on every sweep.
+ *
+ * @param <L> the listener type.
+ */
+final class TransactionListenerRegistry<L extends TransactionListenerRegistry.Listener> {
+
+    interface Listener {
+
+        /**
+         * @return the transaction id the listener waits for.
+         */
+        String getTxID();
+
+        /**
+         * @return time in milliseconds after which the listener may be removed. May move forward while it is registered.
+         */
+        long getSweepTime();
+
+        /**
+         * Called once the sweep time has passed.
+         *
+         * @return true if the listener should be removed.
+         */
+        boolean sweepMe();
+    }
+
+    private static final int WHEEL_SIZE = 512; // power of two.
+
+    private final ConcurrentHashMap<String, List<L>> listeners = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<L>[] wheel;
+    private final long tickMillis;
+    private volatile long lastTick;
+
+    @SuppressWarnings ("unchecked")
+    TransactionListenerRegistry(long tickMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Transaction listener registry tick must be greater than zero.");
+        }
+        this.tickMillis = tickMillis;
+        this.lastTick = System.currentTimeMillis() / tickMillis;
+        wheel = new ConcurrentLinkedQueue[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; ++i) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    boolean isEmpty() {
+        return listeners.isEmpty();
+    }
+
+    int size() {
+        return listeners.size();
+    }
+
+    void register(L listener) {
+        listeners.compute(listener.getTxID(), (txID, current) -> {
+            if (current == null) {
+                return Collections.singletonList(listener);
+            }
+            List<L> ret = new ArrayList<>(current.size() + 1);
+            ret.addAll(current);
+            ret.add(listener);
+            return Collections.unmodifiableList(ret);
+        });
+        schedule(listener);
+    }
+
+    /**
+     * @param txID transaction id.
+     * @return listeners registered for the transaction, never null. The list is a snapshot and safe to iterate.
+     */
+    List<L> get(String txID) {
+        List<L> ret = listeners.get(txID);
+        return ret == null ? Collections.emptyList() : ret;
+    }
+
+    void remove(L listener) {
+        listeners.computeIfPresent(listener.getTxID(), (txID, current) -> {
+            if (!current.contains(listener)) {
+                return current;
+            }
+            if (current.size() == 1) {
+                return null;
+            }
+            List<L> ret = new ArrayList<>(current);
+            ret.remove(listener);
+            return Collections.unmodifiableList(ret);
+        });
+    }
+
+    void removeAll(String txID) {
+        listeners.remove(txID);
+    }
+
+    private boolean isRegistered(L listener) {
+        List<L> current = listeners.get(listener.getTxID());
+        return current != null && current.contains(listener);
+    }
+
+    private void schedule(L listener) {
+        long tick = (listener.getSweepTime() + tickMillis - 1) / tickMillis;
+        long next = lastTick + 1;
+        if (tick < next) {
+            tick = next;
+        }
+        wheel[(int) (tick & (WHEEL_SIZE - 1))].add(listener);
+    }
+
+    /**
+     * Advance the wheel to now and remove the listeners whose sweep time has passed.
+     * Must only be called from a single thread.
+     *
+     * @param now current time in milliseconds.
+     * @return number of listeners removed.
+     */
+    int expire(long now) {
+        final long nowTick = now / tickMillis;
+        long tick = lastTick;
+        if (nowTick - tick > WHEEL_SIZE) {
+            tick = nowTick - WHEEL_SIZE; // every slot gets visited once.
+        }
+
+        int removed = 0;
+        List<L> due = new ArrayList<>();
+        while (tick < nowTick) {
+            ++tick;
+            ConcurrentLinkedQueue<L> slot = wheel[(int) (tick & (WHEEL_SIZE - 1))];
+            for (L l = slot.poll(); l != null; l = slot.poll()) {
+                due.add(l);
+            }
+            lastTick = tick;
+
+            for (L l : due) {
+                if (!isRegistered(l)) {
+                    continue; // fired or removed.
+                }
+                if (l.getSweepTime() > now) {
+                    schedule(l); // activity moved the sweep time or it is due in a later round.
+                } else if (l.sweepMe()) {
+                    remove(l);
+                    ++removed;
+                } else {
+                    schedule(l);
+                }
+            }
+            due.clear();
+        }
+
+        return removed;
+    }
+}
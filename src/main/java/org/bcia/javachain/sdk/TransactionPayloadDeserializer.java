@@ -16,31 +16,31 @@
 
 package org.bcia.javachain.sdk;
 
-import java.lang.ref.WeakReference;
-
 import com.google.protobuf.ByteString;
 
+import org.bcia.julongchain.protos.common.Common.Payload;
+
 class TransactionPayloadDeserializer extends PayloadDeserializer {
 
-    private WeakReference<TransactionDeserializer> transactionDeserialize;
+    private volatile TransactionDeserializer transactionDeserialize;
 
     TransactionPayloadDeserializer(ByteString byteString) {
 
         super(byteString);
     }
 
-    TransactionDeserializer getTransaction() {
+    TransactionPayloadDeserializer(ByteString byteString, Payload payload) {
 
-        TransactionDeserializer ret = null;
+        super(byteString, payload);
+    }
 
-        if (transactionDeserialize != null) {
-            ret = transactionDeserialize.get();
+    TransactionDeserializer getTransaction() {
 
-        }
+        TransactionDeserializer ret = transactionDeserialize;
         if (ret == null) {
 
             ret = new TransactionDeserializer(getPayload().getData());
-            transactionDeserialize = new WeakReference<>(ret);
+            transactionDeserialize = ret;
 
         }
 
@@ -59,10 +59,35 @@ public class Config {
     public static final String TRANSACTION_CLEANUP_UP_TIMEOUT_WAIT_TIME = "org.bcia.javachain.sdk.client.transaction_cleanup_up_timeout_wait_time";
     public static final String ORDERER_RETRY_WAIT_TIME = "org.bcia.javachain.sdk.orderer_retry.wait_time";
     public static final String ORDERER_WAIT_TIME = "org.bcia.javachain.sdk.orderer.ordererWaitTimeMilliSecs";
+    public static final String ORDERER_BROADCAST_WINDOW = "org.bcia.javachain.sdk.orderer.broadcast_window";
+    public static final String GRPC_EVENT_LOOP_THREADS = "org.bcia.javachain.sdk.grpc.event_loop_threads";
+    public static final String GRPC_TLS_SESSION_CACHE_SIZE = "org.bcia.javachain.sdk.grpc.tls.session_cache_size";
+    public static final String GRPC_TLS_SESSION_TIMEOUT = "org.bcia.javachain.sdk.grpc.tls.session_timeout";
+    public static final String PEER_ENDORSER_POOL_SIZE = "org.bcia.javachain.sdk.peer.endorser_pool.size";
+    public static final String PEER_ENDORSER_POOL_MAX_IN_FLIGHT = "org.bcia.javachain.sdk.peer.endorser_pool.max_in_flight";
+    public static final String PEER_ENDORSER_POOL_HEALTH_CHECK_INTERVAL = "org.bcia.javachain.sdk.peer.endorser_pool.health_check_interval";
     public static final String PEER_EVENT_REGISTRATION_WAIT_TIME = "org.bcia.javachain.sdk.peer.eventRegistration.wait_time";
     public static final String PEER_EVENT_RETRY_WAIT_TIME = "org.bcia.javachain.sdk.peer.retry_wait_time";
     public static final String EVENTHUB_CONNECTION_WAIT_TIME = "org.bcia.javachain.sdk.eventhub_connection.wait_time";
     public static final String GENESISBLOCK_WAIT_TIME = "org.bcia.javachain.sdk.channel.genesisblock_wait_time";
+
+    /**
+     * Group block event queue settings
+     */
+    public static final String GROUP_EVENT_QUEUE_CAPACITY = "org.bcia.javachain.sdk.group.event_queue.capacity";
+    public static final String GROUP_EVENT_QUEUE_OVERFLOW_POLICY = "org.bcia.javachain.sdk.group.event_queue.overflow_policy";
+    public static final String GROUP_EVENT_QUEUE_BATCH_SIZE = "org.bcia.javachain.sdk.group.event_queue.batch_size";
+    public static final String GROUP_EVENT_DEDUP = "org.bcia.javachain.sdk.group.event_dedup";
+    public static final String GROUP_EVENT_DEDUP_WINDOW = "org.bcia.javachain.sdk.group.event_dedup.window";
+    public static final String GROUP_EVENT_CHECKPOINT_DIR = "org.bcia.javachain.sdk.group.event_checkpoint.dir";
+    public static final String GROUP_EVENT_CHECKPOINT_INTERVAL = "org.bcia.javachain.sdk.group.event_checkpoint.interval";
+    public static final String BLOCK_PARALLEL_DECODE_THRESHOLD = "org.bcia.javachain.sdk.block.parallel_decode_threshold";
+    public static final String GROUP_BLOCK_STORE_DIR = "org.bcia.javachain.sdk.group.block_store.dir";
+    public static final String GROUP_BLOCK_STORE_SEGMENT_SIZE = "org.bcia.javachain.sdk.group.block_store.segment_size";
+    public static final String GROUP_BLOCK_STORE_SYNC_BLOCKS = "org.bcia.javachain.sdk.group.block_store.sync_blocks";
+    public static final String GROUP_BLOCK_STORE_SYNC_INTERVAL = "org.bcia.javachain.sdk.group.block_store.sync_interval";
+    public static final String GROUP_BLOCK_STREAM_CHUNK_SIZE = "org.bcia.javachain.sdk.group.block_stream.chunk_size";
+    public static final String GROUP_BLOCK_STREAM_PREFETCH = "org.bcia.javachain.sdk.group.block_stream.prefetch";
     /**
      * Crypto configuration settings
      **/
@@ -87,6 +112,7 @@ public class Config {
      * Miscellaneous settings
      **/
     public static final String PROPOSAL_CONSISTENCY_VALIDATION = "org.bcia.javachain.sdk.proposal.consistency_validation";
+    public static final String TRANSACTION_MERGE_ENDORSEMENTS = "org.bcia.javachain.sdk.transaction.merge_endorsements";
 
     public static final String BLOCK_PATH = "org.bcia.javachain.sdk.block_path";
 
@@ -119,10 +145,35 @@ public class Config {
         defaultProperty(ORDERER_RETRY_WAIT_TIME, "200");
         // defaultProperty(ORDERER_WAIT_TIME, "10000");
         defaultProperty(ORDERER_WAIT_TIME, "300000");
+        defaultProperty(ORDERER_BROADCAST_WINDOW, "100");
+        defaultProperty(GRPC_EVENT_LOOP_THREADS, "0");
+        defaultProperty(GRPC_TLS_SESSION_CACHE_SIZE, "1024");
+        defaultProperty(GRPC_TLS_SESSION_TIMEOUT, "300");
+        defaultProperty(PEER_ENDORSER_POOL_SIZE, "2");
+        defaultProperty(PEER_ENDORSER_POOL_MAX_IN_FLIGHT, "100");
+        defaultProperty(PEER_ENDORSER_POOL_HEALTH_CHECK_INTERVAL, "5000");
         defaultProperty(PEER_EVENT_REGISTRATION_WAIT_TIME, "5000");
         defaultProperty(PEER_EVENT_RETRY_WAIT_TIME, "500");
         defaultProperty(EVENTHUB_CONNECTION_WAIT_TIME, "1000");
         defaultProperty(GENESISBLOCK_WAIT_TIME, "5000");
+
+        /**
+         * Group block event queue settings
+         */
+        defaultProperty(GROUP_EVENT_QUEUE_CAPACITY, "1000");
+        defaultProperty(GROUP_EVENT_QUEUE_OVERFLOW_POLICY, "BLOCK");
+        defaultProperty(GROUP_EVENT_QUEUE_BATCH_SIZE, "100");
+        defaultProperty(GROUP_EVENT_DEDUP, "false");
+        defaultProperty(GROUP_EVENT_DEDUP_WINDOW, "256");
+        defaultProperty(GROUP_EVENT_CHECKPOINT_DIR, "");
+        defaultProperty(GROUP_EVENT_CHECKPOINT_INTERVAL, "1000");
+        defaultProperty(BLOCK_PARALLEL_DECODE_THRESHOLD, "256");
+        defaultProperty(GROUP_BLOCK_STORE_DIR, "");
+        defaultProperty(GROUP_BLOCK_STORE_SEGMENT_SIZE, "67108864");
+        defaultProperty(GROUP_BLOCK_STORE_SYNC_BLOCKS, "100");
+        defaultProperty(GROUP_BLOCK_STORE_SYNC_INTERVAL, "1000");
+        defaultProperty(GROUP_BLOCK_STREAM_CHUNK_SIZE, "500");
+        defaultProperty(GROUP_BLOCK_STREAM_PREFETCH, "5000");
         /**
          * This will NOT complete any transaction futures time out and must be kept WELL above any expected future timeout
          * for transactions sent to the Orderer. For internal cleanup only.
@@ -164,6 +215,7 @@ public class Config {
          * Miscellaneous settings
          */
         defaultProperty(PROPOSAL_CONSISTENCY_VALIDATION, "false");//TODO 这个校验暂时不加算返回成功，等julongchain返回码统一
+        defaultProperty(TRANSACTION_MERGE_ENDORSEMENTS, "false");
 
         defaultProperty(BLOCK_PATH, "/home/bcia/julongchain");
 
@@ -375,6 +427,205 @@ public class Config {
         return Long.parseLong(getProperty(ORDERER_WAIT_TIME));
     }
 
+    /**
+     * getConsenterBroadcastWindow returns the maximum number of transactions in flight on one Consenter broadcast stream.
+     *
+     * @return the broadcast window size.
+     */
+    public int getConsenterBroadcastWindow() {
+        return Integer.parseInt(getProperty(ORDERER_BROADCAST_WINDOW));
+    }
+
+    /**
+     * getGrpcEventLoopThreads returns the number of threads of the event loop shared by all gRPC connections.
+     *
+     * @return the thread count, 0 for netty's default.
+     */
+    public int getGrpcEventLoopThreads() {
+        return Integer.parseInt(getProperty(GRPC_EVENT_LOOP_THREADS));
+    }
+
+    /**
+     * getGrpcTlsSessionCacheSize returns how many TLS sessions are kept for resumption.
+     *
+     * @return the session cache size.
+     */
+    public long getGrpcTlsSessionCacheSize() {
+        return Long.parseLong(getProperty(GRPC_TLS_SESSION_CACHE_SIZE));
+    }
+
+    /**
+     * getGrpcTlsSessionTimeout returns how long a cached TLS session may be resumed.
+     *
+     * @return the timeout in seconds.
+     */
+    public long getGrpcTlsSessionTimeout() {
+        return Long.parseLong(getProperty(GRPC_TLS_SESSION_TIMEOUT));
+    }
+
+    /**
+     * getNodeEndorserPoolSize returns the number of gRPC connections each peer keeps for proposals.
+     *
+     * @return the endorser pool size.
+     */
+    public int getNodeEndorserPoolSize() {
+        return Integer.parseInt(getProperty(PEER_ENDORSER_POOL_SIZE));
+    }
+
+    /**
+     * getNodeEndorserPoolMaxInFlight returns how many proposals may be outstanding on one endorser connection
+     * before the next connection is preferred.
+     *
+     * @return the per connection proposal limit.
+     */
+    public int getNodeEndorserPoolMaxInFlight() {
+        return Integer.parseInt(getProperty(PEER_ENDORSER_POOL_MAX_IN_FLIGHT));
+    }
+
+    /**
+     * getNodeEndorserPoolHealthCheckInterval returns the time between background checks of the endorser connections.
+     *
+     * @return the interval in milliseconds.
+     */
+    public long getNodeEndorserPoolHealthCheckInterval() {
+        return Long.parseLong(getProperty(PEER_ENDORSER_POOL_HEALTH_CHECK_INTERVAL));
+    }
+
+    /**
+     * getGroupEventQueueCapacity returns how many block events a group buffers, and each block listener may
+     * have pending, before the overflow policy applies.
+     *
+     * @return the event queue capacity.
+     */
+    public int getGroupEventQueueCapacity() {
+        return Integer.parseInt(getProperty(GROUP_EVENT_QUEUE_CAPACITY));
+    }
+
+    /**
+     * getGroupEventQueueOverflowPolicy what to do when the group event queue is full:
+     * BLOCK the eventing connection, DROP_OLDEST buffered event, or DISCONNECT the eventing service so it replays
+     * from the last block queued. DISCONNECT needs peer eventing services, groups using it refuse event hubs.
+     *
+     * @return the overflow policy name.
+     */
+    public String getGroupEventQueueOverflowPolicy() {
+        return getProperty(GROUP_EVENT_QUEUE_OVERFLOW_POLICY);
+    }
+
+    /**
+     * getGroupEventQueueBatchSize maximum number of block events handed to the block listeners in one dispatch.
+     *
+     * @return the batch size.
+     */
+    public int getGroupEventQueueBatchSize() {
+        return Integer.parseInt(getProperty(GROUP_EVENT_QUEUE_BATCH_SIZE));
+    }
+
+    /**
+     * getGroupEventDedup determine if copies of the same block received from several eventing peers or event hubs
+     * are delivered to block listeners only once.
+     *
+     * @return if true only the first copy of a block is delivered to block listeners.
+     */
+    public boolean getGroupEventDedup() {
+        return Boolean.parseBoolean(getProperty(GROUP_EVENT_DEDUP));
+    }
+
+    /**
+     * getGroupEventDedupWindow number of most recent block numbers remembered for de-duplication.
+     *
+     * @return the de-duplication window in blocks.
+     */
+    public int getGroupEventDedupWindow() {
+        return Integer.parseInt(getProperty(GROUP_EVENT_DEDUP_WINDOW));
+    }
+
+    /**
+     * getGroupEventCheckpointDir directory where the default checkpoint store records the last block dispatched
+     * to the block listeners of each group.
+     *
+     * @return the checkpoint directory. Empty if event checkpoints are disabled.
+     */
+    public String getGroupEventCheckpointDir() {
+        return getProperty(GROUP_EVENT_CHECKPOINT_DIR);
+    }
+
+    /**
+     * getGroupEventCheckpointInterval time between writes of the group event checkpoint.
+     *
+     * @return the checkpoint interval in milliseconds.
+     */
+    public long getGroupEventCheckpointInterval() {
+        return Long.parseLong(getProperty(GROUP_EVENT_CHECKPOINT_INTERVAL));
+    }
+
+    /**
+     * getBlockParallelDecodeThreshold smallest number of envelopes in a block for them to be parsed in parallel
+     * by {@link org.bcia.javachain.sdk.BlockInfo#decodeEnvelopes()}.
+     *
+     * @return the envelope count. Zero or less to always parse on the calling thread.
+     */
+    public int getBlockParallelDecodeThreshold() {
+        return Integer.parseInt(getProperty(BLOCK_PARALLEL_DECODE_THRESHOLD));
+    }
+
+    /**
+     * getGroupBlockStoreDir directory of the local block stores. Each group keeps the blocks it receives from
+     * eventing in a sub directory named after the group and answers block queries from it.
+     *
+     * @return the block store directory. Empty if blocks are not stored locally.
+     */
+    public String getGroupBlockStoreDir() {
+        return getProperty(GROUP_BLOCK_STORE_DIR);
+    }
+
+    /**
+     * getGroupBlockStoreSegmentSize size at which the local block store starts a new block file.
+     *
+     * @return the segment size in bytes.
+     */
+    public long getGroupBlockStoreSegmentSize() {
+        return Long.parseLong(getProperty(GROUP_BLOCK_STORE_SEGMENT_SIZE));
+    }
+
+    /**
+     * getGroupBlockStoreSyncBlocks number of blocks the local block store writes before forcing them to disk.
+     *
+     * @return the number of blocks.
+     */
+    public int getGroupBlockStoreSyncBlocks() {
+        return Integer.parseInt(getProperty(GROUP_BLOCK_STORE_SYNC_BLOCKS));
+    }
+
+    /**
+     * getGroupBlockStoreSyncInterval longest time written blocks stay in the local block store before being
+     * forced to disk.
+     *
+     * @return the sync interval in milliseconds.
+     */
+    public long getGroupBlockStoreSyncInterval() {
+        return Long.parseLong(getProperty(GROUP_BLOCK_STORE_SYNC_INTERVAL));
+    }
+
+    /**
+     * getGroupBlockStreamChunkSize number of blocks requested from one peer by a single deliver stream when
+     * streaming a block range.
+     *
+     * @return the number of blocks.
+     */
+    public long getGroupBlockStreamChunkSize() {
+        return Long.parseLong(getProperty(GROUP_BLOCK_STREAM_CHUNK_SIZE));
+    }
+
+    /**
+     * getGroupBlockStreamPrefetch how far ahead of the reader a block stream may start fetching.
+     *
+     * @return the number of blocks.
+     */
+    public long getGroupBlockStreamPrefetch() {
+        return Long.parseLong(getProperty(GROUP_BLOCK_STREAM_PREFETCH));
+    }
+
     /**
      * getNodeEventRegistrationWaitTime
      *
@@ -438,6 +689,18 @@ public class Config {
 
     }
 
+    /**
+     * getTransactionMergeEndorsements determine if all endorsements of a transaction are merged
+     * into one signed envelope instead of one envelope per proposal response.
+     *
+     * @return if true one envelope is signed and sent to the Consenter per transaction
+     */
+
+    public boolean getTransactionMergeEndorsements() {
+        return Boolean.parseBoolean(getProperty(TRANSACTION_MERGE_ENDORSEMENTS));
+
+    }
+
     private int extraLogLevel = -1;
 
     public boolean extraLogLevel(int val) {
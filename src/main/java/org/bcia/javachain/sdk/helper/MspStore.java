@@ -20,17 +20,13 @@ package org.bcia.javachain.sdk.helper;
 import com.google.protobuf.ByteString;
 import org.apache.commons.io.FileUtils;
 
-import org.bcia.javachain.sdk.security.csp.gm.dxct.sm2.SM2PublicKeyImportOpts;
 import org.bcia.javachain.sdk.security.csp.gm.dxct.sm2.SM2SignerOpts;
 import org.bcia.javachain.sdk.security.csp.intfs.ICsp;
-import org.bcia.javachain.sdk.security.csp.intfs.IKey;
 import org.bcia.javachain.sdk.security.gm.CertificateUtils;
 
 import org.bcia.javachain.sdk.security.msp.IIdentity;
 import org.bcia.javachain.sdk.security.msp.IMsp;
-import org.bcia.javachain.sdk.security.msp.entity.IdentityIdentifier;
 import org.bcia.javachain.sdk.security.msp.mgmt.GlobalMspManagement;
-import org.bcia.javachain.sdk.security.msp.mgmt.Identity;
 import org.bcia.javachain.sdk.security.msp.mgmt.Msp;
 import org.bcia.javachain.sdk.security.msp.util.MspConfigBuilder;
 import org.bcia.javachain.common.exception.JavaChainException;
@@ -44,7 +40,6 @@ import org.bcia.javachain.common.tools.cryptogen.CspHelper;
 import org.bcia.julongchain.protos.msp.Identities;
 import org.bcia.julongchain.protos.msp.MspConfigPackage;
 import org.bouncycastle.asn1.x509.Certificate;
-import org.bouncycastle.util.encoders.Hex;
 import org.yaml.snakeyaml.Yaml;
 
 import java.io.*;
@@ -227,10 +222,18 @@ public class MspStore {
                 }
             }
 
-            String mspId = GlobalMspManagement.getLocalMsp().getIdentifier();
-            MspConfigPackage.MSPConfig mspConfig = MspConfigBuilder.mspConfigBuilder(mspId, caCerts, signCerts, adminCerts, clientCerts, new ArrayList<>(), configContent, tlsCaCerts, new ArrayList<>()).build();
-
-            msp = new Msp().setup(mspConfig);
+            IMsp localMsp = GlobalMspManagement.getLocalMsp();
+            String localMspDir = GlobalMspManagement.getLocalMspDir();
+            if (localMspDir != null && Paths.get(localMspDir).toAbsolutePath().normalize()
+                    .equals(Paths.get(MSP_DIR).toAbsolutePath().normalize())) {
+                //本地MSP从同一目录加载,与其共用同一个实例及其身份缓存
+                msp = localMsp;
+            } else {
+                //本地MSP来自其他目录,由MSP_DIR中的证书构造,与上面读取的证书保持一致
+                log.info(format("Local msp dir %s differs from MSP_DIR %s, setting up msp from MSP_DIR", localMspDir, MSP_DIR));
+                MspConfigPackage.MSPConfig mspConfig = MspConfigBuilder.mspConfigBuilder(localMsp.getIdentifier(), caCerts, signCerts, adminCerts, clientCerts, new ArrayList<>(), configContent, tlsCaCerts, new ArrayList<>()).build();
+                msp = new Msp().setup(mspConfig);
+            }
         }
         return msp;
     }
@@ -268,28 +271,11 @@ public class MspStore {
      * @return
      */
     public static IIdentity deserializeIdentity(byte[] serializedIdentity) {
-        ICsp csp = CspHelper.getCsp();
-        IMsp msp = null;
-        try {
-            msp = MspStore.getInstance().init();
-        } catch (IOException e) {
-            e.printStackTrace();
+        IMsp msp = MspStore.getInstance().getMsp();
+        if (msp == null) {
+            return null;
         }
-        try {
-            Identities.SerializedIdentity sId = Identities.SerializedIdentity.parseFrom(serializedIdentity);
-            Certificate cert = Certificate.getInstance(sId.getIdBytes().toByteArray());
-            byte[] pbBytes = cert.getSubjectPublicKeyInfo().getPublicKeyData().getBytes();
-            IKey certPubK = csp.keyImport(pbBytes, new SM2PublicKeyImportOpts(true));
-            String identifier_Id;
-            byte[] resultBytes = csp.hash(cert.toString().getBytes(), null);
-            //转换成十六进制字符串表示
-            identifier_Id = Hex.toHexString(resultBytes);
-            IdentityIdentifier identityIdentifier = new IdentityIdentifier(sId.getMspid(), identifier_Id);
-            IIdentity identity = new Identity(identityIdentifier, cert, certPubK, (org.bcia.javachain.sdk.security.msp.mgmt.Msp) msp);
-            return identity;
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return null;
+        //由MspStore使用的MSP反序列化,已反序列化过的身份直接从其身份缓存返回
+        return msp.deserializeIdentity(serializedIdentity);
     }
-}
\ No newline at end of file
+}
@@ -392,12 +392,13 @@ public final class Utils {
 
     private static final int NONONCE_LENGTH = 24;
 
-    private static final SecureRandom RANDOM = new SecureRandom();
+    // SecureRandom serializes callers on a shared instance, so every thread gets its own.
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
 
     public static byte[] generateNonce() {
 
         byte[] values = new byte[NONONCE_LENGTH];
-        RANDOM.nextBytes(values);
+        RANDOM.get().nextBytes(values);
 
         return values;
     }
@@ -18,17 +18,21 @@ package org.bcia.javachain.sdk.security.csp.gm.dxct;
 
 import org.bcia.javachain.sdk.security.csp.gm.dxct.sm2.*;
 import org.bcia.javachain.sdk.security.csp.gm.dxct.sm3.SM3;
+import org.bcia.javachain.sdk.security.csp.gm.dxct.sm3.SM3Hash;
 import org.bcia.javachain.sdk.security.csp.gm.dxct.sm4.*;
 import org.bcia.javachain.sdk.security.csp.gm.dxct.util.CryptoUtil;
 import org.bcia.javachain.sdk.security.csp.intfs.ICsp;
 import org.bcia.javachain.sdk.security.csp.intfs.IHash;
 import org.bcia.javachain.sdk.security.csp.intfs.IKey;
+import org.bcia.javachain.sdk.security.csp.intfs.VerifyRequest;
+import org.bcia.javachain.sdk.security.csp.helper.BatchVerifier;
 import org.bcia.javachain.sdk.security.csp.intfs.opts.*;
 import org.bcia.javachain.common.exception.JavaChainException;
 import org.bcia.javachain.sdk.common.log.JavaChainLog;
 import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
 import org.bouncycastle.util.encoders.Hex;
 
+import java.util.List;
 import java.util.Random;
 
 /**
@@ -137,7 +141,8 @@ public class GmCsp implements ICsp {
 
     @Override
     public IHash getHash(IHashOpts opts) throws JavaChainException {
-        return null;
+        //每次返回新的实例,调用方可在各自线程中分段写入
+        return new SM3Hash();
     }
 
     @Override
@@ -174,6 +179,11 @@ public class GmCsp implements ICsp {
         return verify;
     }
 
+    @Override
+    public List<Boolean> verifyBatch(List<VerifyRequest> requests, int threshold) throws JavaChainException {
+        return BatchVerifier.verifyParallel(this, requests, threshold);
+    }
+
     @Override
     public byte[] encrypt(IKey key, byte[] plaintext, IEncrypterOpts opts) throws JavaChainException {
         if (key == null) {
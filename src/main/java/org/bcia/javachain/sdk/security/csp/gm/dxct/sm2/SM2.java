@@ -18,6 +18,8 @@ import org.bcia.javachain.sdk.common.log.JavaChainLog;
 import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
 import org.bouncycastle.asn1.ASN1Integer;
 import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.gm.GMNamedCurves;
+import org.bouncycastle.asn1.x9.X9ECParameters;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.CryptoException;
 import org.bouncycastle.crypto.InvalidCipherTextException;
@@ -27,9 +29,16 @@ import org.bouncycastle.crypto.params.*;
 import org.bouncycastle.crypto.signers.SM2Signer;
 import org.bouncycastle.math.ec.ECCurve;
 import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author zhangmingyang
@@ -58,13 +67,118 @@ public class SM2 {
     private static BigInteger SM2_ECC_GY = new BigInteger("BC3736A2F4F6779C59BDCEE36B692153D0A9877CC62A474002DF32E52139F0A0", 16);
 
 
-    private static ECDomainParameters ecc_bc_spec;
-    private static ECCurve.Fp curve;
+    /**
+     * 公钥缓存的最大数量
+     */
+    private static final int PUBLIC_KEY_CACHE_SIZE = 1024;
+
+    /**
+     * 曲线及域参数全局共享,只初始化一次
+     */
+    private static final ECDomainParameters ecc_bc_spec;
+    private static final ECCurve curve;
+
+    static {
+        //sm2p256v1使用BouncyCastle针对该素数优化的域运算实现,参数与上面第二组参数相同
+        X9ECParameters x9 = GMNamedCurves.getByName("sm2p256v1");
+        if (x9 != null && x9.getN().equals(SM2_ECC_N) && x9.getG().getAffineXCoord().toBigInteger().equals(SM2_ECC_GX)) {
+            curve = x9.getCurve();
+            ecc_bc_spec = new ECDomainParameters(curve, x9.getG(), SM2_ECC_N, x9.getH());
+        } else {
+            curve = new ECCurve.Fp(SM2_ECC_P, SM2_ECC_A, SM2_ECC_B);
+            ECPoint G = curve.createPoint(SM2_ECC_GX, SM2_ECC_GY);
+            ecc_bc_spec = new ECDomainParameters(curve, G, SM2_ECC_N);
+        }
+        //预先计算基点G的倍点表,表保存在共享的G上,之后的签名和验签都直接使用
+        new FixedPointCombMultiplier().multiply(ecc_bc_spec.getG(), BigInteger.ONE);
+    }
+
+    /**
+     * 已解析的公钥,按公钥编码做近似LRU淘汰
+     * 验签时的窗口预计算表保存在公钥点上,缓存公钥即同时缓存了该表
+     */
+    private static final PublicKeyCache PUBLIC_KEY_CACHE = new PublicKeyCache(PUBLIC_KEY_CACHE_SIZE);
+
+    /**
+     * 每个线程复用一个签名者及最近使用的私钥参数
+     */
+    private static final ThreadLocal<SignerHolder> SIGNER = ThreadLocal.withInitial(SignerHolder::new);
+
+    private static class SignerHolder {
+        final SM2Signer signer = new SM2Signer();
+        ECPrivateKeyParameters privateKeyParameters;
+
+        /**
+         * 按私钥内容识别最近使用的私钥,私钥数组被复用或改写时不会用旧私钥签名
+         */
+        ECPrivateKeyParameters getPrivateKeyParameters(byte[] key) {
+            BigInteger d = byte2BigInteger(key);
+            if (privateKeyParameters == null || !d.equals(privateKeyParameters.getD())) {
+                privateKeyParameters = new ECPrivateKeyParameters(d, ecc_bc_spec);
+            }
+            return privateKeyParameters;
+        }
+    }
+
+    /**
+     * 并发公钥缓存,读取不加锁;超出容量时由一个线程淘汰最久未使用的四分之一
+     */
+    private static class PublicKeyCache {
+        private final int maxSize;
+        private final Map<ByteBuffer, Entry> entries = new ConcurrentHashMap<>();
+        private final AtomicLong clock = new AtomicLong();
+        private final AtomicBoolean evicting = new AtomicBoolean();
+
+        private static class Entry {
+            final ECPublicKeyParameters parameters;
+            volatile long lastUsed;
+
+            Entry(ECPublicKeyParameters parameters, long lastUsed) {
+                this.parameters = parameters;
+                this.lastUsed = lastUsed;
+            }
+        }
+
+        PublicKeyCache(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        ECPublicKeyParameters get(ByteBuffer key) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            entry.lastUsed = clock.incrementAndGet();
+            return entry.parameters;
+        }
+
+        void put(ByteBuffer key, ECPublicKeyParameters parameters) {
+            entries.put(key, new Entry(parameters, clock.incrementAndGet()));
+            if (entries.size() > maxSize && evicting.compareAndSet(false, true)) {
+                try {
+                    evict();
+                } finally {
+                    evicting.set(false);
+                }
+            }
+        }
+
+        private void evict() {
+            long[] lastUsed = new long[entries.size()];
+            int count = 0;
+            for (Entry entry : entries.values()) {
+                if (count == lastUsed.length) {
+                    break;
+                }
+                lastUsed[count++] = entry.lastUsed;
+            }
+            Arrays.sort(lastUsed, 0, count);
+            long threshold = lastUsed[Math.max(count - maxSize * 3 / 4, 0)];
+            entries.values().removeIf(entry -> entry.lastUsed < threshold);
+        }
+    }
 
     public SM2() {
-        curve = new ECCurve.Fp(SM2_ECC_P, SM2_ECC_A, SM2_ECC_B);
-        ECPoint G = curve.createPoint(SM2_ECC_GX, SM2_ECC_GY);
-        ecc_bc_spec = new ECDomainParameters(curve, G, SM2_ECC_N);
     }
 
     /**
@@ -112,10 +226,9 @@ public class SM2 {
      * @throws CryptoException
      */
     public byte[] sign(byte[] privateKey, byte[] msg) {
-        SM2Signer signer = new SM2Signer();
-        BigInteger d = byte2BigInteger(privateKey);
-        ECPrivateKeyParameters privateKeyParameters = new ECPrivateKeyParameters(d, ecc_bc_spec);
-        signer.init(true, privateKeyParameters);
+        SignerHolder holder = SIGNER.get();
+        SM2Signer signer = holder.signer;
+        signer.init(true, holder.getPrivateKeyParameters(privateKey));
         signer.update(msg, 0, msg.length);
         byte[] sig = new byte[0];
         try {
@@ -135,10 +248,8 @@ public class SM2 {
      * @return
      */
     public boolean verify(byte[] publicKey, byte[] signValue, byte[] msg) {
-        SM2Signer signer = new SM2Signer();
-        BigInteger[] rs = decode(signValue);
-        ECPublicKeyParameters ecPub = new ECPublicKeyParameters(byte2ECpoint(publicKey), ecc_bc_spec);
-        signer.init(false, ecPub);
+        SM2Signer signer = SIGNER.get().signer;
+        signer.init(false, getPublicKeyParameters(publicKey));
         signer.update(msg, 0, msg.length);
         return signer.verifySignature(signValue);
     }
@@ -152,7 +263,7 @@ public class SM2 {
      */
     public byte[] encrypt(byte[] input, byte[] publicLKey) {
         SM2Engine sm2Engine = new SM2Engine();
-        ECPublicKeyParameters ecPub = new ECPublicKeyParameters(byte2ECpoint(publicLKey), ecc_bc_spec);
+        ECPublicKeyParameters ecPub = getPublicKeyParameters(publicLKey);
         ParametersWithRandom parametersWithRandom = new ParametersWithRandom(ecPub);
         sm2Engine.init(true, parametersWithRandom);
         try {
@@ -198,6 +309,22 @@ public class SM2 {
                 ASN1Integer.getInstance(s.getObjectAt(1)).getValue()};
     }
 
+    /**
+     * 获取公钥参数,优先从缓存中获取
+     *
+     * @param publicKey
+     * @return
+     */
+    static ECPublicKeyParameters getPublicKeyParameters(byte[] publicKey) {
+        ECPublicKeyParameters ecPub = PUBLIC_KEY_CACHE.get(ByteBuffer.wrap(publicKey));
+        if (ecPub == null) {
+            //并发解析同一公钥时结果相同,后放入者覆盖即可
+            ecPub = new ECPublicKeyParameters(byte2ECpoint(publicKey), ecc_bc_spec);
+            PUBLIC_KEY_CACHE.put(ByteBuffer.wrap(publicKey.clone()), ecPub);
+        }
+        return ecPub;
+    }
+
     /**
      * 字节转换为ECpoint
      *
@@ -26,19 +26,23 @@ import org.bouncycastle.crypto.digests.SM3Digest;
  */
 
 public class SM3 {
-    private SM3Digest sm3Digest;
+    /**
+     * SM3Digest带有内部状态,不能在线程间共享,每个线程持有一个实例
+     */
+    private static final ThreadLocal<SM3Digest> DIGEST = ThreadLocal.withInitial(SM3Digest::new);
     /**
      *摘要长度
      */
     private int digestSize;
 
     public SM3() {
-        sm3Digest = new SM3Digest();
-        digestSize = sm3Digest.getDigestSize();
+        digestSize = DIGEST.get().getDigestSize();
     }
 
     public byte[] hash(byte[] msg) {
+        SM3Digest sm3Digest = DIGEST.get();
         byte[] resbuf = new byte[digestSize];
+        sm3Digest.reset();
         sm3Digest.update(msg, 0, msg.length);
         sm3Digest.doFinal(resbuf, 0);
         return resbuf;
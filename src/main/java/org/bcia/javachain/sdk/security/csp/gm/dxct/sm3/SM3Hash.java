@@ -0,0 +1,122 @@
+/**
+ * Copyright BCIA. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk.security.csp.gm.dxct.sm3;
+
+import com.google.protobuf.ByteString;
+import org.bcia.javachain.sdk.security.csp.intfs.IHash;
+import org.bouncycastle.crypto.digests.SM3Digest;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 流式SM3摘要,可以分段写入byte[]、ByteBuffer和ByteString,无需先拼接成一个数组
+ * 单个实例不是线程安全的,每个线程应通过GmCsp.getHash获取自己的实例
+ */
+public class SM3Hash implements IHash {
+    private static final int BLOCK_SIZE = 64;
+    private static final int COPY_BUFFER_SIZE = 4096;
+
+    private final SM3Digest sm3Digest = new SM3Digest();
+    private byte[] copyBuffer;
+
+    @Override
+    public int write(byte[] p) {
+        sm3Digest.update(p, 0, p.length);
+        return p.length;
+    }
+
+    public int write(byte[] p, int offset, int length) {
+        sm3Digest.update(p, offset, length);
+        return length;
+    }
+
+    /**
+     * 写入缓冲区中position到limit之间的数据,不改变缓冲区的position
+     *
+     * @param buffer
+     * @return 写入的字节数
+     */
+    public int write(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        if (buffer.hasArray()) {
+            sm3Digest.update(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            return length;
+        }
+        //直接内存或只读缓冲区,分块复制
+        if (copyBuffer == null) {
+            copyBuffer = new byte[COPY_BUFFER_SIZE];
+        }
+        ByteBuffer src = buffer.duplicate();
+        while (src.hasRemaining()) {
+            int n = Math.min(src.remaining(), copyBuffer.length);
+            src.get(copyBuffer, 0, n);
+            sm3Digest.update(copyBuffer, 0, n);
+        }
+        return length;
+    }
+
+    /**
+     * 按ByteString的内部分段依次写入,不会拷贝成一个完整数组
+     *
+     * @param byteString
+     * @return 写入的字节数
+     */
+    public int write(ByteString byteString) {
+        for (ByteBuffer buffer : byteString.asReadOnlyByteBufferList()) {
+            write(buffer);
+        }
+        return byteString.size();
+    }
+
+    @Override
+    public byte[] sum(byte[] b) {
+        //在副本上计算,不改变当前摘要状态
+        SM3Digest copy = new SM3Digest(sm3Digest);
+        int prefix = b == null ? 0 : b.length;
+        byte[] result = new byte[prefix + copy.getDigestSize()];
+        if (prefix > 0) {
+            System.arraycopy(b, 0, result, 0, prefix);
+        }
+        copy.doFinal(result, prefix);
+        return result;
+    }
+
+    /**
+     * 计算摘要并重置状态,等价于sum(null)后reset()
+     *
+     * @return 摘要值
+     */
+    public byte[] digest() {
+        byte[] result = new byte[sm3Digest.getDigestSize()];
+        sm3Digest.doFinal(result, 0);
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        sm3Digest.reset();
+    }
+
+    @Override
+    public int size() {
+        return sm3Digest.getDigestSize();
+    }
+
+    @Override
+    public int blockSize() {
+        return BLOCK_SIZE;
+    }
+}
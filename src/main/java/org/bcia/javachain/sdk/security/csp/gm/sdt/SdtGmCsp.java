@@ -24,11 +24,15 @@ import org.bcia.javachain.sdk.security.csp.gm.sdt.util.KeysStore;
 import org.bcia.javachain.sdk.security.csp.intfs.ICsp;
 import org.bcia.javachain.sdk.security.csp.intfs.IHash;
 import org.bcia.javachain.sdk.security.csp.intfs.IKey;
+import org.bcia.javachain.sdk.security.csp.intfs.VerifyRequest;
+import org.bcia.javachain.sdk.security.csp.helper.BatchVerifier;
 import org.bcia.javachain.sdk.security.csp.intfs.opts.*;
 import org.bcia.javachain.common.exception.JavaChainException;
 import org.bcia.javachain.sdk.common.log.JavaChainLog;
 import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
 
+import java.util.List;
+
 
 /**
  * SDT 国密算法 密码服务提供者
@@ -346,6 +350,18 @@ public class SdtGmCsp implements ICsp {
         throw new JavaChainException("Unsupported ‘ISignerOpts‘.");
     }
 
+    /**
+     * 批量验签,在ForkJoin线程池中并行执行
+     * @param requests 验签请求
+     * @param threshold 有效签名数达到该值后不再验证剩余请求,小于1表示全部验证
+     * @return 与请求一一对应的验签结果,未验证的为null
+     * @throws JavaChainException
+     */
+    @Override
+    public List<Boolean> verifyBatch(List<VerifyRequest> requests, int threshold) throws JavaChainException {
+        return BatchVerifier.verifyParallel(this, requests, threshold);
+    }
+
     /**
      * 对称加密
      * @param key 密钥
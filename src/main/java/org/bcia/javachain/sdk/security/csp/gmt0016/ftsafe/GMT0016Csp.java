@@ -41,6 +41,7 @@ import java.util.UUID;
 public class GMT0016Csp implements IGMT0016Csp {
 
     private IGMT0016FactoryOpts gmt0016FactoryOpts;
+    private SKFDevicePool devicePool = null;
     GMT0016CspLog csplog = new GMT0016CspLog();
 
     GMT0016Csp(IGMT0016FactoryOpts gmt0016FactoryOpts)
@@ -48,9 +49,19 @@ public class GMT0016Csp implements IGMT0016Csp {
         this.gmt0016FactoryOpts = gmt0016FactoryOpts;
     }
 
+    /**
+     * SM2 sign requests go to the devices of the pool instead of the single device of the factory opts.
+     */
+    public void setDevicePool(SKFDevicePool devicePool) {
+        this.devicePool = devicePool;
+    }
+
     @Override
     public void finalized() throws JavaChainException {
 
+        if (devicePool != null) {
+            devicePool.close();
+        }
         gmt0016FactoryOpts.getSKFFactory().SKF_DisconnectDev(gmt0016FactoryOpts.getDevHandle());
     }
 
@@ -257,6 +268,9 @@ public class GMT0016Csp implements IGMT0016Csp {
                 throw new JavaChainException("[JC_SKF]: The Publickey is not sm2 type! Param Err!");
             }
             ECImpl ec = new ECImpl();
+            if(sm3opts.isHostHash()) {
+                return ec.getHostHash(msg, sContainerName, bSignFlag, sm3opts.getPubID(), gmt0016FactoryOpts);
+            }
             byte[] hash = ec.getHash(msg, sm3opts.getMechanism(), sContainerName,
                     bSignFlag, sm3opts.getPubID(), gmt0016FactoryOpts);
             return hash;
@@ -373,6 +387,9 @@ public class GMT0016Csp implements IGMT0016Csp {
             byte[] signature = rsa.getRSASign(digest, sContainerName, gmt0016FactoryOpts);
             return signature;
         }else if (type == 2 && bSignFlag ){
+            if (devicePool != null) {
+                return devicePool.sign(digest, sContainerName);
+            }
             ECImpl ec = new ECImpl();
             byte[] signature = ec.getECSign(digest, sContainerName, gmt0016FactoryOpts);
             return signature;
@@ -438,10 +455,10 @@ public class GMT0016Csp implements IGMT0016Csp {
         if (type == 1 && bSignFlag)
         {
             RSAImpl rsa = new RSAImpl();
-            boolean rv = rsa.getRSAVerify(signature, digest, sContainerName, gmt0016FactoryOpts);
+            return rsa.getRSAVerify(signature, digest, sContainerName, gmt0016FactoryOpts);
         }else if (type == 2 && bSignFlag ){
             ECImpl ec = new ECImpl();
-            boolean rv = ec.getECverify(signature, digest, sContainerName, gmt0016FactoryOpts);
+            return ec.getECverify(signature, digest, sContainerName, gmt0016FactoryOpts);
         }
 
         csplog.setLogMsg("[JC_SKF]: Verify Param Err!", 2, GMT0016Csp.class);
@@ -37,16 +37,29 @@ public class GMT0016FactoryOpts implements IGMT0016FactoryOpts{
     private long lDevHandle;
     private long lAppHandle;
     private String sUserPin;
+    private SKFContainerCache containerCache;
 
     GMT0016CspLog csplog = new GMT0016CspLog();
 
     public GMT0016FactoryOpts(GMT0016Lib gmt0016Lib/*, GMT0016Config gmt0016Conf*/) throws JavaChainException {
-        mSKF = new SKFFactoryOpts();
+        this(gmt0016Lib, new SKFFactoryOpts());
+    }
+
+    public GMT0016FactoryOpts(GMT0016Lib gmt0016Lib, ISKFFactory skf) throws JavaChainException {
+        this(gmt0016Lib, skf, null);
+    }
+
+    /**
+     * Bind to the named device instead of the device matching the label and SN of the lib, used by the device pool.
+     */
+    public GMT0016FactoryOpts(GMT0016Lib gmt0016Lib, ISKFFactory skf, String sDevName) throws JavaChainException {
+        mSKF = skf;
         sUserPin = gmt0016Lib.getUserPin();
-        init(gmt0016Lib);
+        init(gmt0016Lib, sDevName);
+        containerCache = new SKFContainerCache(mSKF, lAppHandle, sUserPin);
     }
 
-    private void init(GMT0016Lib lib) throws JavaChainException {
+    private void init(GMT0016Lib lib, String sDevName) throws JavaChainException {
 
         try {
 
@@ -55,12 +68,19 @@ public class GMT0016FactoryOpts implements IGMT0016FactoryOpts{
             boolean bFindDev = false;
             for(String devName : devNamesList) {
 
+                if(sDevName != null && !sDevName.equals(devName)) {
+                    continue;
+                }
                 long devHandle = mSKF.SKF_ConnectDev(devName);
                 lDevHandle = devHandle;
-                SKFDeviceInfo devinfo = mSKF.SKF_GetDevInfo(devHandle);
-                String sLabel = new String(new String(devinfo.getLabel()).getBytes("iso-8859-1"), "utf-8");
-                String sSn = new String(new String(devinfo.getSerialnumber()));
-                if(lib.getKeyLabel().equals(sLabel.trim()) && lib.getKeySN().equals(sSn.trim())) {
+                boolean bMatch = sDevName != null;
+                if(!bMatch) {
+                    SKFDeviceInfo devinfo = mSKF.SKF_GetDevInfo(devHandle);
+                    String sLabel = new String(new String(devinfo.getLabel()).getBytes("iso-8859-1"), "utf-8");
+                    String sSn = new String(new String(devinfo.getSerialnumber()));
+                    bMatch = lib.getKeyLabel().equals(sLabel.trim()) && lib.getKeySN().equals(sSn.trim());
+                }
+                if(bMatch) {
                     bFindDev = true;
                     boolean bFindApp = false;
                     List<String> appNamesList = mSKF.SKF_EnumApplication(devHandle);
@@ -83,7 +103,8 @@ public class GMT0016FactoryOpts implements IGMT0016FactoryOpts{
 
             if(!bFindDev)
             {
-                String info = String.format("[JC_SKF]:No Find The Device! (SN: %s, Lable:%s)",
+                String info = sDevName != null ? String.format("[JC_SKF]:No Find The Device %s!", sDevName) :
+                        String.format("[JC_SKF]:No Find The Device! (SN: %s, Lable:%s)",
                         lib.getKeySN(), lib.getKeyLabel());
                 csplog.setLogMsg(info, 2, GMT0016FactoryOpts.class);
                 throw new JavaChainException(info);
@@ -157,6 +178,10 @@ public class GMT0016FactoryOpts implements IGMT0016FactoryOpts{
         return lDevHandle;
     }
 
+    public SKFContainerCache getContainerCache() {
+        return containerCache;
+    }
+
     public boolean isDefaultCsp() {
         return false;
     }
@@ -33,4 +33,6 @@ public interface IGMT0016FactoryOpts extends IFactoryOpts {
     public String getUserPin();
 
     public long getDevHandle();
+
+    public SKFContainerCache getContainerCache();
 }
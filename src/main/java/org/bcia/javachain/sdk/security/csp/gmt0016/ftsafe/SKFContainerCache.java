@@ -0,0 +1,205 @@
+/**
+ * Copyright Feitian. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe;
+
+import org.bcia.javachain.common.exception.JCSKFException;
+import org.bcia.javachain.common.exception.SarException;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.GMT0016CspConstant.USER_TYPE;
+
+/**
+ * Cache of container handles and public key blobs of one SKF application.
+ * <p>
+ * A container is enumerated and opened once, its type read once and each public key exported once; the handle
+ * stays open until the container is invalidated. The user PIN is verified once per session.
+ * Call {@link #failed(String, SarException)} when an SKF call on a container fails, and {@link #invalidateAll()}
+ * when the device is reconnected.
+ */
+public class SKFContainerCache {
+
+    private final ISKFFactory mSKF;
+    private final long lAppHandle;
+    private final String sUserPin;
+
+    private Set<String> containerNames = null;
+    private final Map<String, Container> containers = new HashMap<>();
+    private boolean bPinVerified = false;
+
+    private static class Container {
+        final long lHandle;
+        Long lType = null;
+        //index: sign flag, ECC
+        final Object[] publicKeys = new Object[4];
+
+        Container(long lHandle) {
+            this.lHandle = lHandle;
+        }
+    }
+
+    public SKFContainerCache(ISKFFactory skf, long lAppHandle, String sUserPin) {
+        this.mSKF = skf;
+        this.lAppHandle = lAppHandle;
+        this.sUserPin = sUserPin;
+    }
+
+    /**
+     * Verify the user PIN if it has not been verified in this session.
+     */
+    public synchronized void verifyPIN() throws SarException {
+        if (!bPinVerified) {
+            mSKF.SKF_VerifyPIN(lAppHandle, USER_TYPE, sUserPin);
+            bPinVerified = true;
+        }
+    }
+
+    /**
+     * @return true if the application has the container. A container not in the cached list is looked up again,
+     * it may have been created by another application or process since.
+     */
+    public synchronized boolean exists(String sContainerName) throws SarException, JCSKFException {
+        if (containerNames != null && containerNames.contains(sContainerName)) {
+            return true;
+        }
+        List<String> names = null;
+        try {
+            names = mSKF.SKF_EnumContainer(lAppHandle);
+        } catch (JCSKFException ex) {
+            if (ex.getErrCode() != JCSKFException.JC_SKF_NOCONTAINER) {
+                throw ex;
+            }
+        }
+        containerNames = names == null ? new HashSet<>() : new HashSet<>(names);
+        return containerNames.contains(sContainerName);
+    }
+
+    /**
+     * @return the handle of the open container, 0 if the application has no such container.
+     */
+    public synchronized long openContainer(String sContainerName) throws SarException, JCSKFException {
+        Container container = containers.get(sContainerName);
+        if (container == null) {
+            if (!exists(sContainerName)) {
+                return 0L;
+            }
+            container = new Container(mSKF.SKF_OpenContainer(lAppHandle, sContainerName));
+            containers.put(sContainerName, container);
+        }
+        return container.lHandle;
+    }
+
+    /**
+     * Create the container and keep its handle open.
+     *
+     * @return the container handle.
+     */
+    public synchronized long createContainer(String sContainerName) throws SarException {
+        long lHandle = mSKF.SKF_CreateContainer(lAppHandle, sContainerName);
+        invalidate(sContainerName);
+        if (containerNames != null) {
+            containerNames.add(sContainerName);
+        }
+        containers.put(sContainerName, new Container(lHandle));
+        return lHandle;
+    }
+
+    /**
+     * @return the container type, 0 if the application has no such container.
+     */
+    public synchronized long getContainerType(String sContainerName) throws SarException, JCSKFException {
+        if (openContainer(sContainerName) == 0L) {
+            return 0L;
+        }
+        Container container = containers.get(sContainerName);
+        if (container.lType == null) {
+            container.lType = mSKF.SKF_GetContainerType(container.lHandle);
+        }
+        return container.lType;
+    }
+
+    /**
+     * @return the exported public key blob, null if the application has no such container.
+     */
+    public synchronized Object exportPublicKey(String sContainerName, boolean bSignFlag, boolean bECC) throws SarException, JCSKFException {
+        if (openContainer(sContainerName) == 0L) {
+            return null;
+        }
+        Container container = containers.get(sContainerName);
+        int index = (bSignFlag ? 2 : 0) + (bECC ? 1 : 0);
+        if (container.publicKeys[index] == null) {
+            container.publicKeys[index] = mSKF.SKF_ExportPublicKey(container.lHandle, bSignFlag, bECC);
+        }
+        return container.publicKeys[index];
+    }
+
+    /**
+     * Forget the type and public keys of the container after its keys were generated or imported.
+     */
+    public synchronized void keysChanged(String sContainerName) {
+        Container container = containers.get(sContainerName);
+        if (container != null) {
+            containers.put(sContainerName, new Container(container.lHandle));
+        }
+    }
+
+    /**
+     * Close the container handle, it is opened again on next use.
+     */
+    public synchronized void invalidate(String sContainerName) {
+        Container container = containers.remove(sContainerName);
+        if (container != null) {
+            try {
+                mSKF.SKF_CloseContainer(container.lHandle);
+            } catch (SarException ex) {
+                //handle may already be invalid
+            }
+        }
+    }
+
+    /**
+     * An SKF call on the container failed: close its handle, and verify the PIN again on next use if the device
+     * reports that the user is no longer logged in.
+     */
+    public synchronized void failed(String sContainerName, SarException ex) {
+        invalidate(sContainerName);
+        switch (ex.getErrorCode()) {
+            case SarException.SAR_USER_NOT_LOGGED_IN:
+            case SarException.SAR_PIN_INCORRECT:
+            case SarException.SAR_PIN_INVALID:
+            case SarException.SAR_PIN_LOCKED:
+                bPinVerified = false;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Close all container handles and forget the container list and PIN state.
+     */
+    public synchronized void invalidateAll() {
+        for (String sContainerName : new HashSet<>(containers.keySet())) {
+            invalidate(sContainerName);
+        }
+        containerNames = null;
+        bPinVerified = false;
+    }
+}
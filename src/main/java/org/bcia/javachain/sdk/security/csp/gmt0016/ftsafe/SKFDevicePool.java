@@ -0,0 +1,354 @@
+/**
+ * Copyright Feitian. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe;
+
+import org.bcia.javachain.common.exception.JCSKFException;
+import org.bcia.javachain.common.exception.JavaChainException;
+import org.bcia.javachain.common.exception.SarException;
+import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.ec.ECImpl;
+import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.entity.GMT0016Lib;
+import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.util.SKFCspKey;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of SKF devices holding the same container, SM2 sign requests are spread over the devices.
+ * <p>
+ * Every device has one worker thread and at most queueSize requests waiting for it. A request goes to the device
+ * with the fewest outstanding requests and waits for room when every queue is full. A device failing
+ * {@link #MAX_FAILURES} times in a row is taken out of rotation for {@link #RETRY_INTERVAL} ms, the request is
+ * retried on another device. A request the device rejects for its input would fail on every device, it is neither
+ * retried nor counted as a device failure.
+ */
+public class SKFDevicePool {
+
+    public static final int MAX_FAILURES = 3;
+    public static final long RETRY_INTERVAL = 30000L;
+
+    private final List<Device> devices;
+    private final ECImpl ec = new ECImpl();
+    GMT0016CspLog csplog = new GMT0016CspLog();
+
+    private static class Device {
+        final IGMT0016FactoryOpts opts;
+        final ExecutorService worker;
+        final Semaphore slots;
+        final AtomicInteger pending = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        volatile long lDisabledUntil = 0L;
+
+        Device(IGMT0016FactoryOpts opts, int iQueueSize) {
+            this.opts = opts;
+            this.worker = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "SKFDevicePool-" + opts.getDevHandle());
+                t.setDaemon(true);
+                return t;
+            });
+            //the request being signed plus the waiting ones
+            this.slots = new Semaphore(iQueueSize + 1);
+        }
+
+        boolean isAvailable(long now) {
+            return lDisabledUntil <= now;
+        }
+    }
+
+    /**
+     * @param devicesOpts one opts per device, each bound to its own device and application
+     * @param iQueueSize  max requests waiting for one device
+     */
+    public SKFDevicePool(List<IGMT0016FactoryOpts> devicesOpts, int iQueueSize) {
+        if (devicesOpts == null || devicesOpts.isEmpty()) {
+            throw new IllegalArgumentException("[JC_SKF]:Device pool needs at least one device!");
+        }
+        if (iQueueSize < 0) {
+            throw new IllegalArgumentException("[JC_SKF]:Device queue size must not be negative!");
+        }
+        List<Device> list = new ArrayList<>(devicesOpts.size());
+        for (IGMT0016FactoryOpts opts : devicesOpts) {
+            list.add(new Device(opts, iQueueSize));
+        }
+        this.devices = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Connect to every present device holding the container, the sign key of the first device found is the reference.
+     *
+     * @param lib            pin and library of the devices, label and SN are not checked
+     * @param skf            SKF interface
+     * @param sContainerName container of the signing key
+     * @param iQueueSize     max requests waiting for one device
+     */
+    public static SKFDevicePool connect(GMT0016Lib lib, ISKFFactory skf, String sContainerName, int iQueueSize)
+            throws JavaChainException {
+        return connect(lib, skf, sContainerName, null, iQueueSize);
+    }
+
+    /**
+     * Connect to every present device holding the container with the same sign key. A device whose container holds
+     * another key would produce signatures not verifying against the identity, it is left out of the pool.
+     *
+     * @param lib            pin and library of the devices, label and SN are not checked
+     * @param skf            SKF interface
+     * @param sContainerName container of the signing key
+     * @param referenceKey   X || Y of the expected SM2 sign public key, null to take the key of the first device found
+     * @param iQueueSize     max requests waiting for one device
+     */
+    public static SKFDevicePool connect(GMT0016Lib lib, ISKFFactory skf, String sContainerName, byte[] referenceKey,
+                                        int iQueueSize) throws JavaChainException {
+        GMT0016CspLog csplog = new GMT0016CspLog();
+        List<String> devNamesList;
+        try {
+            skf.InitSKF(lib.getLibrary());
+            devNamesList = skf.SKF_EnumDevs(true);
+        } catch (SarException ex) {
+            String err = String.format("[JC_SKF]:SarException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrorCode(), ex.getMessage());
+            csplog.setLogMsg(err, 2, SKFDevicePool.class);
+            throw new JavaChainException(err, ex.getCause());
+        } catch (JCSKFException ex) {
+            String err = String.format("[JC_SKF]:JCSKFException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrCode(), ex.getMessage());
+            csplog.setLogMsg(err, 2, SKFDevicePool.class);
+            throw new JavaChainException(err, ex.getCause());
+        }
+
+        List<IGMT0016FactoryOpts> devicesOpts = new ArrayList<>();
+        for (String devName : devNamesList) {
+            try {
+                GMT0016FactoryOpts opts = new GMT0016FactoryOpts(lib, skf, devName);
+                byte[] publicKey = opts.getContainerCache().exists(sContainerName) ?
+                        getSignPublicKey(opts, sContainerName) : null;
+                if (publicKey != null && referenceKey == null) {
+                    referenceKey = publicKey;
+                }
+                if (publicKey != null && Arrays.equals(referenceKey, publicKey)) {
+                    devicesOpts.add(opts);
+                } else {
+                    if (publicKey != null) {
+                        String info = String.format("[JC_SKF]:Skip The Device %s: Container %s Holds Another Sign Key!",
+                                devName, sContainerName);
+                        csplog.setLogMsg(info, 1, SKFDevicePool.class);
+                    }
+                    opts.getContainerCache().invalidateAll();
+                    skf.SKF_DisconnectDev(opts.getDevHandle());
+                }
+            } catch (JavaChainException ex) {
+                String info = String.format("[JC_SKF]:Skip The Device %s: %s", devName, ex.getMessage());
+                csplog.setLogMsg(info, 1, SKFDevicePool.class);
+            }
+        }
+        if (devicesOpts.isEmpty()) {
+            String err = String.format("[JC_SKF]:No Find The Device Holding The Container %s!", sContainerName);
+            csplog.setLogMsg(err, 2, SKFDevicePool.class);
+            throw new JavaChainException(err);
+        }
+        String info = String.format("[JC_SKF]:Device pool of %d devices for container %s", devicesOpts.size(), sContainerName);
+        csplog.setLogMsg(info, 1, SKFDevicePool.class);
+        return new SKFDevicePool(devicesOpts, iQueueSize);
+    }
+
+    //X || Y of the SM2 sign public key in the container, null if there is none
+    private static byte[] getSignPublicKey(IGMT0016FactoryOpts opts, String sContainerName) throws SarException, JCSKFException {
+        SKFCspKey.ECCPublicKeyBlob blob =
+                (SKFCspKey.ECCPublicKeyBlob) opts.getContainerCache().exportPublicKey(sContainerName, true, true);
+        if (blob == null) {
+            return null;
+        }
+        byte[] x = blob.getxCoordinate();
+        byte[] y = blob.getyCoordinate();
+        byte[] ecpoint = new byte[x.length + y.length];
+        System.arraycopy(x, 0, ecpoint, 0, x.length);
+        System.arraycopy(y, 0, ecpoint, x.length, y.length);
+        return ecpoint;
+    }
+
+    /**
+     * Sign the digest with the SM2 key of the container on the least busy device.
+     */
+    public byte[] sign(byte[] digest, String sContainerName) throws JavaChainException {
+        Set<Device> tried = new HashSet<>();
+        JavaChainException lastError = null;
+        while (true) {
+            Device device;
+            try {
+                device = acquire(tried);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new JavaChainException("[JC_SKF]:Interrupted while waiting for a device!");
+            }
+            if (device == null) {
+                if (lastError != null) {
+                    throw lastError;
+                }
+                String err = "[JC_SKF]:No device available in the pool!";
+                csplog.setLogMsg(err, 2, SKFDevicePool.class);
+                throw new JavaChainException(err);
+            }
+            tried.add(device);
+
+            try {
+                byte[] signature = submit(device, digest, sContainerName);
+                device.failures.set(0);
+                return signature;
+            } catch (InterruptedException ex) {
+                //the caller gave up, not the device
+                Thread.currentThread().interrupt();
+                throw new JavaChainException("[JC_SKF]:Interrupted while signing!");
+            } catch (JavaChainException ex) {
+                if (isRequestError(ex)) {
+                    throw ex;
+                }
+                lastError = ex;
+                failed(device);
+            }
+        }
+    }
+
+    //the device rejected the input of the request, not a failure of the device
+    private static boolean isRequestError(JavaChainException ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof SarException) {
+                switch (((SarException) t).getErrorCode()) {
+                    case SarException.SAR_INVALIDPARAMERR:
+                    case SarException.SAR_NAMELENERR:
+                    case SarException.SAR_INDATALENERR:
+                    case SarException.SAR_INDATAERR:
+                    case SarException.SAR_BUFFER_TOO_SMALL:
+                        return true;
+                    default:
+                        return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of devices in the pool
+     */
+    public int size() {
+        return devices.size();
+    }
+
+    /**
+     * @return number of devices in rotation
+     */
+    public int getAvailableCount() {
+        long now = System.currentTimeMillis();
+        int count = 0;
+        for (Device device : devices) {
+            if (device.isAvailable(now)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public List<IGMT0016FactoryOpts> getDevicesOpts() {
+        List<IGMT0016FactoryOpts> ret = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            ret.add(device.opts);
+        }
+        return ret;
+    }
+
+    /**
+     * Stop the workers and disconnect the devices.
+     */
+    public void close() {
+        for (Device device : devices) {
+            device.worker.shutdownNow();
+            device.opts.getContainerCache().invalidateAll();
+            try {
+                device.opts.getSKFFactory().SKF_DisconnectDev(device.opts.getDevHandle());
+            } catch (SarException ex) {
+                String err = String.format("[JC_SKF]:SarException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrorCode(), ex.getMessage());
+                csplog.setLogMsg(err, 2, SKFDevicePool.class);
+            }
+        }
+    }
+
+    //take a slot of the least busy device not tried yet, wait for one if all queues are full
+    private Device acquire(Set<Device> tried) throws InterruptedException {
+        long now = System.currentTimeMillis();
+        List<Device> candidates = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            if (!tried.contains(device) && device.isAvailable(now)) {
+                candidates.add(device);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        candidates.sort((a, b) -> Integer.compare(a.pending.get(), b.pending.get()));
+        for (Device device : candidates) {
+            if (device.slots.tryAcquire()) {
+                return device;
+            }
+        }
+        Device device = candidates.get(0);
+        device.slots.acquire();
+        return device;
+    }
+
+    private byte[] submit(Device device, byte[] digest, String sContainerName) throws JavaChainException, InterruptedException {
+        device.pending.incrementAndGet();
+        Future<byte[]> future = null;
+        try {
+            future = device.worker.submit(() -> ec.getECSign(digest, sContainerName, device.opts));
+            return future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof JavaChainException) {
+                throw (JavaChainException) cause;
+            }
+            String err = String.format("[JC_SKF]:Exception ErrMessage: %s", cause.getMessage());
+            csplog.setLogMsg(err, 2, SKFDevicePool.class);
+            throw new JavaChainException(err, cause);
+        } catch (InterruptedException ex) {
+            future.cancel(false);
+            throw ex;
+        } catch (RuntimeException ex) {
+            //worker shut down
+            String err = String.format("[JC_SKF]:Exception ErrMessage: %s", ex.getMessage());
+            csplog.setLogMsg(err, 2, SKFDevicePool.class);
+            throw new JavaChainException(err, ex);
+        } finally {
+            device.pending.decrementAndGet();
+            device.slots.release();
+        }
+    }
+
+    private void failed(Device device) {
+        if (device.failures.incrementAndGet() >= MAX_FAILURES) {
+            device.failures.set(0);
+            device.lDisabledUntil = System.currentTimeMillis() + RETRY_INTERVAL;
+            String err = String.format("[JC_SKF]:Device %d failed %d times, out of rotation for %d ms",
+                    device.opts.getDevHandle(), MAX_FAILURES, RETRY_INTERVAL);
+            csplog.setLogMsg(err, 2, SKFDevicePool.class);
+        }
+    }
+}
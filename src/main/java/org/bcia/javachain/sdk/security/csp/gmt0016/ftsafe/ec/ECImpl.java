@@ -17,10 +17,12 @@ package org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.ec;
 
 import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.GMT0016CspLog;
 import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.IGMT0016FactoryOpts;
+import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.SKFContainerCache;
 import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.util.BlockCipherParam;
 import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.util.DataUtil;
 import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.util.GMT0016CspKey;
 import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.util.SKFCspKey;
+import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.util.SM3PreHash;
 import org.bcia.javachain.sdk.security.csp.intfs.IKey;
 import org.bcia.javachain.common.exception.JCSKFException;
 import org.bcia.javachain.common.exception.JavaChainException;
@@ -32,7 +34,6 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.List;
 
 import static org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.GMT0016CspConstant.*;
 
@@ -49,41 +50,16 @@ public class ECImpl {
     public IKey generateECKey(String sContainerName, IGMT0016FactoryOpts opts) throws JavaChainException {
 
         try {
-            opts.getSKFFactory().SKF_VerifyPIN(opts.getAppHandle(), USER_TYPE, opts.getUserPin());
-            List<String> appNamesList = null;
-            try {
-                appNamesList = opts.getSKFFactory().SKF_EnumContainer(opts.getAppHandle());
-            }catch(JCSKFException ex) {
-                if (ex.getErrCode() == JCSKFException.JC_SKF_NOCONTAINER)
-                {
-                    String info = "[JC_SKF]:No container! Need create first!";
-                    csplog.setLogMsg(info, 0, ECImpl.class);
-                }
-                else {
-                    String err = String.format("[JC_SKF]:JCSKFException ErrMessage: %s", ex.getMessage());
-                    csplog.setLogMsg(err, 2, ECImpl.class);
-                    throw new JavaChainException(err, ex.getCause());
-                }
-            }
-            boolean bFind = false;
-            long lHandleContainer = 0L;
-            if(appNamesList != null && !appNamesList.isEmpty()) {
-                for(String name : appNamesList) {
-                    if(name.equals(sContainerName)) {
-                        bFind = true;
-                        //save container handle
-                        lHandleContainer = opts.getSKFFactory().SKF_OpenContainer(opts.getAppHandle(), sContainerName);
-                        break;
-                    }
-                }}
-            if(!bFind)
+            SKFContainerCache cache = opts.getContainerCache();
+            cache.verifyPIN();
+            long lHandleContainer = cache.openContainer(sContainerName);
+            if(lHandleContainer == 0L)
             {
                 //create container handle
-                lHandleContainer = opts.getSKFFactory().SKF_CreateContainer(opts.getAppHandle(), sContainerName);
+                lHandleContainer = cache.createContainer(sContainerName);
             }
             SKFCspKey.ECCPublicKeyBlob eccPublicKeyBlob = opts.getSKFFactory().SKF_GenECCKeyPair(lHandleContainer);
-
-            opts.getSKFFactory().SKF_CloseContainer(lHandleContainer);
+            cache.keysChanged(sContainerName);
             //der
             /*
              * sm2p256v1 1.2.840.10045.2.1  1.2.156.10197.1.301
@@ -106,6 +82,8 @@ public class ECImpl {
             GMT0016CspKey.ECCPublicCspKey eccPublicCspKey = new GMT0016CspKey.ECCPublicCspKey(skiData, pubder);
             return eccPublicCspKey;
         }catch(SarException ex) {
+            //the container handle or the login may no longer be valid, open and verify again on next use
+            opts.getContainerCache().failed(sContainerName, ex);
             ex.printStackTrace();
             String err = String.format("[JC_SKF]:SarException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrorCode(), ex.getMessage());
             csplog.setLogMsg(err, 2, ECImpl.class);
@@ -131,26 +109,16 @@ public class ECImpl {
 
         try {
 
-            opts.getSKFFactory().SKF_VerifyPIN(opts.getAppHandle(), USER_TYPE, opts.getUserPin());
-            List<String> appNamesList = opts.getSKFFactory().SKF_EnumContainer(opts.getAppHandle());
-            boolean bFind = false;
-            String tempname = "";
-            long lContainerHandle = 0L;
-            for(String name : appNamesList) {
-                if(name.equals(sContainerName)) {
-                    bFind = true;
-                    //save container handle
-                    lContainerHandle = opts.getSKFFactory().SKF_OpenContainer(opts.getAppHandle(), sContainerName);
-                    break;
-                }
-            }
-            if(!bFind)
+            SKFContainerCache cache = opts.getContainerCache();
+            cache.verifyPIN();
+            long lContainerHandle = cache.openContainer(sContainerName);
+            if(lContainerHandle == 0L)
             {
                 String str = String.format("[JC_SKF]:No Find The Container %s!", sContainerName);
                 csplog.setLogMsg(str, 2, ECImpl.class);
                 throw new JavaChainException(str);
             }
-            long type = opts.getSKFFactory().SKF_GetContainerType(lContainerHandle);
+            long type = cache.getContainerType(sContainerName);
             if(type != 2)
             {
                 String str = String.format("[JC_SKF]:The Container Type is not SM2");
@@ -159,7 +127,7 @@ public class ECImpl {
             }
 
             SKFCspKey.ECCPublicKeyBlob eccPublicKeyBlob =
-                    (SKFCspKey.ECCPublicKeyBlob)opts.getSKFFactory().SKF_ExportPublicKey(lContainerHandle, true, true);
+                    (SKFCspKey.ECCPublicKeyBlob)cache.exportPublicKey(sContainerName, true, true);
 
             //gen symmkey
             byte[] random = opts.getSKFFactory().SKF_GenRandom(opts.getDevHandle(), 16);
@@ -183,11 +151,11 @@ public class ECImpl {
             eccEnvelopedKeyBlob.setBits(pubkeyblob.getBit());
 
             opts.getSKFFactory().SKF_ImportECCKeyPair(lContainerHandle, eccEnvelopedKeyBlob);
+            cache.keysChanged(sContainerName);
 
             SKFCspKey.ECCPublicKeyBlob KeyBlob =
-                    (SKFCspKey.ECCPublicKeyBlob)opts.getSKFFactory().SKF_ExportPublicKey(lContainerHandle, false, true);
+                    (SKFCspKey.ECCPublicKeyBlob)cache.exportPublicKey(sContainerName, false, true);
 
-            opts.getSKFFactory().SKF_CloseContainer(lContainerHandle);
 
             byte[] ecpoint = new byte[32*2];
             //ecpoint[0] = 0x04;
@@ -206,6 +174,8 @@ public class ECImpl {
             return eccPublicCspKey;
 
         }catch(SarException ex) {
+            //the container handle or the login may no longer be valid, open and verify again on next use
+            opts.getContainerCache().failed(sContainerName, ex);
             ex.printStackTrace();
             String err = String.format("[JC_SKF]:SarException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrorCode(), ex.getMessage());
             csplog.setLogMsg(err, 2, ECImpl.class);
@@ -227,25 +197,15 @@ public class ECImpl {
     public IKey getECKey(String sContainerName, boolean bSignFlag, IGMT0016FactoryOpts opts) throws JavaChainException {
 
         try {
-            List<String> appNamesList = opts.getSKFFactory().SKF_EnumContainer(opts.getAppHandle());
-            boolean bFind = false;
-
-            long lContainerHandle = 0L;
-            for(String name : appNamesList) {
-                if(name.equals(sContainerName)) {
-                    bFind = true;
-                    //save container handle
-                    lContainerHandle = opts.getSKFFactory().SKF_OpenContainer(opts.getAppHandle(), sContainerName);
-                    break;
-                }
-            }
-            if(!bFind)
+            SKFContainerCache cache = opts.getContainerCache();
+            long lContainerHandle = cache.openContainer(sContainerName);
+            if(lContainerHandle == 0L)
             {
                 String str = String.format("[JC_SKF]:No Find The Container %s!", sContainerName);
                 csplog.setLogMsg(str, 1, ECImpl.class);
                 return null;
             }
-            long type = opts.getSKFFactory().SKF_GetContainerType(lContainerHandle);
+            long type = cache.getContainerType(sContainerName);
             if(type != 2)
             {
                 String str = String.format("[JC_SKF]:The Container Type is not SM2");
@@ -254,9 +214,8 @@ public class ECImpl {
             }
 
             SKFCspKey.ECCPublicKeyBlob eccPublicKeyBlob =
-                    (SKFCspKey.ECCPublicKeyBlob)opts.getSKFFactory().SKF_ExportPublicKey(lContainerHandle, bSignFlag, true);
+                    (SKFCspKey.ECCPublicKeyBlob)cache.exportPublicKey(sContainerName, bSignFlag, true);
 
-            opts.getSKFFactory().SKF_CloseContainer(lContainerHandle);
             //der
             byte[] ecpoint = new byte[32*2+1];
             ecpoint[0] = 0x04;
@@ -277,6 +236,8 @@ public class ECImpl {
             return eccPublicCspKey;
 
         }catch(SarException ex) {
+            //the container handle or the login may no longer be valid, open and verify again on next use
+            opts.getContainerCache().failed(sContainerName, ex);
             ex.printStackTrace();
             String err = String.format("[JC_SKF]:SarException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrorCode(), ex.getMessage());
             csplog.setLogMsg(err, 2, ECImpl.class);
@@ -298,24 +259,15 @@ public class ECImpl {
             throws JavaChainException {
 
         try {
-            List<String> appNamesList = opts.getSKFFactory().SKF_EnumContainer(opts.getAppHandle());
-            boolean bFind = false;
-            long lContainerHandle = 0L;
-            for(String name : appNamesList) {
-                if(name.equals(sContainerName)) {
-                    bFind = true;
-                    //save container handle
-                    lContainerHandle = opts.getSKFFactory().SKF_OpenContainer(opts.getAppHandle(), sContainerName);
-                    break;
-                }
-            }
-            if(!bFind)
+            SKFContainerCache cache = opts.getContainerCache();
+            long lContainerHandle = cache.openContainer(sContainerName);
+            if(lContainerHandle == 0L)
             {
                 String str = String.format("[JC_SKF]:No Find The Container %s!", sContainerName);
                 csplog.setLogMsg(str, 2, ECImpl.class);
                 throw new JavaChainException(str);
             }
-            long type = opts.getSKFFactory().SKF_GetContainerType(lContainerHandle);
+            long type = cache.getContainerType(sContainerName);
             if(type != 2)
             {
                 String str = String.format("[JC_SKF]:The Container %s' Type is not SM2", sContainerName);
@@ -324,13 +276,61 @@ public class ECImpl {
             }
 
             SKFCspKey.ECCPublicKeyBlob eccPublicKeyBlob =
-                    (SKFCspKey.ECCPublicKeyBlob)opts.getSKFFactory().SKF_ExportPublicKey(lContainerHandle, bSignFlag, true);
+                    (SKFCspKey.ECCPublicKeyBlob)cache.exportPublicKey(sContainerName, bSignFlag, true);
             long lHashHandle = opts.getSKFFactory().SKF_DigestInit(opts.getDevHandle(), lAlgID, eccPublicKeyBlob, sPucID);
             byte[] hashData = opts.getSKFFactory().SKF_Digest(lHashHandle, msg, msg.length);
             opts.getSKFFactory().SKF_CloseHandle(lHashHandle);
-            opts.getSKFFactory().SKF_CloseContainer(lContainerHandle);
             return hashData;
         }catch(SarException ex) {
+            //the container handle or the login may no longer be valid, open and verify again on next use
+            opts.getContainerCache().failed(sContainerName, ex);
+            ex.printStackTrace();
+            String err = String.format("[JC_SKF]:SarException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrorCode(), ex.getMessage());
+            csplog.setLogMsg(err, 2, ECImpl.class);
+            throw new JavaChainException(err, ex.getCause());
+        }catch(JCSKFException ex) {
+            ex.printStackTrace();
+            String err = String.format("[JC_SKF]:JCSKFException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrCode(), ex.getMessage());
+            csplog.setLogMsg(err, 2, ECImpl.class);
+            throw new JavaChainException(err, ex.getCause());
+        }catch(Exception ex) {
+            ex.printStackTrace();
+            String err = String.format("[JC_SKF]:Exception ErrMessage: %s", ex.getMessage());
+            csplog.setLogMsg(err, 2, ECImpl.class);
+            throw new JavaChainException(err, ex.getCause());
+        }
+    }
+
+    /**
+     * Same digest as {@link #getHash}, but SM3(Z || M) is computed on the host so only the public key is read from
+     * the device.
+     */
+    public byte[] getHostHash(byte[] msg, String sContainerName, boolean bSignFlag, String sPucID, IGMT0016FactoryOpts opts)
+            throws JavaChainException {
+
+        try {
+            SKFContainerCache cache = opts.getContainerCache();
+            long lContainerHandle = cache.openContainer(sContainerName);
+            if(lContainerHandle == 0L)
+            {
+                String str = String.format("[JC_SKF]:No Find The Container %s!", sContainerName);
+                csplog.setLogMsg(str, 2, ECImpl.class);
+                throw new JavaChainException(str);
+            }
+            long type = cache.getContainerType(sContainerName);
+            if(type != 2)
+            {
+                String str = String.format("[JC_SKF]:The Container %s' Type is not SM2", sContainerName);
+                csplog.setLogMsg(str, 2, ECImpl.class);
+                throw new JavaChainException(str);
+            }
+
+            SKFCspKey.ECCPublicKeyBlob eccPublicKeyBlob =
+                    (SKFCspKey.ECCPublicKeyBlob)cache.exportPublicKey(sContainerName, bSignFlag, true);
+            return SM3PreHash.hash(msg, eccPublicKeyBlob, sPucID);
+        }catch(SarException ex) {
+            //the container handle or the login may no longer be valid, open and verify again on next use
+            opts.getContainerCache().failed(sContainerName, ex);
             ex.printStackTrace();
             String err = String.format("[JC_SKF]:SarException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrorCode(), ex.getMessage());
             csplog.setLogMsg(err, 2, ECImpl.class);
@@ -353,40 +353,33 @@ public class ECImpl {
 
     public byte[] getECSign(byte[] digest, String sContainerName, IGMT0016FactoryOpts opts) throws JavaChainException{
         try {
-            List<String> appNamesList = opts.getSKFFactory().SKF_EnumContainer(opts.getAppHandle());
-            boolean bFind = false;
-
-            long lContainerHandle = 0L;
-            for(String name : appNamesList) {
-                if(name.equals(sContainerName)) {
-                    bFind = true;
-                    //save container handle
-                    lContainerHandle = opts.getSKFFactory().SKF_OpenContainer(opts.getAppHandle(), sContainerName);
-                    break;
-                }
-            }
-            if(!bFind)
+            SKFContainerCache cache = opts.getContainerCache();
+            long lContainerHandle = cache.openContainer(sContainerName);
+            if(lContainerHandle == 0L)
             {
                 String str = String.format("[JC_SKF]:No Find The Container %s!", sContainerName);
                 csplog.setLogMsg(str, 2, ECImpl.class);
                 throw new JavaChainException(str);
             }
-            long type = opts.getSKFFactory().SKF_GetContainerType(lContainerHandle);
+            long type = cache.getContainerType(sContainerName);
             if(type != 2)
             {
                 String str = String.format("[JC_SKF]:The Container %s' Type is not SM2", sContainerName);
                 csplog.setLogMsg(str, 2, ECImpl.class);
                 throw new JavaChainException(str);
             }
+            cache.verifyPIN();
             byte[] hashdata =  opts.getSKFFactory().SKF_ECCSignData(lContainerHandle, digest, digest.length);
-            opts.getSKFFactory().SKF_CloseContainer(lContainerHandle);
             return  hashdata;
 
         }catch(SarException ex) {
+            //the container handle or the login may no longer be valid, open and verify again on next use
+            opts.getContainerCache().failed(sContainerName, ex);
             ex.printStackTrace();
             String err = String.format("[JC_SKF]:SarException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrorCode(), ex.getMessage());
             csplog.setLogMsg(err, 2, ECImpl.class);
-            throw new JavaChainException(err, ex.getCause());
+            //keep the error code for the device pool to tell request errors from device errors
+            throw new JavaChainException(err, ex);
         }catch(JCSKFException ex) {
             ex.printStackTrace();
             String err = String.format("[JC_SKF]:JCSKFException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrCode(), ex.getMessage());
@@ -402,25 +395,15 @@ public class ECImpl {
 
     public boolean getECverify(byte[] signature, byte[] digest, String sContainerName, IGMT0016FactoryOpts opts) throws JavaChainException{
         try {
-            List<String> appNamesList = opts.getSKFFactory().SKF_EnumContainer(opts.getAppHandle());
-            boolean bFind = false;
-
-            long lContainerHandle = 0L;
-            for(String name : appNamesList) {
-                if(name.equals(sContainerName)) {
-                    bFind = true;
-                    //save container handle
-                    lContainerHandle = opts.getSKFFactory().SKF_OpenContainer(opts.getAppHandle(), sContainerName);
-                    break;
-                }
-            }
-            if(!bFind)
+            SKFContainerCache cache = opts.getContainerCache();
+            long lContainerHandle = cache.openContainer(sContainerName);
+            if(lContainerHandle == 0L)
             {
                 String str = String.format("[JC_SKF]:No Find The Container %s!", sContainerName);
                 csplog.setLogMsg(str, 2, ECImpl.class);
                 throw new JavaChainException(str);
             }
-            long type = opts.getSKFFactory().SKF_GetContainerType(lContainerHandle);
+            long type = cache.getContainerType(sContainerName);
             if(type != 2)
             {
                 String str = String.format("[JC_SKF]:The Container %s' Type is not SM2", sContainerName);
@@ -428,11 +411,12 @@ public class ECImpl {
                 throw new JavaChainException(str);
             }
             SKFCspKey.ECCPublicKeyBlob eccPublicKeyBlob =
-                    (SKFCspKey.ECCPublicKeyBlob)opts.getSKFFactory().SKF_ExportPublicKey(lContainerHandle, true, true);
+                    (SKFCspKey.ECCPublicKeyBlob)cache.exportPublicKey(sContainerName, true, true);
             boolean rv = opts.getSKFFactory().SKF_ECCVerify(opts.getDevHandle(), eccPublicKeyBlob, digest, digest.length, signature);
-            opts.getSKFFactory().SKF_CloseContainer(lContainerHandle);
             return rv;
         }catch(SarException ex) {
+            //the container handle or the login may no longer be valid, open and verify again on next use
+            opts.getContainerCache().failed(sContainerName, ex);
             ex.printStackTrace();
             String err = String.format("[JC_SKF]:SarException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrorCode(), ex.getMessage());
             csplog.setLogMsg(err, 2, ECImpl.class);
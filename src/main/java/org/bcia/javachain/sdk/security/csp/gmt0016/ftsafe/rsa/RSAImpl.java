@@ -17,6 +17,7 @@ package org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.rsa;
 
 import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.GMT0016CspLog;
 import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.IGMT0016FactoryOpts;
+import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.SKFContainerCache;
 import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.util.BlockCipherParam;
 import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.util.DataUtil;
 import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.util.GMT0016CspKey;
@@ -32,7 +33,6 @@ import java.math.BigInteger;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.List;
 
 import static org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.GMT0016CspConstant.*;
 
@@ -50,41 +50,16 @@ public class RSAImpl {
     public IKey generateRSAKey(String sContainerName, long lBits, IGMT0016FactoryOpts opts) throws JavaChainException {
 
         try {
-            opts.getSKFFactory().SKF_VerifyPIN(opts.getAppHandle(), USER_TYPE, opts.getUserPin());
-            List<String> appNamesList = null;
-            try {
-                appNamesList = opts.getSKFFactory().SKF_EnumContainer(opts.getAppHandle());
-            }catch(JCSKFException ex) {
-                if (ex.getErrCode() == JCSKFException.JC_SKF_NOCONTAINER)
-                {
-                    String info = "No container! Need create first!";
-                    csplog.setLogMsg(info, 0, RSAImpl.class);
-                }
-                else {
-                    String err = String.format("[JC_SKF]:JCSKFException ErrMessage: %s", ex.getMessage());
-                    csplog.setLogMsg(err, 2, RSAImpl.class);
-                    throw new JavaChainException(err, ex.getCause());
-                }
-            }
-
-            boolean bFind = false;
-            long lHandleContainer = 0L;
-            if (appNamesList != null && !appNamesList.isEmpty()) {
-                for(String name : appNamesList) {
-                    if(name.equals(sContainerName)) {
-                        bFind = true;
-                        //save container handle
-                        lHandleContainer = opts.getSKFFactory().SKF_OpenContainer(opts.getAppHandle(), sContainerName);
-                        break;
-                    }
-                }
-            }
-            if(!bFind)
+            SKFContainerCache cache = opts.getContainerCache();
+            cache.verifyPIN();
+            long lHandleContainer = cache.openContainer(sContainerName);
+            if(lHandleContainer == 0L)
             {
-                //create container and save handle
-                lHandleContainer = opts.getSKFFactory().SKF_CreateContainer(opts.getAppHandle(), sContainerName);
+                //create container handle
+                lHandleContainer = cache.createContainer(sContainerName);
             }
             SKFCspKey.RSAPublicKeyBlob rsaPublicKeyBlob = opts.getSKFFactory().SKF_GenRSAKeyPair(lHandleContainer, lBits);
+            cache.keysChanged(sContainerName);
 
             //public key der
             byte[] pubder =  getPublicDer(rsaPublicKeyBlob.getModulus(), rsaPublicKeyBlob.getPublicExponent());
@@ -95,12 +70,12 @@ public class RSAImpl {
             //param3 : encrypt 0 sign 1
             byte[] skiData = getKeySki(1, sContainerName.getBytes(), 1, PublicHash);
 
-            opts.getSKFFactory().SKF_CloseContainer(lHandleContainer);
-
             GMT0016CspKey.RSAPublicCspKey rsaPublicCspKey = new GMT0016CspKey.RSAPublicCspKey(skiData,  pubder);
             return rsaPublicCspKey;
 
         }catch(SarException ex) {
+            //the container handle or the login may no longer be valid, open and verify again on next use
+            opts.getContainerCache().failed(sContainerName, ex);
             ex.printStackTrace();
             String err = String.format("[JC_SKF]:SarException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrorCode(), ex.getMessage());
             csplog.setLogMsg(err, 2, RSAImpl.class);
@@ -137,26 +112,17 @@ public class RSAImpl {
     public IKey importRSAKey(long algid, byte[] derPublicKey, byte[] derPrivateKey,
                              String sContainerName, IGMT0016FactoryOpts opts) throws JavaChainException {
         try {
-            opts.getSKFFactory().SKF_VerifyPIN(opts.getAppHandle(), USER_TYPE, opts.getUserPin());
-            List<String> appNamesList = opts.getSKFFactory().SKF_EnumContainer(opts.getAppHandle());
-            boolean bFind = false;
-            long lContainerHandle = 0L;
-            for(String name : appNamesList) {
-                if(name.equals(sContainerName)) {
-                    bFind = true;
-                    //save container handle
-                    lContainerHandle = opts.getSKFFactory().SKF_OpenContainer(opts.getAppHandle(), sContainerName);
-                    break;
-                }
-            }
-            if(!bFind)
+            SKFContainerCache cache = opts.getContainerCache();
+            cache.verifyPIN();
+            long lContainerHandle = cache.openContainer(sContainerName);
+            if(lContainerHandle == 0L)
             {
                 String str = String.format("[JC_SKF]:No Find The Container %s!", sContainerName);
                 csplog.setLogMsg(str, 2, RSAImpl.class);
                 throw new JavaChainException(str);
             }
 
-            long type = opts.getSKFFactory().SKF_GetContainerType(lContainerHandle);
+            long type = cache.getContainerType(sContainerName);
             if(type != 1)
             {
                 String str = String.format("[JC_SKF]:The Container is not RSA!");
@@ -165,7 +131,7 @@ public class RSAImpl {
             }
 
             SKFCspKey.RSAPublicKeyBlob publicKeyBlob =
-                    (SKFCspKey.RSAPublicKeyBlob)opts.getSKFFactory().SKF_ExportPublicKey(lContainerHandle, true, false);
+                    (SKFCspKey.RSAPublicKeyBlob)cache.exportPublicKey(sContainerName, true, false);
             //gen session key
 /*
 			long[] lDataLen = new long[1];
@@ -187,11 +153,10 @@ public class RSAImpl {
             opts.getSKFFactory().SKF_CloseHandle(lSessionHandle);
             //import encrypt key
             opts.getSKFFactory().SKF_ImportRSAKeyPair(lContainerHandle, algid, data, data.length, encdata, encdata.length);
+            cache.keysChanged(sContainerName);
             //export encrypt public key
             SKFCspKey.RSAPublicKeyBlob KeyBlob =
-                    (SKFCspKey.RSAPublicKeyBlob)opts.getSKFFactory().SKF_ExportPublicKey(lContainerHandle, false, false);
-
-            opts.getSKFFactory().SKF_CloseContainer(lContainerHandle);
+                    (SKFCspKey.RSAPublicKeyBlob)cache.exportPublicKey(sContainerName, false, false);
             //public key der
             byte[] pubder =  getPublicDer(KeyBlob.getModulus(), KeyBlob.getPublicExponent());
             if(!compereByteArray(pubder, derPublicKey))
@@ -210,6 +175,8 @@ public class RSAImpl {
             return rsaPublicCspKey;
 
         }catch(SarException ex) {
+            //the container handle or the login may no longer be valid, open and verify again on next use
+            opts.getContainerCache().failed(sContainerName, ex);
             ex.printStackTrace();
             String err = String.format("[JC_SKF]:SarException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrorCode(), ex.getMessage());
             csplog.setLogMsg(err, 2, RSAImpl.class);
@@ -244,35 +211,23 @@ public class RSAImpl {
 
     public IKey getRSAKey(String sContainerName, boolean bSignFlag, IGMT0016FactoryOpts opts) throws JavaChainException {
         try {
-            List<String> appNamesList = opts.getSKFFactory().SKF_EnumContainer(opts.getAppHandle());
-            boolean bFind = false;
-
-            long lContainerHandle = 0L;
-            for(String name : appNamesList) {
-                if(name.equals(sContainerName)) {
-                    bFind = true;
-                    //open container
-                    lContainerHandle = opts.getSKFFactory().SKF_OpenContainer(opts.getAppHandle(), sContainerName);
-                    break;
-                }
-            }
-            if(!bFind)
+            SKFContainerCache cache = opts.getContainerCache();
+            long lContainerHandle = cache.openContainer(sContainerName);
+            if(lContainerHandle == 0L)
             {
                 String str = String.format("[JC_SKF]:No Find The Container %s!", sContainerName);
                 csplog.setLogMsg(str, 1, RSAImpl.class);
                 return null;
             }
-            long type = opts.getSKFFactory().SKF_GetContainerType(lContainerHandle);
+            long type = cache.getContainerType(sContainerName);
             if(type != 1)
             {
                 String str = String.format("[JC_SKF]:The Container %s' Type is not RSA", sContainerName);
                 csplog.setLogMsg(str, 1, RSAImpl.class);
                 return null;
             }
-            SKFCspKey.RSAPublicKeyBlob publicKeyBlob = (SKFCspKey.RSAPublicKeyBlob)opts.getSKFFactory().SKF_ExportPublicKey(
-                    lContainerHandle, bSignFlag, false);
-
-            opts.getSKFFactory().SKF_CloseContainer(lContainerHandle);
+            SKFCspKey.RSAPublicKeyBlob publicKeyBlob =
+                    (SKFCspKey.RSAPublicKeyBlob)cache.exportPublicKey(sContainerName, bSignFlag, false);
 
             //public key der
             byte[] pubder =  getPublicDer(publicKeyBlob.getModulus(), publicKeyBlob.getPublicExponent());
@@ -286,6 +241,8 @@ public class RSAImpl {
             return rsaPublicCspKey;
 
         }catch(SarException ex) {
+            //the container handle or the login may no longer be valid, open and verify again on next use
+            opts.getContainerCache().failed(sContainerName, ex);
             ex.printStackTrace();
             String err = String.format("[JC_SKF]:SarException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrorCode(), ex.getMessage());
             csplog.setLogMsg(err, 2, RSAImpl.class);
@@ -321,23 +278,15 @@ public class RSAImpl {
 
     public byte[] getRSASign(byte[] digest, String sContainerName, IGMT0016FactoryOpts opts) throws JavaChainException {
         try {
-            List<String> appNamesList = opts.getSKFFactory().SKF_EnumContainer(opts.getAppHandle());
-            boolean bFind = false;
-            long lContainerHandle = 0L;
-            for(String name : appNamesList) {
-                if(name.equals(sContainerName)) {
-                    bFind = true;
-                    lContainerHandle = opts.getSKFFactory().SKF_OpenContainer(opts.getAppHandle(), sContainerName);
-                    break;
-                }
-            }
-            if(!bFind)
+            SKFContainerCache cache = opts.getContainerCache();
+            long lContainerHandle = cache.openContainer(sContainerName);
+            if(lContainerHandle == 0L)
             {
                 String str = String.format("[JC_SKF]:No Find The Container %s!", sContainerName);
                 csplog.setLogMsg(str, 2, RSAImpl.class);
                 throw new JavaChainException(str);
             }
-            long type = opts.getSKFFactory().SKF_GetContainerType(lContainerHandle);
+            long type = cache.getContainerType(sContainerName);
             if(type != 1)
             {
                 String str = String.format("[JC_SKF]:The Container %s' Type is not RSA", sContainerName);
@@ -345,10 +294,12 @@ public class RSAImpl {
                 throw new JavaChainException(str);
             }
 
+            cache.verifyPIN();
             byte[] signature = opts.getSKFFactory().SKF_RSASignData(lContainerHandle, digest, digest.length);
-            opts.getSKFFactory().SKF_CloseContainer(lContainerHandle);
             return signature;
         }catch(SarException ex) {
+            //the container handle or the login may no longer be valid, open and verify again on next use
+            opts.getContainerCache().failed(sContainerName, ex);
             ex.printStackTrace();
             String err = String.format("[JC_SKF]:SarException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrorCode(), ex.getMessage());
             csplog.setLogMsg(err, 2, RSAImpl.class);
@@ -365,23 +316,15 @@ public class RSAImpl {
             throws JavaChainException{
 
         try {
-            List<String> appNamesList = opts.getSKFFactory().SKF_EnumContainer(opts.getAppHandle());
-            boolean bFind = false;
-            long lContainerHandle = 0L;
-            for(String name : appNamesList) {
-                if(name.equals(sContainerName)) {
-                    bFind = true;
-                    lContainerHandle = opts.getSKFFactory().SKF_OpenContainer(opts.getAppHandle(), sContainerName);
-                    break;
-                }
-            }
-            if(!bFind)
+            SKFContainerCache cache = opts.getContainerCache();
+            long lContainerHandle = cache.openContainer(sContainerName);
+            if(lContainerHandle == 0L)
             {
                 String str = String.format("[JC_SKF]:No Find The Container %s!", sContainerName);
                 csplog.setLogMsg(str, 2, RSAImpl.class);
                 throw new JavaChainException(str);
             }
-            long type = opts.getSKFFactory().SKF_GetContainerType(lContainerHandle);
+            long type = cache.getContainerType(sContainerName);
             if(type != 1)
             {
                 String str = String.format("[JC_SKF]:The Container %s' Type is not RSA", sContainerName);
@@ -389,15 +332,15 @@ public class RSAImpl {
                 throw new JavaChainException(str);
             }
 
-            SKFCspKey.RSAPublicKeyBlob publicKeyBlob = (SKFCspKey.RSAPublicKeyBlob)opts.getSKFFactory().SKF_ExportPublicKey(
-                    lContainerHandle, true, false);
-
-            opts.getSKFFactory().SKF_CloseContainer(lContainerHandle);
+            SKFCspKey.RSAPublicKeyBlob publicKeyBlob =
+                    (SKFCspKey.RSAPublicKeyBlob)cache.exportPublicKey(sContainerName, true, false);
 
             boolean rv = opts.getSKFFactory().SKF_RSAVerify(opts.getDevHandle(), publicKeyBlob, digest, signature);
             return rv;
 
         }catch(SarException ex) {
+            //the container handle or the login may no longer be valid, open and verify again on next use
+            opts.getContainerCache().failed(sContainerName, ex);
             ex.printStackTrace();
             String err = String.format("[JC_SKF]:SarException ErrCode: 0x%08x, ErrMessage: %s", ex.getErrorCode(), ex.getMessage());
             csplog.setLogMsg(err, 2, RSAImpl.class);
@@ -31,6 +31,8 @@ public class GMHashOpts {
 
         private byte[] ski;
         private String pubID;
+        //compute SM3(Z || M) on the host instead of on the device
+        private boolean bHostHash = false;
 
         @Override
         public void setSki(byte[] ski) {
@@ -41,6 +43,14 @@ public class GMHashOpts {
             this.pubID = pubid;
         }
 
+        public void setHostHash(boolean bHostHash) {
+            this.bHostHash = bHostHash;
+        }
+
+        public boolean isHostHash() {
+            return bHostHash;
+        }
+
         @Override
         public String getAlgorithm() {
             return GMT0016CspConstant.SM3;
@@ -0,0 +1,93 @@
+/**
+ * Copyright Feitian. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.util;
+
+import org.bouncycastle.crypto.digests.SM3Digest;
+import org.bouncycastle.util.encoders.Hex;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * SM3 pre-hash of SM2 signatures computed on the host: SM3(Z || M), Z = SM3(ENTL || ID || a || b || xG || yG || xA || yA).
+ * <p>
+ * Gives the same digest as SKF_DigestInit with a public key and user ID, without sending the message to the device.
+ */
+public class SM3PreHash {
+
+    //default user ID of GM/T 0009
+    public static final String DEFAULT_USER_ID = "1234567812345678";
+
+    private static final int COORDINATE_LEN = 32;
+
+    //sm2p256v1 a || b || xG || yG
+    private static final byte[] CURVE_PARAMS = Hex.decode(
+            "FFFFFFFEFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF00000000FFFFFFFFFFFFFFFC" +
+            "28E9FA9E9D9F5E344D5A9E4BCF6509A7F39789F515AB8F92DDBCBD414D940E93" +
+            "32C4AE2C1F1981195F9904466A39C9948FE30BBFF2660BE1715A4589334C74C7" +
+            "BC3736A2F4F6779C59BDCEE36B692153D0A9877CC62A474002DF32E52139F0A0");
+
+    /**
+     * @param eccPublicKeyBlob public key of the signer, coordinates right aligned
+     * @param sUserID user ID, the default ID if null or empty
+     * @return Z value of the signer
+     */
+    public static byte[] getZ(SKFCspKey.ECCPublicKeyBlob eccPublicKeyBlob, String sUserID) {
+        byte[] userID = (sUserID == null || sUserID.isEmpty() ? DEFAULT_USER_ID : sUserID)
+                .getBytes(StandardCharsets.UTF_8);
+        int entl = userID.length * 8;
+
+        SM3Digest sm3 = new SM3Digest();
+        sm3.update((byte) (entl >> 8));
+        sm3.update((byte) entl);
+        sm3.update(userID, 0, userID.length);
+        sm3.update(CURVE_PARAMS, 0, CURVE_PARAMS.length);
+        updateCoordinate(sm3, eccPublicKeyBlob.getxCoordinate());
+        updateCoordinate(sm3, eccPublicKeyBlob.getyCoordinate());
+        byte[] z = new byte[sm3.getDigestSize()];
+        sm3.doFinal(z, 0);
+        return z;
+    }
+
+    /**
+     * @param z Z value of the signer, see {@link #getZ(SKFCspKey.ECCPublicKeyBlob, String)}
+     * @param msg message to sign
+     * @return SM3(Z || M)
+     */
+    public static byte[] hash(byte[] z, byte[] msg) {
+        SM3Digest sm3 = new SM3Digest();
+        sm3.update(z, 0, z.length);
+        sm3.update(msg, 0, msg.length);
+        byte[] e = new byte[sm3.getDigestSize()];
+        sm3.doFinal(e, 0);
+        return e;
+    }
+
+    public static byte[] hash(byte[] msg, SKFCspKey.ECCPublicKeyBlob eccPublicKeyBlob, String sUserID) {
+        return hash(getZ(eccPublicKeyBlob, sUserID), msg);
+    }
+
+    //the blob may hold a 64 byte coordinate, the value is in the low 32 bytes
+    private static void updateCoordinate(SM3Digest sm3, byte[] coordinate) {
+        if (coordinate.length >= COORDINATE_LEN) {
+            sm3.update(coordinate, coordinate.length - COORDINATE_LEN, COORDINATE_LEN);
+        } else {
+            for (int i = coordinate.length; i < COORDINATE_LEN; i++) {
+                sm3.update((byte) 0);
+            }
+            sm3.update(coordinate, 0, coordinate.length);
+        }
+    }
+}
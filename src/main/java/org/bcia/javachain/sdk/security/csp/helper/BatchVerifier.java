@@ -0,0 +1,141 @@
+/**
+ * Copyright BCIA. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk.security.csp.helper;
+
+import org.bcia.javachain.common.exception.JavaChainException;
+import org.bcia.javachain.sdk.common.log.JavaChainLog;
+import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
+import org.bcia.javachain.sdk.security.csp.intfs.ICsp;
+import org.bcia.javachain.sdk.security.csp.intfs.VerifyRequest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量验签,在ForkJoin线程池中并行调用ICsp.verify
+ * 有效签名数达到阈值后,尚未开始的验签不再执行,其结果为null
+ */
+public class BatchVerifier {
+    private static JavaChainLog log = JavaChainLogFactory.getLog(BatchVerifier.class);
+
+    /**
+     * 每个任务最少处理的请求数,少于该值时不再拆分
+     */
+    private static final int MIN_SPLIT = 1;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private BatchVerifier() {
+    }
+
+    /**
+     * 逐个验签
+     *
+     * @param csp       执行验签的csp
+     * @param requests  验签请求
+     * @param threshold 有效签名数达到该值后停止,小于1表示全部验证
+     * @return 与请求一一对应的结果,未验证的为null
+     */
+    public static List<Boolean> verifySequential(ICsp csp, List<VerifyRequest> requests, int threshold) {
+        Boolean[] results = new Boolean[requests.size()];
+        int valid = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (threshold > 0 && valid >= threshold) {
+                break;
+            }
+            results[i] = verify(csp, requests.get(i));
+            if (results[i]) {
+                valid++;
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 并行验签
+     *
+     * @param csp       执行验签的csp,其verify必须是线程安全的
+     * @param requests  验签请求
+     * @param threshold 有效签名数达到该值后停止,小于1表示全部验证
+     * @return 与请求一一对应的结果,未验证的为null
+     */
+    public static List<Boolean> verifyParallel(ICsp csp, List<VerifyRequest> requests, int threshold) {
+        if (requests.size() <= 1) {
+            return verifySequential(csp, requests, threshold);
+        }
+        Boolean[] results = new Boolean[requests.size()];
+        VerifyTask task = new VerifyTask(csp, requests, results, threshold, new AtomicInteger(), 0, results.length);
+        if (ForkJoinPool.getPool() == POOL) {
+            //已在池中执行(例如嵌套调用),直接在当前任务中拆分
+            task.invoke();
+        } else {
+            POOL.invoke(task);
+        }
+        return Arrays.asList(results);
+    }
+
+    private static boolean verify(ICsp csp, VerifyRequest request) {
+        try {
+            return csp.verify(request.getKey(), request.getSignature(), request.getDigest(), request.getOpts());
+        } catch (JavaChainException | RuntimeException e) {
+            log.warn("Verify failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static class VerifyTask extends RecursiveAction {
+        private final ICsp csp;
+        private final List<VerifyRequest> requests;
+        private final Boolean[] results;
+        private final int threshold;
+        private final AtomicInteger valid;
+        private final int from;
+        private final int to;
+
+        VerifyTask(ICsp csp, List<VerifyRequest> requests, Boolean[] results, int threshold, AtomicInteger valid,
+                   int from, int to) {
+            this.csp = csp;
+            this.requests = requests;
+            this.results = results;
+            this.threshold = threshold;
+            this.valid = valid;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > MIN_SPLIT) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new VerifyTask(csp, requests, results, threshold, valid, from, mid),
+                        new VerifyTask(csp, requests, results, threshold, valid, mid, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                if (threshold > 0 && valid.get() >= threshold) {
+                    return;
+                }
+                results[i] = verify(csp, requests.get(i));
+                if (results[i]) {
+                    valid.incrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -16,9 +16,12 @@ package org.bcia.javachain.sdk.security.csp.intfs;
  * limitations under the License.
  */
 
+import org.bcia.javachain.sdk.security.csp.helper.BatchVerifier;
 import org.bcia.javachain.sdk.security.csp.intfs.opts.*;
 import org.bcia.javachain.common.exception.JavaChainException;
 
+import java.util.List;
+
 /**
  * @author zhanglin
  * @purpose Define the interface, ICsp, and list its elements
@@ -58,6 +61,19 @@ public interface ICsp {
     // to the opts whose type is the ISignerOpts. Note that it is ISignerOpts definitely.
     boolean verify(IKey k, byte[] signature, byte[] digest, ISignerOpts opts) throws JavaChainException;
 
+    // The verifyBatch checks the signatures of the requests. The result at index i belongs to requests[i]:
+    // TRUE if valid, FALSE if invalid or the verify failed, and null if it was skipped because threshold
+    // valid signatures had already been found. A threshold less than 1 checks every request.
+    // The default checks one request after another; implementations with a thread safe verify run them in parallel.
+    default List<Boolean> verifyBatch(List<VerifyRequest> requests, int threshold) throws JavaChainException {
+        return BatchVerifier.verifySequential(this, requests, threshold);
+    }
+
+    // The verifyBatch checks the signatures of all requests.
+    default List<Boolean> verifyBatch(List<VerifyRequest> requests) throws JavaChainException {
+        return verifyBatch(requests, 0);
+    }
+
     // The encrypt computes a ciphertext from the plaintext using key k, according to the opts
     // whose type is IEncrypterOpts.
     // The opts should consist of a symmetric encryption algorithm and an appropriate block-cipher mode.
@@ -0,0 +1,49 @@
+/**
+ * Copyright BCIA. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk.security.csp.intfs;
+
+import org.bcia.javachain.sdk.security.csp.intfs.opts.ISignerOpts;
+
+// VerifyRequest holds the arguments of one ICsp.verify call, one item of ICsp.verifyBatch.
+public class VerifyRequest {
+    private final IKey key;
+    private final byte[] signature;
+    private final byte[] digest;
+    private final ISignerOpts opts;
+
+    public VerifyRequest(IKey key, byte[] signature, byte[] digest, ISignerOpts opts) {
+        this.key = key;
+        this.signature = signature;
+        this.digest = digest;
+        this.opts = opts;
+    }
+
+    public IKey getKey() {
+        return key;
+    }
+
+    public byte[] getSignature() {
+        return signature;
+    }
+
+    public byte[] getDigest() {
+        return digest;
+    }
+
+    public ISignerOpts getOpts() {
+        return opts;
+    }
+}
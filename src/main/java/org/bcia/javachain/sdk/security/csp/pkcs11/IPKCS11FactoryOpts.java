@@ -31,9 +31,12 @@ public interface IPKCS11FactoryOpts extends IFactoryOpts {
     // get pkcs11
     public PKCS11 getPKCS11();
 
-    // get session handle
+    // get session handle, the session checked out by the current thread if any
     public long getSessionhandle();
 
+    // get session pool, null if no token is opened
+    public PKCS11SessionPool getSessionPool();
+
     // get soft verify flag
     public boolean getSoftVerify();
 
@@ -50,6 +50,21 @@ public class PKCS11Csp implements IPKCS11Csp {
         this.PKCS11FactoryOpts=PKCS11FactoryOpts;
     }
 
+    //each operation runs on a session of its own, nested calls share it
+    private void acquireSession() throws JavaChainException {
+        PKCS11SessionPool pool = PKCS11FactoryOpts.getSessionPool();
+        if (pool != null) {
+            pool.acquire();
+        }
+    }
+
+    private void releaseSession() {
+        PKCS11SessionPool pool = PKCS11FactoryOpts.getSessionPool();
+        if (pool != null) {
+            pool.release();
+        }
+    }
+
     @Override
     public void finalized() throws JavaChainException {
         
@@ -58,6 +73,15 @@ public class PKCS11Csp implements IPKCS11Csp {
 
     @Override
     public IKey keyGen(IKeyGenOpts opts) throws JavaChainException {
+        acquireSession();
+        try {
+            return keyGenInSession(opts);
+        } finally {
+            releaseSession();
+        }
+    }
+
+    private IKey keyGenInSession(IKeyGenOpts opts) throws JavaChainException {
         if (opts == null) {
             csplog.setLogMsg("[JC_PKCS]:KeyGen Param Err!", 2, PKCS11Csp.class);
         	throw new JavaChainException("[JC_PKCS]:Param Err!");
@@ -140,6 +164,15 @@ public class PKCS11Csp implements IPKCS11Csp {
 
     @Override
     public IKey keyDeriv(IKey key, IKeyDerivOpts opts) throws JavaChainException {
+        acquireSession();
+        try {
+            return keyDerivInSession(key, opts);
+        } finally {
+            releaseSession();
+        }
+    }
+
+    private IKey keyDerivInSession(IKey key, IKeyDerivOpts opts) throws JavaChainException {
     	
     	if(key instanceof EcdsaKeyOpts.EcdsaPubKey)
     	{
@@ -227,6 +260,15 @@ public class PKCS11Csp implements IPKCS11Csp {
 
     @Override
     public IKey keyImport(Object raw, IKeyImportOpts opts) throws JavaChainException {
+        acquireSession();
+        try {
+            return keyImportInSession(raw, opts);
+        } finally {
+            releaseSession();
+        }
+    }
+
+    private IKey keyImportInSession(Object raw, IKeyImportOpts opts) throws JavaChainException {
 
         if(raw == null || opts == null)
         {
@@ -285,6 +327,15 @@ public class PKCS11Csp implements IPKCS11Csp {
 
     @Override
     public IKey getKey(byte[] ski) throws JavaChainException {
+        acquireSession();
+        try {
+            return getKeyInSession(ski);
+        } finally {
+            releaseSession();
+        }
+    }
+
+    private IKey getKeyInSession(byte[] ski) throws JavaChainException {
         IKey key = null;
 
         if(ski.length <= 0)
@@ -319,6 +370,15 @@ public class PKCS11Csp implements IPKCS11Csp {
 
     @Override
     public byte[] hash(byte[] msg, IHashOpts opts) throws JavaChainException {
+        acquireSession();
+        try {
+            return hashInSession(msg, opts);
+        } finally {
+            releaseSession();
+        }
+    }
+
+    private byte[] hashInSession(byte[] msg, IHashOpts opts) throws JavaChainException {
         if(opts == null || msg == null)
         {
             csplog.setLogMsg("The Param Error!", 2, PKCS11Csp.class);
@@ -415,6 +475,15 @@ public class PKCS11Csp implements IPKCS11Csp {
 
     @Override
     public byte[] sign(IKey key, byte[] digest, ISignerOpts opts) throws JavaChainException {
+        acquireSession();
+        try {
+            return signInSession(key, digest, opts);
+        } finally {
+            releaseSession();
+        }
+    }
+
+    private byte[] signInSession(IKey key, byte[] digest, ISignerOpts opts) throws JavaChainException {
         if(opts == null)
         {
             csplog.setLogMsg("The Param For Sign is Error!", 2, PKCS11Csp.class);
@@ -451,6 +520,15 @@ public class PKCS11Csp implements IPKCS11Csp {
 
     @Override
     public boolean verify(IKey key, byte[] signature, byte[] digest, ISignerOpts opts) throws JavaChainException {
+        acquireSession();
+        try {
+            return verifyInSession(key, signature, digest, opts);
+        } finally {
+            releaseSession();
+        }
+    }
+
+    private boolean verifyInSession(IKey key, byte[] signature, byte[] digest, ISignerOpts opts) throws JavaChainException {
         if(opts == null)
         {
             csplog.setLogMsg("The Param For Verify is Error!", 2, PKCS11Csp.class);
@@ -484,6 +562,15 @@ public class PKCS11Csp implements IPKCS11Csp {
 
     @Override
     public byte[] encrypt(IKey key, byte[] plaintext, IEncrypterOpts opts) throws JavaChainException {
+        acquireSession();
+        try {
+            return encryptInSession(key, plaintext, opts);
+        } finally {
+            releaseSession();
+        }
+    }
+
+    private byte[] encryptInSession(IKey key, byte[] plaintext, IEncrypterOpts opts) throws JavaChainException {
         if(opts == null)
         {
         	csplog.setLogMsg("The Param For Encrypt is Error!", 2, PKCS11Csp.class);
@@ -515,6 +602,15 @@ public class PKCS11Csp implements IPKCS11Csp {
 
     @Override
     public byte[] decrypt(IKey key, byte[] ciphertext, IDecrypterOpts opts) throws JavaChainException {
+        acquireSession();
+        try {
+            return decryptInSession(key, ciphertext, opts);
+        } finally {
+            releaseSession();
+        }
+    }
+
+    private byte[] decryptInSession(IKey key, byte[] ciphertext, IDecrypterOpts opts) throws JavaChainException {
         if(opts == null)
         {
             csplog.setLogMsg("The Param For Decrypt is Error!", 2, PKCS11Csp.class);
@@ -545,6 +641,15 @@ public class PKCS11Csp implements IPKCS11Csp {
 
     @Override
     public byte[] rng(int len, IRngOpts opts) throws JavaChainException {
+        acquireSession();
+        try {
+            return rngInSession(len, opts);
+        } finally {
+            releaseSession();
+        }
+    }
+
+    private byte[] rngInSession(int len, IRngOpts opts) throws JavaChainException {
         //byte[] none=new SecureRandom().engineGenerateSeed(len);
         //return none;
     	try {
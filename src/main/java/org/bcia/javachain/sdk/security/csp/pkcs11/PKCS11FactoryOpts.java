@@ -40,6 +40,7 @@ public class PKCS11FactoryOpts implements IPKCS11FactoryOpts, IPKCS11SwFactoryOp
     private boolean bUseEcX963Encodeing;
 
     private long sessionhandle;
+    private PKCS11SessionPool sessionPool;
     private PKCS11 p11;
     private long slot;
     private char[] pin;
@@ -110,6 +111,7 @@ public class PKCS11FactoryOpts implements IPKCS11FactoryOpts, IPKCS11SwFactoryOp
                 throw new JavaChainException(err, ex.getCause());
             }
         }
+        sessionPool = new PKCS11SessionPool(p11, slot, sessionhandle, true, pin, pkcsConf.getSessionPoolSize());
     }
 
 
@@ -117,6 +119,9 @@ public class PKCS11FactoryOpts implements IPKCS11FactoryOpts, IPKCS11SwFactoryOp
     @Override
     public void optFinalized() throws JavaChainException{
         try {
+            if (sessionPool != null) {
+                sessionPool.close();
+            }
             p11.C_CloseSession(sessionhandle);
         }
         catch (PKCS11Exception ex){
@@ -147,7 +152,12 @@ public class PKCS11FactoryOpts implements IPKCS11FactoryOpts, IPKCS11SwFactoryOp
 
     @Override
     public long getSessionhandle() {
-        return sessionhandle;
+        return sessionPool != null ? sessionPool.current() : sessionhandle;
+    }
+
+    @Override
+    public PKCS11SessionPool getSessionPool() {
+        return sessionPool;
     }
 
     @Override
@@ -0,0 +1,222 @@
+/**
+ * Copyright Feitian. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk.security.csp.pkcs11;
+
+import org.bcia.javachain.common.exception.JavaChainException;
+import org.bouncycastle.util.encoders.Hex;
+import sun.security.pkcs11.wrapper.PKCS11;
+import sun.security.pkcs11.wrapper.PKCS11Constants;
+import sun.security.pkcs11.wrapper.PKCS11Exception;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pool of PKCS#11 sessions of one slot.
+ * <p>
+ * A session must not run two operations at the same time, so a thread checks a session out with {@link #acquire()}
+ * and gives it back with {@link #release()}; checkouts of the same thread nest and share the session. A thread
+ * without a session gets the primary session the slot was opened with.
+ * The slot is logged in once, sessions opened later share the login state. Key object handles are cached by
+ * class, type and SKI, they are valid in every session of the slot until the pool is closed.
+ */
+public class PKCS11SessionPool {
+
+    public static final int DEFAULT_POOL_SIZE = 8;
+
+    private final PKCS11 p11;
+    private final long slot;
+    private final long primarySession;
+    private final char[] pin;
+    private final int maxSessions;
+
+    private final ArrayDeque<Long> idle = new ArrayDeque<>();
+    private final List<Long> sessions = new ArrayList<>();
+    private boolean bLoggedIn;
+    private boolean bClosed = false;
+
+    //session and checkout depth of the thread
+    private final ThreadLocal<long[]> checkedOut = new ThreadLocal<>();
+    private final Map<String, Long> objects = new ConcurrentHashMap<>();
+
+    PKCS11CspLog csplog = new PKCS11CspLog();
+
+    /**
+     * @param p11            PKCS#11 library
+     * @param slot           slot of the token
+     * @param primarySession session already opened on the slot
+     * @param bLoggedIn      whether the user is logged in on the slot
+     * @param pin            user pin
+     * @param maxSessions    max sessions opened by the pool
+     */
+    public PKCS11SessionPool(PKCS11 p11, long slot, long primarySession, boolean bLoggedIn, char[] pin, int maxSessions) {
+        if (maxSessions < 1) {
+            throw new IllegalArgumentException("[JC_PKCS]:Session pool size must be greater than zero!");
+        }
+        this.p11 = p11;
+        this.slot = slot;
+        this.primarySession = primarySession;
+        this.bLoggedIn = bLoggedIn;
+        this.pin = pin;
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Check out a session for the current thread, waiting while all sessions are in use.
+     *
+     * @return the session handle
+     */
+    public long acquire() throws JavaChainException {
+        long[] held = checkedOut.get();
+        if (held != null) {
+            held[1]++;
+            return held[0];
+        }
+
+        long session;
+        synchronized (this) {
+            while (true) {
+                if (bClosed) {
+                    throw new JavaChainException("[JC_PKCS]:Session pool is closed!");
+                }
+                if (!idle.isEmpty()) {
+                    session = idle.pop();
+                    break;
+                }
+                if (sessions.size() < maxSessions) {
+                    session = openSession();
+                    sessions.add(session);
+                    break;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new JavaChainException("[JC_PKCS]:Interrupted while waiting for a session!");
+                }
+            }
+        }
+        checkedOut.set(new long[]{session, 1});
+        return session;
+    }
+
+    /**
+     * Give back the session checked out by the current thread.
+     */
+    public void release() {
+        long[] held = checkedOut.get();
+        if (held == null || --held[1] > 0) {
+            return;
+        }
+        checkedOut.remove();
+        synchronized (this) {
+            if (!bClosed) {
+                idle.push(held[0]);
+                notify();
+            }
+        }
+    }
+
+    /**
+     * @return the session checked out by the current thread, the primary session if it has none
+     */
+    public long current() {
+        long[] held = checkedOut.get();
+        return held != null ? held[0] : primarySession;
+    }
+
+    public synchronized int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * @return the cached handle of the key object, null if not cached
+     */
+    public Long getObject(long keyclass, long keytype, byte[] ski) {
+        return objects.get(objectKey(keyclass, keytype, ski));
+    }
+
+    public void putObject(long keyclass, long keytype, byte[] ski, long handle) {
+        objects.put(objectKey(keyclass, keytype, ski), handle);
+    }
+
+    public void removeObject(long keyclass, long keytype, byte[] ski) {
+        objects.remove(objectKey(keyclass, keytype, ski));
+    }
+
+    /**
+     * Close the sessions opened by the pool, the primary session is left to its owner.
+     */
+    public void close() throws JavaChainException {
+        List<Long> toClose;
+        synchronized (this) {
+            if (bClosed) {
+                return;
+            }
+            bClosed = true;
+            toClose = new ArrayList<>(sessions);
+            sessions.clear();
+            idle.clear();
+            objects.clear();
+            notifyAll();
+        }
+        PKCS11Exception error = null;
+        for (long session : toClose) {
+            try {
+                p11.C_CloseSession(session);
+            } catch (PKCS11Exception ex) {
+                error = ex;
+            }
+        }
+        if (error != null) {
+            String err = String.format("[JC_PKCS]:PKCS11Exception code: 0x%08x", error.getErrorCode());
+            csplog.setLogMsg(err, 2, PKCS11SessionPool.class);
+            throw new JavaChainException(err, error);
+        }
+    }
+
+    private long openSession() throws JavaChainException {
+        try {
+            long session = p11.C_OpenSession(slot,
+                    PKCS11Constants.CKF_SERIAL_SESSION | PKCS11Constants.CKF_RW_SESSION, null, null);
+            if (!bLoggedIn) {
+                try {
+                    p11.C_Login(session, PKCS11Constants.CKU_USER, pin);
+                } catch (PKCS11Exception ex) {
+                    if (ex.getErrorCode() != PKCS11Constants.CKR_USER_ALREADY_LOGGED_IN) {
+                        p11.C_CloseSession(session);
+                        throw ex;
+                    }
+                }
+                bLoggedIn = true;
+            }
+            csplog.setLogMsg(String.format("[JC_PKCS]:Open session %d of %d", sessions.size() + 1, maxSessions),
+                    0, PKCS11SessionPool.class);
+            return session;
+        } catch (PKCS11Exception ex) {
+            String err = String.format("[JC_PKCS]:PKCS11Exception code: 0x%08x", ex.getErrorCode());
+            csplog.setLogMsg(err, 2, PKCS11SessionPool.class);
+            throw new JavaChainException(err, ex);
+        }
+    }
+
+    private static String objectKey(long keyclass, long keytype, byte[] ski) {
+        return keyclass + ":" + keytype + ":" + Hex.toHexString(ski);
+    }
+}
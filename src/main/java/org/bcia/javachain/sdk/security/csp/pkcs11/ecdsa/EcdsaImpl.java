@@ -19,6 +19,7 @@ import org.bcia.javachain.sdk.security.csp.intfs.IKey;
 import org.bcia.javachain.sdk.security.csp.pkcs11.IPKCS11FactoryOpts;
 import org.bcia.javachain.sdk.security.csp.pkcs11.PKCS11CSPConstant;
 import org.bcia.javachain.sdk.security.csp.pkcs11.PKCS11CspLog;
+import org.bcia.javachain.sdk.security.csp.pkcs11.PKCS11SessionPool;
 import org.bcia.javachain.sdk.security.csp.pkcs11.util.DataUtil;
 import org.bcia.javachain.common.exception.JavaChainException;
 import sun.security.ec.ECPublicKeyImpl;
@@ -209,6 +210,7 @@ public class EcdsaImpl {
                 setski[1] = new CK_ATTRIBUTE(PKCS11Constants.CKA_LABEL, DataUtil.MyByteToHex(byteSKI));
                 opts.getPKCS11().C_SetAttributeValue(opts.getSessionhandle(),keypair[0],setski);
                 opts.getPKCS11().C_SetAttributeValue(opts.getSessionhandle(),keypair[1],setski);                
+                removeKeypairFromCache(opts, byteSKI);
             }catch(PKCS11Exception ex) {
                 ex.printStackTrace();
                 String err = String.format("[JC_PKCS]:PKCS11Exception ErrCode: 0x%08x", ex.getErrorCode());
@@ -312,6 +314,7 @@ public class EcdsaImpl {
 
                 if(!opts.getNoImport()) {
                     long test = opts.getPKCS11().C_CreateObject(opts.getSessionhandle(), keyTemplate.toArray(new CK_ATTRIBUTE[0]));                    
+                    removeKeypairFromCache(opts, byteSKI);
                 }
                 return byteSKI;
 
@@ -407,6 +410,7 @@ public class EcdsaImpl {
                     setski[0] = new CK_ATTRIBUTE(PKCS11Constants.CKA_ID, byteSKI);
                     setski[1] = new CK_ATTRIBUTE(PKCS11Constants.CKA_LABEL, DataUtil.MyByteToHex(byteSKI));
                     opts.getPKCS11().C_SetAttributeValue(opts.getSessionhandle(),keyhandle,setski);                               
+                    removeKeypairFromCache(opts, byteSKI);
                     
                     return new EcdsaKeyOpts.EcdsaPubKey(byteSKI, pubder);
                     
@@ -461,6 +465,7 @@ public class EcdsaImpl {
                     setski[1] = new CK_ATTRIBUTE(PKCS11Constants.CKA_LABEL, DataUtil.MyByteToHex(byteSKI));
                     opts.getPKCS11().C_SetAttributeValue(opts.getSessionhandle(),pubkeyhandle[0],setski);                                
                     opts.getPKCS11().C_SetAttributeValue(opts.getSessionhandle(),prikeyhandle,setski);                                
+                    removeKeypairFromCache(opts, byteSKI);
                     
                     return new EcdsaKeyOpts.EcdsaPubKey(byteSKI, pubder);
     			}
@@ -489,15 +494,15 @@ public class EcdsaImpl {
      */
     public static final class GetkeyEcKey{
 
-        private static byte[] ski;
-        private static IPKCS11FactoryOpts opts;
+        private final byte[] ski;
+        private final IPKCS11FactoryOpts opts;
 
         public GetkeyEcKey(byte[] ski, IPKCS11FactoryOpts opts) {
             this.ski = ski;
             this.opts = opts;
         }
 
-        public static IKey getkey() throws JavaChainException{
+        public IKey getkey() throws JavaChainException{
 
             try {
 
@@ -653,6 +658,20 @@ public class EcdsaImpl {
     }
 
 
+    /**
+     * Evict the cached handles of the key pair of the specified SKI, keys with this SKI were just created
+     *
+     * @param opts      p11factory
+     * @param ski       cka_id value
+     */
+    public static void removeKeypairFromCache(IPKCS11FactoryOpts opts, byte[] ski) {
+        PKCS11SessionPool pool = opts.getSessionPool();
+        if (pool != null) {
+            pool.removeObject(PKCS11Constants.CKO_PUBLIC_KEY, PKCS11Constants.CKK_EC, ski);
+            pool.removeObject(PKCS11Constants.CKO_PRIVATE_KEY, PKCS11Constants.CKK_EC, ski);
+        }
+    }
+
     /**
      * Find the key of the specified SKI
      *
@@ -671,10 +690,21 @@ public class EcdsaImpl {
         template[1] = new CK_ATTRIBUTE(PKCS11Constants.CKA_ID, ski);
         template[2] = new CK_ATTRIBUTE(PKCS11Constants.CKA_KEY_TYPE, PKCS11Constants.CKK_EC);
 
+        PKCS11SessionPool pool = opts.getSessionPool();
+        if (pool != null) {
+            Long handle = pool.getObject(keyclass, PKCS11Constants.CKK_EC, ski);
+            if (handle != null) {
+                return new long[]{handle};
+            }
+        }
+
         try {
             opts.getPKCS11().C_FindObjectsInit(opts.getSessionhandle(), template);
             long[] keypair = opts.getPKCS11().C_FindObjects(opts.getSessionhandle(), 1);
             opts.getPKCS11().C_FindObjectsFinal(opts.getSessionhandle());
+            if (pool != null && keypair.length > 0) {
+                pool.putObject(keyclass, PKCS11Constants.CKK_EC, ski, keypair[0]);
+            }
             return keypair;
         }catch(PKCS11Exception ex) {
             ex.printStackTrace();
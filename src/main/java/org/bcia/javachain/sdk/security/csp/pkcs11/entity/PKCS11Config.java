@@ -16,6 +16,7 @@
 package org.bcia.javachain.sdk.security.csp.pkcs11.entity;
 
 import org.bcia.javachain.common.exception.JavaChainException;
+import org.bcia.javachain.sdk.security.csp.pkcs11.PKCS11SessionPool;
 
 /**
  * Class description
@@ -31,6 +32,7 @@ public class PKCS11Config {
     private boolean noKImport;
     //private boolean useecx963encodeing;
     private String path;
+    private int sessionPoolSize = PKCS11SessionPool.DEFAULT_POOL_SIZE;
 
     public PKCS11Config(int level, String hashfamily, boolean softVerify, boolean noKeyImport)  throws JavaChainException {
 
@@ -68,6 +70,14 @@ public class PKCS11Config {
         return path;
     }
 
+    public void setSessionPoolSize(int sessionPoolSize) {
+        this.sessionPoolSize = sessionPoolSize;
+    }
+
+    public int getSessionPoolSize() {
+        return sessionPoolSize;
+    }
+
     public int getLevel() {
         return securityLevel;
     }
@@ -19,6 +19,7 @@ package org.bcia.javachain.sdk.security.csp.pkcs11.rsa;
 import org.bcia.javachain.sdk.security.csp.intfs.IKey;
 import org.bcia.javachain.sdk.security.csp.pkcs11.IPKCS11FactoryOpts;
 import org.bcia.javachain.sdk.security.csp.pkcs11.PKCS11CspLog;
+import org.bcia.javachain.sdk.security.csp.pkcs11.PKCS11SessionPool;
 import org.bcia.javachain.sdk.security.csp.pkcs11.util.DataUtil;
 import org.bcia.javachain.common.exception.JavaChainException;
 import sun.security.pkcs11.wrapper.CK_ATTRIBUTE;
@@ -223,6 +224,7 @@ public class RsaImpl {
                 setski[1] = new CK_ATTRIBUTE(CKA_LABEL, DataUtil.MyByteToHex(PublicHash));
                 opts.getPKCS11().C_SetAttributeValue(opts.getSessionhandle(),keypair[0],setski);
                 opts.getPKCS11().C_SetAttributeValue(opts.getSessionhandle(),keypair[1],setski);
+                removeKeypairFromCache(opts, PublicHash);
 
                 IKey ikey = new RsaKeyOpts.RsaPubKey(PublicHash, pubder);
                 return ikey;
@@ -314,6 +316,7 @@ public class RsaImpl {
                 }
 
                 opts.getPKCS11().C_CreateObject(opts.getSessionhandle(), keyTemplate.toArray(new CK_ATTRIBUTE[0]));
+                removeKeypairFromCache(opts, byteSKI);
                 return byteSKI;
 
             }catch(NoSuchAlgorithmException ex) {
@@ -366,15 +369,15 @@ public class RsaImpl {
      */
     public static final class GetkeyRSA{
 
-        private static byte[] ski;
-        private static IPKCS11FactoryOpts opts;
+        private final byte[] ski;
+        private final IPKCS11FactoryOpts opts;
 
         public GetkeyRSA(byte[] ski, IPKCS11FactoryOpts opts){
             this.ski = ski;
             this.opts = opts;
         }
 
-        public static IKey getkey() throws JavaChainException {
+        public IKey getkey() throws JavaChainException {
 
             try {
                 long[] keypbu = findKeypairFromSKI(opts, false, ski);
@@ -634,6 +637,18 @@ public class RsaImpl {
 
 
 
+    /**
+     * Evict the cached handles of the key pair of the specified SKI, keys with this SKI were just created
+     *
+     */
+    private static void removeKeypairFromCache(IPKCS11FactoryOpts opts, byte[] ski) {
+        PKCS11SessionPool pool = opts.getSessionPool();
+        if (pool != null) {
+            pool.removeObject(CKO_PUBLIC_KEY, CKK_RSA, ski);
+            pool.removeObject(CKO_PRIVATE_KEY, CKK_RSA, ski);
+        }
+    }
+
     /**
      * Find the key of the specified SKI
      *
@@ -649,10 +664,21 @@ public class RsaImpl {
         template[1] = new CK_ATTRIBUTE(CKA_ID, ski);
         template[2] = new CK_ATTRIBUTE(CKA_KEY_TYPE, CKK_RSA);
 
+        PKCS11SessionPool pool = opts.getSessionPool();
+        if (pool != null) {
+            Long handle = pool.getObject(keyclass, CKK_RSA, ski);
+            if (handle != null) {
+                return new long[]{handle};
+            }
+        }
+
         try {
             opts.getPKCS11().C_FindObjectsInit(opts.getSessionhandle(), template);
             long[] keypair = opts.getPKCS11().C_FindObjects(opts.getSessionhandle(), 1);
             opts.getPKCS11().C_FindObjectsFinal(opts.getSessionhandle());
+            if (pool != null && keypair.length > 0) {
+                pool.putObject(keyclass, CKK_RSA, ski, keypair[0]);
+            }
             return keypair;
         }catch(PKCS11Exception ex) {
             ex.printStackTrace();
@@ -48,6 +48,10 @@ public class GlobalMspManagement {
      * 本地的msp
      */
     public static IMsp localMsp;
+    /**
+     * 本地msp的加载目录
+     */
+    private static String localMspDir;
     /**
      * csp默认配置值
      */
@@ -76,6 +80,7 @@ public class GlobalMspManagement {
         }
         MspConfigPackage.MSPConfig buildMspConfig = MspConfigHelper.buildMspConfig(localmspdir, mspId);
         localMsp=new Msp().setup(buildMspConfig);
+        localMspDir = localmspdir;
         return localMsp;
     }
 
@@ -103,11 +108,20 @@ public class GlobalMspManagement {
             }
             MspConfigPackage.MSPConfig buildMspConfig = MspConfigHelper.buildMspConfig(mspConfig.getNode().getMspConfigPath(), mspConfig.getNode().getLocalMspId());
             localMsp = new Msp().setup(buildMspConfig);
+            localMspDir = mspConfig.getNode().getMspConfigPath();
             return localMsp;
         }
         return localMsp;
     }
 
+    /**
+     * 获取本地msp的加载目录,本地msp尚未加载时返回null
+     *
+     * @return
+     */
+    public static String getLocalMspDir() {
+        return localMspDir;
+    }
 
     public void setMspManager(String groupId, IMspManager manager) {
         MspManager mspManager = new MspManager(manager, true);
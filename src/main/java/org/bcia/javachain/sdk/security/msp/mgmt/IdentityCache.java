@@ -0,0 +1,143 @@
+/**
+ * Copyright DingXuan. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk.security.msp.mgmt;
+
+import org.bcia.javachain.sdk.security.csp.gm.dxct.sm3.SM3;
+import org.bcia.javachain.sdk.security.msp.IIdentity;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 反序列化身份缓存,以序列化字节的摘要为键
+ * 按键分段加锁,每段内按LRU淘汰,MSP配置变更时整体失效
+ */
+public class IdentityCache {
+    /**
+     * 默认缓存数量
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final int SEGMENTS = 16;
+
+    private final SM3 sm3 = new SM3();
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    public IdentityCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 缓存的最大身份数量
+     */
+    public IdentityCache(int capacity) {
+        int segmentCapacity = Math.max(1, (capacity + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * 计算序列化身份的缓存键
+     *
+     * @param serializedIdentity
+     * @return
+     */
+    public ByteBuffer key(byte[] serializedIdentity) {
+        return ByteBuffer.wrap(sm3.hash(serializedIdentity));
+    }
+
+    /**
+     * 获取缓存的身份
+     *
+     * @param key 由key方法得到
+     * @return 未命中时返回null
+     */
+    public IIdentity get(ByteBuffer key) {
+        Segment segment = segmentFor(key);
+        IIdentity identity;
+        synchronized (segment) {
+            identity = segment.get(key);
+        }
+        if (identity == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return identity;
+    }
+
+    public void put(ByteBuffer key, IIdentity identity) {
+        if (identity == null) {
+            return;
+        }
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, identity);
+        }
+    }
+
+    /**
+     * 清空缓存,MSP配置变更后调用
+     */
+    public void invalidate() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    private Segment segmentFor(ByteBuffer key) {
+        //键本身是摘要,直接取首字节即可均匀分布
+        return segments[key.get(0) & (SEGMENTS - 1)];
+    }
+
+    private static class Segment extends LinkedHashMap<ByteBuffer, IIdentity> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, IIdentity> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -17,9 +17,7 @@ package org.bcia.javachain.sdk.security.msp.mgmt;
 
 import com.google.protobuf.InvalidProtocolBufferException;
 import org.bcia.javachain.sdk.security.csp.factory.CspManager;
-import org.bcia.javachain.sdk.security.csp.factory.CspOptsManager;
 import org.bcia.javachain.sdk.security.csp.gm.dxct.GmCsp;
-import org.bcia.javachain.sdk.security.csp.gm.dxct.sm2.SM2PrivateKeyImportOpts;
 import org.bcia.javachain.sdk.security.csp.gm.dxct.sm2.SM2PublicKeyImportOpts;
 import org.bcia.javachain.sdk.security.csp.intfs.ICsp;
 import org.bcia.javachain.sdk.security.csp.intfs.IKey;
@@ -30,7 +28,6 @@ import org.bcia.javachain.sdk.security.msp.entity.IdentityIdentifier;
 import org.bcia.javachain.sdk.security.msp.entity.OUIdentifier;
 import org.bcia.javachain.sdk.security.msp.entity.VerifyOptions;
 import org.bcia.javachain.sdk.security.msp.signer.NodeSigner;
-import org.bcia.javachain.sdk.security.msp.util.LoadLocalMspFiles;
 import org.bcia.javachain.sdk.security.msp.util.MspConstant;
 import org.bcia.javachain.common.exception.CspException;
 import org.bcia.javachain.common.exception.JavaChainException;
@@ -48,6 +45,7 @@ import org.bouncycastle.util.io.pem.PemReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -78,6 +76,10 @@ public class Msp implements IMsp {
     private OUIdentifier nodeOU;
     private OUIdentifier orderOU;
     private MspConfigPackage.MSPConfig mspConfig;
+    /**
+     * 已反序列化的身份缓存
+     */
+    private final IdentityCache identityCache = new IdentityCache();
 
     public Msp() {
     }
@@ -89,6 +91,8 @@ public class Msp implements IMsp {
     @Override
     public IMsp setup(MspConfigPackage.MSPConfig config) {
         Msp msp = null;
+        //配置变更后已缓存的身份不再有效
+        identityCache.invalidate();
         try {
             MspConfigPackage.FabricMSPConfig fabricMSPConfig = MspConfigPackage.FabricMSPConfig.parseFrom(config.getConfig());
             this.name = fabricMSPConfig.getName();
@@ -244,6 +248,23 @@ public class Msp implements IMsp {
 
     @Override
     public IIdentity deserializeIdentity(byte[] serializedIdentity) {
+        ByteBuffer key = identityCache.key(serializedIdentity);
+        IIdentity identity = identityCache.get(key);
+        if (identity == null) {
+            identity = deserializeIdentity(serializedIdentity, csp);
+            identityCache.put(key, identity);
+        }
+        return identity;
+    }
+
+    /**
+     * 不经过缓存,使用指定的csp反序列化身份
+     *
+     * @param serializedIdentity
+     * @param csp
+     * @return 失败时返回null
+     */
+    public IIdentity deserializeIdentity(byte[] serializedIdentity, ICsp csp) {
         try {
             Identities.SerializedIdentity sId = Identities.SerializedIdentity.parseFrom(serializedIdentity);
             Certificate cert = Certificate.getInstance(sId.getIdBytes().toByteArray());
@@ -262,6 +283,10 @@ public class Msp implements IMsp {
         return null;
     }
 
+    public IdentityCache getIdentityCache() {
+        return identityCache;
+    }
+
     @Override
     public void isWellFormed(Identities.SerializedIdentity identity) {
 
@@ -362,12 +387,10 @@ public class Msp implements IMsp {
             Identity id = (Identity) map.get(MspConstant.IDENTITY);
 
             //TODO 根据配置的密钥path,获取私钥
-            String sk_path = CspOptsManager.getInstance().getDefaultFactoryOpts().getKeyStore();
-            byte[] skBytes = new LoadLocalMspFiles().getSkFromDir(sk_path).get(0);
-
+            //私钥只在此处导入一次,由签名者持有,之后的签名不再读取密钥存储目录
             IKey privateKey = null;
             try {
-                privateKey = csp.keyImport(skBytes, new SM2PrivateKeyImportOpts(true));
+                privateKey = SignIdentity.importSkFromKeyStore();
             } catch (JavaChainException e) {
                 log.error(e.getMessage());
             }
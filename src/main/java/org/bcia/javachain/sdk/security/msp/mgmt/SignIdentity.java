@@ -22,11 +22,15 @@ import org.bcia.javachain.sdk.security.csp.intfs.IKey;
 import org.bcia.javachain.sdk.security.msp.IIdentity;
 import org.bcia.javachain.sdk.security.msp.ISigningIdentity;
 import org.bcia.javachain.sdk.security.msp.signer.NodeSigner;
+import org.bcia.javachain.sdk.security.msp.util.KeyStoreWatcher;
 import org.bcia.javachain.sdk.security.msp.util.LoadLocalMspFiles;
 import org.bcia.javachain.common.exception.JavaChainException;
 import org.bcia.javachain.sdk.common.log.JavaChainLog;
 import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
 
+import java.io.IOException;
+import java.util.List;
+
 import static org.bcia.javachain.sdk.security.csp.factory.CspManager.getDefaultCsp;
 
 /**
@@ -43,6 +47,7 @@ public class SignIdentity implements ISigningIdentity {
     private Identity identity;
     private NodeSigner nodeSigner;
     private Msp msp;
+    private KeyStoreWatcher keyStoreWatcher;
 
     public SignIdentity(Identity identity, NodeSigner nodeSigner, Msp msp) {
         this.identity = identity;
@@ -54,19 +59,85 @@ public class SignIdentity implements ISigningIdentity {
     public byte[] sign(byte[] msg) {
         byte[] signvalue = null;
         try {
-            //获取默认的工厂选项的密钥存储路经
-            String sk_path = CspOptsManager.getInstance().getDefaultFactoryOpts().getKeyStore();
-            byte[] skBytes = new LoadLocalMspFiles().getSkFromDir(sk_path).get(0);
-            //TODO 后续判断是哪一种工厂选项,根据具体的签名类型,构造对应的密钥导入选项
-            IKey privateKey = getDefaultCsp().keyImport(skBytes, new SM2PrivateKeyImportOpts(true));
+            IKey privateKey = nodeSigner.getSk();
+            if (privateKey == null) {
+                privateKey = reloadSigningKey();
+            }
             signvalue = msp.getCsp().sign(privateKey, msg, new SM2SignerOpts());
-            log.info("Signvalue is ok");
+            log.debug("Signvalue is ok");
         } catch (JavaChainException e) {
             log.error(e.getMessage());
         }
         return signvalue;
     }
 
+    /**
+     * 重新从密钥存储路经读取并导入私钥,替换当前缓存的签名私钥
+     * 用于密钥轮换,也可由密钥存储目录的监听器触发
+     *
+     * @return 新导入的私钥
+     * @throws JavaChainException
+     */
+    public synchronized IKey reloadSigningKey() throws JavaChainException {
+        IKey privateKey = importSkFromKeyStore();
+        nodeSigner.setSk(privateKey);
+        log.info("Signing key reloaded from keystore");
+        return privateKey;
+    }
+
+    /**
+     * 监听默认工厂选项的密钥存储目录,目录变化时自动重新加载签名私钥
+     *
+     * @throws JavaChainException
+     */
+    public synchronized void startKeyStoreWatch() throws JavaChainException {
+        if (keyStoreWatcher != null) {
+            return;
+        }
+        String skPath = CspOptsManager.getInstance().getDefaultFactoryOpts().getKeyStore();
+        KeyStoreWatcher watcher = new KeyStoreWatcher(skPath, () -> {
+            try {
+                reloadSigningKey();
+            } catch (JavaChainException e) {
+                //保留原有私钥继续签名
+                log.error("Reload signing key failed: " + e.getMessage(), e);
+            }
+        });
+        try {
+            watcher.start();
+        } catch (IOException e) {
+            throw new JavaChainException("Watch keystore " + skPath + " failed: " + e.getMessage(), e);
+        }
+        keyStoreWatcher = watcher;
+    }
+
+    /**
+     * 停止监听密钥存储目录
+     */
+    public synchronized void stopKeyStoreWatch() {
+        if (keyStoreWatcher != null) {
+            keyStoreWatcher.stop();
+            keyStoreWatcher = null;
+        }
+    }
+
+    /**
+     * 从默认工厂选项的密钥存储路经读取私钥并导入
+     * 签名身份只支持SM2私钥,按SM2PrivateKeyImportOpts导入,导入后的私钥为临时密钥,不写回密钥存储
+     *
+     * @return 导入后的私钥
+     * @throws JavaChainException
+     */
+    public static IKey importSkFromKeyStore() throws JavaChainException {
+        //获取默认的工厂选项的密钥存储路经
+        String skPath = CspOptsManager.getInstance().getDefaultFactoryOpts().getKeyStore();
+        List<byte[]> sks = new LoadLocalMspFiles().getSkFromDir(skPath);
+        if (sks.isEmpty()) {
+            throw new JavaChainException("No private key found in keystore " + skPath);
+        }
+        return getDefaultCsp().keyImport(sks.get(0), new SM2PrivateKeyImportOpts(true));
+    }
+
     @Override
     public IIdentity getIdentity() {
         return this.identity;
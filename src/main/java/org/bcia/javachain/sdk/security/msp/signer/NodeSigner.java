@@ -27,7 +27,10 @@ import org.bcia.javachain.common.exception.JavaChainException;
  */
 public class NodeSigner implements ISigner {
     private ICsp csp;
-    private IKey sk;
+    /**
+     * 已导入的签名私钥,密钥轮换时整体替换
+     */
+    private volatile IKey sk;
     private IKey pk;
 
     public NodeSigner(ICsp csp, IKey sk) {
@@ -57,6 +60,15 @@ public class NodeSigner implements ISigner {
         return sk;
     }
 
+    /**
+     * 替换签名私钥,用于密钥轮换
+     *
+     * @param sk 新导入的私钥
+     */
+    public void setSk(IKey sk) {
+        this.sk = sk;
+    }
+
     public Object getPk() {
         return pk;
     }
@@ -0,0 +1,128 @@
+/**
+ * Copyright DingXuan. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk.security.msp.util;
+
+import org.bcia.javachain.sdk.common.log.JavaChainLog;
+import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * 监听密钥存储目录的变化,目录中的私钥文件发生变更时回调通知
+ */
+public class KeyStoreWatcher implements Runnable {
+    private static JavaChainLog log = JavaChainLogFactory.getLog(KeyStoreWatcher.class);
+
+    private final Path keyStorePath;
+    private final Runnable onChange;
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * @param keyStore 密钥存储目录
+     * @param onChange 目录内容变化时执行的回调
+     */
+    public KeyStoreWatcher(String keyStore, Runnable onChange) {
+        this.keyStorePath = Paths.get(keyStore);
+        this.onChange = onChange;
+    }
+
+    /**
+     * 启动后台监听线程
+     *
+     * @throws IOException
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        keyStorePath.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        thread = new Thread(this, "KeyStoreWatcher-" + keyStorePath.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+        log.debug("Start watching keystore {}", keyStorePath);
+    }
+
+    /**
+     * 停止监听
+     */
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.warn(e.getMessage(), e);
+        }
+        thread.interrupt();
+        thread = null;
+        log.debug("Stop watching keystore {}", keyStorePath);
+    }
+
+    public synchronized boolean isRunning() {
+        return thread != null;
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() != OVERFLOW) {
+                    log.debug("Keystore event {} on {}", event.kind().name(), event.context());
+                }
+                //OVERFLOW表示有事件丢失,同样需要重新加载
+                changed = true;
+            }
+            //同一批次的多个事件只触发一次重新加载
+            if (changed) {
+                try {
+                    onChange.run();
+                } catch (RuntimeException e) {
+                    log.error("Keystore change callback failed: " + e.getMessage(), e);
+                }
+            }
+            if (!key.reset()) {
+                log.warn("Keystore {} is no longer accessible, stop watching", keyStorePath);
+                return;
+            }
+        }
+    }
+
+    public Path getKeyStorePath() {
+        return keyStorePath;
+    }
+}
@@ -213,7 +213,9 @@ public final class ProtoUtils {
 
         logger.info(format(" STEP A1> 得到用戶的交互證書放入bytestring"));
 
-        final Identities.SerializedIdentity identity = ProtoUtils.createSerializedIdentity(user);
+        //交易上下文的用户与计算交易ID时使用同一个序列化身份
+        final Identities.SerializedIdentity identity = user == transactionContext.getUser() ?
+                transactionContext.getIdentity() : ProtoUtils.createSerializedIdentity(user);
 
         if (isDebugLevel) {
 
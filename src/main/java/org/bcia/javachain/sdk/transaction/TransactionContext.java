@@ -24,10 +24,17 @@ import org.bcia.javachain.sdk.Group;
 import org.bcia.javachain.sdk.User;
 import org.bcia.javachain.sdk.exception.CryptoException;
 import org.bcia.javachain.sdk.helper.Config;
-import org.bcia.javachain.sdk.helper.MspStore;
 import org.bcia.javachain.sdk.helper.Utils;
+import org.bcia.javachain.sdk.security.csp.factory.CspManager;
+import org.bcia.javachain.sdk.security.csp.gm.dxct.sm3.SM3Hash;
+import org.bcia.javachain.sdk.security.csp.gm.dxct.sm3.SM3HashOpts;
+import org.bcia.javachain.sdk.security.csp.intfs.ICsp;
+import org.bcia.javachain.sdk.security.csp.intfs.IHash;
 import org.bcia.julongchain.protos.msp.Identities;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * Internal class, not an public API.
  * A transaction context emits events 'submitted', 'complete', and 'error'.
@@ -41,6 +48,18 @@ import org.bcia.julongchain.protos.msp.Identities;
  */
 public class TransactionContext {
     private static final Config config = Config.getConfig();
+    private static final SM3HashOpts HASH_OPTS = new SM3HashOpts();
+    /**
+     * LocalSigner has no state, one instance serves every context.
+     */
+    private static final ILocalSigner LOCAL_SIGNER = new LocalSigner();
+    private static final int MAX_PREPARED_USERS = 64;
+    /**
+     * Prepared users by MSP id. The serialized identity is built from the MSP id and the client certificate of
+     * MspStore, which is loaded once, so the MSP id is all that tells two identities apart. The map is cleared
+     * when it is full, which takes no lock and is rare since there are few MSP ids.
+     */
+    private static final ConcurrentMap<String, PreparedUser> PREPARED_USERS = new ConcurrentHashMap<>();
     //    private static final Log logger = LogFactory.getLog(TransactionContext.class);
     //TODO right now the server does not care need to figure out
     private final ByteString nonce = ByteString.copyFrom(Utils.generateNonce());
@@ -62,17 +81,14 @@ public class TransactionContext {
         this.verify = !"".equals(channel.getName());  //if name is not blank not system channel and need verify.
 
         //  this.txID = transactionID;
-        signer = new LocalSigner();
-        identity = ProtoUtils.createSerializedIdentity(getUser());
-
-        ByteString no = getNonce();
-
-        ByteString comp = no.concat(identity.toByteString());
+        signer = LOCAL_SIGNER;
+        PreparedUser prepared = prepare(user);
+        identity = prepared.identity;
 
         byte[] txh = new byte[0];
 
         try {
-            txh = MspStore.getInstance().getCsp().hash(comp.toByteArray(), null);
+            txh = computeTxID(getNonce(), prepared.identityBytes);
         } catch (JavaChainException e) {
             e.printStackTrace();
             txh = null;//沒有正確獲取txh
@@ -84,6 +100,52 @@ public class TransactionContext {
 
     }
 
+    /**
+     * Per user state that is the same for every transaction: the serialized identity and its bytes.
+     */
+    private static final class PreparedUser {
+        final Identities.SerializedIdentity identity;
+        final ByteString identityBytes;
+
+        PreparedUser(User user) {
+            identity = ProtoUtils.createSerializedIdentity(user);
+            identityBytes = identity.toByteString();
+        }
+    }
+
+    private static PreparedUser prepare(User user) {
+        String mspId = String.valueOf(user.getMspId());
+        PreparedUser prepared = PREPARED_USERS.get(mspId);
+        if (prepared == null) {
+            if (PREPARED_USERS.size() >= MAX_PREPARED_USERS) {
+                PREPARED_USERS.clear();
+            }
+            prepared = new PreparedUser(user);
+            PreparedUser existing = PREPARED_USERS.putIfAbsent(mspId, prepared);
+            if (existing != null) {
+                prepared = existing;
+            }
+        }
+        return prepared;
+    }
+
+    /**
+     * The transaction id is the hash of nonce || creator. The two are fed to the hash one after the other
+     * when the CSP provides a streaming SM3 hash, otherwise they are concatenated.
+     */
+    private static byte[] computeTxID(ByteString nonce, ByteString creator) throws JavaChainException {
+        // MspStore has been initialized by ProtoUtils.createSerializedIdentity when the user was prepared.
+        ICsp csp = CspManager.getDefaultCsp();
+        IHash hash = csp.getHash(HASH_OPTS);
+        if (hash instanceof SM3Hash) {
+            SM3Hash sm3Hash = (SM3Hash) hash;
+            sm3Hash.write(nonce);
+            sm3Hash.write(creator);
+            return sm3Hash.digest();
+        }
+        return csp.hash(nonce.concat(creator).toByteArray(), null);
+    }
+
     public Identities.SerializedIdentity getIdentity() {
 
         return identity;
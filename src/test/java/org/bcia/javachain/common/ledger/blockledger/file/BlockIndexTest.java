@@ -0,0 +1,131 @@
+package org.bcia.javachain.common.ledger.blockledger.file;
+
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BlockIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] hash(long number) {
+        byte[] hash = new byte[32];
+        for (int i = 0; i < hash.length; ++i) {
+            hash[i] = (byte) (number + i);
+        }
+        return hash;
+    }
+
+    @Test
+    public void testAppendAndReopen() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("index");
+        BlockIndex index = new BlockIndex(file);
+        Assert.assertTrue(index.isEmpty());
+
+        for (long number = 5; number < 10; ++number) {
+            index.append(number, (int) number / 3, number * 100, (int) number * 10, hash(number));
+        }
+        Assert.assertEquals(5L, index.getBase());
+        Assert.assertEquals(10L, index.getHeight());
+        Assert.assertFalse(index.contains(4));
+        Assert.assertTrue(index.contains(9));
+        Assert.assertFalse(index.contains(10));
+        index.close();
+
+        index = new BlockIndex(file);
+        Assert.assertEquals(5L, index.getBase());
+        Assert.assertEquals(10L, index.getHeight());
+        for (long number = 5; number < 10; ++number) {
+            Assert.assertEquals((int) number / 3, index.getSegment(number));
+            Assert.assertEquals(number * 100, index.getOffset(number));
+            Assert.assertEquals((int) number * 10, index.getLength(number));
+            Assert.assertArrayEquals(hash(number), index.getHash(number));
+        }
+        index.close();
+    }
+
+    @Test
+    public void testRefusesGapAndLongHash() throws Exception {
+        BlockIndex index = new BlockIndex(folder.getRoot().toPath().resolve("index"));
+        index.append(0, 0, 0, 10, hash(0));
+        try {
+            index.append(2, 0, 10, 10, hash(2));
+            Assert.fail("gap should be refused");
+        } catch (Exception e) {
+            //expected
+        }
+        try {
+            index.append(1, 0, 10, 10, new byte[BlockIndex.MAX_HASH_SIZE + 1]);
+            Assert.fail("hash should not fit");
+        } catch (Exception e) {
+            //expected
+        }
+        Assert.assertEquals(1L, index.getHeight());
+        index.close();
+    }
+
+    @Test
+    public void testTruncate() throws Exception {
+        BlockIndex index = new BlockIndex(folder.getRoot().toPath().resolve("index"));
+        for (long number = 0; number < 4; ++number) {
+            index.append(number, 0, number * 10, 10, hash(number));
+        }
+        index.truncate(2);
+        Assert.assertEquals(2L, index.getHeight());
+        Assert.assertFalse(index.contains(2));
+        index.append(2, 0, 20, 10, hash(20));
+        Assert.assertArrayEquals(hash(20), index.getHash(2));
+
+        index.truncate(0);
+        Assert.assertTrue(index.isEmpty());
+        index.append(7, 0, 0, 10, hash(7));
+        Assert.assertEquals(7L, index.getBase());
+        index.close();
+    }
+
+    @Test
+    public void testGrowsPastInitialMapping() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("index");
+        BlockIndex index = new BlockIndex(file);
+        final long blocks = 70 * 1024;
+        for (long number = 0; number < blocks; ++number) {
+            index.append(number, 0, number, 1, hash(number));
+        }
+        Assert.assertArrayEquals(hash(blocks - 1), index.getHash(blocks - 1));
+        index.close();
+
+        index = new BlockIndex(file);
+        Assert.assertEquals(blocks, index.getHeight());
+        Assert.assertEquals(blocks - 1, index.getOffset(blocks - 1));
+        index.close();
+    }
+
+    @Test
+    public void testEntriesAcrossChunks() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("index");
+        final long chunkSize = 1024 * 1024;
+        BlockIndex index = new BlockIndex(file, chunkSize);
+        final long blocks = 70 * 1024;
+        for (long number = 0; number < blocks; ++number) {
+            index.append(number, (int) number, number, 1, hash(number));
+        }
+        index.close();
+
+        index = new BlockIndex(file, chunkSize);
+        Assert.assertEquals(blocks, index.getHeight());
+        for (long number = 0; number < blocks; number += 1021) {
+            Assert.assertEquals((int) number, index.getSegment(number));
+            Assert.assertEquals(number, index.getOffset(number));
+            Assert.assertArrayEquals(hash(number), index.getHash(number));
+        }
+        //last entry of the first chunk and first entry of the second
+        long last = (chunkSize - BlockIndex.HEADER_SIZE) / BlockIndex.ENTRY_SIZE;
+        Assert.assertEquals(last - 1, index.getOffset(last - 1));
+        Assert.assertEquals(last, index.getOffset(last));
+        index.close();
+    }
+}
@@ -0,0 +1,216 @@
+package org.bcia.javachain.common.ledger.blockledger.file;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.google.protobuf.ByteString;
+import org.bcia.javachain.common.ledger.blockledger.IIterator;
+import org.bcia.javachain.core.ledger.kvledger.txmgmt.statedb.QueryResult;
+import org.bcia.julongchain.protos.common.Common;
+import org.bcia.julongchain.protos.consenter.Ab;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileLedgerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Common.Block block(long number, int size) throws Exception {
+        Common.BlockData data = Common.BlockData.newBuilder()
+                .addData(ByteString.copyFrom(new byte[size]))
+                .addData(ByteString.copyFromUtf8("block " + number))
+                .build();
+        byte[] dataHash = MessageDigest.getInstance("SHA-256").digest(data.toByteArray());
+        return Common.Block.newBuilder()
+                .setHeader(Common.BlockHeader.newBuilder().setNumber(number).setDataHash(ByteString.copyFrom(dataHash)))
+                .setData(data)
+                .build();
+    }
+
+    private static Ab.SeekPosition specified(long number) {
+        return Ab.SeekPosition.newBuilder().setSpecified(Ab.SeekSpecified.newBuilder().setNumber(number)).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map.Entry<QueryResult, Common.Status> entry(QueryResult result) {
+        return (Map.Entry<QueryResult, Common.Status>) result.getObj();
+    }
+
+    @Test
+    public void testAppendAndRead() throws Exception {
+        FileLedger ledger = new FileLedger(folder.getRoot().getPath());
+        Assert.assertEquals(0, ledger.height());
+        Assert.assertEquals(-1L, ledger.getBase());
+
+        for (long i = 0; i < 10; ++i) {
+            ledger.append(block(i, 100));
+        }
+        Assert.assertEquals(10, ledger.height());
+        Assert.assertEquals(0L, ledger.getBase());
+        for (long i = 0; i < 10; ++i) {
+            Assert.assertEquals(block(i, 100), ledger.getBlockByNumber(i));
+        }
+        Assert.assertNull(ledger.getBlockByNumber(10));
+
+        try {
+            ledger.append(block(12, 100));
+            Assert.fail("gap should be refused");
+        } catch (Exception e) {
+            //expected
+        }
+        ledger.close();
+    }
+
+    @Test
+    public void testStartsAtAnyNumber() throws Exception {
+        FileLedger ledger = new FileLedger(folder.getRoot().getPath());
+        ledger.append(block(100, 10));
+        ledger.append(block(101, 10));
+
+        Assert.assertEquals(100L, ledger.getBase());
+        Assert.assertEquals(102, ledger.height());
+        Assert.assertFalse(ledger.contains(99));
+        Assert.assertTrue(ledger.contains(101));
+        Assert.assertEquals(block(101, 10), ledger.getBlockByNumber(101));
+        ledger.close();
+    }
+
+    @Test
+    public void testLookupByDataHash() throws Exception {
+        FileLedger ledger = new FileLedger(folder.getRoot().getPath());
+        for (long i = 0; i < 5; ++i) {
+            ledger.append(block(i, 10));
+        }
+
+        Common.Block third = block(3, 10);
+        Assert.assertArrayEquals(third.getHeader().getDataHash().toByteArray(), FileLedger.getBlockHash(third.getHeader()));
+        Assert.assertEquals(third, ledger.getBlockByHash(third.getHeader().getDataHash().toByteArray()));
+        Assert.assertNull(ledger.getBlockByHash(new byte[32]));
+        ledger.close();
+
+        //the hash index is rebuilt from the block index
+        ledger = new FileLedger(folder.getRoot().getPath());
+        Assert.assertEquals(third, ledger.getBlockByHash(third.getHeader().getDataHash().toByteArray()));
+        ledger.close();
+    }
+
+    @Test
+    public void testSegmentRollover() throws Exception {
+        FileLedger ledger = new FileLedger(folder.getRoot().getPath(), 1024, 1, 0);
+        for (long i = 0; i < 20; ++i) {
+            ledger.append(block(i, 300));
+        }
+        ledger.close();
+
+        File[] segments = folder.getRoot().listFiles((dir, name) -> name.startsWith("blockfile_"));
+        Assert.assertTrue(segments.length > 1);
+        for (File segment : segments) {
+            Assert.assertTrue(segment.length() <= 1024);
+        }
+
+        ledger = new FileLedger(folder.getRoot().getPath(), 1024, 1, 0);
+        Assert.assertEquals(20, ledger.height());
+        for (long i = 0; i < 20; ++i) {
+            Assert.assertEquals(block(i, 300), ledger.getBlockByNumber(i));
+        }
+        ledger.append(block(20, 300));
+        Assert.assertEquals(block(20, 300), ledger.getBlockByNumber(20));
+        ledger.close();
+    }
+
+    @Test
+    public void testReopenAfterTornTail() throws Exception {
+        FileLedger ledger = new FileLedger(folder.getRoot().getPath());
+        for (long i = 0; i < 5; ++i) {
+            ledger.append(block(i, 100));
+        }
+        ledger.close();
+
+        //the last block was only partly written
+        Path segment = folder.getRoot().toPath().resolve("blockfile_000000");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10);
+        }
+
+        ledger = new FileLedger(folder.getRoot().getPath());
+        Assert.assertEquals(4, ledger.height());
+        Assert.assertNull(ledger.getBlockByNumber(4));
+        Assert.assertNull(ledger.getBlockByHash(block(4, 100).getHeader().getDataHash().toByteArray()));
+        Assert.assertEquals(block(3, 100), ledger.getBlockByNumber(3));
+
+        ledger.append(block(4, 100));
+        Assert.assertEquals(block(4, 100), ledger.getBlockByNumber(4));
+        ledger.close();
+    }
+
+    @Test
+    public void testIteratorWaitsForBlock() throws Exception {
+        FileLedger ledger = new FileLedger(folder.getRoot().getPath());
+        ledger.append(block(0, 10));
+
+        IIterator iterator = ledger.iterator(specified(0));
+        Assert.assertEquals(Common.Status.SUCCESS, entry(iterator.next()).getValue());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<QueryResult> next = executor.submit(iterator::next);
+            Thread.sleep(100);
+            Assert.assertFalse(next.isDone());
+
+            ledger.append(block(1, 10));
+            Map.Entry<QueryResult, Common.Status> entry = entry(next.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(Common.Status.SUCCESS, entry.getValue());
+            Assert.assertEquals(block(1, 10), entry.getKey().getObj());
+        } finally {
+            executor.shutdownNow();
+        }
+        ledger.close();
+    }
+
+    @Test
+    public void testIteratorCloseWakesWaiter() throws Exception {
+        FileLedger ledger = new FileLedger(folder.getRoot().getPath());
+        ledger.append(block(0, 10));
+
+        IIterator iterator = ledger.iterator(specified(1));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<QueryResult> next = executor.submit(iterator::next);
+            Thread.sleep(100);
+            Assert.assertFalse(next.isDone());
+
+            iterator.close();
+            Assert.assertEquals(Common.Status.SERVICE_UNAVAILABLE, entry(next.get(5, TimeUnit.SECONDS)).getValue());
+        } finally {
+            executor.shutdownNow();
+        }
+        ledger.close();
+    }
+
+    @Test
+    public void testLedgerCloseWakesWaiter() throws Exception {
+        FileLedger ledger = new FileLedger(folder.getRoot().getPath());
+
+        IIterator iterator = ledger.iterator(specified(0));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<QueryResult> next = executor.submit(iterator::next);
+            Thread.sleep(100);
+            ledger.close();
+            Assert.assertEquals(Common.Status.SERVICE_UNAVAILABLE, entry(next.get(5, TimeUnit.SECONDS)).getValue());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
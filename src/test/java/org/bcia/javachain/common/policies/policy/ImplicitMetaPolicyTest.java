@@ -0,0 +1,89 @@
+package org.bcia.javachain.common.policies.policy;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bcia.javachain.common.exception.PolicyException;
+import org.bcia.javachain.common.policies.IPolicyManager;
+import org.bcia.julongchain.protos.common.Policies;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ImplicitMetaPolicyTest {
+
+    private static final IPolicy SATISFIED = signatureList -> {
+    };
+
+    private static final IPolicy UNSATISFIED = signatureList -> {
+        throw new PolicyException("Failed to authenticate policy");
+    };
+
+    private static IPolicyManager manager(IPolicy policy) {
+        return new IPolicyManager() {
+            @Override
+            public IPolicy getPolicy(String id) {
+                return new NormalPolicy(policy, id);
+            }
+
+            @Override
+            public IPolicyManager getSubPolicyManager(String[] paths) {
+                return null;
+            }
+
+            @Override
+            public Map<String, IPolicy> getPolicies() {
+                return Collections.emptyMap();
+            }
+        };
+    }
+
+    private static ImplicitMetaPolicy implicitMeta(Policies.ImplicitMetaPolicy.Rule rule, IPolicy... subPolicies) {
+        Map<String, IPolicyManager> managers = new LinkedHashMap<>();
+        for (int i = 0; i < subPolicies.length; i++) {
+            managers.put("Org" + i, manager(subPolicies[i]));
+        }
+        return new ImplicitMetaPolicy(Policies.ImplicitMetaPolicy.newBuilder().setSubPolicy("Writers").setRule(rule)
+                .build(), managers);
+    }
+
+    private static boolean satisfied(IPolicy policy) {
+        try {
+            policy.evaluate(Collections.emptyList());
+            return true;
+        } catch (PolicyException e) {
+            return false;
+        }
+    }
+
+    @Test(expected = PolicyException.class)
+    public void testNormalPolicyPropagatesFailure() throws Exception {
+        new NormalPolicy(UNSATISFIED, "Writers").evaluate(Collections.emptyList());
+    }
+
+    @Test
+    public void testAnySkipsUnsatisfiedSubPolicies() {
+        Policies.ImplicitMetaPolicy.Rule rule = Policies.ImplicitMetaPolicy.Rule.ANY;
+        Assert.assertTrue(satisfied(implicitMeta(rule, UNSATISFIED, SATISFIED)));
+        Assert.assertFalse(satisfied(implicitMeta(rule, UNSATISFIED, UNSATISFIED)));
+    }
+
+    @Test
+    public void testAll() {
+        Policies.ImplicitMetaPolicy.Rule rule = Policies.ImplicitMetaPolicy.Rule.ALL;
+        Assert.assertTrue(satisfied(implicitMeta(rule, SATISFIED, SATISFIED)));
+        Assert.assertFalse(satisfied(implicitMeta(rule, SATISFIED, UNSATISFIED)));
+    }
+
+    @Test
+    public void testMajority() {
+        Policies.ImplicitMetaPolicy.Rule rule = Policies.ImplicitMetaPolicy.Rule.MAJORITY;
+        Assert.assertTrue(satisfied(implicitMeta(rule, UNSATISFIED, SATISFIED, SATISFIED)));
+        Assert.assertFalse(satisfied(implicitMeta(rule, UNSATISFIED, UNSATISFIED, SATISFIED)));
+    }
+
+    @Test
+    public void testNoSubPolicies() {
+        Assert.assertTrue(satisfied(implicitMeta(Policies.ImplicitMetaPolicy.Rule.ALL)));
+    }
+}
@@ -0,0 +1,302 @@
+package org.bcia.javachain.common.policycheck.policies;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.protobuf.ByteString;
+import org.bcia.javachain.common.exception.MspException;
+import org.bcia.javachain.common.exception.PolicyException;
+import org.bcia.javachain.common.exception.VerifyException;
+import org.bcia.javachain.common.policycheck.cauthdsl.CAuthDsl;
+import org.bcia.javachain.common.policycheck.cauthdsl.Policy;
+import org.bcia.javachain.common.util.proto.SignedData;
+import org.bcia.javachain.sdk.security.csp.intfs.ICsp;
+import org.bcia.javachain.sdk.security.csp.intfs.IKey;
+import org.bcia.javachain.sdk.security.csp.intfs.VerifyRequest;
+import org.bcia.javachain.sdk.security.msp.IIdentity;
+import org.bcia.javachain.sdk.security.msp.IIdentityDeserializer;
+import org.bcia.javachain.sdk.security.msp.entity.IdentityIdentifier;
+import org.bcia.javachain.sdk.security.msp.entity.OUIdentifier;
+import org.bcia.javachain.sdk.security.msp.mgmt.Identity;
+import org.bcia.javachain.sdk.security.msp.mgmt.Msp;
+import org.bcia.julongchain.protos.common.MspPrincipal;
+import org.bcia.julongchain.protos.common.Policies;
+import org.bcia.julongchain.protos.msp.Identities;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EvaluatorTest {
+
+    private static final byte[] GOOD = "good".getBytes();
+    private static final byte[] BAD = "bad".getBytes();
+
+    /**
+     * Identity serialized as "principal:serial"; it satisfies the principal whose bytes equal its principal part and
+     * accepts the GOOD signature only.
+     */
+    private static class StubIdentity implements IIdentity {
+        final String principal;
+        int verifications;
+
+        StubIdentity(String principal) {
+            this.principal = principal;
+        }
+
+        @Override
+        public Date expireAt() {
+            return null;
+        }
+
+        @Override
+        public IdentityIdentifier getIdentifier() {
+            return null;
+        }
+
+        @Override
+        public String getMSPIdentifier() {
+            return principal;
+        }
+
+        @Override
+        public void validate() {
+        }
+
+        @Override
+        public OUIdentifier[] getOrganizationalUnits() {
+            return new OUIdentifier[0];
+        }
+
+        @Override
+        public void verify(byte[] msg, byte[] sig) throws VerifyException {
+            verifications++;
+            if (!Arrays.equals(GOOD, sig)) {
+                throw new VerifyException("bad signature");
+            }
+        }
+
+        @Override
+        public byte[] serialize() {
+            return principal.getBytes();
+        }
+
+        @Override
+        public void satisfiesPrincipal(MspPrincipal.MSPPrincipal principal) throws MspException {
+            if (!this.principal.equals(principal.getPrincipal().toStringUtf8())) {
+                throw new MspException("principal mismatch");
+            }
+        }
+    }
+
+    private static class StubDeserializer implements IIdentityDeserializer {
+        final Map<String, StubIdentity> identities = new HashMap<>();
+        int deserializations;
+
+        @Override
+        public IIdentity deserializeIdentity(byte[] serializedIdentity) {
+            deserializations++;
+            String serialized = new String(serializedIdentity);
+            return identities.computeIfAbsent(serialized, k -> new StubIdentity(k.substring(0, k.indexOf(':'))));
+        }
+
+        @Override
+        public void isWellFormed(Identities.SerializedIdentity identity) {
+        }
+    }
+
+    private static SignedData signed(String identity, byte[] signature) {
+        return new SignedData("data".getBytes(), identity.getBytes(), signature);
+    }
+
+    private static MspPrincipal.MSPPrincipal principal(String name) {
+        return MspPrincipal.MSPPrincipal.newBuilder().setPrincipal(ByteString.copyFromUtf8(name)).build();
+    }
+
+    private static Policies.SignaturePolicy signedBy(int index) {
+        return Policies.SignaturePolicy.newBuilder().setSignedBy(index).build();
+    }
+
+    private static Policies.SignaturePolicy nOutOf(int n, Policies.SignaturePolicy... rules) {
+        return Policies.SignaturePolicy.newBuilder()
+                .setNOutOf(Policies.SignaturePolicy.NOutOf.newBuilder().setN(n).addAllRules(Arrays.asList(rules)))
+                .build();
+    }
+
+    private static final List<MspPrincipal.MSPPrincipal> PRINCIPALS = Arrays.asList(principal("A"), principal("B"));
+
+    @Test
+    public void testSignedBySkipsMismatchedAndInvalidSigners() throws Exception {
+        StubDeserializer deserializer = new StubDeserializer();
+        List<SignedData> signatures = Arrays.asList(signed("B:1", GOOD), signed("A:1", BAD), signed("A:2", GOOD));
+        EvaluationContext context = new EvaluationContext(signatures, deserializer);
+
+        Assert.assertTrue(CAuthDsl.compile(signedBy(0), PRINCIPALS, deserializer).evaluate(context));
+        Assert.assertFalse(context.isUsed(0));
+        Assert.assertFalse(context.isUsed(1));
+        Assert.assertTrue(context.isUsed(2));
+        Assert.assertEquals(0, deserializer.identities.get("B:1").verifications);
+    }
+
+    @Test
+    public void testSignedByFailsWithoutValidSigner() throws Exception {
+        StubDeserializer deserializer = new StubDeserializer();
+        List<SignedData> signatures = Arrays.asList(signed("B:1", GOOD), signed("A:1", BAD));
+        EvaluationContext context = new EvaluationContext(signatures, deserializer);
+
+        Assert.assertFalse(CAuthDsl.compile(signedBy(0), PRINCIPALS, deserializer).evaluate(context));
+        Assert.assertEquals(0, context.mark());
+    }
+
+    @Test
+    public void testSignersDeserializedAndVerifiedOnce() throws Exception {
+        StubDeserializer deserializer = new StubDeserializer();
+        List<SignedData> signatures = Arrays.asList(signed("A:1", BAD), signed("B:1", GOOD));
+        EvaluationContext context = new EvaluationContext(signatures, deserializer);
+
+        // both A leaves try the invalid A signer, the B leaves match the B signer only once.
+        IEvalutor evalutor = CAuthDsl.compile(nOutOf(2, signedBy(0), signedBy(0), signedBy(1), signedBy(1)), PRINCIPALS, deserializer);
+        Assert.assertFalse(evalutor.evaluate(context));
+        Assert.assertEquals(2, deserializer.deserializations);
+        Assert.assertEquals(1, deserializer.identities.get("A:1").verifications);
+        Assert.assertEquals(1, deserializer.identities.get("B:1").verifications);
+    }
+
+    @Test
+    public void testFailedBranchRolledBack() throws Exception {
+        StubDeserializer deserializer = new StubDeserializer();
+        List<SignedData> signatures = Collections.singletonList(signed("A:1", GOOD));
+        EvaluationContext context = new EvaluationContext(signatures, deserializer);
+
+        // the first branch takes the A signer and then fails on B; the signer has to be free again for the second branch.
+        IEvalutor evalutor = CAuthDsl.compile(nOutOf(1, nOutOf(2, signedBy(0), signedBy(1)), signedBy(0)), PRINCIPALS, deserializer);
+        Assert.assertTrue(evalutor.evaluate(context));
+        Assert.assertTrue(context.isUsed(0));
+        Assert.assertEquals(1, context.mark());
+    }
+
+    @Test
+    public void testRollbackToMark() {
+        List<SignedData> signatures = new ArrayList<>();
+        for (int i = 0; i < 20; ++i) {
+            signatures.add(signed("A:" + i, GOOD));
+        }
+        EvaluationContext context = new EvaluationContext(signatures, new StubDeserializer());
+
+        context.use(0);
+        int mark = context.mark();
+        for (int i = 1; i < 20; ++i) {
+            context.use(i);
+        }
+        context.rollback(mark);
+
+        Assert.assertTrue(context.isUsed(0));
+        for (int i = 1; i < 20; ++i) {
+            Assert.assertFalse(context.isUsed(i));
+        }
+        Assert.assertEquals(mark, context.mark());
+    }
+
+    @Test
+    public void testLegacyUsedArrayUpdated() throws Exception {
+        StubDeserializer deserializer = new StubDeserializer();
+        List<SignedData> signatures = Arrays.asList(signed("A:1", GOOD), signed("A:2", GOOD));
+        Boolean[] used = new Boolean[] {true, null};
+
+        Assert.assertTrue(CAuthDsl.compile(signedBy(0), PRINCIPALS, deserializer).evaluate(signatures, used));
+        Assert.assertArrayEquals(new Boolean[] {true, true}, used);
+    }
+
+    @Test
+    public void testVerifyAllUsesCspBatch() throws Exception {
+        List<Integer> batches = new ArrayList<>();
+        AtomicInteger singleVerifies = new AtomicInteger();
+        ICsp csp = (ICsp) Proxy.newProxyInstance(ICsp.class.getClassLoader(), new Class<?>[] {ICsp.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "verifyBatch":
+                            @SuppressWarnings("unchecked")
+                            List<VerifyRequest> requests = (List<VerifyRequest>) args[0];
+                            batches.add(requests.size());
+                            List<Boolean> results = new ArrayList<>();
+                            for (VerifyRequest request : requests) {
+                                results.add(Arrays.equals(GOOD, request.getSignature()));
+                            }
+                            return results;
+                        case "verify":
+                            singleVerifies.incrementAndGet();
+                            return Arrays.equals(GOOD, (byte[]) args[1]);
+                        default:
+                            return null;
+                    }
+                });
+        Msp msp = new Msp() {
+            @Override
+            public ICsp getCsp() {
+                return csp;
+            }
+
+            @Override
+            public void satisfiesPrincipal(IIdentity id, MspPrincipal.MSPPrincipal principal) throws MspException {
+                if (!((Identity) id).getIdentityIdentifier().getMspid().equals(principal.getPrincipal().toStringUtf8())) {
+                    throw new MspException("principal mismatch");
+                }
+            }
+        };
+        IKey key = (IKey) Proxy.newProxyInstance(IKey.class.getClassLoader(), new Class<?>[] {IKey.class},
+                (proxy, method, args) -> null);
+        StubDeserializer stubs = new StubDeserializer();
+        // A and C signers are msp identities, B signers are not and are verified one by one.
+        // C signers match no principal of the policy and are left out of the batch.
+        IIdentityDeserializer deserializer = new IIdentityDeserializer() {
+            @Override
+            public IIdentity deserializeIdentity(byte[] serializedIdentity) {
+                String serialized = new String(serializedIdentity);
+                if (serialized.startsWith("A:") || serialized.startsWith("C:")) {
+                    return new Identity(new IdentityIdentifier(serialized.substring(0, 1), serialized), null, key, msp);
+                }
+                return stubs.deserializeIdentity(serializedIdentity);
+            }
+
+            @Override
+            public void isWellFormed(Identities.SerializedIdentity identity) {
+            }
+        };
+        List<SignedData> signatures = Arrays.asList(signed("A:1", GOOD), signed("A:2", BAD), signed("B:1", GOOD),
+                signed("C:1", GOOD));
+        EvaluationContext context = new EvaluationContext(signatures, deserializer);
+        Map<Integer, MspPrincipal.MSPPrincipal> principals = CAuthDsl.principals(nOutOf(1, signedBy(0), signedBy(1)), PRINCIPALS);
+
+        context.verifyAll(principals);
+        Assert.assertEquals(Collections.singletonList(2), batches);
+        Assert.assertTrue(context.verify(0));
+        Assert.assertFalse(context.verify(1));
+        Assert.assertTrue(context.verify(2));
+        Assert.assertEquals(0, singleVerifies.get());
+        Assert.assertEquals(1, stubs.identities.get("B:1").verifications);
+
+        context.verifyAll(principals);
+        Assert.assertEquals(Collections.singletonList(2), batches);
+    }
+
+    @Test
+    public void testPrincipalsCollectsSignedByIndexes() {
+        Map<Integer, MspPrincipal.MSPPrincipal> principals =
+                CAuthDsl.principals(nOutOf(1, nOutOf(2, signedBy(1), signedBy(1)), signedBy(1)), PRINCIPALS);
+
+        Assert.assertEquals(Collections.singletonMap(1, principal("B")), principals);
+    }
+
+    @Test(expected = PolicyException.class)
+    public void testPolicyThrowsWhenNotSatisfied() throws Exception {
+        StubDeserializer deserializer = new StubDeserializer();
+        Policy policy = new Policy(deserializer, CAuthDsl.compile(signedBy(0), PRINCIPALS, deserializer));
+
+        policy.evaluate(Collections.emptyList());
+    }
+}
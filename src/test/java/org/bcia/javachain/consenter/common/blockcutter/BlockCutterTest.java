@@ -0,0 +1,155 @@
+package org.bcia.javachain.consenter.common.blockcutter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.protobuf.ByteString;
+import org.bcia.javachain.common.groupconfig.capability.IConsenterCapabilities;
+import org.bcia.javachain.common.groupconfig.config.IConsenterConfig;
+import org.bcia.javachain.common.groupconfig.config.IOrganizationConfig;
+import org.bcia.javachain.consenter.entity.BatchesMes;
+import org.bcia.javachain.sdk.common.log.JavaChainLog;
+import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
+import org.bcia.julongchain.protos.common.Common;
+import org.bcia.julongchain.protos.consenter.Configuration;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class BlockCutterTest {
+
+    private static JavaChainLog log = JavaChainLogFactory.getLog(BlockCutterTest.class);
+
+    private static IConsenterConfig config(int maxMessageCount, int preferredMaxBytes, long batchTimeout) {
+        final Configuration.BatchSize batchSize = Configuration.BatchSize.newBuilder()
+                .setMaxMessageCount(maxMessageCount)
+                .setAbsoluteMaxBytes(preferredMaxBytes * 2)
+                .setPreferredMaxBytes(preferredMaxBytes)
+                .build();
+
+        return new IConsenterConfig() {
+            @Override
+            public String getConsensusType() {
+                return "Solo";
+            }
+
+            @Override
+            public Configuration.BatchSize getBatchSize() {
+                return batchSize;
+            }
+
+            @Override
+            public long getBatchTimeout() {
+                return batchTimeout;
+            }
+
+            @Override
+            public List<String> getKafkaBrokers() {
+                return null;
+            }
+
+            @Override
+            public long getMaxChannelsCount() {
+                return 0;
+            }
+
+            @Override
+            public IConsenterCapabilities getCapabilities() {
+                return null;
+            }
+
+            @Override
+            public Map<String, IOrganizationConfig> getOrganizationConfigMap() {
+                return null;
+            }
+        };
+    }
+
+    private static Common.Envelope envelope(int size) {
+        return Common.Envelope.newBuilder().setPayload(ByteString.copyFrom(new byte[size])).build();
+    }
+
+    @Test
+    public void testCutOnMessageCount() {
+        BlockCutter cutter = new BlockCutter(config(3, 1024, 0));
+
+        Assert.assertEquals(0, cutter.ordered(envelope(10)).getMessageBatches().length);
+        BatchesMes batchesMes = cutter.ordered(envelope(10));
+        Assert.assertTrue(batchesMes.isPending());
+        Assert.assertEquals(20, cutter.getPendingBatchSizeBytes());
+
+        batchesMes = cutter.ordered(envelope(10));
+        Assert.assertEquals(1, batchesMes.getMessageBatches().length);
+        Assert.assertEquals(3, batchesMes.getMessageBatches()[0].length);
+        Assert.assertFalse(batchesMes.isPending());
+        Assert.assertEquals(0, cutter.cut().length);
+    }
+
+    @Test
+    public void testCutOnBytes() {
+        BlockCutter cutter = new BlockCutter(config(100, 100, 0));
+
+        cutter.ordered(envelope(60));
+        BatchesMes batchesMes = cutter.ordered(envelope(60));
+        Assert.assertEquals(1, batchesMes.getMessageBatches().length);
+        Assert.assertEquals(1, batchesMes.getMessageBatches()[0].length);
+        Assert.assertEquals(60, cutter.getPendingBatchSizeBytes());
+
+        // larger than preferred: pending batch and the message are cut separately.
+        batchesMes = cutter.ordered(envelope(150));
+        Assert.assertEquals(2, batchesMes.getMessageBatches().length);
+        Assert.assertEquals(1, batchesMes.getMessageBatches()[1].length);
+        Assert.assertFalse(batchesMes.isPending());
+        Assert.assertEquals(0, cutter.getPendingBatch().length);
+    }
+
+    @Test
+    public void testCutOnBatchTimeout() throws InterruptedException {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        BlockingQueue<Common.Envelope[]> cut = new ArrayBlockingQueue<>(10);
+        try {
+            BlockCutter cutter = new BlockCutter(config(10, 1024, 100), scheduler, cut::add);
+
+            cutter.ordered(envelope(10));
+            cutter.ordered(envelope(10));
+            Common.Envelope[] batch = cut.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull(batch);
+            Assert.assertEquals(2, batch.length);
+            Assert.assertEquals(0, cutter.getPendingBatch().length);
+
+            // cut before the timeout expires: nothing more is delivered.
+            cutter.ordered(envelope(10));
+            Assert.assertEquals(1, cutter.cut().length);
+            Assert.assertNull(cut.poll(300, TimeUnit.MILLISECONDS));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    //run with -Dbenchmark=true
+    @Test
+    public void benchmarkOrdered() {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+        final int messages = 200000;
+        for (int size : new int[] {100, 1000, 10000}) {
+            for (int maxMessageCount : new int[] {10, 500, 10000}) {
+                BlockCutter cutter = new BlockCutter(config(maxMessageCount, 100 * 1024 * 1024, 0));
+                Common.Envelope msg = envelope(size);
+                long batches = 0;
+                long start = System.nanoTime();
+                for (int i = 0; i < messages; ++i) {
+                    batches += cutter.ordered(msg).getMessageBatches().length;
+                }
+                long nanos = System.nanoTime() - start;
+                Assert.assertEquals(messages / maxMessageCount, batches);
+                log.info(String.format("ordered %d byte messages, MaxMessageCount %d: %d ns/op",
+                        size, maxMessageCount, nanos / messages));
+            }
+        }
+    }
+}
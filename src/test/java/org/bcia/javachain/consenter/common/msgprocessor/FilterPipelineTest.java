@@ -0,0 +1,117 @@
+package org.bcia.javachain.consenter.common.msgprocessor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.google.protobuf.ByteString;
+import org.bcia.javachain.common.exception.ConsenterException;
+import org.bcia.julongchain.protos.common.Common;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FilterPipelineTest {
+
+    private static Common.Envelope envelope(int i) {
+        return Common.Envelope.newBuilder().setPayload(ByteString.copyFromUtf8(Integer.toString(i))).build();
+    }
+
+    private static int number(Common.Envelope message) {
+        return Integer.parseInt(message.getPayload().toStringUtf8());
+    }
+
+    @Test
+    public void testOrderPreserved() throws Exception {
+        final int messages = 2000;
+        // inline rule rejects multiples of 7, concurrent rule takes random time and rejects multiples of 5.
+        IRule inline = message -> {
+            if (number(message) % 7 == 0) {
+                throw new ConsenterException("inline reject");
+            }
+        };
+        IConcurrentRule concurrent = message -> {
+            try {
+                Thread.sleep(0, ThreadLocalRandom.current().nextInt(100000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (number(message) % 5 == 0) {
+                throw new ConsenterException("concurrent reject");
+            }
+        };
+
+        List<Integer> accepted = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> rejected = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService workers = Executors.newFixedThreadPool(8);
+        try {
+            FilterPipeline pipeline = new FilterPipeline(new RuleSet(new IRule[] {inline, concurrent}), workers, 64,
+                    message -> accepted.add(number(message)), (message, e) -> rejected.add(number(message)));
+
+            for (int i = 0; i < messages; ++i) {
+                pipeline.submit(envelope(i));
+                Assert.assertTrue(pipeline.getInFlight() <= 64);
+            }
+            workers.shutdown();
+            Assert.assertTrue(workers.awaitTermination(30, TimeUnit.SECONDS));
+
+            Assert.assertEquals(0, pipeline.getInFlight());
+            Assert.assertEquals(messages, accepted.size() + rejected.size());
+            int last = -1;
+            for (int i : accepted) {
+                Assert.assertTrue(i > last);
+                Assert.assertTrue(i % 5 != 0 && i % 7 != 0);
+                last = i;
+            }
+            Assert.assertEquals(messages, pipeline.getInlineStage().getCount());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConsumerCalledOutsideLock() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        List<Integer> accepted = Collections.synchronizedList(new ArrayList<>());
+        IConcurrentRule concurrent = message -> {
+        };
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        try {
+            FilterPipeline pipeline = new FilterPipeline(new RuleSet(new IRule[] {concurrent}), workers, 8,
+                    message -> {
+                        if (number(message) == 0) {
+                            entered.countDown();
+                            try {
+                                proceed.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                        accepted.add(number(message));
+                    }, (message, e) -> Assert.fail());
+
+            pipeline.submit(envelope(0));
+            Assert.assertTrue(entered.await(5, TimeUnit.SECONDS));
+            // the consumer is blocked on the first message, the others finish and wait in order without blocking.
+            for (int i = 1; i < 4; ++i) {
+                pipeline.submit(envelope(i));
+            }
+            Assert.assertEquals(3, pipeline.getInFlight());
+            Assert.assertTrue(accepted.isEmpty());
+
+            proceed.countDown();
+            workers.shutdown();
+            Assert.assertTrue(workers.awaitTermination(5, TimeUnit.SECONDS));
+            Assert.assertEquals(0, pipeline.getInFlight());
+            Assert.assertEquals(Arrays.asList(0, 1, 2, 3), accepted);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.bcia.javachain.consenter.common.msgprocessor;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.protobuf.ByteString;
+import org.bcia.javachain.common.exception.PolicyException;
+import org.bcia.javachain.common.policies.IPolicyManager;
+import org.bcia.javachain.common.policies.policy.IPolicy;
+import org.bcia.javachain.common.util.proto.SignedData;
+import org.bcia.julongchain.protos.common.Common;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SigFilterTest {
+
+    private static IPolicyManager manager(IPolicy policy) {
+        return new IPolicyManager() {
+            @Override
+            public IPolicy getPolicy(String id) {
+                return policy;
+            }
+
+            @Override
+            public IPolicyManager getSubPolicyManager(String[] paths) {
+                return null;
+            }
+
+            @Override
+            public Map<String, IPolicy> getPolicies() {
+                return Collections.emptyMap();
+            }
+        };
+    }
+
+    private static Common.Envelope envelope() {
+        Common.SignatureHeader signatureHeader = Common.SignatureHeader.newBuilder()
+                .setCreator(ByteString.copyFromUtf8("creator")).build();
+        Common.Payload payload = Common.Payload.newBuilder()
+                .setHeader(Common.Header.newBuilder().setSignatureHeader(signatureHeader.toByteString())).build();
+        return Common.Envelope.newBuilder().setPayload(payload.toByteString())
+                .setSignature(ByteString.copyFromUtf8("signature")).build();
+    }
+
+    @Test
+    public void testEvaluatesPolicyWithEnvelopeSignature() throws Exception {
+        AtomicInteger evaluations = new AtomicInteger();
+        IPolicy policy = signatureList -> {
+            evaluations.incrementAndGet();
+            Assert.assertEquals(1, signatureList.size());
+            SignedData signedData = signatureList.get(0);
+            Assert.assertEquals("creator", new String(signedData.getIdentity()));
+            Assert.assertEquals("signature", new String(signedData.getSignature()));
+        };
+
+        new SigFilter("Writers", manager(policy)).apply(envelope());
+        Assert.assertEquals(1, evaluations.get());
+    }
+
+    @Test
+    public void testUnsatisfiedPolicyIsLogged() throws Exception {
+        AtomicInteger evaluations = new AtomicInteger();
+        IPolicy policy = signatureList -> {
+            evaluations.incrementAndGet();
+            throw new PolicyException("Failed to authenticate policy");
+        };
+
+        // SigFilter logs policy failures and does not reject the message.
+        new SigFilter("Writers", manager(policy)).apply(envelope());
+        Assert.assertEquals(1, evaluations.get());
+    }
+}
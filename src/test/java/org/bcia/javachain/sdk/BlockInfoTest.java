@@ -0,0 +1,138 @@
+package org.bcia.javachain.sdk;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import com.google.protobuf.ByteString;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.bcia.julongchain.protos.common.Common.Block;
+import org.bcia.julongchain.protos.common.Common.BlockData;
+import org.bcia.julongchain.protos.common.Common.BlockHeader;
+import org.bcia.julongchain.protos.common.Common.BlockMetadata;
+import org.bcia.julongchain.protos.common.Common.Envelope;
+import org.bcia.julongchain.protos.common.Common.GroupHeader;
+import org.bcia.julongchain.protos.common.Common.Header;
+import org.bcia.julongchain.protos.common.Common.HeaderType;
+import org.bcia.julongchain.protos.common.Common.Payload;
+import org.bcia.julongchain.protos.common.Common.SignatureHeader;
+import org.bcia.julongchain.protos.msp.Identities.SerializedIdentity;
+import org.bcia.julongchain.protos.node.TransactionPackage.TxValidationCode;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class BlockInfoTest {
+    private static final Log logger = LogFactory.getLog(BlockInfoTest.class);
+
+    private static final int TRANSACTIONS = 1000;
+    private static final int ROUNDS = 50;
+
+    private static Block block;
+
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        ByteString creator = SerializedIdentity.newBuilder().setMspid("Org1MSP")
+                .setIdBytes(ByteString.copyFrom(new byte[800])).build().toByteString();
+
+        BlockData.Builder blockDataBuilder = BlockData.newBuilder();
+        byte[] txResultsMap = new byte[TRANSACTIONS];
+        for (int i = 0; i < TRANSACTIONS; ++i) {
+            GroupHeader groupHeader = GroupHeader.newBuilder().setType(HeaderType.ENDORSER_TRANSACTION_VALUE)
+                    .setGroupId("TESTCHANNEL").setTxId("TRANSACTION" + i).build();
+            SignatureHeader signatureHeader = SignatureHeader.newBuilder().setCreator(creator)
+                    .setNonce(ByteString.copyFrom(new byte[24])).build();
+            Payload payload = Payload.newBuilder().setHeader(Header.newBuilder()
+                    .setGroupHeader(groupHeader.toByteString()).setSignatureHeader(signatureHeader.toByteString()))
+                    .setData(ByteString.copyFrom(new byte[2048])).build();
+            blockDataBuilder.addData(Envelope.newBuilder().setPayload(payload.toByteString())
+                    .setSignature(ByteString.copyFrom(new byte[72])).build().toByteString());
+            txResultsMap[i] = i % 10 == 0 ? (byte) TxValidationCode.MVCC_READ_CONFLICT_VALUE : TxValidationCode.VALID_VALUE;
+        }
+
+        BlockMetadata blockMetadata = BlockMetadata.newBuilder()
+                .addMetadata(ByteString.copyFrom("signatures".getBytes(UTF_8)))
+                .addMetadata(ByteString.copyFrom("last_config".getBytes(UTF_8)))
+                .addMetadata(ByteString.copyFrom(txResultsMap))
+                .addMetadata(ByteString.copyFrom("orderer".getBytes(UTF_8))).build();
+
+        block = Block.newBuilder().setData(blockDataBuilder)
+                .setHeader(BlockHeader.newBuilder().setNumber(1)).setMetadata(blockMetadata).build();
+    }
+
+    private static long walk(BlockInfo blockInfo) throws Exception {
+        long ret = 0;
+        for (BlockInfo.EnvelopeInfo envelopeInfo : blockInfo.getEnvelopeInfos()) {
+            ret += envelopeInfo.getTransactionID().length();
+            ret += envelopeInfo.getCreator().getMspid().length();
+            ret += envelopeInfo.isValid() ? 1 : 0;
+        }
+        return ret;
+    }
+
+    @Test
+    public void testEnvelopesParsedOnce() throws Exception {
+        BlockInfo blockInfo = new BlockInfo(block);
+
+        BlockInfo.EnvelopeInfo first = blockInfo.getEnvelopeInfo(3);
+        System.gc();
+        BlockInfo.EnvelopeInfo second = blockInfo.getEnvelopeInfo(3);
+        Assert.assertEquals("TRANSACTION3", second.getTransactionID());
+        Assert.assertSame(first.getTransactionID(), second.getTransactionID());
+        Assert.assertFalse(blockInfo.getEnvelopeInfo(10).isValid());
+
+        // the shared transactions filter is not handed out.
+        blockInfo.getTransActionsMetaData()[10] = TxValidationCode.VALID_VALUE;
+        Assert.assertFalse(blockInfo.getEnvelopeInfo(10).isValid());
+    }
+
+    @Test
+    public void testDecodeEnvelopes() throws Exception {
+        BlockInfo lazy = new BlockInfo(block);
+        BlockInfo decoded = new BlockInfo(block).decodeEnvelopes();
+        Assert.assertEquals(walk(lazy), walk(decoded));
+        for (int i = 0; i < TRANSACTIONS; ++i) {
+            Assert.assertEquals(lazy.getEnvelopeInfo(i).getTransactionID(), decoded.getEnvelopeInfo(i).getTransactionID());
+        }
+    }
+
+    //run with -Dbenchmark=true
+    @Test
+    public void benchmarkBlockDecode() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = threadMXBean instanceof com.sun.management.ThreadMXBean ?
+                (com.sun.management.ThreadMXBean) threadMXBean : null;
+        long tid = Thread.currentThread().getId();
+
+        for (int i = 0; i < ROUNDS; ++i) { // warm up
+            walk(new BlockInfo(block));
+            walk(new BlockInfo(block).decodeEnvelopes());
+        }
+
+        long bytes = allocations == null ? -1 : allocations.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; ++i) {
+            BlockInfo blockInfo = new BlockInfo(block);
+            walk(blockInfo);
+            walk(blockInfo); // a second listener visiting the same block.
+        }
+        long lazyNanos = (System.nanoTime() - start) / ROUNDS;
+        long lazyBytes = allocations == null ? -1 : (allocations.getThreadAllocatedBytes(tid) - bytes) / ROUNDS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; ++i) {
+            BlockInfo blockInfo = new BlockInfo(block).decodeEnvelopes();
+            walk(blockInfo);
+            walk(blockInfo);
+        }
+        long parallelNanos = (System.nanoTime() - start) / ROUNDS;
+
+        logger.info(format("%d tx block, two passes: on demand %d us/block %d bytes/block, decoded in parallel %d us/block",
+                TRANSACTIONS, lazyNanos / 1000, lazyBytes, parallelNanos / 1000));
+    }
+}
@@ -0,0 +1,187 @@
+package org.bcia.javachain.sdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.bcia.javachain.sdk.exception.TransactionException;
+import org.bcia.julongchain.protos.common.Common;
+import org.bcia.julongchain.protos.common.Common.Block;
+import org.bcia.julongchain.protos.common.Common.BlockHeader;
+import org.bcia.julongchain.protos.common.Common.Envelope;
+import org.bcia.julongchain.protos.consenter.Ab.SeekInfo;
+import org.bcia.julongchain.protos.node.DeliverGrpc;
+import org.bcia.julongchain.protos.node.EventsPackage.DeliverResponse;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BlockStreamTest {
+
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private final List<Server> servers = new ArrayList<>();
+
+    /**
+     * Deliver service serving blocks start..stop of each seek, optionally slow or failing once at given blocks.
+     */
+    static class StubDeliver extends DeliverGrpc.DeliverImplBase {
+        final long delayMillis;
+        final Set<Long> failOnce;
+        final boolean alwaysFail;
+        final List<long[]> seeks = Collections.synchronizedList(new ArrayList<>());
+
+        StubDeliver(long delayMillis, boolean alwaysFail, Long... failOnce) {
+            this.delayMillis = delayMillis;
+            this.alwaysFail = alwaysFail;
+            this.failOnce = Collections.synchronizedSet(new HashSet<>(Arrays.asList(failOnce)));
+        }
+
+        @Override
+        public StreamObserver<Envelope> deliver(StreamObserver<DeliverResponse> responseObserver) {
+            return new StreamObserver<Envelope>() {
+                @Override
+                public void onNext(Envelope envelope) {
+                    final SeekInfo seekInfo;
+                    try {
+                        seekInfo = SeekInfo.parseFrom(envelope.getPayload());
+                    } catch (Exception e) {
+                        responseObserver.onError(e);
+                        return;
+                    }
+                    final long start = seekInfo.getStart().getSpecified().getNumber();
+                    final long stop = seekInfo.getStop().getSpecified().getNumber();
+                    seeks.add(new long[] {start, stop});
+                    new Thread(() -> serve(responseObserver, start, stop)).start();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                }
+
+                @Override
+                public void onCompleted() {
+                }
+            };
+        }
+
+        private void serve(StreamObserver<DeliverResponse> responseObserver, long start, long stop) {
+            try {
+                for (long number = start; number <= stop; ++number) {
+                    if (alwaysFail || failOnce.remove(number)) {
+                        responseObserver.onError(Status.UNAVAILABLE.withDescription("failed at " + number).asException());
+                        return;
+                    }
+                    if (delayMillis > 0) {
+                        Thread.sleep(delayMillis);
+                    }
+                    responseObserver.onNext(DeliverResponse.newBuilder().setBlock(Block.newBuilder()
+                            .setHeader(BlockHeader.newBuilder().setNumber(number))).build());
+                }
+                responseObserver.onNext(DeliverResponse.newBuilder().setStatus(Common.Status.SUCCESS).build());
+                responseObserver.onCompleted();
+            } catch (Exception e) {
+                // cancelled by the client.
+            }
+        }
+    }
+
+    private Node peer(String name, StubDeliver deliver) throws Exception {
+        servers.add(InProcessServerBuilder.forName(name).addService(deliver).build().start());
+        return Node.createNewInstance(name, "grpc://localhost:7051", null);
+    }
+
+    private BlockStream newStream(Node[] peers, long from, long to, long chunkSize, long prefetch) {
+        BlockStream.Connector connector = new BlockStream.Connector() {
+            @Override
+            public ManagedChannel open(Node peer) {
+                return InProcessChannelBuilder.forName(peer.getName()).build();
+            }
+
+            @Override
+            public Envelope seekEnvelope(Node peer, SeekInfo seekInfo) {
+                return Envelope.newBuilder().setPayload(seekInfo.toByteString()).build();
+            }
+        };
+        return new BlockStream("testchannel", executorService, connector, Arrays.asList(peers), from, to, chunkSize, prefetch);
+    }
+
+    @After
+    public void tearDown() {
+        for (Server server : servers) {
+            server.shutdownNow();
+        }
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testChunksReturnedInOrder() throws Exception {
+        StubDeliver slow = new StubDeliver(3, false);
+        StubDeliver fast = new StubDeliver(0, false);
+        StubDeliver medium = new StubDeliver(1, false);
+        Node[] peers = {peer("slow", slow), peer("fast", fast), peer("medium", medium)};
+
+        try (BlockStream stream = newStream(peers, 5, 104, 10, 30)) {
+            for (long number = 5; number <= 104; ++number) {
+                Assert.assertTrue(stream.hasNext());
+                Assert.assertEquals(number, stream.next().getBlockNumber());
+            }
+            Assert.assertFalse(stream.hasNext());
+        }
+
+        List<long[]> seeks = new ArrayList<>();
+        seeks.addAll(slow.seeks);
+        seeks.addAll(fast.seeks);
+        seeks.addAll(medium.seeks);
+        Assert.assertEquals(10, seeks.size());
+        Set<Long> starts = new HashSet<>();
+        for (long[] seek : seeks) {
+            Assert.assertEquals(9, seek[1] - seek[0]);
+            Assert.assertEquals(5, seek[0] % 10);
+            starts.add(seek[0]);
+        }
+        Assert.assertEquals(10, starts.size());
+    }
+
+    @Test
+    public void testChunkRetriedFromFirstMissingBlock() throws Exception {
+        StubDeliver flaky = new StubDeliver(0, false, 13L);
+        Node[] peers = {peer("flaky", flaky)};
+
+        try (BlockStream stream = newStream(peers, 0, 39, 10, 40)) {
+            for (long number = 0; number <= 39; ++number) {
+                Assert.assertEquals(number, stream.next().getBlockNumber());
+            }
+        }
+
+        boolean retried = false;
+        synchronized (flaky.seeks) {
+            for (long[] seek : flaky.seeks) {
+                retried |= seek[0] == 13 && seek[1] == 19;
+            }
+        }
+        Assert.assertTrue("chunk not retried from block 13", retried);
+    }
+
+    @Test
+    public void testFailsWhenNoPeersLeft() throws Exception {
+        Node[] peers = {peer("broken", new StubDeliver(0, true))};
+
+        try (BlockStream stream = newStream(peers, 0, 9, 10, 10)) {
+            stream.next();
+            Assert.fail("Expected block stream to fail.");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getCause() instanceof TransactionException);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.bcia.javachain.sdk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileEventCheckpointStoreTest {
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testCheckpoint() throws IOException {
+        Path dir = tempFolder.getRoot().toPath().resolve("checkpoints");
+        FileEventCheckpointStore store = new FileEventCheckpointStore(dir);
+
+        Assert.assertNull(store.getCheckpoint("mygroup"));
+
+        store.checkpoint("mygroup", 10L);
+        store.checkpoint("mygroup", 42L);
+        store.checkpoint("other", 7L);
+
+        // a new store on the same directory, as after a restart.
+        FileEventCheckpointStore restarted = new FileEventCheckpointStore(dir);
+        Assert.assertEquals(Long.valueOf(42L), restarted.getCheckpoint("mygroup"));
+        Assert.assertEquals(Long.valueOf(7L), restarted.getCheckpoint("other"));
+
+        try (Stream<Path> files = Files.list(dir)) {
+            Assert.assertEquals("no temporary files left", 2, files.count());
+        }
+    }
+
+    @Test (expected = IOException.class)
+    public void testCorruptCheckpoint() throws IOException {
+        FileEventCheckpointStore store = new FileEventCheckpointStore(tempFolder.getRoot().toPath());
+        Files.write(tempFolder.getRoot().toPath().resolve("mygroup.checkpoint"), "junk".getBytes(StandardCharsets.UTF_8));
+
+        store.getCheckpoint("mygroup");
+    }
+}
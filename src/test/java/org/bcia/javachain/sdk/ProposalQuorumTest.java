@@ -0,0 +1,52 @@
+package org.bcia.javachain.sdk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProposalQuorumTest {
+
+    private static ProposalResponse response(int status) {
+        return new ProposalResponse("txID", "group", status, "message");
+    }
+
+    @Test
+    public void testNOf() {
+        ProposalQuorum quorum = ProposalQuorum.nOf(2);
+        List<ProposalResponse> responses = new ArrayList<>();
+
+        responses.add(response(200));
+        Assert.assertFalse(quorum.isSatisfied(responses));
+
+        responses.add(response(500));
+        Assert.assertFalse(quorum.isSatisfied(responses));
+
+        responses.add(response(200));
+        Assert.assertTrue(quorum.isSatisfied(responses));
+    }
+
+    @Test
+    public void testUndefinedStatusCountsAsSuccess() {
+        // peers still answer 0 for success, the same responses isInvalid() accepts.
+        ProposalQuorum quorum = ProposalQuorum.nOf(2);
+        List<ProposalResponse> responses = new ArrayList<>();
+
+        responses.add(response(0));
+        responses.add(response(200));
+        Assert.assertTrue(quorum.isSatisfied(responses));
+    }
+
+    @Test
+    public void testAll() {
+        List<ProposalResponse> responses = new ArrayList<>();
+        responses.add(response(200));
+        Assert.assertFalse(ProposalQuorum.ALL.isSatisfied(responses));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadN() {
+        ProposalQuorum.nOf(0);
+    }
+}
@@ -0,0 +1,136 @@
+package org.bcia.javachain.sdk;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static java.lang.String.format;
+
+public class TransactionListenerRegistryTest {
+    private static final Log logger = LogFactory.getLog(TransactionListenerRegistryTest.class);
+
+    private static final int THREADS = 8;
+    private static final int TRANSACTIONS = 20000;
+
+    static class Listener implements TransactionListenerRegistry.Listener {
+        final String txID;
+        volatile long sweepTime;
+
+        Listener(String txID, long sweepTime) {
+            this.txID = txID;
+            this.sweepTime = sweepTime;
+        }
+
+        @Override
+        public String getTxID() {
+            return txID;
+        }
+
+        @Override
+        public long getSweepTime() {
+            return sweepTime;
+        }
+
+        @Override
+        public boolean sweepMe() {
+            return true; // only asked once the sweep time has passed.
+        }
+    }
+
+    @Test
+    public void testRegisterAndRemove() {
+        TransactionListenerRegistry<Listener> registry = new TransactionListenerRegistry<>(10);
+        long now = System.currentTimeMillis();
+        Listener a = new Listener("tx1", now + 60000);
+        Listener b = new Listener("tx1", now + 60000);
+
+        registry.register(a);
+        registry.register(b);
+        Assert.assertEquals(2, registry.get("tx1").size());
+        Assert.assertTrue(registry.get("tx2").isEmpty());
+
+        registry.remove(a);
+        Assert.assertEquals(1, registry.get("tx1").size());
+        Assert.assertSame(b, registry.get("tx1").get(0));
+
+        registry.remove(b);
+        Assert.assertTrue(registry.isEmpty());
+    }
+
+    @Test
+    public void testExpire() {
+        TransactionListenerRegistry<Listener> registry = new TransactionListenerRegistry<>(10);
+        long now = System.currentTimeMillis();
+        Listener due = new Listener("tx1", now + 50);
+        Listener later = new Listener("tx2", now + 500);
+        Listener active = new Listener("tx3", now + 50);
+
+        registry.register(due);
+        registry.register(later);
+        registry.register(active);
+        active.sweepTime = now + 500; // seen activity.
+
+        Assert.assertEquals(1, registry.expire(now + 100));
+        Assert.assertTrue(registry.get("tx1").isEmpty());
+        Assert.assertEquals(1, registry.get("tx3").size());
+
+        Assert.assertEquals(0, registry.expire(now + 400));
+        Assert.assertEquals(2, registry.size());
+
+        // a gap longer than the wheel still visits every slot.
+        Assert.assertEquals(2, registry.expire(now + 100000));
+        Assert.assertTrue(registry.isEmpty());
+    }
+
+    @Test
+    public void benchmarkRegisterFireSweep() throws InterruptedException {
+        TransactionListenerRegistry<Listener> registry = new TransactionListenerRegistry<>(10);
+        AtomicBoolean done = new AtomicBoolean(false);
+
+        // Outstanding listeners that the sweeper has to live with.
+        long far = System.currentTimeMillis() + 600000;
+        for (int i = 0; i < TRANSACTIONS; ++i) {
+            registry.register(new Listener("idle" + i, far));
+        }
+
+        Thread sweeper = new Thread(() -> {
+            while (!done.get()) {
+                registry.expire(System.currentTimeMillis());
+            }
+        });
+        sweeper.setDaemon(true);
+        sweeper.start();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch latch = new CountDownLatch(THREADS);
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; ++t) {
+            final int thread = t;
+            executorService.execute(() -> {
+                for (int i = 0; i < TRANSACTIONS; ++i) {
+                    Listener l = new Listener("tx" + thread + "-" + i, far);
+                    registry.register(l);
+                    for (Listener r : registry.get(l.txID)) {
+                        registry.remove(r); // fire
+                    }
+                }
+                latch.countDown();
+            });
+        }
+        Assert.assertTrue(latch.await(60, TimeUnit.SECONDS));
+        long nanos = System.nanoTime() - start;
+        done.set(true);
+        executorService.shutdown();
+
+        Assert.assertEquals(TRANSACTIONS, registry.size());
+        logger.info(format("register/fire with %d threads and %d outstanding listeners: %d ns/op",
+                THREADS, TRANSACTIONS, nanos / ((long) THREADS * TRANSACTIONS)));
+    }
+}
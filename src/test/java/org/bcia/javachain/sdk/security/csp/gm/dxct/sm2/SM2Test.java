@@ -0,0 +1,120 @@
+package org.bcia.javachain.sdk.security.csp.gm.dxct.sm2;
+
+import org.bcia.javachain.sdk.common.log.JavaChainLog;
+import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.lang.String.format;
+
+/**
+ * SM2签名验签正确性及性能测试
+ */
+public class SM2Test {
+    private static JavaChainLog log = JavaChainLogFactory.getLog(SM2Test.class);
+    private static final int ROUNDS = 500;
+
+    private final SM2 sm2 = new SM2();
+    private final SM2KeyPair keyPair = sm2.generateKeyPair();
+    private final byte[] msg = "javachain sm2 benchmark".getBytes();
+
+    @Test
+    public void testSignVerify() {
+        byte[] sig = sm2.sign(keyPair.getPrivatekey(), msg);
+        Assert.assertTrue(sm2.verify(keyPair.getPublickey(), sig, msg));
+        //缓存命中时结果一致
+        Assert.assertTrue(sm2.verify(keyPair.getPublickey(), sig, msg));
+        Assert.assertFalse(sm2.verify(keyPair.getPublickey(), sig, "other".getBytes()));
+
+        SM2KeyPair other = sm2.generateKeyPair();
+        Assert.assertFalse(sm2.verify(other.getPublickey(), sig, msg));
+    }
+
+    @Test
+    public void testSignerFollowsPrivateKey() {
+        SM2KeyPair other = sm2.generateKeyPair();
+        for (int i = 0; i < 3; ++i) {
+            byte[] sig = sm2.sign(keyPair.getPrivatekey(), msg);
+            Assert.assertTrue(sm2.verify(keyPair.getPublickey(), sig, msg));
+            //同一私钥的另一份数组
+            sig = sm2.sign(other.getPrivatekey().clone(), msg);
+            Assert.assertTrue(sm2.verify(other.getPublickey(), sig, msg));
+            Assert.assertFalse(sm2.verify(keyPair.getPublickey(), sig, msg));
+        }
+    }
+
+    @Test
+    public void testSignerFollowsOverwrittenPrivateKey() {
+        byte[] buffer = keyPair.getPrivatekey().clone();
+        SM2KeyPair other = sm2.generateKeyPair();
+        while (other.getPrivatekey().length != buffer.length) {
+            other = sm2.generateKeyPair();
+        }
+        byte[] sig = sm2.sign(buffer, msg);
+        Assert.assertTrue(sm2.verify(keyPair.getPublickey(), sig, msg));
+        //改写同一个私钥数组
+        System.arraycopy(other.getPrivatekey(), 0, buffer, 0, buffer.length);
+        sig = sm2.sign(buffer, msg);
+        Assert.assertTrue(sm2.verify(other.getPublickey(), sig, msg));
+        Assert.assertFalse(sm2.verify(keyPair.getPublickey(), sig, msg));
+    }
+
+    @Test
+    public void testPublicKeyCacheEviction() {
+        byte[] publicKey = keyPair.getPublickey();
+        Object cached = SM2.getPublicKeyParameters(publicKey);
+        Assert.assertSame(cached, SM2.getPublicKeyParameters(publicKey.clone()));
+
+        for (int i = 0; i < 1100; ++i) {
+            SM2KeyPair other = sm2.generateKeyPair();
+            Assert.assertNotNull(SM2.getPublicKeyParameters(other.getPublickey()));
+            //常用的公钥不被淘汰
+            if (i % 100 == 0) {
+                SM2.getPublicKeyParameters(publicKey);
+            }
+        }
+        Assert.assertSame(cached, SM2.getPublicKeyParameters(publicKey));
+    }
+
+    @Test
+    public void benchmarkSignVerify() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        byte[] sig = sm2.sign(keyPair.getPrivatekey(), msg);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            run(executorService, threads, () -> sm2.sign(keyPair.getPrivatekey(), msg));
+            long signNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            run(executorService, threads, () -> Assert.assertTrue(sm2.verify(keyPair.getPublickey(), sig, msg)));
+            long verifyNanos = System.nanoTime() - start;
+
+            log.info(format("SM2 with %d threads: sign %d ops/s per core, verify %d ops/s per core", threads,
+                    ROUNDS * 1000000000L / signNanos, ROUNDS * 1000000000L / verifyNanos));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    private static void run(ExecutorService executorService, int threads, Runnable op) throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; ++t) {
+            futures.add(executorService.submit(() -> {
+                for (int i = 0; i < ROUNDS; ++i) {
+                    op.run();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+}
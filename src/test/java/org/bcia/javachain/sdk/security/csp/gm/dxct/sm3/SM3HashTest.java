@@ -0,0 +1,72 @@
+package org.bcia.javachain.sdk.security.csp.gm.dxct.sm3;
+
+import com.google.protobuf.ByteString;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * SM3流式摘要及并发摘要测试
+ */
+public class SM3HashTest {
+
+    private static byte[] randomBytes(int length) {
+        byte[] ret = new byte[length];
+        new Random(length).nextBytes(ret);
+        return ret;
+    }
+
+    @Test
+    public void testStreamingMatchesOneShot() {
+        byte[] a = randomBytes(100);
+        byte[] b = randomBytes(5000);
+        ByteString concat = ByteString.copyFrom(a).concat(ByteString.copyFrom(b));
+        byte[] expected = new SM3().hash(concat.toByteArray());
+
+        SM3Hash hash = new SM3Hash();
+        hash.write(concat);
+        Assert.assertArrayEquals(expected, hash.sum(null));
+        //sum不改变状态
+        Assert.assertArrayEquals(expected, hash.sum(new byte[0]));
+
+        hash.reset();
+        hash.write(a);
+        ByteBuffer direct = ByteBuffer.allocateDirect(b.length);
+        direct.put(b).flip();
+        hash.write(direct);
+        Assert.assertEquals(0, direct.position());
+        Assert.assertArrayEquals(expected, hash.digest());
+    }
+
+    @Test
+    public void testConcurrentHash() throws Exception {
+        SM3 sm3 = new SM3();
+        byte[] msg = randomBytes(1024);
+        byte[] expected = sm3.hash(msg);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; ++i) {
+            futures.add(executorService.submit(() -> {
+                for (int j = 0; j < 1000; ++j) {
+                    if (!Arrays.equals(expected, sm3.hash(msg))) {
+                        return false;
+                    }
+                }
+                return true;
+            }));
+        }
+        for (Future<Boolean> future : futures) {
+            Assert.assertTrue(future.get());
+        }
+        executorService.shutdown();
+    }
+}
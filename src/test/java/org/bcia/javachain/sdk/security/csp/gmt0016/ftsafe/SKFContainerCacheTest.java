@@ -0,0 +1,144 @@
+/**
+ * Copyright Feitian. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.bcia.javachain.common.exception.SarException;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SKFContainerCache against an in-memory SKF device that counts the calls made to it.
+ */
+public class SKFContainerCacheTest {
+
+    private final Map<String, Integer> calls = new HashMap<>();
+    private final List<String> containerNames = new ArrayList<>(Arrays.asList("c1"));
+
+    //in-memory device with SM2 containers, counts the calls made to it
+    private ISKFFactory newDevice() {
+        return (ISKFFactory) Proxy.newProxyInstance(ISKFFactory.class.getClassLoader(),
+                new Class<?>[]{ISKFFactory.class}, (proxy, method, args) -> {
+                    calls.merge(method.getName(), 1, Integer::sum);
+                    switch (method.getName()) {
+                        case "SKF_EnumContainer":
+                            return new ArrayList<>(containerNames);
+                        case "SKF_OpenContainer":
+                            return 7L;
+                        case "SKF_CreateContainer":
+                            return 8L;
+                        case "SKF_GetContainerType":
+                            return 2L;
+                        case "SKF_ExportPublicKey":
+                            return new Object();
+                        case "SKF_VerifyPIN":
+                            return 0L;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private int count(String name) {
+        return calls.getOrDefault(name, 0);
+    }
+
+    @Test
+    public void testHandlesAndKeysAreCached() throws Exception {
+        SKFContainerCache cache = new SKFContainerCache(newDevice(), 1L, "12345678");
+
+        for (int i = 0; i < 10; i++) {
+            cache.verifyPIN();
+            Assert.assertEquals(7L, cache.openContainer("c1"));
+            Assert.assertEquals(2L, cache.getContainerType("c1"));
+            Assert.assertNotNull(cache.exportPublicKey("c1", true, true));
+        }
+        Assert.assertEquals(1, count("SKF_VerifyPIN"));
+        Assert.assertEquals(1, count("SKF_EnumContainer"));
+        Assert.assertEquals(1, count("SKF_OpenContainer"));
+        Assert.assertEquals(1, count("SKF_GetContainerType"));
+        Assert.assertEquals(1, count("SKF_ExportPublicKey"));
+        Assert.assertEquals(0, count("SKF_CloseContainer"));
+
+        Assert.assertEquals(0L, cache.openContainer("missing"));
+        Assert.assertEquals(2, count("SKF_EnumContainer"));
+    }
+
+    @Test
+    public void testMissingContainerIsLookedUpAgain() throws Exception {
+        SKFContainerCache cache = new SKFContainerCache(newDevice(), 1L, "12345678");
+
+        Assert.assertFalse(cache.exists("c2"));
+        //created by another application since
+        containerNames.add("c2");
+        Assert.assertTrue(cache.exists("c2"));
+        Assert.assertEquals(7L, cache.openContainer("c2"));
+        Assert.assertEquals(2, count("SKF_EnumContainer"));
+    }
+
+    @Test
+    public void testLoginErrorVerifiesPINAgain() throws Exception {
+        SKFContainerCache cache = new SKFContainerCache(newDevice(), 1L, "12345678");
+        cache.verifyPIN();
+        cache.openContainer("c1");
+
+        cache.failed("c1", new SarException(SarException.SAR_FAIL));
+        cache.verifyPIN();
+        Assert.assertEquals(1, count("SKF_VerifyPIN"));
+        Assert.assertEquals(1, count("SKF_CloseContainer"));
+
+        cache.failed("c1", new SarException(SarException.SAR_USER_NOT_LOGGED_IN));
+        cache.verifyPIN();
+        Assert.assertEquals(2, count("SKF_VerifyPIN"));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        SKFContainerCache cache = new SKFContainerCache(newDevice(), 1L, "12345678");
+        Object key = cache.exportPublicKey("c1", true, true);
+
+        cache.keysChanged("c1");
+        Assert.assertNotSame(key, cache.exportPublicKey("c1", true, true));
+        Assert.assertEquals(1, count("SKF_OpenContainer"));
+        Assert.assertEquals(2, count("SKF_ExportPublicKey"));
+
+        cache.invalidate("c1");
+        Assert.assertEquals(1, count("SKF_CloseContainer"));
+        cache.openContainer("c1");
+        Assert.assertEquals(2, count("SKF_OpenContainer"));
+        Assert.assertEquals(1, count("SKF_EnumContainer"));
+
+        cache.verifyPIN();
+        cache.invalidateAll();
+        cache.verifyPIN();
+        cache.openContainer("c1");
+        Assert.assertEquals(2, count("SKF_VerifyPIN"));
+        Assert.assertEquals(2, count("SKF_EnumContainer"));
+        Assert.assertEquals(3, count("SKF_OpenContainer"));
+
+        Assert.assertEquals(8L, cache.createContainer("c2"));
+        Assert.assertTrue(cache.exists("c2"));
+        Assert.assertEquals(8L, cache.openContainer("c2"));
+        Assert.assertEquals(3, count("SKF_OpenContainer"));
+    }
+}
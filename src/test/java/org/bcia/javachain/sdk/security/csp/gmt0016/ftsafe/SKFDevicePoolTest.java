@@ -0,0 +1,254 @@
+/**
+ * Copyright Feitian. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe;
+
+import org.bcia.javachain.common.exception.JavaChainException;
+import org.bcia.javachain.common.exception.SarException;
+import org.bcia.javachain.sdk.common.log.JavaChainLog;
+import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
+import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.entity.GMT0016Lib;
+import org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.util.SKFCspKey;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SKFDevicePool over in-memory SKF devices: scheduling, failover and key checks on connect.
+ */
+public class SKFDevicePoolTest {
+
+    private static JavaChainLog log = JavaChainLogFactory.getLog(SKFDevicePoolTest.class);
+
+    private static final String CONTAINER = "c1";
+    private static final GMT0016Lib LIB = new GMT0016Lib("lib", "label", "sn", "12345678", "12345678", "app");
+
+    //in-memory token holding the container, signing takes lLatency ms
+    private static class Token {
+        final AtomicInteger signs = new AtomicInteger();
+        final long lLatency;
+        volatile boolean bBroken = false;
+        //error code of a rejected input, 0 to accept
+        volatile int iRejectCode = 0;
+        final AtomicInteger rejects = new AtomicInteger();
+        final ISKFFactory skf;
+
+        Token(String devName, long lLatency) {
+            this.lLatency = lLatency;
+            this.skf = (ISKFFactory) Proxy.newProxyInstance(ISKFFactory.class.getClassLoader(),
+                    new Class<?>[]{ISKFFactory.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "SKF_EnumDevs":
+                                return Arrays.asList(devName);
+                            case "SKF_EnumApplication":
+                                return Arrays.asList("app");
+                            case "SKF_EnumContainer":
+                                return Arrays.asList(CONTAINER);
+                            case "SKF_ConnectDev":
+                            case "SKF_OpenApplication":
+                            case "SKF_OpenContainer":
+                                return 1L;
+                            case "SKF_GetContainerType":
+                                return 2L;
+                            case "SKF_VerifyPIN":
+                                return 0L;
+                            case "SKF_ECCSignData":
+                                if (bBroken) {
+                                    throw new SarException(SarException.SAR_FAIL);
+                                }
+                                if (iRejectCode != 0) {
+                                    rejects.incrementAndGet();
+                                    throw new SarException(iRejectCode);
+                                }
+                                Thread.sleep(lLatency);
+                                signs.incrementAndGet();
+                                return ((byte[]) args[1]).clone();
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+
+    private SKFDevicePool newPool(List<Token> tokens, int iQueueSize) throws Exception {
+        List<IGMT0016FactoryOpts> opts = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            opts.add(new GMT0016FactoryOpts(LIB, tokens.get(i).skf, "dev" + i));
+        }
+        return new SKFDevicePool(opts, iQueueSize);
+    }
+
+    private void signAll(SKFDevicePool pool, int iThreads, int iCount) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(iThreads);
+        List<Future<byte[]>> futures = new ArrayList<>();
+        for (int i = 0; i < iCount; i++) {
+            byte[] digest = new byte[]{(byte) i};
+            futures.add(executor.submit(() -> pool.sign(digest, CONTAINER)));
+        }
+        for (int i = 0; i < iCount; i++) {
+            Assert.assertArrayEquals(new byte[]{(byte) i}, futures.get(i).get());
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testLeastBusy() throws Exception {
+        Token fast1 = new Token("dev0", 2);
+        Token fast2 = new Token("dev1", 2);
+        Token slow = new Token("dev2", 40);
+        SKFDevicePool pool = newPool(Arrays.asList(fast1, fast2, slow), 2);
+
+        long start = System.currentTimeMillis();
+        signAll(pool, 8, 120);
+        long elapsed = System.currentTimeMillis() - start;
+        pool.close();
+
+        Assert.assertEquals(120, fast1.signs.get() + fast2.signs.get() + slow.signs.get());
+        Assert.assertTrue(fast1.signs.get() > slow.signs.get());
+        Assert.assertTrue(fast2.signs.get() > slow.signs.get());
+        log.info(String.format("120 signs over 3 tokens in %d ms, per token: %d %d %d",
+                elapsed, fast1.signs.get(), fast2.signs.get(), slow.signs.get()));
+    }
+
+    @Test
+    public void testFailingDeviceLeavesRotation() throws Exception {
+        Token good = new Token("dev0", 1);
+        Token broken = new Token("dev1", 1);
+        broken.bBroken = true;
+        SKFDevicePool pool = newPool(Arrays.asList(good, broken), 4);
+
+        signAll(pool, 4, 50);
+        Assert.assertEquals(50, good.signs.get());
+        Assert.assertEquals(1, pool.getAvailableCount());
+        pool.close();
+    }
+
+    @Test
+    public void testInterruptIsNotADeviceFailure() throws Exception {
+        Token token = new Token("dev0", 1);
+        SKFDevicePool pool = newPool(Arrays.asList(token), 1);
+        for (int i = 0; i < SKFDevicePool.MAX_FAILURES; i++) {
+            Thread.currentThread().interrupt();
+            try {
+                pool.sign(new byte[]{1}, CONTAINER);
+                Assert.fail("sign should fail");
+            } catch (JavaChainException ex) {
+                Assert.assertTrue(Thread.interrupted());
+            }
+        }
+        Assert.assertEquals(1, pool.getAvailableCount());
+        Assert.assertArrayEquals(new byte[]{2}, pool.sign(new byte[]{2}, CONTAINER));
+        pool.close();
+    }
+
+    @Test
+    public void testRejectedInputIsNotADeviceFailure() throws Exception {
+        Token rejecting = new Token("dev0", 1);
+        Token good = new Token("dev1", 1);
+        rejecting.iRejectCode = SarException.SAR_INDATALENERR;
+        good.iRejectCode = SarException.SAR_INDATALENERR;
+        SKFDevicePool pool = newPool(Arrays.asList(rejecting, good), 1);
+        for (int i = 0; i < SKFDevicePool.MAX_FAILURES * 2; i++) {
+            try {
+                pool.sign(new byte[]{1}, CONTAINER);
+                Assert.fail("sign should fail");
+            } catch (JavaChainException ex) {
+                //expected
+            }
+        }
+        //every request was tried on one device only
+        Assert.assertEquals(SKFDevicePool.MAX_FAILURES * 2, rejecting.rejects.get() + good.rejects.get());
+        Assert.assertEquals(2, pool.getAvailableCount());
+
+        rejecting.iRejectCode = 0;
+        good.iRejectCode = 0;
+        Assert.assertArrayEquals(new byte[]{2}, pool.sign(new byte[]{2}, CONTAINER));
+        pool.close();
+    }
+
+    //one SKF library seeing several devices, device i holds keys[i] in the container
+    private static ISKFFactory devicesSkf(byte[]... keys) {
+        return (ISKFFactory) Proxy.newProxyInstance(ISKFFactory.class.getClassLoader(),
+                new Class<?>[]{ISKFFactory.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "SKF_EnumDevs":
+                            List<String> names = new ArrayList<>();
+                            for (int i = 0; i < keys.length; i++) {
+                                names.add("dev" + i);
+                            }
+                            return names;
+                        case "SKF_ConnectDev":
+                            return Long.parseLong(((String) args[0]).substring(3)) + 1;
+                        case "SKF_EnumApplication":
+                            return Arrays.asList("app");
+                        case "SKF_EnumContainer":
+                            return Arrays.asList(CONTAINER);
+                        case "SKF_OpenApplication":
+                        case "SKF_OpenContainer":
+                            return args[0];
+                        case "SKF_GetContainerType":
+                            return 2L;
+                        case "SKF_ExportPublicKey":
+                            byte[] key = keys[(int) ((Long) args[0] - 1)];
+                            return new SKFCspKey.ECCPublicKeyBlob(Arrays.copyOfRange(key, 0, 32),
+                                    Arrays.copyOfRange(key, 32, 64), 256);
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private static byte[] key(int b) {
+        byte[] key = new byte[64];
+        Arrays.fill(key, (byte) b);
+        return key;
+    }
+
+    @Test
+    public void testConnectSkipsDeviceWithAnotherKey() throws Exception {
+        SKFDevicePool pool = SKFDevicePool.connect(LIB, devicesSkf(key(1), key(2), key(1)), CONTAINER, 1);
+        Assert.assertEquals(2, pool.size());
+        Assert.assertEquals(1L, pool.getDevicesOpts().get(0).getDevHandle());
+        Assert.assertEquals(3L, pool.getDevicesOpts().get(1).getDevHandle());
+        pool.close();
+
+        pool = SKFDevicePool.connect(LIB, devicesSkf(key(1), key(2), key(1)), CONTAINER, key(2), 1);
+        Assert.assertEquals(1, pool.size());
+        Assert.assertEquals(2L, pool.getDevicesOpts().get(0).getDevHandle());
+        pool.close();
+    }
+
+    @Test
+    public void testAllDevicesFail() throws Exception {
+        Token broken = new Token("dev0", 1);
+        broken.bBroken = true;
+        SKFDevicePool pool = newPool(Arrays.asList(broken), 1);
+        try {
+            pool.sign(new byte[]{1}, CONTAINER);
+            Assert.fail("sign should fail");
+        } catch (Exception ex) {
+            //expected
+        }
+        pool.close();
+    }
+}
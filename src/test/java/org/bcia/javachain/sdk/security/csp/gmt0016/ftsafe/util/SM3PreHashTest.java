@@ -0,0 +1,53 @@
+/**
+ * Copyright Feitian. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk.security.csp.gmt0016.ftsafe.util;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * SM3PreHash against the sign vector of GM/T 0003.5.
+ */
+public class SM3PreHashTest {
+
+    //sm2p256v1 sign vector of GM/T 0003.5, user ID 1234567812345678
+    private static final byte[] X = Hex.decode("09F9DF311E5421A150DD7D161E4BC5C672179FAD1833FC076BB08FF356F35020");
+    private static final byte[] Y = Hex.decode("CCEA490CE26775A52DC6EA718CC1AA600AED05FBF35E084A6632F6072DA9AD13");
+    private static final byte[] MSG = "message digest".getBytes();
+    private static final String Z = "B2E14C5C79C6DF5B85F4FE7ED8DB7A262B9DA7E07CCB0EA9F4747B8CCDA8A4F3";
+    private static final String E = "F0B43E94BA45ACCAACE692ED534382EB17E6AB5A19CE7B31F4486FDFC0D28640";
+
+    @Test
+    public void testVector() {
+        SKFCspKey.ECCPublicKeyBlob blob = new SKFCspKey.ECCPublicKeyBlob(X, Y, 256);
+        Assert.assertEquals(Z, Hex.toHexString(SM3PreHash.getZ(blob, "1234567812345678")).toUpperCase());
+        Assert.assertEquals(E, Hex.toHexString(SM3PreHash.hash(MSG, blob, "1234567812345678")).toUpperCase());
+        //no ID, the default ID is used
+        Assert.assertEquals(E, Hex.toHexString(SM3PreHash.hash(MSG, blob, null)).toUpperCase());
+    }
+
+    @Test
+    public void testRightAlignedBlob() {
+        //the device blob holds 64 byte coordinates
+        SKFCspKey.ECCPublicKeyBlob blob = new SKFCspKey.ECCPublicKeyBlob();
+        blob.setxCoordinate(new byte[64]);
+        blob.setyCoordinate(new byte[64]);
+        System.arraycopy(X, 0, blob.getxCoordinate(), 32, 32);
+        System.arraycopy(Y, 0, blob.getyCoordinate(), 32, 32);
+        Assert.assertEquals(E, Hex.toHexString(SM3PreHash.hash(MSG, blob, "1234567812345678")).toUpperCase());
+    }
+}
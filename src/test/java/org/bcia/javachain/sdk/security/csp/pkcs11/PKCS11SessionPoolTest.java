@@ -0,0 +1,113 @@
+/**
+ * Copyright Feitian. All Rights Reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bcia.javachain.sdk.security.csp.pkcs11;
+
+import org.bcia.javachain.sdk.common.log.JavaChainLog;
+import org.bcia.javachain.sdk.common.log.JavaChainLogFactory;
+import org.bcia.javachain.sdk.security.csp.intfs.IKey;
+import org.bcia.javachain.sdk.security.csp.pkcs11.ecdsa.EcdsaOpts;
+import org.bcia.javachain.sdk.security.csp.pkcs11.ecdsa.EcdsaSignOpts;
+import org.bcia.javachain.sdk.security.csp.pkcs11.entity.PKCS11Config;
+import org.bcia.javachain.sdk.security.csp.pkcs11.entity.PKCS11Lib;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Concurrent signing over the session pool, run against a SoftHSM token:
+ * PKCS11_LIB=/usr/lib/softhsm/libsofthsm2.so PKCS11_LABEL=... PKCS11_SN=... PKCS11_PIN=...
+ */
+public class PKCS11SessionPoolTest {
+
+    private static JavaChainLog log = JavaChainLogFactory.getLog(PKCS11SessionPoolTest.class);
+
+    private static final int POOL_SIZE = 4;
+    private static final int THREADS = 8;
+    private static final int SIGNS = 50;
+
+    private PKCS11FactoryOpts opts;
+    private PKCS11Csp csp;
+
+    @Before
+    public void setUp() throws Exception {
+        String lib = System.getenv("PKCS11_LIB");
+        Assume.assumeTrue("PKCS11_LIB is not set", lib != null && !lib.isEmpty());
+
+        PKCS11Config config = new PKCS11Config(256, "SHA2", false, false);
+        config.setSessionPoolSize(POOL_SIZE);
+        opts = new PKCS11FactoryOpts(new PKCS11Lib(lib, System.getenv("PKCS11_LABEL"),
+                System.getenv("PKCS11_SN"), System.getenv("PKCS11_PIN")), config);
+        csp = new PKCS11Csp(opts);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (csp != null) {
+            csp.finalized();
+        }
+    }
+
+    @Test
+    public void testConcurrentSign() throws Exception {
+        IKey key = csp.keyGen(new EcdsaOpts.ECDSA256KeyGenOpts(true));
+        //the key handle is found once and cached by SKI
+        Assert.assertNotNull(csp.getKey(key.ski()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < THREADS * SIGNS; i++) {
+            byte[] digest = new byte[32];
+            digest[0] = (byte) i;
+            futures.add(executor.submit(() -> {
+                byte[] signature = csp.sign(key, digest, EcdsaSignOpts.ECDSA);
+                return csp.verify(key, signature, digest, EcdsaSignOpts.ECDSA);
+            }));
+        }
+        for (Future<Boolean> future : futures) {
+            Assert.assertTrue(future.get());
+        }
+        long nanos = System.nanoTime() - start;
+        executor.shutdown();
+
+        Assert.assertTrue(opts.getSessionPool().getSessionCount() <= POOL_SIZE);
+        log.info(String.format("sign+verify with %d threads over %d sessions: %d ns/op",
+                THREADS, opts.getSessionPool().getSessionCount(), nanos / (THREADS * SIGNS)));
+    }
+
+    @Test
+    public void testNestedAcquireSharesSession() throws Exception {
+        PKCS11SessionPool pool = opts.getSessionPool();
+        long session = pool.acquire();
+        try {
+            Assert.assertEquals(session, opts.getSessionhandle());
+            Assert.assertEquals(session, pool.acquire());
+            pool.release();
+            Assert.assertEquals(session, opts.getSessionhandle());
+        } finally {
+            pool.release();
+        }
+        Assert.assertNotEquals(session, opts.getSessionhandle());
+    }
+}
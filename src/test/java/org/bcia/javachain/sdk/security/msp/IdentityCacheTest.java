@@ -0,0 +1,41 @@
+package org.bcia.javachain.sdk.security.msp;
+
+import org.bcia.javachain.sdk.security.msp.mgmt.Identity;
+import org.bcia.javachain.sdk.security.msp.mgmt.IdentityCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 身份缓存测试
+ */
+public class IdentityCacheTest {
+
+    @Test
+    public void testHitMissAndInvalidate() {
+        IdentityCache cache = new IdentityCache();
+        IIdentity identity = new Identity();
+        ByteBuffer key = cache.key("identity".getBytes());
+
+        Assert.assertNull(cache.get(key));
+        cache.put(key, identity);
+        //相同字节得到相同的键
+        Assert.assertSame(identity, cache.get(cache.key("identity".getBytes())));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+
+        cache.invalidate();
+        Assert.assertNull(cache.get(key));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testBounded() {
+        IdentityCache cache = new IdentityCache(64);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(cache.key(("identity" + i).getBytes()), new Identity());
+        }
+        Assert.assertTrue(cache.size() <= 64);
+    }
+}
@@ -0,0 +1,70 @@
+package org.bcia.javachain.sdk.security.msp;
+
+import org.bcia.javachain.common.exception.JavaChainException;
+import org.bcia.javachain.sdk.security.csp.gm.dxct.sm2.SM2SignerOpts;
+import org.bcia.javachain.sdk.security.csp.intfs.IKey;
+import org.bcia.javachain.sdk.security.msp.mgmt.GlobalMspManagement;
+import org.bcia.javachain.sdk.security.msp.mgmt.SignIdentity;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.lang.String.format;
+
+/**
+ * 签名身份私钥缓存测试,对比每次读取密钥存储目录与使用缓存私钥的签名耗时
+ */
+public class SignIdentityTest {
+
+    private static final int ROUNDS = 1000;
+
+    private Logger log = LoggerFactory.getLogger(SignIdentityTest.class);
+
+    private static SignIdentity signIdentity;
+
+    @BeforeClass
+    public static void setup() {
+        signIdentity = (SignIdentity) GlobalMspManagement.getLocalMsp().getDefaultSigningIdentity();
+    }
+
+    @Test
+    public void testSignWithCachedKey() {
+        byte[] msg = "继续走永远流留着我的笑容".getBytes();
+        byte[] sigBytes = signIdentity.sign(msg);
+        Assert.assertNotNull(sigBytes);
+        Assert.assertNotNull(signIdentity.getNodeSigner().getSk());
+    }
+
+    @Test
+    public void testReloadSigningKey() throws JavaChainException {
+        IKey before = signIdentity.getNodeSigner().getSk();
+        IKey after = signIdentity.reloadSigningKey();
+        Assert.assertNotSame(before, after);
+        Assert.assertSame(after, signIdentity.getNodeSigner().getSk());
+        Assert.assertNotNull(signIdentity.sign("msg".getBytes()));
+    }
+
+    @Test
+    public void benchmarkSignLatency() throws JavaChainException {
+        byte[] msg = new byte[1024];
+
+        //旧方式:每次签名都重新读取并导入私钥
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            IKey sk = SignIdentity.importSkFromKeyStore();
+            signIdentity.getMsp().getCsp().sign(sk, msg, new SM2SignerOpts());
+        }
+        long reloadNanos = (System.nanoTime() - start) / ROUNDS;
+
+        //新方式:使用签名者持有的私钥
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            signIdentity.sign(msg);
+        }
+        long cachedNanos = (System.nanoTime() - start) / ROUNDS;
+
+        log.info(format("sign latency: reload key %d us/op, cached key %d us/op", reloadNanos / 1000, cachedNanos / 1000));
+    }
+}